@@ -0,0 +1,42 @@
+package bg.sofia.uni.fmi.mjt.password.vault.client;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// A hashed password is created for every password sent by the client, each one makes an MD5, a SHA-1 and a
+// SHA-256 pass over the password.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashedPasswordBenchmark {
+
+    @Param({"8", "32", "128"})
+    private int passwordLength;
+
+    private char[] password;
+
+    @Setup
+    public void setUp() {
+        password = "p".repeat(passwordLength).toCharArray();
+    }
+
+    @Benchmark
+    public HashedPassword createHashedPassword() {
+        return new HashedPassword(password);
+    }
+
+}
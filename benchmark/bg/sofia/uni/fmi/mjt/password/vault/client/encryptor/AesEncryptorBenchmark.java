@@ -0,0 +1,59 @@
+package bg.sofia.uni.fmi.mjt.password.vault.client.encryptor;
+
+import bg.sofia.uni.fmi.mjt.password.vault.client.encryptor.generator.Pbkdf2KeyGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.BadPaddingException;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AesEncryptorBenchmark {
+
+    @Param({"16", "64", "1024"})
+    private int dataLength;
+
+    private SecretKey key;
+    private byte[] data;
+    private String encryptedData;
+
+    @Setup
+    public void setUp() throws GeneralSecurityException {
+        key = Pbkdf2KeyGenerator.builder()
+                .build()
+                .generateKey("BENCHMARK_PASSWORD".toCharArray(), new byte[16])
+                .getKey();
+        data = "d".repeat(dataLength).getBytes(StandardCharsets.UTF_8);
+        encryptedData = AesEncryptor.encryptData(data, key);
+    }
+
+    @Benchmark
+    public String encryptData() throws InvalidKeyException, IllegalBlockSizeException, BadPaddingException {
+        return AesEncryptor.encryptData(data, key);
+    }
+
+    @Benchmark
+    public byte[] decryptData() throws InvalidKeyException, IllegalBlockSizeException, BadPaddingException {
+        return AesEncryptor.decryptData(encryptedData, key);
+    }
+
+}
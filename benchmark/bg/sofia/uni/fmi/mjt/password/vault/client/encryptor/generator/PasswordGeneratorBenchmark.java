@@ -0,0 +1,54 @@
+package bg.sofia.uni.fmi.mjt.password.vault.client.encryptor.generator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.concurrent.TimeUnit;
+
+// Should be run from the project directory, so the wordlist can be found.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PasswordGeneratorBenchmark {
+
+    private static final String WORDLIST_PATH = "wordlist/PasswordGeneratorWordlist.txt";
+
+    private PasswordGenerator defaultPasswordGenerator;
+    private PasswordGenerator wordlistPasswordGenerator;
+
+    @Setup
+    public void setUp() throws IOException {
+        defaultPasswordGenerator = DefaultPasswordGenerator.builder()
+                .build();
+        try (Reader wordlistReader = new FileReader(WORDLIST_PATH)) {
+            wordlistPasswordGenerator = WordlistPasswordGenerator.builder()
+                    .setWordlistReader(wordlistReader)
+                    .build();
+        }
+    }
+
+    @Benchmark
+    public char[] generateDefaultPassword() {
+        return defaultPasswordGenerator.generatePassword();
+    }
+
+    @Benchmark
+    public char[] generateWordlistPassword() {
+        return wordlistPasswordGenerator.generatePassword();
+    }
+
+}
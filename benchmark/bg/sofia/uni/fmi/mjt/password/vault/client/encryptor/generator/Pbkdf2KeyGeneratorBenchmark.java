@@ -0,0 +1,58 @@
+package bg.sofia.uni.fmi.mjt.password.vault.client.encryptor.generator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.spec.InvalidKeySpecException;
+import java.util.concurrent.TimeUnit;
+
+// The cost grows linearly with the iterations count, 1024 is the default of the client.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Pbkdf2KeyGeneratorBenchmark {
+
+    private static final int SALT_SIZE = 16;
+
+    @Param({"1024", "10000", "100000"})
+    private int iterationsCount;
+
+    private KeyGenerator keyGenerator;
+    private char[] password;
+    private byte[] salt;
+
+    @Setup
+    public void setUp() {
+        keyGenerator = Pbkdf2KeyGenerator.builder()
+                .setIterationsCount(iterationsCount)
+                .setSaltSize(SALT_SIZE)
+                .build();
+        password = "BENCHMARK_PASSWORD".toCharArray();
+        salt = new byte[SALT_SIZE];
+    }
+
+    @Benchmark
+    public PasswordDerivedKey generateKeyWithSalt() throws NoSuchAlgorithmException, InvalidKeySpecException {
+        return keyGenerator.generateKey(password, salt);
+    }
+
+    // includes creating a SecureRandom for the salt, as logging in for the first time does
+    @Benchmark
+    public PasswordDerivedKey generateKey() throws NoSuchAlgorithmException, InvalidKeySpecException {
+        return keyGenerator.generateKey(password);
+    }
+
+}
@@ -0,0 +1,197 @@
+package bg.sofia.uni.fmi.mjt.password.vault.load;
+
+import bg.sofia.uni.fmi.mjt.password.vault.protocol.WireProtocol;
+import bg.sofia.uni.fmi.mjt.password.vault.server.durability.DurabilityMode;
+
+public class LoadConfiguration {
+
+    private static final int DEFAULT_CONNECTIONS_COUNT = 1000;
+    private static final long DEFAULT_REQUESTS_PER_SECOND = 0;
+    private static final long DEFAULT_WARMUP_MILLIS = 5_000;
+    private static final long DEFAULT_DURATION_MILLIS = 30_000;
+    private static final long DEFAULT_BREACH_CHECK_DELAY_MILLIS = 0;
+    private static final WireProtocol DEFAULT_WIRE_PROTOCOL = WireProtocol.BINARY;
+    private static final DurabilityMode DEFAULT_DURABILITY_MODE = DurabilityMode.NONE;
+    private static final long DEFAULT_SEED = 42;
+
+    private final int connectionsCount;
+    private final long requestsPerSecond;
+    private final long warmupMillis;
+    private final long durationMillis;
+    private final long breachCheckDelayMillis;
+    private final WireProtocol wireProtocol;
+    private final RequestMix mix;
+    private final DurabilityMode durabilityMode;
+    private final long seed;
+
+    private LoadConfiguration(LoadConfigurationBuilder builder) {
+        this.connectionsCount = builder.connectionsCount;
+        this.requestsPerSecond = builder.requestsPerSecond;
+        this.warmupMillis = builder.warmupMillis;
+        this.durationMillis = builder.durationMillis;
+        this.breachCheckDelayMillis = builder.breachCheckDelayMillis;
+        this.wireProtocol = builder.wireProtocol;
+        this.mix = builder.mix;
+        this.durabilityMode = builder.durabilityMode;
+        this.seed = builder.seed;
+    }
+
+    public static LoadConfigurationBuilder builder() {
+        return new LoadConfigurationBuilder();
+    }
+
+    public int getConnectionsCount() {
+        return connectionsCount;
+    }
+
+    // the total rate of all connections, zero means that every connection sends as soon as it gets a response
+    public long getRequestsPerSecond() {
+        return requestsPerSecond;
+    }
+
+    public boolean isOpenLoop() {
+        return requestsPerSecond > 0;
+    }
+
+    public long getWarmupMillis() {
+        return warmupMillis;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public long getBreachCheckDelayMillis() {
+        return breachCheckDelayMillis;
+    }
+
+    public WireProtocol getWireProtocol() {
+        return wireProtocol;
+    }
+
+    public RequestMix getMix() {
+        return mix;
+    }
+
+    // the durability mode of the server, the group commit uses the default interval and batch size
+    public DurabilityMode getDurabilityMode() {
+        return durabilityMode;
+    }
+
+    // the same seed replays the same sequence of requests on every connection
+    public long getSeed() {
+        return seed;
+    }
+
+    @Override
+    public String toString() {
+        return "connections: " + connectionsCount +
+                ", mode: " + (isOpenLoop() ? "open loop at " + requestsPerSecond + " requests/s" : "closed loop") +
+                ", warmup: " + warmupMillis + " ms" +
+                ", duration: " + durationMillis + " ms" +
+                ", breach check delay: " + breachCheckDelayMillis + " ms" +
+                ", protocol: " + wireProtocol +
+                ", mix: " + mix +
+                ", durability: " + durabilityMode +
+                ", seed: " + seed;
+    }
+
+    public static class LoadConfigurationBuilder {
+
+        private int connectionsCount = DEFAULT_CONNECTIONS_COUNT;
+        private long requestsPerSecond = DEFAULT_REQUESTS_PER_SECOND;
+        private long warmupMillis = DEFAULT_WARMUP_MILLIS;
+        private long durationMillis = DEFAULT_DURATION_MILLIS;
+        private long breachCheckDelayMillis = DEFAULT_BREACH_CHECK_DELAY_MILLIS;
+        private WireProtocol wireProtocol = DEFAULT_WIRE_PROTOCOL;
+        private RequestMix mix = RequestMix.defaultMix();
+        private DurabilityMode durabilityMode = DEFAULT_DURABILITY_MODE;
+        private long seed = DEFAULT_SEED;
+
+        private LoadConfigurationBuilder() {
+        }
+
+        public LoadConfigurationBuilder setConnectionsCount(int connectionsCount) {
+            if (connectionsCount <= 0) {
+                throw new IllegalArgumentException("connectionsCount should have a positive value.");
+            }
+
+            this.connectionsCount = connectionsCount;
+            return this;
+        }
+
+        public LoadConfigurationBuilder setRequestsPerSecond(long requestsPerSecond) {
+            if (requestsPerSecond < 0) {
+                throw new IllegalArgumentException("requestsPerSecond should not be negative.");
+            }
+
+            this.requestsPerSecond = requestsPerSecond;
+            return this;
+        }
+
+        public LoadConfigurationBuilder setWarmupMillis(long warmupMillis) {
+            if (warmupMillis < 0) {
+                throw new IllegalArgumentException("warmupMillis should not be negative.");
+            }
+
+            this.warmupMillis = warmupMillis;
+            return this;
+        }
+
+        public LoadConfigurationBuilder setDurationMillis(long durationMillis) {
+            if (durationMillis <= 0) {
+                throw new IllegalArgumentException("durationMillis should have a positive value.");
+            }
+
+            this.durationMillis = durationMillis;
+            return this;
+        }
+
+        public LoadConfigurationBuilder setBreachCheckDelayMillis(long breachCheckDelayMillis) {
+            if (breachCheckDelayMillis < 0) {
+                throw new IllegalArgumentException("breachCheckDelayMillis should not be negative.");
+            }
+
+            this.breachCheckDelayMillis = breachCheckDelayMillis;
+            return this;
+        }
+
+        public LoadConfigurationBuilder setWireProtocol(WireProtocol wireProtocol) {
+            if (wireProtocol == null) {
+                throw new IllegalArgumentException("wireProtocol should not be null.");
+            }
+
+            this.wireProtocol = wireProtocol;
+            return this;
+        }
+
+        public LoadConfigurationBuilder setMix(RequestMix mix) {
+            if (mix == null) {
+                throw new IllegalArgumentException("mix should not be null.");
+            }
+
+            this.mix = mix;
+            return this;
+        }
+
+        public LoadConfigurationBuilder setDurabilityMode(DurabilityMode durabilityMode) {
+            if (durabilityMode == null) {
+                throw new IllegalArgumentException("durabilityMode should not be null.");
+            }
+
+            this.durabilityMode = durabilityMode;
+            return this;
+        }
+
+        public LoadConfigurationBuilder setSeed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public LoadConfiguration build() {
+            return new LoadConfiguration(this);
+        }
+
+    }
+
+}
\ No newline at end of file
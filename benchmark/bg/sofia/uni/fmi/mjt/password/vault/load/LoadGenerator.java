@@ -0,0 +1,213 @@
+package bg.sofia.uni.fmi.mjt.password.vault.load;
+
+import bg.sofia.uni.fmi.mjt.password.vault.configuration.ConfigurationData;
+import bg.sofia.uni.fmi.mjt.password.vault.server.DefaultPasswordVault;
+import bg.sofia.uni.fmi.mjt.password.vault.server.DurablePasswordVault;
+import bg.sofia.uni.fmi.mjt.password.vault.server.PasswordVault;
+import bg.sofia.uni.fmi.mjt.password.vault.server.durability.FileSyncer;
+import bg.sofia.uni.fmi.mjt.password.vault.server.durability.GroupCommitFileSyncer;
+import bg.sofia.uni.fmi.mjt.password.vault.server.durability.PerWriteFileSyncer;
+import bg.sofia.uni.fmi.mjt.password.vault.server.logger.Level;
+import bg.sofia.uni.fmi.mjt.password.vault.server.logger.Logger;
+import bg.sofia.uni.fmi.mjt.password.vault.server.nio.NioPasswordVaultServer;
+import bg.sofia.uni.fmi.mjt.password.vault.server.repository.UserRepository;
+import bg.sofia.uni.fmi.mjt.password.vault.server.user.DefaultUser;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Runs the server in this process over files in a temporary directory, so the load never touches the real data.
+public class LoadGenerator {
+
+    private static final String SERVER_HOST = "localhost";
+    private static final String USERS_FILE_NAME = "Users.dat";
+    private static final String CREDENTIALS_DIRECTORY_NAME = "credentials";
+    private static final String CREDENTIALS_FILE_EXTENSION = "dat";
+    private static final int MAX_CONNECTING_THREADS_COUNT = 64;
+    private static final long SERVER_START_TIMEOUT_MILLIS = 10_000;
+    private static final long SERVER_START_POLL_MILLIS = 10;
+    private static final long START_DELAY_MILLIS = 100;
+
+    // the handlers log every request, the load measures the server without the cost of the log files
+    private static final Logger DISCARDING_LOGGER = new Logger() {
+        @Override
+        public void log(Level level, LocalDateTime timestamp, String message) {
+        }
+
+        @Override
+        public Path getCurrentFilePath() {
+            return null;
+        }
+    };
+
+    private final LoadConfiguration configuration;
+
+    public LoadGenerator(LoadConfiguration configuration) {
+        if (configuration == null) {
+            throw new IllegalArgumentException("Configuration should not be null.");
+        }
+
+        this.configuration = configuration;
+    }
+
+    public LoadResult run() throws IOException, InterruptedException {
+        Path dataDirectory = Files.createTempDirectory("password-vault-load");
+        PrintStream standardOut = System.out;
+        // the handlers also print every request, which would flood the console and slow the server down
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            return run(dataDirectory);
+        } finally {
+            System.setOut(standardOut);
+            deleteDirectory(dataDirectory);
+        }
+    }
+
+    private LoadResult run(Path dataDirectory) throws IOException, InterruptedException {
+        Path usersFilePath = Files.createFile(dataDirectory.resolve(USERS_FILE_NAME));
+        Path credentialsDirectory = Files.createDirectory(dataDirectory.resolve(CREDENTIALS_DIRECTORY_NAME));
+        InetSocketAddress serverAddress = new InetSocketAddress(SERVER_HOST, findFreePort());
+        ConfigurationData data = ConfigurationData.builder(SERVER_HOST, serverAddress.getPort())
+                .setMaxConnections(configuration.getConnectionsCount() + 1)
+                .setDurabilityMode(configuration.getDurabilityMode())
+                .build();
+        PasswordVault passwordVault = new DefaultPasswordVault(
+                new UserRepository<>(usersFilePath, DefaultUser.class), DISCARDING_LOGGER, usersFilePath,
+                credentialsDirectory.toString(), CREDENTIALS_FILE_EXTENSION);
+        FileSyncer fileSyncer = switch (data.getDurabilityMode()) {
+            case NONE -> null;
+            case BATCHED -> new GroupCommitFileSyncer(data.getGroupCommitIntervalMillis(),
+                    data.getGroupCommitMaxBatchSize());
+            case PER_WRITE -> new PerWriteFileSyncer();
+        };
+        if (fileSyncer != null) {
+            passwordVault = new DurablePasswordVault(passwordVault, fileSyncer, usersFilePath,
+                    credentialsDirectory.toString(), CREDENTIALS_FILE_EXTENSION);
+        }
+
+        NioPasswordVaultServer server = new NioPasswordVaultServer(data, passwordVault,
+                new StubCompromisedPasswordsClient(configuration.getBreachCheckDelayMillis()), DISCARDING_LOGGER);
+        Thread serverThread = new Thread(server, "load-server");
+        serverThread.start();
+
+        List<VirtualUser> users = new ArrayList<>();
+        try {
+            awaitServerStart(serverAddress);
+            for (int i = 0; i < configuration.getConnectionsCount(); i++) {
+                users.add(new VirtualUser(i, serverAddress, configuration));
+            }
+            connect(users);
+
+            LoadStatistics statistics = runLoad(users);
+            return new LoadResult(statistics, server.getMetrics());
+        } finally {
+            server.stop();
+            serverThread.join();
+            users.forEach(VirtualUser::disconnect);
+            if (fileSyncer instanceof GroupCommitFileSyncer groupCommitFileSyncer) {
+                groupCommitFileSyncer.close();
+            }
+        }
+    }
+
+    private LoadStatistics runLoad(List<VirtualUser> users) throws InterruptedException {
+        long startNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(START_DELAY_MILLIS);
+        long measurementStartNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(configuration.getWarmupMillis());
+        long measurementEndNanos = measurementStartNanos
+                + TimeUnit.MILLISECONDS.toNanos(configuration.getDurationMillis());
+        LoadStatistics statistics = new LoadStatistics(measurementStartNanos, measurementEndNanos);
+
+        // every connection sends its share of the rate, the first requests are spread over one interval
+        long intervalNanos = configuration.isOpenLoop()
+                ? TimeUnit.SECONDS.toNanos(users.size()) / configuration.getRequestsPerSecond() : 0;
+        List<Thread> threads = new ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            VirtualUser user = users.get(i);
+            long firstStartNanos = startNanos + intervalNanos * i / users.size();
+            Thread thread = new Thread(() -> user.run(firstStartNanos, intervalNanos, statistics),
+                    user.getUsername());
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        return statistics;
+    }
+
+    private void connect(List<VirtualUser> users) throws IOException, InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(users.size(), MAX_CONNECTING_THREADS_COUNT));
+        try {
+            List<Callable<Void>> connections = new ArrayList<>(users.size());
+            for (VirtualUser user : users) {
+                connections.add(() -> {
+                    user.connect();
+                    return null;
+                });
+            }
+
+            for (Future<Void> connection : executor.invokeAll(connections)) {
+                connection.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IOException("A client cannot connect to the server.", e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static int findFreePort() throws IOException {
+        try (ServerSocketChannel channel = ServerSocketChannel.open()) {
+            channel.bind(new InetSocketAddress(SERVER_HOST, 0));
+            return channel.socket().getLocalPort();
+        }
+    }
+
+    private static void awaitServerStart(InetSocketAddress serverAddress) throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + SERVER_START_TIMEOUT_MILLIS;
+        while (true) {
+            try {
+                // the connection only shows that the server accepts clients, so it is closed right away
+                SocketChannel.open(serverAddress).close();
+                return;
+            } catch (IOException e) {
+                if (System.currentTimeMillis() >= deadline) {
+                    throw new IOException("The server has not started in " + SERVER_START_TIMEOUT_MILLIS + " ms.", e);
+                }
+                Thread.sleep(SERVER_START_POLL_MILLIS);
+            }
+        }
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Cannot delete " + path + ".", e);
+                }
+            });
+        }
+    }
+
+}
\ No newline at end of file
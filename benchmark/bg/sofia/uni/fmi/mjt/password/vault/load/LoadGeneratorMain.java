@@ -0,0 +1,60 @@
+package bg.sofia.uni.fmi.mjt.password.vault.load;
+
+import bg.sofia.uni.fmi.mjt.password.vault.protocol.WireProtocol;
+import bg.sofia.uni.fmi.mjt.password.vault.server.durability.DurabilityMode;
+
+import java.io.IOException;
+
+// Usage: LoadGeneratorMain [--connections=1000] [--rate=0] [--warmup=5] [--duration=30] [--breach-delay=0]
+//                          [--protocol=BINARY] [--mix=GET_PASSWORD:50,STORE_PASSWORD:20,...] [--durability=NONE]
+//                          [--seed=42]
+// A zero rate runs the closed loop, a positive one the open loop with that many requests per second in total.
+public class LoadGeneratorMain {
+
+    private static final String OPTION_PREFIX = "--";
+    private static final long MILLIS_PER_SECOND = 1000;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        LoadConfiguration configuration = parseArguments(args);
+        System.out.println("Load: " + configuration);
+
+        LoadResult result = new LoadGenerator(configuration).run();
+
+        System.out.println("Clients:");
+        if (!configuration.isOpenLoop()) {
+            System.out.println("The closed loop waits for every response before the next request, " +
+                    "so the latencies leave out the requests a slow server keeps from being sent.");
+        }
+        result.statistics().writeReport(System.out);
+        System.out.println("Server:");
+        System.out.print(result.serverMetrics());
+    }
+
+    private static LoadConfiguration parseArguments(String[] args) {
+        LoadConfiguration.LoadConfigurationBuilder builder = LoadConfiguration.builder();
+        for (String argument : args) {
+            int separatorIndex = argument.indexOf('=');
+            if (!argument.startsWith(OPTION_PREFIX) || separatorIndex < 0) {
+                throw new IllegalArgumentException("Argument " + argument + " should be in the form --name=value.");
+            }
+
+            String name = argument.substring(OPTION_PREFIX.length(), separatorIndex);
+            String value = argument.substring(separatorIndex + 1);
+            switch (name) {
+                case "connections" -> builder.setConnectionsCount(Integer.parseInt(value));
+                case "rate" -> builder.setRequestsPerSecond(Long.parseLong(value));
+                case "warmup" -> builder.setWarmupMillis(Long.parseLong(value) * MILLIS_PER_SECOND);
+                case "duration" -> builder.setDurationMillis(Long.parseLong(value) * MILLIS_PER_SECOND);
+                case "breach-delay" -> builder.setBreachCheckDelayMillis(Long.parseLong(value));
+                case "protocol" -> builder.setWireProtocol(WireProtocol.valueOf(value));
+                case "mix" -> builder.setMix(RequestMix.of(value));
+                case "durability" -> builder.setDurabilityMode(DurabilityMode.valueOf(value));
+                case "seed" -> builder.setSeed(Long.parseLong(value));
+                default -> throw new IllegalArgumentException("Option " + name + " does not exist.");
+            }
+        }
+
+        return builder.build();
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,8 @@
+package bg.sofia.uni.fmi.mjt.password.vault.load;
+
+import bg.sofia.uni.fmi.mjt.password.vault.server.metrics.MetricsSnapshot;
+
+// The server measures a request from the time it is read, so its latencies leave out the time the request
+// waited to be sent. Comparing them with the latencies of the clients shows how much that time is.
+public record LoadResult(LoadStatistics statistics, MetricsSnapshot serverMetrics) {
+}
\ No newline at end of file
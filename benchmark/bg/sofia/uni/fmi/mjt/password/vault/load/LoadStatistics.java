@@ -0,0 +1,110 @@
+package bg.sofia.uni.fmi.mjt.password.vault.load;
+
+import bg.sofia.uni.fmi.mjt.password.vault.request.RequestType;
+import bg.sofia.uni.fmi.mjt.password.vault.server.metrics.HistogramSnapshot;
+import bg.sofia.uni.fmi.mjt.password.vault.server.metrics.LatencyHistogram;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Only the requests that should have started inside the measurement window are recorded. A request that
+// started late because the ones before it were slow is still measured from the time it should have started.
+public class LoadStatistics {
+
+    private static final String ROW_FORMAT = "  %-24s %10s %10s %10s %10s %10s %10s %10s %10s%n";
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final long measurementStartNanos;
+    private final long measurementEndNanos;
+    private final LatencyHistogram[] latencies;
+    private final LongAdder[] errors;
+    private final LongAdder lostConnections;
+    private final LongAccumulator lastCompletionNanos;
+
+    public LoadStatistics(long measurementStartNanos, long measurementEndNanos) {
+        if (measurementEndNanos <= measurementStartNanos) {
+            throw new IllegalArgumentException("Measurement should end after it starts.");
+        }
+
+        this.measurementStartNanos = measurementStartNanos;
+        this.measurementEndNanos = measurementEndNanos;
+        this.latencies = new LatencyHistogram[RequestType.values().length];
+        this.errors = new LongAdder[RequestType.values().length];
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+            errors[i] = new LongAdder();
+        }
+        this.lostConnections = new LongAdder();
+        this.lastCompletionNanos = new LongAccumulator(Math::max, measurementEndNanos);
+    }
+
+    public long getMeasurementEndNanos() {
+        return measurementEndNanos;
+    }
+
+    public void record(RequestType type, long intendedStartNanos, long completionNanos, boolean isError) {
+        if (intendedStartNanos < measurementStartNanos || intendedStartNanos >= measurementEndNanos) {
+            return;
+        }
+
+        latencies[type.ordinal()].record(completionNanos - intendedStartNanos);
+        if (isError) {
+            errors[type.ordinal()].increment();
+        }
+        lastCompletionNanos.accumulate(completionNanos);
+    }
+
+    public void recordLostConnection() {
+        lostConnections.increment();
+    }
+
+    public HistogramSnapshot getLatencies(RequestType type) {
+        return latencies[type.ordinal()].snapshot();
+    }
+
+    public long getErrorsCount(RequestType type) {
+        return errors[type.ordinal()].sum();
+    }
+
+    public long getLostConnectionsCount() {
+        return lostConnections.sum();
+    }
+
+    // the responses of the last requests may arrive after the window, so the throughput is over the longer time
+    public void writeReport(PrintStream out) {
+        double elapsedSeconds = (lastCompletionNanos.get() - measurementStartNanos)
+                / (double) TimeUnit.SECONDS.toNanos(1);
+        out.printf("measured %.1f s, latencies in milliseconds%n", elapsedSeconds);
+        out.printf(ROW_FORMAT, "", "count", "rate/s", "errors", "p50", "p90", "p99", "p999", "max");
+
+        long totalCount = 0;
+        long totalErrors = 0;
+        for (RequestType type : RequestType.values()) {
+            HistogramSnapshot histogram = getLatencies(type);
+            long count = histogram.count();
+            if (count == 0) {
+                continue;
+            }
+
+            long errorsCount = getErrorsCount(type);
+            out.printf(ROW_FORMAT, type, count, String.format("%.1f", count / elapsedSeconds), errorsCount,
+                    toMillis(histogram.valueAtPercentile(50)),
+                    toMillis(histogram.valueAtPercentile(90)),
+                    toMillis(histogram.valueAtPercentile(99)),
+                    toMillis(histogram.valueAtPercentile(99.9)),
+                    toMillis(histogram.max()));
+            totalCount += count;
+            totalErrors += errorsCount;
+        }
+
+        out.printf("total: %d requests, %.1f requests/s, %d errors, %d lost connections%n",
+                totalCount, totalCount / elapsedSeconds, totalErrors, getLostConnectionsCount());
+    }
+
+    private static String toMillis(long nanos) {
+        return String.format("%.2f", nanos / NANOS_PER_MILLI);
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,123 @@
+package bg.sofia.uni.fmi.mjt.password.vault.load;
+
+import bg.sofia.uni.fmi.mjt.password.vault.request.RequestType;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+// The share of every request type in the load, written as TYPE:weight pairs separated by commas.
+public class RequestMix {
+
+    private static final Set<RequestType> SUPPORTED_TYPES = EnumSet.of(RequestType.REGISTER, RequestType.LOGIN,
+            RequestType.STORE_PASSWORD, RequestType.GET_PASSWORD, RequestType.UPDATE_PASSWORD,
+            RequestType.REMOVE_PASSWORD);
+    private static final String DEFAULT_MIX =
+            "REGISTER:5,LOGIN:5,STORE_PASSWORD:20,GET_PASSWORD:50,UPDATE_PASSWORD:10,REMOVE_PASSWORD:10";
+
+    private final Map<RequestType, Integer> weights;
+    private final RequestType[] types;
+    private final int[] cumulativeWeights;
+
+    private RequestMix(Map<RequestType, Integer> weights) {
+        this.weights = Collections.unmodifiableMap(weights);
+        this.types = weights.keySet().toArray(new RequestType[0]);
+        this.cumulativeWeights = new int[types.length];
+
+        int totalWeight = 0;
+        for (int i = 0; i < types.length; i++) {
+            totalWeight += weights.get(types[i]);
+            cumulativeWeights[i] = totalWeight;
+        }
+    }
+
+    public static RequestMix defaultMix() {
+        return of(DEFAULT_MIX);
+    }
+
+    public static RequestMix of(String mix) {
+        if (mix == null || mix.isBlank()) {
+            throw new IllegalArgumentException("Mix should not be null or blank.");
+        }
+
+        Map<RequestType, Integer> weights = new EnumMap<>(RequestType.class);
+        for (String entry : mix.split(",")) {
+            String[] typeAndWeight = entry.trim().split(":");
+            if (typeAndWeight.length != 2) {
+                throw new IllegalArgumentException("Mix entry " + entry + " should be in the form TYPE:weight.");
+            }
+
+            RequestType type = parseType(typeAndWeight[0].trim());
+            int weight = parseWeight(typeAndWeight[1].trim());
+            if (weight > 0) {
+                weights.merge(type, weight, Integer::sum);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("At least one request type should have a positive weight.");
+        }
+
+        return new RequestMix(weights);
+    }
+
+    public RequestType next(Random random) {
+        int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return types[i];
+            }
+        }
+
+        return types[types.length - 1];
+    }
+
+    public Map<RequestType, Integer> getWeights() {
+        return weights;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        weights.forEach((type, weight) -> {
+            if (!builder.isEmpty()) {
+                builder.append(',');
+            }
+            builder.append(type).append(':').append(weight);
+        });
+
+        return builder.toString();
+    }
+
+    private static RequestType parseType(String type) {
+        RequestType requestType;
+        try {
+            requestType = RequestType.valueOf(type);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Request type " + type + " does not exist.", e);
+        }
+        if (!SUPPORTED_TYPES.contains(requestType)) {
+            throw new IllegalArgumentException("Request type " + type + " cannot be generated, supported types are "
+                    + SUPPORTED_TYPES + ".");
+        }
+
+        return requestType;
+    }
+
+    private static int parseWeight(String weight) {
+        int parsedWeight;
+        try {
+            parsedWeight = Integer.parseInt(weight);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Weight " + weight + " should be a number.", e);
+        }
+        if (parsedWeight < 0) {
+            throw new IllegalArgumentException("Weight should not be negative.");
+        }
+
+        return parsedWeight;
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,31 @@
+package bg.sofia.uni.fmi.mjt.password.vault.load;
+
+import bg.sofia.uni.fmi.mjt.password.vault.client.HashedPassword;
+import bg.sofia.uni.fmi.mjt.password.vault.server.compromised.CompromisedPasswordsClient;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Reports every password as safe after a fixed delay that stands for the round trip to the breach API.
+public class StubCompromisedPasswordsClient implements CompromisedPasswordsClient {
+
+    private final long delayNanos;
+
+    public StubCompromisedPasswordsClient(long delayMillis) {
+        if (delayMillis < 0) {
+            throw new IllegalArgumentException("Delay should not be negative.");
+        }
+
+        this.delayNanos = TimeUnit.MILLISECONDS.toNanos(delayMillis);
+    }
+
+    @Override
+    public boolean isCompromised(HashedPassword password) {
+        if (delayNanos > 0) {
+            LockSupport.parkNanos(delayNanos);
+        }
+
+        return false;
+    }
+
+}
\ No newline at end of file
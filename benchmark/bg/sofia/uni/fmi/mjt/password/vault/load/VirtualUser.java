@@ -0,0 +1,204 @@
+package bg.sofia.uni.fmi.mjt.password.vault.load;
+
+import bg.sofia.uni.fmi.mjt.password.vault.client.HashedPassword;
+import bg.sofia.uni.fmi.mjt.password.vault.client.encryptor.EncryptionData;
+import bg.sofia.uni.fmi.mjt.password.vault.protocol.WireProtocol;
+import bg.sofia.uni.fmi.mjt.password.vault.request.NioRequest;
+import bg.sofia.uni.fmi.mjt.password.vault.request.NioRequestSender;
+import bg.sofia.uni.fmi.mjt.password.vault.request.RequestType;
+import bg.sofia.uni.fmi.mjt.password.vault.response.NioResponse;
+import bg.sofia.uni.fmi.mjt.password.vault.response.ResponseType;
+import bg.sofia.uni.fmi.mjt.password.vault.server.ServerPassword;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.LockSupport;
+
+// A client with an account of its own that sends one request at a time over its connection. In the open loop
+// the requests are sent on a fixed schedule, whether the previous responses were fast or not.
+public class VirtualUser {
+
+    private static final HashedPassword ACCOUNT_PASSWORD = new HashedPassword("LoadAccountPassword".toCharArray());
+    private static final HashedPassword CREDENTIALS_PASSWORD =
+            new HashedPassword("LoadCredentialsPassword".toCharArray());
+    private static final ServerPassword ACCOUNT_SERVER_PASSWORD = new ServerPassword(ACCOUNT_PASSWORD, null);
+    private static final ServerPassword CREDENTIALS_SERVER_PASSWORD =
+            new ServerPassword(CREDENTIALS_PASSWORD, "bG9hZC1nZW5lcmF0b3ItZW5jcnlwdGVkLXBhc3N3b3Jk");
+    private static final EncryptionData ENCRYPTION_DATA = new EncryptionData(1024, new byte[16]);
+
+    private final String username;
+    private final InetSocketAddress serverAddress;
+    private final WireProtocol wireProtocol;
+    private final RequestMix mix;
+    private final Random random;
+    private final List<String> storedApplications;
+
+    private SocketChannel channel;
+    private NioRequestSender sender;
+    private int registeredUsersCount = 0;
+    private int storedApplicationsCount = 0;
+
+    public VirtualUser(int index, InetSocketAddress serverAddress, LoadConfiguration configuration) {
+        this.username = "load-user-" + index;
+        this.serverAddress = serverAddress;
+        this.wireProtocol = configuration.getWireProtocol();
+        this.mix = configuration.getMix();
+        this.random = new Random(configuration.getSeed() + index);
+        this.storedApplications = new ArrayList<>();
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    // connects and creates the account that the requests of the load work with
+    public void connect() throws IOException {
+        channel = SocketChannel.open(serverAddress);
+        sender = NioRequestSender.of(channel, wireProtocol);
+
+        expect(send(registerRequest(username)), ResponseType.REGISTER_SUCCESSFUL);
+        expect(send(loginRequest()), ResponseType.LOGIN_SUCCESSFUL);
+    }
+
+    public void disconnect() {
+        if (channel == null) {
+            return;
+        }
+
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // the load is over, a connection that cannot be closed does not change the results
+        }
+    }
+
+    // intervalNanos is zero in the closed loop
+    public void run(long firstStartNanos, long intervalNanos, LoadStatistics statistics) {
+        long intendedStartNanos = firstStartNanos;
+        while (true) {
+            if (intervalNanos > 0) {
+                parkUntil(intendedStartNanos);
+            } else {
+                intendedStartNanos = System.nanoTime();
+            }
+            if (intendedStartNanos >= statistics.getMeasurementEndNanos()) {
+                return;
+            }
+
+            // the type that is actually sent is recorded, so the substituted requests count as stores
+            RequestType type = typeToSend(mix.next(random));
+            boolean isSuccessful;
+            try {
+                isSuccessful = sendNext(type);
+            } catch (CompletionException e) {
+                statistics.record(type, intendedStartNanos, System.nanoTime(), true);
+                statistics.recordLostConnection();
+                return;
+            }
+            statistics.record(type, intendedStartNanos, System.nanoTime(), !isSuccessful);
+
+            intendedStartNanos += intervalNanos;
+        }
+    }
+
+    // the credentials requests need stored credentials, until there are some the user stores them
+    private RequestType typeToSend(RequestType type) {
+        return storedApplications.isEmpty() && type != RequestType.REGISTER && type != RequestType.LOGIN
+                ? RequestType.STORE_PASSWORD : type;
+    }
+
+    private boolean sendNext(RequestType type) {
+        return switch (type) {
+            case REGISTER -> send(registerRequest(username + "-" + ++registeredUsersCount)).getType()
+                    == ResponseType.REGISTER_SUCCESSFUL;
+            case LOGIN -> send(loginRequest()).getType() == ResponseType.LOGIN_SUCCESSFUL;
+            case STORE_PASSWORD -> storePassword();
+            case GET_PASSWORD -> send(credentialsRequest(RequestType.GET_PASSWORD, randomStoredApplication()))
+                    .getType() == ResponseType.CREDENTIALS_FOUND;
+            case UPDATE_PASSWORD -> send(credentialsRequest(RequestType.UPDATE_PASSWORD, randomStoredApplication()))
+                    .getType() == ResponseType.PASSWORD_UPDATED_SUCCESSFULLY;
+            case REMOVE_PASSWORD -> removePassword();
+            default -> throw new IllegalStateException("Request type " + type + " cannot be generated.");
+        };
+    }
+
+    private boolean storePassword() {
+        String applicationName = "application-" + ++storedApplicationsCount;
+        boolean isStored = send(credentialsRequest(RequestType.STORE_PASSWORD, applicationName)).getType()
+                == ResponseType.PASSWORD_STORED_SUCCESSFULLY;
+        if (isStored) {
+            storedApplications.add(applicationName);
+        }
+
+        return isStored;
+    }
+
+    private boolean removePassword() {
+        int index = random.nextInt(storedApplications.size());
+        String applicationName = storedApplications.get(index);
+        boolean isRemoved = send(credentialsRequest(RequestType.REMOVE_PASSWORD, applicationName)).getType()
+                == ResponseType.PASSWORD_REMOVED_SUCCESSFULLY;
+        if (isRemoved) {
+            storedApplications.set(index, storedApplications.get(storedApplications.size() - 1));
+            storedApplications.remove(storedApplications.size() - 1);
+        }
+
+        return isRemoved;
+    }
+
+    private String randomStoredApplication() {
+        return storedApplications.get(random.nextInt(storedApplications.size()));
+    }
+
+    private NioResponse send(NioRequest request) {
+        return sender.sendAsync(request).join();
+    }
+
+    private NioRequest registerRequest(String registeredUsername) {
+        return NioRequest.builder(registeredUsername)
+                .setType(RequestType.REGISTER)
+                .setPassword(ACCOUNT_SERVER_PASSWORD)
+                .setPasswordRepeated(ACCOUNT_SERVER_PASSWORD)
+                .setEncryptionData(ENCRYPTION_DATA)
+                .build();
+    }
+
+    private NioRequest loginRequest() {
+        return NioRequest.builder(username)
+                .setType(RequestType.LOGIN)
+                .setPassword(ACCOUNT_SERVER_PASSWORD)
+                .build();
+    }
+
+    private NioRequest credentialsRequest(RequestType type, String applicationName) {
+        NioRequest.NioRequestBuilder builder = NioRequest.builder(username)
+                .setType(type)
+                .setApplicationName(applicationName)
+                .setCredentialsUsername(username);
+        if (type == RequestType.STORE_PASSWORD || type == RequestType.UPDATE_PASSWORD) {
+            builder.setPassword(CREDENTIALS_SERVER_PASSWORD);
+        }
+
+        return builder.build();
+    }
+
+    private void expect(NioResponse response, ResponseType expectedType) throws IOException {
+        if (response.getType() != expectedType) {
+            throw new IOException(username + " expected " + expectedType + " but the server has responded with "
+                    + response.getType() + ".");
+        }
+    }
+
+    private static void parkUntil(long deadlineNanos) {
+        long remainingNanos;
+        while ((remainingNanos = deadlineNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remainingNanos);
+        }
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,79 @@
+package bg.sofia.uni.fmi.mjt.password.vault.request;
+
+import bg.sofia.uni.fmi.mjt.password.vault.client.HashedPassword;
+import bg.sofia.uni.fmi.mjt.password.vault.client.encryptor.EncryptionData;
+import bg.sofia.uni.fmi.mjt.password.vault.server.ServerPassword;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NioRequestBenchmark {
+
+    private static final String USERNAME = "BENCHMARK_USERNAME";
+    private static final String ENCRYPTED_PASSWORD = "x".repeat(44);
+
+    private byte[] loginRequestBytes;
+    private byte[] storePasswordRequestBytes;
+    private byte[] registerRequestBytes;
+
+    @Setup
+    public void setUp() {
+        Gson gson = new Gson();
+        ServerPassword password =
+                new ServerPassword(new HashedPassword("BENCHMARK_PASSWORD".toCharArray()), ENCRYPTED_PASSWORD);
+
+        NioRequest loginRequest = NioRequest.builder(USERNAME)
+                .setType(RequestType.LOGIN)
+                .setPassword(password)
+                .build();
+        NioRequest storePasswordRequest = NioRequest.builder(USERNAME)
+                .setType(RequestType.STORE_PASSWORD)
+                .setApplicationName("BENCHMARK_APPLICATION")
+                .setCredentialsUsername("BENCHMARK_CREDENTIALS_USERNAME")
+                .setPassword(password)
+                .build();
+        NioRequest registerRequest = NioRequest.builder(USERNAME)
+                .setType(RequestType.REGISTER)
+                .setPassword(password)
+                .setPasswordRepeated(password)
+                .setEncryptionData(new EncryptionData(1024, new byte[16]))
+                .build();
+
+        loginRequestBytes = gson.toJson(loginRequest).getBytes(StandardCharsets.UTF_8);
+        storePasswordRequestBytes = gson.toJson(storePasswordRequest).getBytes(StandardCharsets.UTF_8);
+        registerRequestBytes = gson.toJson(registerRequest).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public NioRequest parseLoginRequest() {
+        return NioRequest.of(loginRequestBytes);
+    }
+
+    @Benchmark
+    public NioRequest parseStorePasswordRequest() {
+        return NioRequest.of(storePasswordRequestBytes);
+    }
+
+    @Benchmark
+    public NioRequest parseRegisterRequest() {
+        return NioRequest.of(registerRequestBytes);
+    }
+
+}
@@ -0,0 +1,61 @@
+package bg.sofia.uni.fmi.mjt.password.vault.response;
+
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NioResponseBenchmark {
+
+    private static final Gson GSON = new Gson();
+    private static final int BATCH_SIZE = 16;
+
+    private NioResponse emptyResponse;
+    private NioResponse credentialsResponse;
+    private NioResponse batchResponse;
+
+    @Setup
+    public void setUp() {
+        emptyResponse = new NioResponse(ResponseType.LOGIN_SUCCESSFUL, null);
+        credentialsResponse = new NioResponse(ResponseType.CREDENTIALS_FOUND, "x".repeat(64), 1L);
+
+        List<NioResponse> responses = new ArrayList<>();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            responses.add(new NioResponse(ResponseType.PASSWORD_STORED_SUCCESSFULLY, null));
+        }
+        batchResponse = NioResponse.ofBatch(responses);
+    }
+
+    @Benchmark
+    public String serializeEmptyResponse() {
+        return GSON.toJson(emptyResponse);
+    }
+
+    @Benchmark
+    public String serializeCredentialsResponse() {
+        return GSON.toJson(credentialsResponse);
+    }
+
+    @Benchmark
+    public String serializeBatchResponse() {
+        return GSON.toJson(batchResponse);
+    }
+
+}
@@ -0,0 +1,112 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.repository;
+
+import bg.sofia.uni.fmi.mjt.password.vault.server.credentials.AccountCredentials;
+import bg.sofia.uni.fmi.mjt.password.vault.server.credentials.AccountCredentialsKey;
+import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.RepositoryException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Every user has a repository of their own, so the credentials count is the count of a single user.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccountCredentialsRepositoryBenchmark {
+
+    private static final String ENCRYPTED_PASSWORD = "x".repeat(44);
+
+    @Param({"10", "1000", "10000"})
+    private int credentialsCount;
+
+    @Param({"MEMORY", "TMPFS", "DISK"})
+    private RepositoryStorage storage;
+
+    private Path credentialsFile;
+    private AccountCredentialsRepository repository;
+    private AccountCredentials existingCredentials;
+    private AccountCredentialsKey existingKey;
+    private int nextCredentialsNumber;
+
+    @Setup(Level.Trial)
+    public void createCredentialsFile() throws IOException {
+        credentialsFile = storage.createFile("Credentials");
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteCredentialsFile() throws IOException {
+        storage.deleteFile(credentialsFile);
+    }
+
+    // put adds credentials on every call, so the repository is created again before each iteration
+    @Setup(Level.Iteration)
+    public void setUp() {
+        StringBuilder credentials = new StringBuilder();
+        for (int i = 0; i < credentialsCount; i++) {
+            credentials.append(createCredentials(i)).append(System.lineSeparator());
+        }
+
+        repository = new AccountCredentialsRepository(new StringReader(credentials.toString()));
+        existingCredentials = createCredentials(credentialsCount / 2);
+        existingKey = new AccountCredentialsKey(existingCredentials.getApplicationName(),
+                existingCredentials.getUsername());
+        nextCredentialsNumber = credentialsCount;
+    }
+
+    @Benchmark
+    public AccountCredentials get() throws RepositoryException {
+        return repository.get(existingKey);
+    }
+
+    // the iterations are shorter, so the credentials added by put do not fill the heap
+    @Benchmark
+    @Warmup(iterations = 3, time = 100, timeUnit = TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 10, time = 100, timeUnit = TimeUnit.MILLISECONDS)
+    public void put(WrittenBytes writtenBytes) throws RepositoryException, IOException {
+        try (CountingWriter writer = storage.openWriter(credentialsFile, true)) {
+            repository.put(createCredentials(nextCredentialsNumber++), writer);
+            writtenBytes.add(writer);
+        }
+    }
+
+    @Benchmark
+    public void update(WrittenBytes writtenBytes) throws RepositoryException, IOException {
+        try (CountingWriter writer = storage.openWriter(credentialsFile, false)) {
+            repository.update(existingCredentials, writer);
+            writtenBytes.add(writer);
+        }
+    }
+
+    // the credentials are put back without writing, so every call removes from a repository of the same size
+    @Benchmark
+    public void remove(WrittenBytes writtenBytes) throws RepositoryException, IOException {
+        try (CountingWriter writer = storage.openWriter(credentialsFile, false)) {
+            repository.remove(existingKey, writer);
+            writtenBytes.add(writer);
+        }
+        repository.put(existingCredentials, Writer.nullWriter());
+    }
+
+    private static AccountCredentials createCredentials(int number) {
+        return new AccountCredentials("application" + number, "username" + number, ENCRYPTED_PASSWORD);
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,38 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.repository;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+// The benchmark entries are ASCII, so the counted characters are the bytes written to a file.
+public class CountingWriter extends FilterWriter {
+
+    private long writtenChars;
+
+    public CountingWriter(Writer writer) {
+        super(writer);
+    }
+
+    public long getWrittenChars() {
+        return writtenChars;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        super.write(c);
+        writtenChars++;
+    }
+
+    @Override
+    public void write(char[] buffer, int offset, int length) throws IOException {
+        super.write(buffer, offset, length);
+        writtenChars += length;
+    }
+
+    @Override
+    public void write(String string, int offset, int length) throws IOException {
+        super.write(string, offset, length);
+        writtenChars += length;
+    }
+
+}
\ No newline at end of file
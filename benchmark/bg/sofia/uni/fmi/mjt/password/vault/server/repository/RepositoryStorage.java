@@ -0,0 +1,51 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.repository;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Where the repository benchmarks write. The directories can be changed with the benchmark.tmpfsDirectory and
+// benchmark.diskDirectory system properties, the disk one should not be on a tmpfs mount.
+public enum RepositoryStorage {
+
+    MEMORY(null, null),
+    TMPFS("benchmark.tmpfsDirectory", "/dev/shm"),
+    DISK("benchmark.diskDirectory", "data/benchmark");
+
+    private final String directoryProperty;
+    private final String defaultDirectory;
+
+    RepositoryStorage(String directoryProperty, String defaultDirectory) {
+        this.directoryProperty = directoryProperty;
+        this.defaultDirectory = defaultDirectory;
+    }
+
+    // returns null for the memory storage, which writes to a new StringWriter every time
+    public Path createFile(String prefix) throws IOException {
+        if (this == MEMORY) {
+            return null;
+        }
+
+        Path directory = Path.of(System.getProperty(directoryProperty, defaultDirectory));
+        Files.createDirectories(directory);
+        return Files.createTempFile(directory, prefix, ".dat");
+    }
+
+    public void deleteFile(Path file) throws IOException {
+        if (file != null) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    // opened the way the password vault opens the files, appending for put and truncating for the rewrites
+    public CountingWriter openWriter(Path file, boolean append) throws IOException {
+        if (this == MEMORY) {
+            return new CountingWriter(new StringWriter());
+        }
+
+        return new CountingWriter(new FileWriter(file.toFile(), append));
+    }
+
+}
\ No newline at end of file
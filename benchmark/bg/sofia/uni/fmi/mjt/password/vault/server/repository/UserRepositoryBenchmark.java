@@ -0,0 +1,112 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.repository;
+
+import bg.sofia.uni.fmi.mjt.password.vault.client.HashedPassword;
+import bg.sofia.uni.fmi.mjt.password.vault.client.encryptor.EncryptionData;
+import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.RepositoryException;
+import bg.sofia.uni.fmi.mjt.password.vault.server.user.DefaultUser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// update and remove rewrite the whole users file, so their cost should grow linearly with the users count,
+// while get and put should not depend on it.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserRepositoryBenchmark {
+
+    private static final HashedPassword PASSWORD = new HashedPassword("BENCHMARK_PASSWORD".toCharArray());
+    private static final EncryptionData ENCRYPTION_DATA = new EncryptionData(1024, new byte[16]);
+
+    @Param({"10", "1000", "100000"})
+    private int usersCount;
+
+    @Param({"MEMORY", "TMPFS", "DISK"})
+    private RepositoryStorage storage;
+
+    private Path usersFile;
+    private UserRepository<DefaultUser> repository;
+    private DefaultUser existingUser;
+    private int nextUserNumber;
+
+    @Setup(Level.Trial)
+    public void createUsersFile() throws IOException {
+        usersFile = storage.createFile("Users");
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteUsersFile() throws IOException {
+        storage.deleteFile(usersFile);
+    }
+
+    // put adds a user on every call, so the repository is created again before each iteration
+    @Setup(Level.Iteration)
+    public void setUp() {
+        StringBuilder users = new StringBuilder();
+        for (int i = 0; i < usersCount; i++) {
+            users.append(createUser(i)).append(System.lineSeparator());
+        }
+
+        repository = new UserRepository<>(new StringReader(users.toString()), DefaultUser.class);
+        existingUser = createUser(usersCount / 2);
+        nextUserNumber = usersCount;
+    }
+
+    @Benchmark
+    public DefaultUser get() throws RepositoryException {
+        return repository.get(existingUser.getUsername());
+    }
+
+    // the iterations are shorter, so the users added by put do not fill the heap
+    @Benchmark
+    @Warmup(iterations = 3, time = 100, timeUnit = TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 10, time = 100, timeUnit = TimeUnit.MILLISECONDS)
+    public void put(WrittenBytes writtenBytes) throws RepositoryException, IOException {
+        try (CountingWriter writer = storage.openWriter(usersFile, true)) {
+            repository.put(createUser(nextUserNumber++), writer);
+            writtenBytes.add(writer);
+        }
+    }
+
+    @Benchmark
+    public void update(WrittenBytes writtenBytes) throws RepositoryException, IOException {
+        try (CountingWriter writer = storage.openWriter(usersFile, false)) {
+            repository.update(existingUser, writer);
+            writtenBytes.add(writer);
+        }
+    }
+
+    // the user is put back without writing, so every call removes from a repository of the same size
+    @Benchmark
+    public void remove(WrittenBytes writtenBytes) throws RepositoryException, IOException {
+        try (CountingWriter writer = storage.openWriter(usersFile, false)) {
+            repository.remove(existingUser.getUsername(), writer);
+            writtenBytes.add(writer);
+        }
+        repository.put(existingUser, Writer.nullWriter());
+    }
+
+    private static DefaultUser createUser(int number) {
+        return new DefaultUser("user" + number, PASSWORD, ENCRYPTION_DATA);
+    }
+
+}
\ No newline at end of file
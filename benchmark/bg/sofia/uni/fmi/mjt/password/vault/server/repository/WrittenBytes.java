@@ -0,0 +1,26 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.repository;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Reported as a rate next to the score of the benchmark, dividing it by the score gives the bytes written by
+// a single operation.
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class WrittenBytes {
+
+    public long writtenBytes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        writtenBytes = 0;
+    }
+
+    public void add(CountingWriter writer) {
+        writtenBytes += writer.getWrittenChars();
+    }
+
+}
\ No newline at end of file
@@ -3,11 +3,13 @@ package bg.sofia.uni.fmi.mjt.password.vault.client;
 import bg.sofia.uni.fmi.mjt.password.vault.client.hasher.DefaultPasswordHasher;
 import bg.sofia.uni.fmi.mjt.password.vault.client.hasher.HashingAlgorithm;
 import bg.sofia.uni.fmi.mjt.password.vault.client.hasher.PasswordHasher;
+import com.google.gson.annotations.JsonAdapter;
 
 import java.util.EnumMap;
 import java.util.Map;
 import java.util.Objects;
 
+@JsonAdapter(HashedPasswordTypeAdapter.class)
 public class HashedPassword implements Password {
 
     private final Map<HashingAlgorithm, String> passwordHashes;
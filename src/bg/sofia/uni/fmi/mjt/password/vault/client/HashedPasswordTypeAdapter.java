@@ -0,0 +1,91 @@
+package bg.sofia.uni.fmi.mjt.password.vault.client;
+
+import bg.sofia.uni.fmi.mjt.password.vault.client.hasher.HashingAlgorithm;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+
+public class HashedPasswordTypeAdapter extends TypeAdapter<HashedPassword> {
+
+    private static final String PASSWORD_HASHES_FIELD = "passwordHashes";
+    private static final HashingAlgorithm[] HASHING_ALGORITHMS = HashingAlgorithm.values();
+
+    @Override
+    public void write(JsonWriter writer, HashedPassword hashedPassword) throws IOException {
+        if (hashedPassword == null) {
+            writer.nullValue();
+            return;
+        }
+
+        writer.beginObject();
+        writer.name(PASSWORD_HASHES_FIELD);
+        writer.beginObject();
+        for (HashingAlgorithm algorithm : HASHING_ALGORITHMS) {
+            String hash = hashOf(hashedPassword, algorithm);
+            if (hash != null) {
+                writer.name(algorithm.name()).value(hash);
+            }
+        }
+        writer.endObject();
+        writer.endObject();
+    }
+
+    @Override
+    public HashedPassword read(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+
+        Map<HashingAlgorithm, String> passwordHashes = new EnumMap<>(HashingAlgorithm.class);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (PASSWORD_HASHES_FIELD.equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                readPasswordHashes(reader, passwordHashes);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return new HashedPassword(passwordHashes);
+    }
+
+    private static void readPasswordHashes(JsonReader reader, Map<HashingAlgorithm, String> passwordHashes)
+            throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            HashingAlgorithm algorithm = algorithmOf(reader.nextName());
+            if (algorithm == null || reader.peek() == JsonToken.NULL) {
+                reader.skipValue();
+            } else {
+                passwordHashes.put(algorithm, reader.nextString());
+            }
+        }
+        reader.endObject();
+    }
+
+    private static HashingAlgorithm algorithmOf(String name) {
+        for (HashingAlgorithm algorithm : HASHING_ALGORITHMS) {
+            if (algorithm.name().equals(name)) {
+                return algorithm;
+            }
+        }
+
+        return null;
+    }
+
+    private static String hashOf(HashedPassword hashedPassword, HashingAlgorithm algorithm) {
+        return switch (algorithm) {
+            case MD5 -> hashedPassword.getMd5();
+            case SHA1 -> hashedPassword.getSha1();
+            case SHA256 -> hashedPassword.getSha256();
+        };
+    }
+
+}
\ No newline at end of file
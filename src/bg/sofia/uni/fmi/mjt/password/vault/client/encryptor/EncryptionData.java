@@ -1,7 +1,9 @@
 package bg.sofia.uni.fmi.mjt.password.vault.client.encryptor;
 
 import com.google.gson.Gson;
+import com.google.gson.annotations.JsonAdapter;
 
+@JsonAdapter(EncryptionDataTypeAdapter.class)
 public class EncryptionData {
 
     private static final Gson GSON = new Gson();
@@ -0,0 +1,103 @@
+package bg.sofia.uni.fmi.mjt.password.vault.client.encryptor;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+public class EncryptionDataTypeAdapter extends TypeAdapter<EncryptionData> {
+
+    private static final String ITERATIONS_COUNT_FIELD = "iterationsCount";
+    private static final String SALT_FIELD = "salt";
+    private static final int INITIAL_SALT_CAPACITY = 16;
+
+    @Override
+    public void write(JsonWriter writer, EncryptionData encryptionData) throws IOException {
+        if (encryptionData == null) {
+            writer.nullValue();
+            return;
+        }
+
+        writer.beginObject();
+        writer.name(ITERATIONS_COUNT_FIELD).value(encryptionData.getIterationsCount());
+        byte[] salt = encryptionData.getSalt();
+        if (salt != null) {
+            writer.name(SALT_FIELD);
+            writer.beginArray();
+            for (byte saltByte : salt) {
+                writer.value(saltByte);
+            }
+            writer.endArray();
+        }
+        writer.endObject();
+    }
+
+    @Override
+    public EncryptionData read(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+
+        int iterationsCount = 0;
+        byte[] salt = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.skipValue();
+                continue;
+            }
+
+            switch (name) {
+                case ITERATIONS_COUNT_FIELD -> iterationsCount = readInt(reader);
+                case SALT_FIELD -> salt = readSalt(reader);
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return new EncryptionData(iterationsCount, salt);
+    }
+
+    private static byte[] readSalt(JsonReader reader) throws IOException {
+        byte[] salt = new byte[INITIAL_SALT_CAPACITY];
+        int length = 0;
+
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (length == salt.length) {
+                salt = Arrays.copyOf(salt, salt.length * 2);
+            }
+            salt[length++] = readSaltByte(reader);
+        }
+        reader.endArray();
+
+        return length == salt.length ? salt : Arrays.copyOf(salt, length);
+    }
+
+    // Gson turns only IllegalStateException into JsonSyntaxException, a NumberFormatException would escape it
+    private static int readInt(JsonReader reader) throws IOException {
+        try {
+            return reader.nextInt();
+        } catch (NumberFormatException | IllegalStateException e) {
+            throw new JsonSyntaxException("Expected an integer at " + reader.getPath() + ".", e);
+        }
+    }
+
+    // a value outside the byte range would otherwise be truncated into a different salt
+    private static byte readSaltByte(JsonReader reader) throws IOException {
+        int value = readInt(reader);
+        if (value < Byte.MIN_VALUE || value > Byte.MAX_VALUE) {
+            throw new JsonSyntaxException("Salt byte " + value + " is out of range at " + reader.getPath() + ".");
+        }
+
+        return (byte) value;
+    }
+
+}
\ No newline at end of file
@@ -3,17 +3,14 @@ package bg.sofia.uni.fmi.mjt.password.vault.client.nio;
 import bg.sofia.uni.fmi.mjt.password.vault.client.command.ClientCommand;
 import bg.sofia.uni.fmi.mjt.password.vault.configuration.ConfigurationData;
 import bg.sofia.uni.fmi.mjt.password.vault.client.nio.exceptions.ConnectionException;
+import bg.sofia.uni.fmi.mjt.password.vault.protocol.WireProtocol;
 import bg.sofia.uni.fmi.mjt.password.vault.request.NioRequestSender;
 import bg.sofia.uni.fmi.mjt.password.vault.session.Session;
 import bg.sofia.uni.fmi.mjt.password.vault.request.NioRequest;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.net.InetSocketAddress;
-import java.nio.channels.Channels;
 import java.nio.channels.SocketChannel;
-import java.nio.charset.StandardCharsets;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 
@@ -23,12 +20,11 @@ public class NioPasswordVaultClient implements PasswordVaultClient {
 
     private final String serverHost;
     private final int serverPort;
+    private final WireProtocol wireProtocol;
 
     private NioRequestSender nioRequestSender;
     private AutoLogoutService autoLogoutService;
     private SocketChannel socketChannel;
-    private BufferedReader reader;
-    private PrintWriter writer;
     private Session session = null;
     private boolean logoutServiceRunning = false;
     private boolean isConnected = false;
@@ -37,6 +33,7 @@ public class NioPasswordVaultClient implements PasswordVaultClient {
     public NioPasswordVaultClient(ConfigurationData data, ExecutorService executorService) {
         this.serverHost = data.getServerHost();
         this.serverPort = data.getServerPort();
+        this.wireProtocol = data.getWireProtocol();
         this.executorService = executorService;
     }
 
@@ -45,13 +42,11 @@ public class NioPasswordVaultClient implements PasswordVaultClient {
         try {
             socketChannel = SocketChannel.open();
             socketChannel.connect(new InetSocketAddress(serverHost, serverPort));
+            nioRequestSender = NioRequestSender.of(socketChannel, wireProtocol);
         } catch (IOException e) {
             throw new ConnectionException("Cannot connect to the server. Please enter valid configuration data.", e);
         }
 
-        reader = new BufferedReader(Channels.newReader(socketChannel, StandardCharsets.UTF_8));
-        writer = new PrintWriter(Channels.newWriter(socketChannel, StandardCharsets.UTF_8), true);
-        nioRequestSender = new NioRequestSender(reader, writer);
         autoLogoutService = new AutoLogoutService(INACTIVE_TIME_LOGOUT, nioRequestSender);
         isConnected = true;
 
@@ -70,11 +65,9 @@ public class NioPasswordVaultClient implements PasswordVaultClient {
         }
         try {
             socketChannel.close();
-            reader.close();
         } catch (IOException e) {
             throw new ConnectionException("Cannot disconnect from the server.", e);
         }
-        writer.close();
         isConnected = false;
 
         System.out.println("Disconnected from the server.");
@@ -1,6 +1,9 @@
 package bg.sofia.uni.fmi.mjt.password.vault.configuration;
 
 import bg.sofia.uni.fmi.mjt.password.vault.configuration.exceptions.ConfigurationDataException;
+import bg.sofia.uni.fmi.mjt.password.vault.protocol.WireProtocol;
+import bg.sofia.uni.fmi.mjt.password.vault.server.durability.DurabilityMode;
+import bg.sofia.uni.fmi.mjt.password.vault.server.user.ResidentCredentialsCache;
 import com.google.gson.Gson;
 
 import java.io.BufferedReader;
@@ -18,12 +21,76 @@ import java.util.Objects;
 
 public class ConfigurationData {
 
+    private static final int DEFAULT_SELECTOR_THREADS_COUNT = Runtime.getRuntime().availableProcessors();
+    private static final int DEFAULT_OUTBOUND_HIGH_WATER_MARK_BYTES = 256 * 1024;
+    private static final long DEFAULT_BUFFER_POOL_MAX_BYTES = 16 * 1024 * 1024;
+    private static final WireProtocol DEFAULT_WIRE_PROTOCOL = WireProtocol.JSON;
+    private static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 5 * 60 * 1000;
+    private static final int DEFAULT_MAX_CONNECTIONS = 10_000;
+    private static final int DEFAULT_MAX_PENDING_REQUESTS = 1024;
+    private static final long DEFAULT_DRAIN_TIMEOUT_MILLIS = 30 * 1000;
+    private static final boolean DEFAULT_REUSE_PORT = false;
+    private static final int DEFAULT_METRICS_PORT = 0;
+    private static final boolean DEFAULT_APPEND_ONLY_CREDENTIALS = false;
+    private static final int DEFAULT_CREDENTIALS_COMPACTION_THRESHOLD = 1000;
+    private static final boolean DEFAULT_APPEND_ONLY_USERS = false;
+    private static final int DEFAULT_USERS_COMPACTION_THRESHOLD = 1000;
+    private static final DurabilityMode DEFAULT_DURABILITY_MODE = DurabilityMode.NONE;
+    private static final long DEFAULT_GROUP_COMMIT_INTERVAL_MILLIS = 2;
+    private static final int DEFAULT_GROUP_COMMIT_MAX_BATCH_SIZE = 128;
+    private static final long DEFAULT_MAX_RESIDENT_CREDENTIALS_BYTES =
+            ResidentCredentialsCache.DEFAULT_MAX_RESIDENT_BYTES;
+    private static final int MAX_PORT = 65535;
+
+    //required
     private final String serverHost;
     private final int serverPort;
 
+    //optional
+    private final Integer selectorThreadsCount;
+    private final Integer outboundHighWaterMarkBytes;
+    private final Long bufferPoolMaxBytes;
+    private final WireProtocol wireProtocol;
+    private final Long idleTimeoutMillis;
+    private final Integer maxConnections;
+    private final Integer maxPendingRequests;
+    private final Long drainTimeoutMillis;
+    private final Boolean reusePort;
+    private final Integer metricsPort;
+    private final Boolean appendOnlyCredentials;
+    private final Integer credentialsCompactionThreshold;
+    private final Boolean appendOnlyUsers;
+    private final Integer usersCompactionThreshold;
+    private final DurabilityMode durabilityMode;
+    private final Long groupCommitIntervalMillis;
+    private final Integer groupCommitMaxBatchSize;
+    private final Long maxResidentCredentialsBytes;
+
     public ConfigurationData(String serverHost, int serverPort) {
         this.serverHost = serverHost;
         this.serverPort = serverPort;
+        this.selectorThreadsCount = null;
+        this.outboundHighWaterMarkBytes = null;
+        this.bufferPoolMaxBytes = null;
+        this.wireProtocol = null;
+        this.idleTimeoutMillis = null;
+        this.maxConnections = null;
+        this.maxPendingRequests = null;
+        this.drainTimeoutMillis = null;
+        this.reusePort = null;
+        this.metricsPort = null;
+        this.appendOnlyCredentials = null;
+        this.credentialsCompactionThreshold = null;
+        this.appendOnlyUsers = null;
+        this.usersCompactionThreshold = null;
+        this.durabilityMode = null;
+        this.groupCommitIntervalMillis = null;
+        this.groupCommitMaxBatchSize = null;
+        this.maxResidentCredentialsBytes = null;
+    }
+
+    public static ConfigurationDataBuilder builder(String serverHost, int serverPort) {
+        return new ConfigurationDataBuilder(serverHost, serverPort);
     }
 
     public static ConfigurationData of(InputStream stream) {
@@ -65,12 +132,81 @@ public class ConfigurationData {
             Gson gson = new Gson();
             ConfigurationData data = gson.fromJson(configLines.get(0), ConfigurationData.class);
 
-            return data;
+            return validate(data);
         } catch (IOException e) {
             throw new ConfigurationDataException("Cannot read configuration file.", e);
         }
     }
 
+    // Gson sets the fields without the builder, so the values are passed through it to get the same checks
+    private static ConfigurationData validate(ConfigurationData data) throws ConfigurationDataException {
+        if (data == null) {
+            throw new ConfigurationDataException("Configuration file is empty.");
+        }
+
+        try {
+            ConfigurationDataBuilder builder = builder(data.serverHost, data.serverPort);
+            if (data.selectorThreadsCount != null) {
+                builder.setSelectorThreadsCount(data.selectorThreadsCount);
+            }
+            if (data.outboundHighWaterMarkBytes != null) {
+                builder.setOutboundHighWaterMarkBytes(data.outboundHighWaterMarkBytes);
+            }
+            if (data.bufferPoolMaxBytes != null) {
+                builder.setBufferPoolMaxBytes(data.bufferPoolMaxBytes);
+            }
+            if (data.wireProtocol != null) {
+                builder.setWireProtocol(data.wireProtocol);
+            }
+            if (data.idleTimeoutMillis != null) {
+                builder.setIdleTimeoutMillis(data.idleTimeoutMillis);
+            }
+            if (data.maxConnections != null) {
+                builder.setMaxConnections(data.maxConnections);
+            }
+            if (data.maxPendingRequests != null) {
+                builder.setMaxPendingRequests(data.maxPendingRequests);
+            }
+            if (data.drainTimeoutMillis != null) {
+                builder.setDrainTimeoutMillis(data.drainTimeoutMillis);
+            }
+            if (data.reusePort != null) {
+                builder.setReusePort(data.reusePort);
+            }
+            if (data.metricsPort != null) {
+                builder.setMetricsPort(data.metricsPort);
+            }
+            if (data.appendOnlyCredentials != null) {
+                builder.setAppendOnlyCredentials(data.appendOnlyCredentials);
+            }
+            if (data.credentialsCompactionThreshold != null) {
+                builder.setCredentialsCompactionThreshold(data.credentialsCompactionThreshold);
+            }
+            if (data.appendOnlyUsers != null) {
+                builder.setAppendOnlyUsers(data.appendOnlyUsers);
+            }
+            if (data.usersCompactionThreshold != null) {
+                builder.setUsersCompactionThreshold(data.usersCompactionThreshold);
+            }
+            if (data.durabilityMode != null) {
+                builder.setDurabilityMode(data.durabilityMode);
+            }
+            if (data.groupCommitIntervalMillis != null) {
+                builder.setGroupCommitIntervalMillis(data.groupCommitIntervalMillis);
+            }
+            if (data.groupCommitMaxBatchSize != null) {
+                builder.setGroupCommitMaxBatchSize(data.groupCommitMaxBatchSize);
+            }
+            if (data.maxResidentCredentialsBytes != null) {
+                builder.setMaxResidentCredentialsBytes(data.maxResidentCredentialsBytes);
+            }
+
+            return builder.build();
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            throw new ConfigurationDataException("Configuration file has an invalid value. " + e.getMessage(), e);
+        }
+    }
+
     public String getServerHost() {
         return serverHost;
     }
@@ -79,6 +215,91 @@ public class ConfigurationData {
         return serverPort;
     }
 
+    public int getSelectorThreadsCount() {
+        return selectorThreadsCount != null ? selectorThreadsCount : DEFAULT_SELECTOR_THREADS_COUNT;
+    }
+
+    public int getOutboundHighWaterMarkBytes() {
+        return outboundHighWaterMarkBytes != null ?
+                outboundHighWaterMarkBytes : DEFAULT_OUTBOUND_HIGH_WATER_MARK_BYTES;
+    }
+
+    public long getBufferPoolMaxBytes() {
+        return bufferPoolMaxBytes != null ? bufferPoolMaxBytes : DEFAULT_BUFFER_POOL_MAX_BYTES;
+    }
+
+    public WireProtocol getWireProtocol() {
+        return wireProtocol != null ? wireProtocol : DEFAULT_WIRE_PROTOCOL;
+    }
+
+    // zero keeps idle connections open
+    public long getIdleTimeoutMillis() {
+        return idleTimeoutMillis != null ? idleTimeoutMillis : DEFAULT_IDLE_TIMEOUT_MILLIS;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections != null ? maxConnections : DEFAULT_MAX_CONNECTIONS;
+    }
+
+    // requests that are queued or being handled, the ones above it are rejected with SERVER_BUSY
+    public int getMaxPendingRequests() {
+        return maxPendingRequests != null ? maxPendingRequests : DEFAULT_MAX_PENDING_REQUESTS;
+    }
+
+    // how long stopping waits for the requests in flight before abandoning them
+    public long getDrainTimeoutMillis() {
+        return drainTimeoutMillis != null ? drainTimeoutMillis : DEFAULT_DRAIN_TIMEOUT_MILLIS;
+    }
+
+    // several server processes may bind to the same port and share the data files, every operation then takes a
+    // lock on the files and an account change made by another process, e.g. a registration, makes the process
+    // read the whole users file again, so it suits workloads that mostly change credentials
+    public boolean isReusePort() {
+        return reusePort != null ? reusePort : DEFAULT_REUSE_PORT;
+    }
+
+    // the port of the HTTP endpoint that serves the metrics in Prometheus format, zero disables it
+    public int getMetricsPort() {
+        return metricsPort != null ? metricsPort : DEFAULT_METRICS_PORT;
+    }
+
+    // appends the credentials changes to the files of the users instead of rewriting the files
+    public boolean isAppendOnlyCredentials() {
+        return appendOnlyCredentials != null ? appendOnlyCredentials : DEFAULT_APPEND_ONLY_CREDENTIALS;
+    }
+
+    // the dead records in the file of a user after which the file is rewritten with the live credentials only
+    public int getCredentialsCompactionThreshold() {
+        return credentialsCompactionThreshold != null ?
+                credentialsCompactionThreshold : DEFAULT_CREDENTIALS_COMPACTION_THRESHOLD;
+    }
+
+    public boolean isAppendOnlyUsers() {
+        return appendOnlyUsers != null ? appendOnlyUsers : DEFAULT_APPEND_ONLY_USERS;
+    }
+
+    // the dead records in the users file after which it is rewritten, the operations wait for the rewrite
+    public int getUsersCompactionThreshold() {
+        return usersCompactionThreshold != null ? usersCompactionThreshold : DEFAULT_USERS_COMPACTION_THRESHOLD;
+    }
+
+    public DurabilityMode getDurabilityMode() {
+        return durabilityMode != null ? durabilityMode : DEFAULT_DURABILITY_MODE;
+    }
+
+    public long getGroupCommitIntervalMillis() {
+        return groupCommitIntervalMillis != null ? groupCommitIntervalMillis : DEFAULT_GROUP_COMMIT_INTERVAL_MILLIS;
+    }
+
+    public int getGroupCommitMaxBatchSize() {
+        return groupCommitMaxBatchSize != null ? groupCommitMaxBatchSize : DEFAULT_GROUP_COMMIT_MAX_BATCH_SIZE;
+    }
+
+    public long getMaxResidentCredentialsBytes() {
+        return maxResidentCredentialsBytes != null ?
+                maxResidentCredentialsBytes : DEFAULT_MAX_RESIDENT_CREDENTIALS_BYTES;
+    }
+
     public void writeConfiguration(Writer writer) {
         if (writer == null) {
             throw new IllegalArgumentException("Writer should not be null.");
@@ -97,11 +318,248 @@ public class ConfigurationData {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         ConfigurationData that = (ConfigurationData) o;
-        return serverPort == that.serverPort && Objects.equals(serverHost, that.serverHost);
+        return serverPort == that.serverPort && Objects.equals(serverHost, that.serverHost) &&
+                Objects.equals(selectorThreadsCount, that.selectorThreadsCount) &&
+                Objects.equals(outboundHighWaterMarkBytes, that.outboundHighWaterMarkBytes) &&
+                Objects.equals(bufferPoolMaxBytes, that.bufferPoolMaxBytes) &&
+                Objects.equals(wireProtocol, that.wireProtocol) &&
+                Objects.equals(idleTimeoutMillis, that.idleTimeoutMillis) &&
+                Objects.equals(maxConnections, that.maxConnections) &&
+                Objects.equals(maxPendingRequests, that.maxPendingRequests) &&
+                Objects.equals(drainTimeoutMillis, that.drainTimeoutMillis) &&
+                Objects.equals(reusePort, that.reusePort) &&
+                Objects.equals(metricsPort, that.metricsPort) &&
+                Objects.equals(appendOnlyCredentials, that.appendOnlyCredentials) &&
+                Objects.equals(credentialsCompactionThreshold, that.credentialsCompactionThreshold) &&
+                Objects.equals(appendOnlyUsers, that.appendOnlyUsers) &&
+                Objects.equals(usersCompactionThreshold, that.usersCompactionThreshold) &&
+                Objects.equals(durabilityMode, that.durabilityMode) &&
+                Objects.equals(groupCommitIntervalMillis, that.groupCommitIntervalMillis) &&
+                Objects.equals(groupCommitMaxBatchSize, that.groupCommitMaxBatchSize) &&
+                Objects.equals(maxResidentCredentialsBytes, that.maxResidentCredentialsBytes);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(serverHost, serverPort);
+        return Objects.hash(serverHost, serverPort, selectorThreadsCount, outboundHighWaterMarkBytes,
+                bufferPoolMaxBytes, wireProtocol, idleTimeoutMillis, maxConnections, maxPendingRequests,
+                drainTimeoutMillis, reusePort, metricsPort, appendOnlyCredentials, credentialsCompactionThreshold,
+                appendOnlyUsers, usersCompactionThreshold, durabilityMode, groupCommitIntervalMillis,
+                groupCommitMaxBatchSize, maxResidentCredentialsBytes);
+    }
+
+    private ConfigurationData(ConfigurationDataBuilder builder) {
+        this.serverHost = builder.serverHost;
+        this.serverPort = builder.serverPort;
+        this.selectorThreadsCount = builder.selectorThreadsCount;
+        this.outboundHighWaterMarkBytes = builder.outboundHighWaterMarkBytes;
+        this.bufferPoolMaxBytes = builder.bufferPoolMaxBytes;
+        this.wireProtocol = builder.wireProtocol;
+        this.idleTimeoutMillis = builder.idleTimeoutMillis;
+        this.maxConnections = builder.maxConnections;
+        this.maxPendingRequests = builder.maxPendingRequests;
+        this.drainTimeoutMillis = builder.drainTimeoutMillis;
+        this.reusePort = builder.reusePort;
+        this.metricsPort = builder.metricsPort;
+        this.appendOnlyCredentials = builder.appendOnlyCredentials;
+        this.credentialsCompactionThreshold = builder.credentialsCompactionThreshold;
+        this.appendOnlyUsers = builder.appendOnlyUsers;
+        this.usersCompactionThreshold = builder.usersCompactionThreshold;
+        this.durabilityMode = builder.durabilityMode;
+        this.groupCommitIntervalMillis = builder.groupCommitIntervalMillis;
+        this.groupCommitMaxBatchSize = builder.groupCommitMaxBatchSize;
+        this.maxResidentCredentialsBytes = builder.maxResidentCredentialsBytes;
     }
+
+    public static class ConfigurationDataBuilder {
+
+        //required
+        private final String serverHost;
+        private final int serverPort;
+
+        //optional
+        private Integer selectorThreadsCount;
+        private Integer outboundHighWaterMarkBytes;
+        private Long bufferPoolMaxBytes;
+        private WireProtocol wireProtocol;
+        private Long idleTimeoutMillis;
+        private Integer maxConnections;
+        private Integer maxPendingRequests;
+        private Long drainTimeoutMillis;
+        private Boolean reusePort;
+        private Integer metricsPort;
+        private Boolean appendOnlyCredentials;
+        private Integer credentialsCompactionThreshold;
+        private Boolean appendOnlyUsers;
+        private Integer usersCompactionThreshold;
+        private DurabilityMode durabilityMode;
+        private Long groupCommitIntervalMillis;
+        private Integer groupCommitMaxBatchSize;
+        private Long maxResidentCredentialsBytes;
+
+        private ConfigurationDataBuilder(String serverHost, int serverPort) {
+            this.serverHost = serverHost;
+            this.serverPort = serverPort;
+        }
+
+        public ConfigurationDataBuilder setSelectorThreadsCount(int selectorThreadsCount) {
+            if (selectorThreadsCount <= 0) {
+                throw new IllegalArgumentException("selectorThreadsCount should have a positive value.");
+            }
+
+            this.selectorThreadsCount = selectorThreadsCount;
+            return this;
+        }
+
+        public ConfigurationDataBuilder setOutboundHighWaterMarkBytes(int outboundHighWaterMarkBytes) {
+            if (outboundHighWaterMarkBytes <= 0) {
+                throw new IllegalArgumentException("outboundHighWaterMarkBytes should have a positive value.");
+            }
+
+            this.outboundHighWaterMarkBytes = outboundHighWaterMarkBytes;
+            return this;
+        }
+
+        public ConfigurationDataBuilder setBufferPoolMaxBytes(long bufferPoolMaxBytes) {
+            if (bufferPoolMaxBytes < 0) {
+                throw new IllegalArgumentException("bufferPoolMaxBytes should not be negative.");
+            }
+
+            this.bufferPoolMaxBytes = bufferPoolMaxBytes;
+            return this;
+        }
+
+        public ConfigurationDataBuilder setWireProtocol(WireProtocol wireProtocol) {
+            if (wireProtocol == null) {
+                throw new IllegalArgumentException("wireProtocol should not be null.");
+            }
+
+            this.wireProtocol = wireProtocol;
+            return this;
+        }
+
+        public ConfigurationDataBuilder setIdleTimeoutMillis(long idleTimeoutMillis) {
+            if (idleTimeoutMillis < 0) {
+                throw new IllegalArgumentException("idleTimeoutMillis should not be negative.");
+            }
+
+            this.idleTimeoutMillis = idleTimeoutMillis;
+            return this;
+        }
+
+        public ConfigurationDataBuilder setMaxConnections(int maxConnections) {
+            if (maxConnections <= 0) {
+                throw new IllegalArgumentException("maxConnections should have a positive value.");
+            }
+
+            this.maxConnections = maxConnections;
+            return this;
+        }
+
+        public ConfigurationDataBuilder setMaxPendingRequests(int maxPendingRequests) {
+            if (maxPendingRequests <= 0) {
+                throw new IllegalArgumentException("maxPendingRequests should have a positive value.");
+            }
+
+            this.maxPendingRequests = maxPendingRequests;
+            return this;
+        }
+
+        public ConfigurationDataBuilder setDrainTimeoutMillis(long drainTimeoutMillis) {
+            if (drainTimeoutMillis < 0) {
+                throw new IllegalArgumentException("drainTimeoutMillis should not be negative.");
+            }
+
+            this.drainTimeoutMillis = drainTimeoutMillis;
+            return this;
+        }
+
+        public ConfigurationDataBuilder setReusePort(boolean reusePort) {
+            this.reusePort = reusePort;
+            return this;
+        }
+
+        public ConfigurationDataBuilder setMetricsPort(int metricsPort) {
+            if (metricsPort < 0 || metricsPort > MAX_PORT) {
+                throw new IllegalArgumentException("metricsPort should be between 0 and " + MAX_PORT + ".");
+            }
+
+            this.metricsPort = metricsPort;
+            return this;
+        }
+
+        public ConfigurationDataBuilder setAppendOnlyCredentials(boolean appendOnlyCredentials) {
+            this.appendOnlyCredentials = appendOnlyCredentials;
+            return this;
+        }
+
+        public ConfigurationDataBuilder setCredentialsCompactionThreshold(int credentialsCompactionThreshold) {
+            if (credentialsCompactionThreshold <= 0) {
+                throw new IllegalArgumentException("credentialsCompactionThreshold should have a positive value.");
+            }
+
+            this.credentialsCompactionThreshold = credentialsCompactionThreshold;
+            return this;
+        }
+
+        public ConfigurationDataBuilder setAppendOnlyUsers(boolean appendOnlyUsers) {
+            this.appendOnlyUsers = appendOnlyUsers;
+            return this;
+        }
+
+        public ConfigurationDataBuilder setUsersCompactionThreshold(int usersCompactionThreshold) {
+            if (usersCompactionThreshold <= 0) {
+                throw new IllegalArgumentException("usersCompactionThreshold should have a positive value.");
+            }
+
+            this.usersCompactionThreshold = usersCompactionThreshold;
+            return this;
+        }
+
+        public ConfigurationDataBuilder setDurabilityMode(DurabilityMode durabilityMode) {
+            if (durabilityMode == null) {
+                throw new IllegalArgumentException("durabilityMode should not be null.");
+            }
+
+            this.durabilityMode = durabilityMode;
+            return this;
+        }
+
+        public ConfigurationDataBuilder setGroupCommitIntervalMillis(long groupCommitIntervalMillis) {
+            if (groupCommitIntervalMillis < 0) {
+                throw new IllegalArgumentException("groupCommitIntervalMillis should not be negative.");
+            }
+
+            this.groupCommitIntervalMillis = groupCommitIntervalMillis;
+            return this;
+        }
+
+        public ConfigurationDataBuilder setGroupCommitMaxBatchSize(int groupCommitMaxBatchSize) {
+            if (groupCommitMaxBatchSize <= 0) {
+                throw new IllegalArgumentException("groupCommitMaxBatchSize should have a positive value.");
+            }
+
+            this.groupCommitMaxBatchSize = groupCommitMaxBatchSize;
+            return this;
+        }
+
+        public ConfigurationDataBuilder setMaxResidentCredentialsBytes(long maxResidentCredentialsBytes) {
+            if (maxResidentCredentialsBytes <= 0) {
+                throw new IllegalArgumentException("maxResidentCredentialsBytes should have a positive value.");
+            }
+
+            this.maxResidentCredentialsBytes = maxResidentCredentialsBytes;
+            return this;
+        }
+
+        public ConfigurationData build() {
+            if (serverHost == null || serverHost.isBlank()) {
+                throw new IllegalStateException("Server host cannot be neither null or blank.");
+            }
+
+            return new ConfigurationData(this);
+        }
+
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,119 @@
+package bg.sofia.uni.fmi.mjt.password.vault.file;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+// Writes the new contents of a file into a temporary file next to it. commit forces the temporary file to the disk,
+// moves it over the file and forces the directory, so the file has either its old or its new contents whatever
+// happens in between.
+// Closing the writer without commit discards the new contents.
+public class AtomicFileWriter extends Writer {
+
+    public static final String TEMPORARY_FILE_SUFFIX = ".tmp";
+
+    private final Path filePath;
+    private final Path temporaryFilePath;
+    private final FileChannel channel;
+    private final Writer writer;
+    private boolean isCommitted;
+
+    public AtomicFileWriter(Path filePath) throws IOException {
+        this(filePath, temporaryFilePath(filePath));
+    }
+
+    // the temporary file should not be written by anyone else in the meantime
+    public AtomicFileWriter(Path filePath, Path temporaryFilePath) throws IOException {
+        if (filePath == null || temporaryFilePath == null) {
+            throw new IllegalArgumentException("File path and temporary file path should not be null.");
+        }
+
+        this.filePath = filePath;
+        this.temporaryFilePath = temporaryFilePath;
+        this.channel = FileChannel.open(temporaryFilePath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        // the same charset as the FileReader that reads the file
+        this.writer = Channels.newWriter(channel, Charset.defaultCharset());
+    }
+
+    // the temporary file of a rewrite that has not been committed, e.g. because the process crashed
+    public static Path temporaryFilePath(Path filePath) {
+        if (filePath == null) {
+            throw new IllegalArgumentException("File path should not be null.");
+        }
+
+        return filePath.resolveSibling(filePath.getFileName() + TEMPORARY_FILE_SUFFIX);
+    }
+
+    @Override
+    public void write(char[] buffer, int offset, int length) throws IOException {
+        writer.write(buffer, offset, length);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    // forces what has been written so far to the disk, so less is left to force on commit
+    public void force() throws IOException {
+        writer.flush();
+        channel.force(true);
+    }
+
+    // appends the bytes of the file from the position to its end, e.g. the records appended to the file since
+    // the contents written so far were read from it
+    public void transferFrom(Path sourceFilePath, long position) throws IOException {
+        writer.flush();
+        try (FileChannel source = FileChannel.open(sourceFilePath, StandardOpenOption.READ)) {
+            long sourcePosition = position;
+            long sourceSize = source.size();
+            while (sourcePosition < sourceSize) {
+                sourcePosition += source.transferTo(sourcePosition, sourceSize - sourcePosition, channel);
+            }
+        }
+    }
+
+    public void commit() throws IOException {
+        if (isCommitted) {
+            throw new IllegalStateException("Writer is already committed.");
+        }
+
+        writer.flush();
+        channel.force(true);
+        writer.close();
+        Files.move(temporaryFilePath, filePath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        isCommitted = true;
+        // the rename is an entry of the directory, so a crash could bring the old file back until it is forced
+        forceDirectory(filePath.toAbsolutePath().getParent());
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (isCommitted) {
+            return;
+        }
+
+        writer.close();
+        Files.deleteIfExists(temporaryFilePath);
+    }
+
+    private static void forceDirectory(Path directoryPath) {
+        if (directoryPath == null) {
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(directoryPath, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // some platforms cannot open a directory, the new contents are forced anyway
+        }
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,62 @@
+package bg.sofia.uni.fmi.mjt.password.vault.file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Removes the last line of a file whose records are lines, e.g. a record that a crash has left half written,
+// so the next append starts on a line of its own.
+public class TornTailTruncator {
+
+    private static final int SCAN_BUFFER_BYTES = 4096;
+
+    // returns the count of removed bytes
+    public static long truncateLastLine(Path path) throws IOException {
+        if (path == null) {
+            throw new IllegalArgumentException("Path should not be null.");
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            long lastLineStart = findLastLineStart(channel, size);
+            channel.truncate(lastLineStart);
+            channel.force(true);
+
+            return size - lastLineStart;
+        }
+    }
+
+    private static long findLastLineStart(FileChannel channel, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_BYTES);
+        // the separator at the end of the file belongs to the last line
+        long position = size;
+        boolean isAtEnd = true;
+        while (position > 0) {
+            int length = (int) Math.min(buffer.capacity(), position);
+            long start = position - length;
+            buffer.clear().limit(length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, start + buffer.position()) < 0) {
+                    throw new IOException("File has been truncated while reading it.");
+                }
+            }
+
+            for (int i = length - 1; i >= 0; i--) {
+                byte symbol = buffer.get(i);
+                if (isAtEnd && (symbol == '\n' || symbol == '\r')) {
+                    continue;
+                }
+                isAtEnd = false;
+                if (symbol == '\n') {
+                    return start + i + 1;
+                }
+            }
+            position = start;
+        }
+
+        return 0;
+    }
+
+}
\ No newline at end of file
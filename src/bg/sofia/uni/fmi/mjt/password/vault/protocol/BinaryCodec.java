@@ -0,0 +1,558 @@
+package bg.sofia.uni.fmi.mjt.password.vault.protocol;
+
+import bg.sofia.uni.fmi.mjt.password.vault.client.HashedPassword;
+import bg.sofia.uni.fmi.mjt.password.vault.client.encryptor.EncryptionData;
+import bg.sofia.uni.fmi.mjt.password.vault.client.hasher.HashingAlgorithm;
+import bg.sofia.uni.fmi.mjt.password.vault.protocol.exceptions.MalformedMessageException;
+import bg.sofia.uni.fmi.mjt.password.vault.request.NioRequest;
+import bg.sofia.uni.fmi.mjt.password.vault.request.RequestType;
+import bg.sofia.uni.fmi.mjt.password.vault.response.NioResponse;
+import bg.sofia.uni.fmi.mjt.password.vault.response.ResponseType;
+import bg.sofia.uni.fmi.mjt.password.vault.server.ServerPassword;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+// Enum values are written as their ordinals, so new constants should only be appended.
+// The items of a BATCH request follow its fields as a count and nested request frames.
+public class BinaryCodec {
+
+    private static final int NULL_TYPE = 0xFF;
+    private static final int MAX_VAR_INT_SIZE = 5;
+
+    private static final int USERNAME_FLAG = 1;
+    private static final int CREDENTIALS_USERNAME_FLAG = 1 << 1;
+    private static final int APPLICATION_NAME_FLAG = 1 << 2;
+    private static final int PASSWORD_FLAG = 1 << 3;
+    private static final int PASSWORD_REPEATED_FLAG = 1 << 4;
+    private static final int OLD_PASSWORD_FLAG = 1 << 5;
+    private static final int ENCRYPTION_DATA_FLAG = 1 << 6;
+    private static final int REQUEST_ID_FLAG = 1 << 7;
+
+    private static final int HASHED_PASSWORD_FLAG = 1;
+    private static final int ENCRYPTED_PASSWORD_FLAG = 1 << 1;
+    private static final int BODY_FLAG = 1;
+    private static final int RESPONSE_REQUEST_ID_FLAG = 1 << 1;
+
+    private static final int ABSENT_DIGEST = 0;
+    private static final int RAW_DIGEST = 1;
+    private static final int HEX_DIGEST = 2;
+    // DefaultPasswordHasher pads the hex digests to at least 32 digits
+    private static final int MIN_HEX_DIGEST_LENGTH = 32;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final HashingAlgorithm[] DIGEST_ORDER =
+            {HashingAlgorithm.MD5, HashingAlgorithm.SHA1, HashingAlgorithm.SHA256};
+
+    private static final RequestType[] REQUEST_TYPES = RequestType.values();
+    private static final ResponseType[] RESPONSE_TYPES = ResponseType.values();
+
+    private BinaryCodec() {
+    }
+
+    public static int maxRequestFrameLength(NioRequest request) {
+        if (request == null) {
+            throw new IllegalArgumentException("Request should not be null.");
+        }
+
+        return BinaryProtocol.LENGTH_FIELD_SIZE + 2 + Long.BYTES +
+                maxStringLength(request.getUsername()) +
+                maxStringLength(request.getCredentialsUsername()) +
+                maxStringLength(request.getApplicationName()) +
+                maxPasswordLength(request.getPassword()) +
+                maxPasswordLength(request.getPasswordRepeated()) +
+                maxPasswordLength(request.getOldPassword()) +
+                maxEncryptionDataLength(request.getEncryptionData()) +
+                maxBatchLength(request);
+    }
+
+    public static void writeRequestFrame(ByteBuffer target, NioRequest request) {
+        if (target == null || request == null) {
+            throw new IllegalArgumentException("Target buffer and request should not be null.");
+        }
+
+        int frameStart = target.position();
+        target.position(frameStart + BinaryProtocol.LENGTH_FIELD_SIZE);
+
+        writeType(target, request.getType());
+        int flags = flagOf(request.getUsername(), USERNAME_FLAG) |
+                flagOf(request.getCredentialsUsername(), CREDENTIALS_USERNAME_FLAG) |
+                flagOf(request.getApplicationName(), APPLICATION_NAME_FLAG) |
+                flagOf(request.getPassword(), PASSWORD_FLAG) |
+                flagOf(request.getPasswordRepeated(), PASSWORD_REPEATED_FLAG) |
+                flagOf(request.getOldPassword(), OLD_PASSWORD_FLAG) |
+                flagOf(request.getEncryptionData(), ENCRYPTION_DATA_FLAG) |
+                flagOf(request.getRequestId(), REQUEST_ID_FLAG);
+        target.put((byte) flags);
+
+        if (request.getRequestId() != null) {
+            target.putLong(request.getRequestId());
+        }
+
+        writeOptionalString(target, request.getUsername());
+        writeOptionalString(target, request.getCredentialsUsername());
+        writeOptionalString(target, request.getApplicationName());
+        writeOptionalPassword(target, request.getPassword());
+        writeOptionalPassword(target, request.getPasswordRepeated());
+        writeOptionalPassword(target, request.getOldPassword());
+        if (request.getEncryptionData() != null) {
+            writeEncryptionData(target, request.getEncryptionData());
+        }
+        if (request.getType() == RequestType.BATCH) {
+            writeBatch(target, request.getRequests());
+        }
+
+        target.putInt(frameStart, target.position() - frameStart - BinaryProtocol.LENGTH_FIELD_SIZE);
+    }
+
+    public static NioRequest readRequest(ByteBuffer source) throws MalformedMessageException {
+        if (source == null) {
+            throw new IllegalArgumentException("Source buffer should not be null.");
+        }
+
+        return readRequest(source, true);
+    }
+
+    private static NioRequest readRequest(ByteBuffer source, boolean isBatchAllowed)
+            throws MalformedMessageException {
+        try {
+            int typeIndex = Byte.toUnsignedInt(source.get());
+            if (typeIndex >= REQUEST_TYPES.length) {
+                throw new MalformedMessageException("Request type " + typeIndex + " is not supported.");
+            }
+            RequestType type = REQUEST_TYPES[typeIndex];
+            if (type == RequestType.BATCH && !isBatchAllowed) {
+                throw new MalformedMessageException("Batch requests cannot be nested.");
+            }
+            int flags = source.get();
+
+            NioRequest.NioRequestBuilder builder = NioRequest.builder()
+                    .setType(type);
+            if ((flags & REQUEST_ID_FLAG) != 0) {
+                builder.setRequestId(source.getLong());
+            }
+            if ((flags & USERNAME_FLAG) != 0) {
+                builder.setUsername(readString(source));
+            }
+            if ((flags & CREDENTIALS_USERNAME_FLAG) != 0) {
+                builder.setCredentialsUsername(readString(source));
+            }
+            if ((flags & APPLICATION_NAME_FLAG) != 0) {
+                builder.setApplicationName(readString(source));
+            }
+            if ((flags & PASSWORD_FLAG) != 0) {
+                builder.setPassword(readPassword(source));
+            }
+            if ((flags & PASSWORD_REPEATED_FLAG) != 0) {
+                builder.setPasswordRepeated(readPassword(source));
+            }
+            if ((flags & OLD_PASSWORD_FLAG) != 0) {
+                builder.setOldPassword(readPassword(source));
+            }
+            if ((flags & ENCRYPTION_DATA_FLAG) != 0) {
+                builder.setEncryptionData(readEncryptionData(source));
+            }
+            if (type == RequestType.BATCH) {
+                builder.setRequests(readBatch(source));
+            }
+            expectEnd(source);
+
+            return builder.build();
+        } catch (BufferUnderflowException e) {
+            throw new MalformedMessageException("Request is shorter than its fields.", e);
+        } catch (IllegalStateException e) {
+            throw new MalformedMessageException("Request does not contain its required fields.", e);
+        }
+    }
+
+    public static int maxResponseFrameLength(NioResponse response) {
+        if (response == null) {
+            throw new IllegalArgumentException("Response should not be null.");
+        }
+
+        return BinaryProtocol.LENGTH_FIELD_SIZE + 2 + Long.BYTES + maxStringLength(response.getBody());
+    }
+
+    public static void writeResponseFrame(ByteBuffer target, NioResponse response) {
+        if (target == null || response == null) {
+            throw new IllegalArgumentException("Target buffer and response should not be null.");
+        }
+
+        int frameStart = target.position();
+        target.position(frameStart + BinaryProtocol.LENGTH_FIELD_SIZE);
+
+        writeType(target, response.getType());
+        target.put((byte) (flagOf(response.getBody(), BODY_FLAG) |
+                flagOf(response.getRequestId(), RESPONSE_REQUEST_ID_FLAG)));
+        if (response.getRequestId() != null) {
+            target.putLong(response.getRequestId());
+        }
+        writeOptionalString(target, response.getBody());
+
+        target.putInt(frameStart, target.position() - frameStart - BinaryProtocol.LENGTH_FIELD_SIZE);
+    }
+
+    public static NioResponse readResponse(ByteBuffer source) throws MalformedMessageException {
+        if (source == null) {
+            throw new IllegalArgumentException("Source buffer should not be null.");
+        }
+
+        try {
+            int typeIndex = Byte.toUnsignedInt(source.get());
+            ResponseType type = typeIndex < RESPONSE_TYPES.length ? RESPONSE_TYPES[typeIndex] : null;
+            int flags = source.get();
+            Long requestId = (flags & RESPONSE_REQUEST_ID_FLAG) != 0 ? source.getLong() : null;
+            String body = (flags & BODY_FLAG) != 0 ? readString(source) : null;
+            expectEnd(source);
+
+            return new NioResponse(type, body, requestId);
+        } catch (BufferUnderflowException e) {
+            throw new MalformedMessageException("Response is shorter than its fields.", e);
+        }
+    }
+
+    private static void writeType(ByteBuffer target, Enum<?> type) {
+        target.put((byte) (type == null ? NULL_TYPE : type.ordinal()));
+    }
+
+    private static int flagOf(Object value, int flag) {
+        return value == null ? 0 : flag;
+    }
+
+    private static void expectEnd(ByteBuffer source) throws MalformedMessageException {
+        if (source.hasRemaining()) {
+            throw new MalformedMessageException("Message has " + source.remaining() + " unexpected trailing bytes.");
+        }
+    }
+
+    private static int maxBatchLength(NioRequest request) {
+        if (request.getType() != RequestType.BATCH) {
+            return 0;
+        }
+
+        int length = MAX_VAR_INT_SIZE;
+        if (request.getRequests() != null) {
+            for (NioRequest batchRequest : request.getRequests()) {
+                length += batchRequest == null ? 0 : maxRequestFrameLength(batchRequest);
+            }
+        }
+
+        return length;
+    }
+
+    private static void writeBatch(ByteBuffer target, List<NioRequest> requests) {
+        if (requests == null) {
+            writeVarInt(target, 0);
+            return;
+        }
+
+        writeVarInt(target, requests.size());
+        for (NioRequest batchRequest : requests) {
+            if (batchRequest == null || batchRequest.getType() == RequestType.BATCH) {
+                throw new IllegalArgumentException("Batch requests should be non-null and not nested.");
+            }
+            writeRequestFrame(target, batchRequest);
+        }
+    }
+
+    private static List<NioRequest> readBatch(ByteBuffer source) throws MalformedMessageException {
+        int requestsCount = readVarInt(source);
+        // every request frame takes at least its length and type fields
+        checkLength(source, requestsCount);
+
+        List<NioRequest> requests = new ArrayList<>(requestsCount);
+        for (int i = 0; i < requestsCount; i++) {
+            int frameLength = source.getInt();
+            checkLength(source, frameLength);
+
+            ByteBuffer frame = source.slice();
+            frame.limit(frameLength);
+            requests.add(readRequest(frame, false));
+            source.position(source.position() + frameLength);
+        }
+
+        return requests;
+    }
+
+    private static int maxPasswordLength(ServerPassword password) {
+        if (password == null) {
+            return 0;
+        }
+
+        int length = 1 + maxStringLength(password.getAesEncryptedPassword());
+        HashedPassword hashedPassword = password.getHashedPassword();
+        if (hashedPassword != null) {
+            for (HashingAlgorithm algorithm : DIGEST_ORDER) {
+                String hexDigest = hexDigestOf(hashedPassword, algorithm);
+                length += 1 + Math.max(digestLengthOf(algorithm), maxStringLength(hexDigest));
+            }
+        }
+
+        return length;
+    }
+
+    private static void writeOptionalPassword(ByteBuffer target, ServerPassword password) {
+        if (password == null) {
+            return;
+        }
+
+        HashedPassword hashedPassword = password.getHashedPassword();
+        target.put((byte) (flagOf(hashedPassword, HASHED_PASSWORD_FLAG) |
+                flagOf(password.getAesEncryptedPassword(), ENCRYPTED_PASSWORD_FLAG)));
+        if (hashedPassword != null) {
+            for (HashingAlgorithm algorithm : DIGEST_ORDER) {
+                writeDigest(target, hexDigestOf(hashedPassword, algorithm), digestLengthOf(algorithm));
+            }
+        }
+        writeOptionalString(target, password.getAesEncryptedPassword());
+    }
+
+    private static ServerPassword readPassword(ByteBuffer source) throws MalformedMessageException {
+        int flags = source.get();
+
+        HashedPassword hashedPassword = null;
+        if ((flags & HASHED_PASSWORD_FLAG) != 0) {
+            Map<HashingAlgorithm, String> passwordHashes = new EnumMap<>(HashingAlgorithm.class);
+            for (HashingAlgorithm algorithm : DIGEST_ORDER) {
+                String hexDigest = readDigest(source, digestLengthOf(algorithm));
+                if (hexDigest != null) {
+                    passwordHashes.put(algorithm, hexDigest);
+                }
+            }
+            hashedPassword = new HashedPassword(passwordHashes);
+        }
+        String encryptedPassword = (flags & ENCRYPTED_PASSWORD_FLAG) != 0 ? readString(source) : null;
+
+        return new ServerPassword(hashedPassword, encryptedPassword);
+    }
+
+    private static void writeDigest(ByteBuffer target, String hexDigest, int digestLength) {
+        if (hexDigest == null) {
+            target.put((byte) ABSENT_DIGEST);
+            return;
+        }
+
+        byte[] digest = rawDigestOf(hexDigest, digestLength);
+        if (digest == null) {
+            // digests that would not survive the hex round trip are sent as they are
+            target.put((byte) HEX_DIGEST);
+            writeString(target, hexDigest);
+        } else {
+            target.put((byte) RAW_DIGEST);
+            target.put(digest);
+        }
+    }
+
+    private static String readDigest(ByteBuffer source, int digestLength) throws MalformedMessageException {
+        int form = source.get();
+        return switch (form) {
+            case ABSENT_DIGEST -> null;
+            case HEX_DIGEST -> readString(source);
+            case RAW_DIGEST -> {
+                byte[] digest = new byte[digestLength];
+                source.get(digest);
+                yield hexOf(digest);
+            }
+            default -> throw new MalformedMessageException("Digest form " + form + " is not supported.");
+        };
+    }
+
+    private static int maxEncryptionDataLength(EncryptionData encryptionData) {
+        if (encryptionData == null) {
+            return 0;
+        }
+
+        byte[] salt = encryptionData.getSalt();
+        return 2 * MAX_VAR_INT_SIZE + (salt == null ? 0 : salt.length);
+    }
+
+    private static void writeEncryptionData(ByteBuffer target, EncryptionData encryptionData) {
+        writeVarInt(target, encryptionData.getIterationsCount());
+        byte[] salt = encryptionData.getSalt();
+        // zero marks a missing salt, so the lengths are shifted by one
+        writeVarInt(target, salt == null ? 0 : salt.length + 1);
+        if (salt != null) {
+            target.put(salt);
+        }
+    }
+
+    private static EncryptionData readEncryptionData(ByteBuffer source) throws MalformedMessageException {
+        int iterationsCount = readVarInt(source);
+        int saltLength = readVarInt(source) - 1;
+
+        byte[] salt = null;
+        if (saltLength >= 0) {
+            checkLength(source, saltLength);
+            salt = new byte[saltLength];
+            source.get(salt);
+        }
+
+        return new EncryptionData(iterationsCount, salt);
+    }
+
+    private static int maxStringLength(String value) {
+        if (value == null) {
+            return 0;
+        }
+
+        return MAX_VAR_INT_SIZE + utf8Length(value);
+    }
+
+    private static void writeOptionalString(ByteBuffer target, String value) {
+        if (value != null) {
+            writeString(target, value);
+        }
+    }
+
+    private static void writeString(ByteBuffer target, String value) {
+        writeVarInt(target, utf8Length(value));
+
+        for (int i = 0; i < value.length(); i++) {
+            char symbol = value.charAt(i);
+            if (symbol < 0x80) {
+                target.put((byte) symbol);
+            } else if (symbol < 0x800) {
+                target.put((byte) (0xC0 | (symbol >> 6)));
+                target.put((byte) (0x80 | (symbol & 0x3F)));
+            } else if (isSurrogatePair(value, i)) {
+                int codePoint = Character.toCodePoint(symbol, value.charAt(++i));
+                target.put((byte) (0xF0 | (codePoint >> 18)));
+                target.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                target.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                target.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else if (Character.isSurrogate(symbol)) {
+                // unpaired surrogates are replaced like String.getBytes does
+                target.put((byte) '?');
+            } else {
+                target.put((byte) (0xE0 | (symbol >> 12)));
+                target.put((byte) (0x80 | ((symbol >> 6) & 0x3F)));
+                target.put((byte) (0x80 | (symbol & 0x3F)));
+            }
+        }
+    }
+
+    private static String readString(ByteBuffer source) throws MalformedMessageException {
+        int length = readVarInt(source);
+        checkLength(source, length);
+
+        String value;
+        if (source.hasArray()) {
+            value = new String(source.array(), source.arrayOffset() + source.position(), length,
+                    StandardCharsets.UTF_8);
+        } else {
+            ByteBuffer stringBytes = source.slice();
+            stringBytes.limit(length);
+            value = StandardCharsets.UTF_8.decode(stringBytes).toString();
+        }
+        source.position(source.position() + length);
+
+        return value;
+    }
+
+    private static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char symbol = value.charAt(i);
+            if (symbol < 0x80) {
+                length += 1;
+            } else if (symbol < 0x800) {
+                length += 2;
+            } else if (isSurrogatePair(value, i)) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(symbol)) {
+                length += 1;
+            } else {
+                length += 3;
+            }
+        }
+
+        return length;
+    }
+
+    private static boolean isSurrogatePair(String value, int index) {
+        return Character.isHighSurrogate(value.charAt(index)) && index + 1 < value.length() &&
+                Character.isLowSurrogate(value.charAt(index + 1));
+    }
+
+    private static void writeVarInt(ByteBuffer target, int value) {
+        while ((value & ~0x7F) != 0) {
+            target.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        target.put((byte) value);
+    }
+
+    private static int readVarInt(ByteBuffer source) throws MalformedMessageException {
+        int value = 0;
+        for (int i = 0; i < MAX_VAR_INT_SIZE; i++) {
+            int currentByte = source.get();
+            value |= (currentByte & 0x7F) << (7 * i);
+            if ((currentByte & 0x80) == 0) {
+                return value;
+            }
+        }
+
+        throw new MalformedMessageException("Variable length integer is longer than " + MAX_VAR_INT_SIZE + " bytes.");
+    }
+
+    private static void checkLength(ByteBuffer source, int length) throws MalformedMessageException {
+        if (length < 0 || length > source.remaining()) {
+            throw new MalformedMessageException("Field length " + length + " exceeds the message length.");
+        }
+    }
+
+    private static String hexDigestOf(HashedPassword hashedPassword, HashingAlgorithm algorithm) {
+        return switch (algorithm) {
+            case MD5 -> hashedPassword.getMd5();
+            case SHA1 -> hashedPassword.getSha1();
+            case SHA256 -> hashedPassword.getSha256();
+        };
+    }
+
+    private static int digestLengthOf(HashingAlgorithm algorithm) {
+        return switch (algorithm) {
+            case MD5 -> 16;
+            case SHA1 -> 20;
+            case SHA256 -> 32;
+        };
+    }
+
+    private static byte[] rawDigestOf(String hexDigest, int digestLength) {
+        if (hexDigest.length() > 2 * digestLength) {
+            return null;
+        }
+
+        byte[] digest = new byte[digestLength];
+        int digitIndex = hexDigest.length() - 1;
+        for (int i = 2 * digestLength - 1; i >= 0 && digitIndex >= 0; i--, digitIndex--) {
+            int digit = Character.digit(hexDigest.charAt(digitIndex), 16);
+            if (digit < 0) {
+                return null;
+            }
+            digest[i / 2] |= (byte) (i % 2 == 0 ? digit << 4 : digit);
+        }
+
+        return hexOf(digest).equals(hexDigest) ? digest : null;
+    }
+
+    private static String hexOf(byte[] digest) {
+        char[] hexDigits = new char[2 * digest.length];
+        for (int i = 0; i < digest.length; i++) {
+            hexDigits[2 * i] = HEX_DIGITS[(digest[i] >> 4) & 0xF];
+            hexDigits[2 * i + 1] = HEX_DIGITS[digest[i] & 0xF];
+        }
+
+        int start = 0;
+        while (start < hexDigits.length - MIN_HEX_DIGEST_LENGTH && hexDigits[start] == '0') {
+            start++;
+        }
+
+        return new String(hexDigits, start, hexDigits.length - start);
+    }
+
+}
\ No newline at end of file
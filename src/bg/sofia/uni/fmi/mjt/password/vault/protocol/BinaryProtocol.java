@@ -0,0 +1,84 @@
+package bg.sofia.uni.fmi.mjt.password.vault.protocol;
+
+import bg.sofia.uni.fmi.mjt.password.vault.protocol.exceptions.MalformedMessageException;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+
+public class BinaryProtocol {
+
+    public static final byte VERSION = 1;
+    public static final byte REJECTED_VERSION = 0;
+    public static final int LENGTH_FIELD_SIZE = Integer.BYTES;
+
+    // the first byte is not valid in a JSON request, so the server can tell the protocols apart
+    private static final byte[] MAGIC = {(byte) 0xB7, 'P', 'V', 'B'};
+    public static final int HANDSHAKE_LENGTH = MAGIC.length + 1;
+
+    private BinaryProtocol() {
+    }
+
+    public static boolean isHandshakeStart(byte firstByte) {
+        return firstByte == MAGIC[0];
+    }
+
+    public static void writeHandshake(ByteBuffer target, byte version) {
+        if (target == null) {
+            throw new IllegalArgumentException("Target buffer should not be null.");
+        }
+
+        target.put(MAGIC);
+        target.put(version);
+    }
+
+    public static byte readHandshake(ByteBuffer source) throws MalformedMessageException {
+        if (source == null) {
+            throw new IllegalArgumentException("Source buffer should not be null.");
+        }
+        if (source.remaining() < HANDSHAKE_LENGTH) {
+            throw new MalformedMessageException("Handshake should be " + HANDSHAKE_LENGTH + " bytes long.");
+        }
+
+        for (byte magicByte : MAGIC) {
+            if (source.get() != magicByte) {
+                throw new MalformedMessageException("Handshake does not start with the protocol magic.");
+            }
+        }
+
+        return source.get();
+    }
+
+    public static byte negotiateVersion(byte clientVersion) {
+        return clientVersion >= VERSION ? VERSION : REJECTED_VERSION;
+    }
+
+    public static boolean negotiate(ByteChannel channel) throws IOException {
+        if (channel == null) {
+            throw new IllegalArgumentException("Channel should not be null.");
+        }
+
+        ByteBuffer handshake = ByteBuffer.allocate(HANDSHAKE_LENGTH);
+        writeHandshake(handshake, VERSION);
+        handshake.flip();
+        while (handshake.hasRemaining()) {
+            channel.write(handshake);
+        }
+
+        handshake.clear();
+        while (handshake.hasRemaining()) {
+            if (channel.read(handshake) < 0) {
+                throw new EOFException("Server has closed the connection during the handshake.");
+            }
+        }
+        handshake.flip();
+
+        try {
+            return readHandshake(handshake) != REJECTED_VERSION;
+        } catch (MalformedMessageException e) {
+            throw new IOException("Server has sent an invalid handshake.", e);
+        }
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,8 @@
+package bg.sofia.uni.fmi.mjt.password.vault.protocol;
+
+public enum WireProtocol {
+
+    JSON,
+    BINARY
+
+}
\ No newline at end of file
@@ -0,0 +1,13 @@
+package bg.sofia.uni.fmi.mjt.password.vault.protocol.exceptions;
+
+public class MalformedMessageException extends Exception {
+
+    public MalformedMessageException(String message) {
+        super(message);
+    }
+
+    public MalformedMessageException(String message, Throwable e) {
+        super(message, e);
+    }
+
+}
\ No newline at end of file
@@ -3,33 +3,50 @@ package bg.sofia.uni.fmi.mjt.password.vault.request;
 import bg.sofia.uni.fmi.mjt.password.vault.client.encryptor.EncryptionData;
 import bg.sofia.uni.fmi.mjt.password.vault.server.ServerPassword;
 import com.google.gson.Gson;
+import com.google.gson.annotations.JsonAdapter;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 
+@JsonAdapter(NioRequestTypeAdapter.class)
 public class NioRequest {
 
+    private static final Gson GSON = new Gson();
+
     //required
     private final RequestType type;
     private final String username;
 
     //optional
+    private final Long requestId;
     private final String credentialsUsername;
     private final String applicationName;
     private final ServerPassword password;
     private final ServerPassword passwordRepeated;
     private final ServerPassword oldPassword;
     private final EncryptionData encryptionData;
+    private final List<NioRequest> requests;
 
     public static NioRequest of(byte[] nioRequestBytes) {
         if (nioRequestBytes == null) {
             throw new IllegalArgumentException("bytes array should not be null.");
         }
 
-        Gson gson = new Gson();
-        String nioRequestString = new String(nioRequestBytes, StandardCharsets.UTF_8);
+        return fromJson(new InputStreamReader(new ByteArrayInputStream(nioRequestBytes), StandardCharsets.UTF_8));
+    }
+
+    public static NioRequest fromJson(Reader nioRequestReader) {
+        if (nioRequestReader == null) {
+            throw new IllegalArgumentException("Reader should not be null.");
+        }
 
-        return gson.fromJson(nioRequestString, NioRequest.class);
+        return GSON.fromJson(nioRequestReader, NioRequest.class);
     }
 
     public static NioRequestBuilder builder() {
@@ -48,6 +65,15 @@ public class NioRequest {
         return username;
     }
 
+    // null for clients that expect the responses in the order of their requests
+    public Long getRequestId() {
+        return requestId;
+    }
+
+    public NioRequest withRequestId(Long requestId) {
+        return new NioRequest(this, requestId);
+    }
+
     public String getCredentialsUsername() { return credentialsUsername; }
 
     public String getApplicationName() {
@@ -70,6 +96,11 @@ public class NioRequest {
         return encryptionData;
     }
 
+    // the items of a BATCH request, null for the other request types
+    public List<NioRequest> getRequests() {
+        return requests;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -86,12 +117,27 @@ public class NioRequest {
     private NioRequest(NioRequestBuilder builder) {
         this.type = builder.type;
         this.username = builder.username;
+        this.requestId = builder.requestId;
         this.credentialsUsername = builder.credentialsUsername;
         this.applicationName = builder.applicationName;
         this.password = builder.password;
         this.passwordRepeated = builder.passwordRepeated;
         this.oldPassword = builder.oldPassword;
         this.encryptionData = builder.encryptionData;
+        this.requests = builder.requests;
+    }
+
+    private NioRequest(NioRequest request, Long requestId) {
+        this.type = request.type;
+        this.username = request.username;
+        this.requestId = requestId;
+        this.credentialsUsername = request.credentialsUsername;
+        this.applicationName = request.applicationName;
+        this.password = request.password;
+        this.passwordRepeated = request.passwordRepeated;
+        this.oldPassword = request.oldPassword;
+        this.encryptionData = request.encryptionData;
+        this.requests = request.requests;
     }
 
     public static class NioRequestBuilder {
@@ -100,12 +146,14 @@ public class NioRequest {
         private RequestType type;
         private String username;
         //optional
+        private Long requestId;
         private String credentialsUsername;
         private String applicationName;
         private ServerPassword password;
         private ServerPassword passwordRepeated;
         private ServerPassword oldPassword;
         private EncryptionData encryptionData;
+        private List<NioRequest> requests;
 
         private NioRequestBuilder() {
         }
@@ -124,6 +172,11 @@ public class NioRequest {
             return this;
         }
 
+        public NioRequestBuilder setRequestId(Long requestId) {
+            this.requestId = requestId;
+            return this;
+        }
+
         public NioRequestBuilder setCredentialsUsername(String credentialsUsername) {
             this.credentialsUsername = credentialsUsername;
             return this;
@@ -154,6 +207,11 @@ public class NioRequest {
             return this;
         }
 
+        public NioRequestBuilder setRequests(List<NioRequest> requests) {
+            this.requests = requests == null ? null : Collections.unmodifiableList(new ArrayList<>(requests));
+            return this;
+        }
+
         public NioRequest build() {
             if (username == null || type == null) {
                 throw new IllegalStateException(
@@ -163,6 +221,10 @@ public class NioRequest {
             return new NioRequest(this);
         }
 
+        NioRequest buildUnvalidated() {
+            return new NioRequest(this);
+        }
+
     }
 
 }
\ No newline at end of file
@@ -1,45 +1,241 @@
 package bg.sofia.uni.fmi.mjt.password.vault.request;
 
 import bg.sofia.uni.fmi.mjt.password.vault.client.command.ClientCommand;
+import bg.sofia.uni.fmi.mjt.password.vault.protocol.BinaryCodec;
+import bg.sofia.uni.fmi.mjt.password.vault.protocol.BinaryProtocol;
+import bg.sofia.uni.fmi.mjt.password.vault.protocol.WireProtocol;
+import bg.sofia.uni.fmi.mjt.password.vault.protocol.exceptions.MalformedMessageException;
 import bg.sofia.uni.fmi.mjt.password.vault.response.NioResponseHandler;
 import bg.sofia.uni.fmi.mjt.password.vault.response.NioResponse;
 import bg.sofia.uni.fmi.mjt.password.vault.session.Session;
 import com.google.gson.Gson;
 
 import java.io.BufferedReader;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class NioRequestSender {
 
     private static final Gson GSON = new Gson();
+    private static final String RESPONSE_READER_THREAD_NAME = "response-reader";
 
+    private final WireProtocol protocol;
+
+    //JSON protocol
     private final BufferedReader reader;
     private final PrintWriter writer;
 
+    //binary protocol
+    private final SocketChannel channel;
+    private final ByteBuffer lengthBuffer;
+
+    private final AtomicLong lastRequestId;
+    private final ConcurrentNavigableMap<Long, CompletableFuture<NioResponse>> pendingResponses;
+    private Thread responseReader;
+    // set once the response reader has exited, no response can arrive after that
+    private volatile IOException closeCause;
+
     public NioRequestSender(BufferedReader reader, PrintWriter writer) {
+        this(WireProtocol.JSON, reader, writer, null);
+    }
+
+    private NioRequestSender(SocketChannel channel) {
+        this(WireProtocol.BINARY, null, null, channel);
+    }
+
+    private NioRequestSender(WireProtocol protocol, BufferedReader reader, PrintWriter writer,
+                             SocketChannel channel) {
+        this.protocol = protocol;
         this.reader = reader;
         this.writer = writer;
+        this.channel = channel;
+        this.lengthBuffer = ByteBuffer.allocate(BinaryProtocol.LENGTH_FIELD_SIZE);
+        this.lastRequestId = new AtomicLong();
+        this.pendingResponses = new ConcurrentSkipListMap<>();
+    }
+
+    public static NioRequestSender of(SocketChannel channel, WireProtocol preferredProtocol) throws IOException {
+        if (channel == null || preferredProtocol == null) {
+            throw new IllegalArgumentException("Channel and protocol should not be null.");
+        }
+
+        if (preferredProtocol == WireProtocol.BINARY && BinaryProtocol.negotiate(channel)) {
+            return new NioRequestSender(channel);
+        }
+
+        // servers that reject the binary protocol keep talking JSON on the same connection
+        return new NioRequestSender(new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8)),
+                new PrintWriter(Channels.newWriter(channel, StandardCharsets.UTF_8), true));
+    }
+
+    public WireProtocol getProtocol() {
+        return protocol;
     }
 
     public Session sendRequest(NioRequest request, ClientCommand command, Session session) {
-        String jsonRequest = GSON.toJson(request);
-        writer.println(jsonRequest); //send request to server
+        NioResponse response;
+        try {
+            response = sendAsync(request).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        NioResponseHandler responseHandler = new NioResponseHandler();
+
+        Session newSession = responseHandler.handle(command, response, session);
+        return newSession;
+    }
+
+    // Many requests can be in flight at once, the server answers them in any order.
+    public CompletableFuture<NioResponse> sendAsync(NioRequest request) {
+        if (request == null) {
+            throw new IllegalArgumentException("Request should not be null.");
+        }
+
+        long requestId = lastRequestId.incrementAndGet();
+        CompletableFuture<NioResponse> response = new CompletableFuture<>();
+        pendingResponses.put(requestId, response);
+        // checked after the request is pending, so either this check or the exiting reader fails it
+        if (closeCause != null) {
+            pendingResponses.remove(requestId);
+            response.completeExceptionally(
+                    new UncheckedIOException("The connection to the server is closed.", closeCause));
+            return response;
+        }
+
+        try {
+            startResponseReader();
+            writeRequest(request.withRequestId(requestId));
+        } catch (IOException e) {
+            pendingResponses.remove(requestId);
+            response.completeExceptionally(
+                    new UncheckedIOException("An error occured while sending request to the server.", e));
+        }
+
+        return response;
+    }
+
+    public int getPendingRequestsCount() {
+        return pendingResponses.size();
+    }
+
+    private synchronized void startResponseReader() {
+        if (responseReader == null) {
+            responseReader = new Thread(this::readResponses, RESPONSE_READER_THREAD_NAME);
+            responseReader.setDaemon(true);
+            responseReader.start();
+        }
+    }
+
+    private synchronized void writeRequest(NioRequest request) throws IOException {
+        switch (protocol) {
+            case JSON -> {
+                writer.println(GSON.toJson(request));
+                if (writer.checkError()) {
+                    throw new IOException("Cannot write request to the server.");
+                }
+            }
+            case BINARY -> {
+                ByteBuffer requestBuffer = ByteBuffer.allocate(BinaryCodec.maxRequestFrameLength(request));
+                BinaryCodec.writeRequestFrame(requestBuffer, request);
+                requestBuffer.flip();
+                while (requestBuffer.hasRemaining()) {
+                    channel.write(requestBuffer);
+                }
+            }
+        }
+    }
 
-        String jsonResponse = null; //read response from server
+    private void readResponses() {
+        IOException cause;
         try {
-            jsonResponse = reader.readLine();
+            NioResponse response;
+            while ((response = readResponse()) != null) {
+                completeResponse(response);
+            }
+            cause = new EOFException("Server has closed the connection.");
         } catch (IOException e) {
-            throw new UncheckedIOException("An error occured while reading response of the server.", e);
+            cause = e;
+        } catch (RuntimeException e) {
+            cause = new IOException("Server has sent a malformed response.", e);
+        }
+
+        closeCause = cause;
+        failPendingResponses(cause);
+    }
 
+    private void completeResponse(NioResponse response) {
+        Map.Entry<Long, CompletableFuture<NioResponse>> pendingResponse;
+        if (response.getRequestId() != null) {
+            CompletableFuture<NioResponse> future = pendingResponses.remove(response.getRequestId());
+            pendingResponse = future == null ? null : Map.entry(response.getRequestId(), future);
+        } else {
+            // servers without request ids answer in the order of the requests
+            pendingResponse = pendingResponses.pollFirstEntry();
         }
 
-        NioResponse response = GSON.fromJson(jsonResponse, NioResponse.class);
-        NioResponseHandler responseHandler = new NioResponseHandler();
+        if (pendingResponse != null) {
+            pendingResponse.getValue().complete(response);
+        }
+    }
 
-        Session newSession = responseHandler.handle(command, response, session);
-        return newSession;
+    private void failPendingResponses(IOException e) {
+        Map.Entry<Long, CompletableFuture<NioResponse>> pendingResponse;
+        while ((pendingResponse = pendingResponses.pollFirstEntry()) != null) {
+            pendingResponse.getValue().completeExceptionally(
+                    new UncheckedIOException("An error occured while reading response of the server.", e));
+        }
+    }
+
+    private NioResponse readResponse() throws IOException {
+        return switch (protocol) {
+            case JSON -> {
+                String jsonResponse = reader.readLine();
+                yield jsonResponse == null ? null : GSON.fromJson(jsonResponse, NioResponse.class);
+            }
+            case BINARY -> readBinaryResponse();
+        };
+    }
+
+    private NioResponse readBinaryResponse() throws IOException {
+        lengthBuffer.clear();
+        if (!readFully(lengthBuffer)) {
+            return null;
+        }
+        ByteBuffer responseBuffer = ByteBuffer.allocate(lengthBuffer.getInt(0));
+        if (!readFully(responseBuffer)) {
+            throw new EOFException("Server has closed the connection in the middle of a response.");
+        }
+
+        try {
+            return BinaryCodec.readResponse(responseBuffer.flip());
+        } catch (MalformedMessageException e) {
+            throw new IOException("Server has sent a malformed response.", e);
+        }
+    }
+
+    private boolean readFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                return false;
+            }
+        }
+
+        return true;
     }
 
 }
\ No newline at end of file
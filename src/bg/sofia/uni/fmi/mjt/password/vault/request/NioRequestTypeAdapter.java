@@ -0,0 +1,157 @@
+package bg.sofia.uni.fmi.mjt.password.vault.request;
+
+import bg.sofia.uni.fmi.mjt.password.vault.client.encryptor.EncryptionDataTypeAdapter;
+import bg.sofia.uni.fmi.mjt.password.vault.server.ServerPassword;
+import bg.sofia.uni.fmi.mjt.password.vault.server.ServerPasswordTypeAdapter;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class NioRequestTypeAdapter extends TypeAdapter<NioRequest> {
+
+    private static final String TYPE_FIELD = "type";
+    private static final String USERNAME_FIELD = "username";
+    private static final String REQUEST_ID_FIELD = "requestId";
+    private static final String CREDENTIALS_USERNAME_FIELD = "credentialsUsername";
+    private static final String APPLICATION_NAME_FIELD = "applicationName";
+    private static final String PASSWORD_FIELD = "password";
+    private static final String PASSWORD_REPEATED_FIELD = "passwordRepeated";
+    private static final String OLD_PASSWORD_FIELD = "oldPassword";
+    private static final String ENCRYPTION_DATA_FIELD = "encryptionData";
+    private static final String REQUESTS_FIELD = "requests";
+
+    private final ServerPasswordTypeAdapter passwordAdapter = new ServerPasswordTypeAdapter();
+    private final EncryptionDataTypeAdapter encryptionDataAdapter = new EncryptionDataTypeAdapter();
+
+    @Override
+    public void write(JsonWriter writer, NioRequest request) throws IOException {
+        if (request == null) {
+            writer.nullValue();
+            return;
+        }
+
+        writer.beginObject();
+        if (request.getType() != null) {
+            writer.name(TYPE_FIELD).value(request.getType().name());
+        }
+        writeString(writer, USERNAME_FIELD, request.getUsername());
+        if (request.getRequestId() != null) {
+            writer.name(REQUEST_ID_FIELD).value(request.getRequestId());
+        }
+        writeString(writer, CREDENTIALS_USERNAME_FIELD, request.getCredentialsUsername());
+        writeString(writer, APPLICATION_NAME_FIELD, request.getApplicationName());
+        writePassword(writer, PASSWORD_FIELD, request.getPassword());
+        writePassword(writer, PASSWORD_REPEATED_FIELD, request.getPasswordRepeated());
+        writePassword(writer, OLD_PASSWORD_FIELD, request.getOldPassword());
+        if (request.getEncryptionData() != null) {
+            writer.name(ENCRYPTION_DATA_FIELD);
+            encryptionDataAdapter.write(writer, request.getEncryptionData());
+        }
+        if (request.getRequests() != null) {
+            writer.name(REQUESTS_FIELD).beginArray();
+            for (NioRequest batchRequest : request.getRequests()) {
+                write(writer, batchRequest);
+            }
+            writer.endArray();
+        }
+        writer.endObject();
+    }
+
+    @Override
+    public NioRequest read(JsonReader reader) throws IOException {
+        return readRequest(reader, true);
+    }
+
+    private NioRequest readRequest(JsonReader reader, boolean isBatchAllowed) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+
+        NioRequest.NioRequestBuilder builder = NioRequest.builder();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.skipValue();
+                continue;
+            }
+
+            switch (name) {
+                case TYPE_FIELD -> builder.setType(requestTypeOf(reader.nextString()));
+                case USERNAME_FIELD -> builder.setUsername(reader.nextString());
+                case REQUEST_ID_FIELD -> builder.setRequestId(readRequestId(reader));
+                case CREDENTIALS_USERNAME_FIELD -> builder.setCredentialsUsername(reader.nextString());
+                case APPLICATION_NAME_FIELD -> builder.setApplicationName(reader.nextString());
+                case PASSWORD_FIELD -> builder.setPassword(passwordAdapter.read(reader));
+                case PASSWORD_REPEATED_FIELD -> builder.setPasswordRepeated(passwordAdapter.read(reader));
+                case OLD_PASSWORD_FIELD -> builder.setOldPassword(passwordAdapter.read(reader));
+                case ENCRYPTION_DATA_FIELD -> builder.setEncryptionData(encryptionDataAdapter.read(reader));
+                case REQUESTS_FIELD -> {
+                    if (isBatchAllowed) {
+                        builder.setRequests(readRequests(reader));
+                    } else {
+                        //batches are not nested, so a hostile request cannot exhaust the stack
+                        reader.skipValue();
+                    }
+                }
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        //requests without a type or username are decoded and rejected by the server
+        return builder.buildUnvalidated();
+    }
+
+    private List<NioRequest> readRequests(JsonReader reader) throws IOException {
+        List<NioRequest> requests = new ArrayList<>();
+
+        reader.beginArray();
+        while (reader.hasNext()) {
+            requests.add(readRequest(reader, false));
+        }
+        reader.endArray();
+
+        return requests;
+    }
+
+    // Gson turns only IllegalStateException into JsonSyntaxException, a NumberFormatException would escape it
+    private static long readRequestId(JsonReader reader) throws IOException {
+        try {
+            return reader.nextLong();
+        } catch (NumberFormatException | IllegalStateException e) {
+            throw new JsonSyntaxException("Request id should be an integral number at " + reader.getPath() + ".", e);
+        }
+    }
+
+    private void writePassword(JsonWriter writer, String name, ServerPassword password) throws IOException {
+        if (password != null) {
+            writer.name(name);
+            passwordAdapter.write(writer, password);
+        }
+    }
+
+    private static void writeString(JsonWriter writer, String name, String value) throws IOException {
+        if (value != null) {
+            writer.name(name).value(value);
+        }
+    }
+
+    private static RequestType requestTypeOf(String name) {
+        try {
+            return RequestType.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            //unknown request types are decoded as null like the reflective Gson adapter does
+            return null;
+        }
+    }
+
+}
\ No newline at end of file
@@ -10,7 +10,8 @@ public enum RequestType {
     STORE_PASSWORD(3),
     UPDATE_PASSWORD(3),
     REMOVE_PASSWORD(2),
-    DELETE_ACCOUNT(2);
+    DELETE_ACCOUNT(2),
+    BATCH(0);
 
     public final int argumentsCount;
 
@@ -1,29 +1,51 @@
 package bg.sofia.uni.fmi.mjt.password.vault.response;
 
 import com.google.gson.Gson;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.reflect.TypeToken;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Objects;
 
+@JsonAdapter(NioResponseTypeAdapter.class)
 public class NioResponse {
 
+    private static final Gson GSON = new Gson();
+    private static final Type RESPONSES_TYPE = new TypeToken<List<NioResponse>>() { }.getType();
+
     private final ResponseType type;
     private final String body;
+    private final Long requestId;
 
     public static NioResponse of(byte[] nioResponseBytes) {
         if (nioResponseBytes == null) {
             throw new IllegalArgumentException("bytes array should not be null.");
         }
 
-        Gson gson = new Gson();
-        String nioResponseString = new String(nioResponseBytes, StandardCharsets.UTF_8);
+        return GSON.fromJson(new InputStreamReader(new ByteArrayInputStream(nioResponseBytes), StandardCharsets.UTF_8),
+                NioResponse.class);
+    }
+
+    public static NioResponse ofBatch(List<NioResponse> responses) {
+        if (responses == null) {
+            throw new IllegalArgumentException("Responses should not be null.");
+        }
 
-        return gson.fromJson(nioResponseString, NioResponse.class);
+        return new NioResponse(ResponseType.BATCH_COMPLETED, GSON.toJson(responses, RESPONSES_TYPE));
     }
 
     public NioResponse(ResponseType responseType, String body) {
+        this(responseType, body, null);
+    }
+
+    public NioResponse(ResponseType responseType, String body, Long requestId) {
         this.type = responseType;
         this.body = body;
+        this.requestId = requestId;
     }
 
     public ResponseType getType() {
@@ -34,17 +56,35 @@ public class NioResponse {
         return this.body;
     }
 
+    public Long getRequestId() {
+        return this.requestId;
+    }
+
+    // the item responses are in the order of the batch requests
+    public List<NioResponse> getBatchResponses() {
+        if (type != ResponseType.BATCH_COMPLETED) {
+            throw new IllegalStateException("Only batch responses contain item responses.");
+        }
+
+        return GSON.fromJson(body, RESPONSES_TYPE);
+    }
+
+    public NioResponse withRequestId(Long requestId) {
+        return new NioResponse(type, body, requestId);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         NioResponse response = (NioResponse) o;
-        return type == response.type && Objects.equals(body, response.body);
+        return type == response.type && Objects.equals(body, response.body) &&
+                Objects.equals(requestId, response.requestId);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(type, body);
+        return Objects.hash(type, body, requestId);
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,76 @@
+package bg.sofia.uni.fmi.mjt.password.vault.response;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+public class NioResponseTypeAdapter extends TypeAdapter<NioResponse> {
+
+    private static final String TYPE_FIELD = "type";
+    private static final String BODY_FIELD = "body";
+    private static final String REQUEST_ID_FIELD = "requestId";
+
+    @Override
+    public void write(JsonWriter writer, NioResponse response) throws IOException {
+        if (response == null) {
+            writer.nullValue();
+            return;
+        }
+
+        writer.beginObject();
+        if (response.getType() != null) {
+            writer.name(TYPE_FIELD).value(response.getType().name());
+        }
+        if (response.getBody() != null) {
+            writer.name(BODY_FIELD).value(response.getBody());
+        }
+        if (response.getRequestId() != null) {
+            writer.name(REQUEST_ID_FIELD).value(response.getRequestId());
+        }
+        writer.endObject();
+    }
+
+    @Override
+    public NioResponse read(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+
+        ResponseType type = null;
+        String body = null;
+        Long requestId = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.skipValue();
+                continue;
+            }
+
+            switch (name) {
+                case TYPE_FIELD -> type = responseTypeOf(reader.nextString());
+                case BODY_FIELD -> body = reader.nextString();
+                case REQUEST_ID_FIELD -> requestId = reader.nextLong();
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return new NioResponse(type, body, requestId);
+    }
+
+    private static ResponseType responseTypeOf(String name) {
+        try {
+            return ResponseType.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            //unknown response types are decoded as null like the reflective Gson adapter does
+            return null;
+        }
+    }
+
+}
\ No newline at end of file
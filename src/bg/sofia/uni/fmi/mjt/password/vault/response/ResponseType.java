@@ -23,7 +23,9 @@ public enum ResponseType {
     ACCOUNT_DELETED_SUCCESSFULLY("Account deleted successfully."),
     INTERNAL_SERVER_ERROR("Internal server error."),
     REQUEST_NOT_SUPPORTED("Request not supported."),
-    EQUAL_OLD_AND_NEW_PASSWORDS("New password cannot be the same as the old password.");
+    EQUAL_OLD_AND_NEW_PASSWORDS("New password cannot be the same as the old password."),
+    BATCH_COMPLETED("Batch completed."),
+    SERVER_BUSY("Server is busy, please try again later.");
 
     public String responseTypeMessage;
 
@@ -0,0 +1,271 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server;
+
+import bg.sofia.uni.fmi.mjt.password.vault.client.Password;
+import bg.sofia.uni.fmi.mjt.password.vault.client.encryptor.EncryptionData;
+import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.CredentialAlreadyExistsException;
+import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.ElementNotFoundException;
+import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.RepositoryException;
+import bg.sofia.uni.fmi.mjt.password.vault.server.user.exceptions.UserAuthenticationException;
+import bg.sofia.uni.fmi.mjt.password.vault.session.Session;
+
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+// Keeps the credentials changes of a batch in memory and persists each changed user with a single flush. A batch
+// belongs to the thread that began it, outside a batch the changes are persisted right away, so a single instance
+// serves both the batches and the other requests.
+public class BatchingPasswordVault implements PasswordVault {
+
+    private final PasswordVault passwordVault;
+    // the batch of the current thread, null outside a batch
+    private final ThreadLocal<Batch> batch;
+
+    public BatchingPasswordVault(PasswordVault passwordVault) {
+        if (passwordVault == null) {
+            throw new IllegalArgumentException("PasswordVault should not be null.");
+        }
+
+        this.passwordVault = passwordVault;
+        this.batch = new ThreadLocal<>();
+    }
+
+    // the changes after it are kept in memory until flush, the caller should hold the vault exclusively until then
+    public void beginBatch() {
+        if (batch.get() != null) {
+            throw new IllegalStateException("A batch is already begun by this thread.");
+        }
+
+        batch.set(new Batch());
+    }
+
+    // tells which requests of the batch have changed credentials, the count grows with every change
+    public int getBatchChangesCount() {
+        return currentBatch().changesCount;
+    }
+
+    // Ends the batch and persists the credentials of each changed user. The users whose credentials cannot be
+    // persisted are returned with the cause, their credentials are read from the file again, so the memory does not
+    // keep changes that are not in the file.
+    public Map<String, Exception> flush() {
+        Batch currentBatch = currentBatch();
+        batch.remove();
+
+        Map<String, Exception> failures = new LinkedHashMap<>();
+        for (String username : currentBatch.changedUsers) {
+            try {
+                passwordVault.flushCredentials(username);
+            } catch (ElementNotFoundException | RuntimeException e) {
+                failures.put(username, e);
+                passwordVault.reloadCredentials(username);
+            }
+        }
+
+        return failures;
+    }
+
+    @Override
+    public void register(String username, Password password, Password passwordRepeated,
+                         EncryptionData encryptionData)
+            throws RepositoryException, UserAuthenticationException {
+        passwordVault.register(username, password, passwordRepeated, encryptionData);
+    }
+
+    @Override
+    public void register(String username, Password password, Password passwordRepeated,
+                         EncryptionData encryptionData, Writer writer)
+            throws RepositoryException, UserAuthenticationException {
+        passwordVault.register(username, password, passwordRepeated, encryptionData, writer);
+    }
+
+    @Override
+    public void deleteAccount(String username, Password password, Password passwordRepeated)
+            throws RepositoryException, UserAuthenticationException {
+        passwordVault.deleteAccount(username, password, passwordRepeated);
+        forgetChanges(username);
+    }
+
+    @Override
+    public void deleteAccount(String username, Password password, Password passwordRepeated, Writer writer)
+            throws RepositoryException, UserAuthenticationException {
+        passwordVault.deleteAccount(username, password, passwordRepeated, writer);
+        forgetChanges(username);
+    }
+
+    @Override
+    public Session login(String username, Password password)
+            throws RepositoryException, UserAuthenticationException {
+        return passwordVault.login(username, password);
+    }
+
+    @Override
+    public void logout(String username) throws UserAuthenticationException {
+        passwordVault.logout(username);
+    }
+
+    @Override
+    public void changePassword(String username, Password oldPassword, Password newPassword,
+                               Password newPasswordRepeated)
+            throws RepositoryException, UserAuthenticationException {
+        passwordVault.changePassword(username, oldPassword, newPassword, newPasswordRepeated);
+    }
+
+    @Override
+    public void changePassword(String username, Password oldPassword, Password newPassword,
+                               Password newPasswordRepeated, Writer writer)
+            throws RepositoryException, UserAuthenticationException {
+        passwordVault.changePassword(username, oldPassword, newPassword, newPasswordRepeated, writer);
+    }
+
+    @Override
+    public boolean isLoggedIn(String username) {
+        return passwordVault.isLoggedIn(username);
+    }
+
+    @Override
+    public EncryptionData getEncryptionData(String username) throws RepositoryException {
+        return passwordVault.getEncryptionData(username);
+    }
+
+    @Override
+    public void addCredentials(String username, String applicationName,
+                               String credentialsUsername, String credentialsPassword)
+            throws ElementNotFoundException, CredentialAlreadyExistsException {
+        if (batch.get() == null) {
+            passwordVault.addCredentials(username, applicationName, credentialsUsername, credentialsPassword);
+            return;
+        }
+
+        passwordVault.addCredentials(username, applicationName, credentialsUsername, credentialsPassword,
+                Writer.nullWriter());
+        recordChange(username);
+    }
+
+    @Override
+    public void addCredentials(String username, String applicationName,
+                               String credentialsUsername, String credentialsPassword, Writer writer)
+            throws ElementNotFoundException, CredentialAlreadyExistsException {
+        passwordVault.addCredentials(username, applicationName, credentialsUsername, credentialsPassword, writer);
+    }
+
+    @Override
+    public String getCredentialsPassword(String username, String applicationName, String credentialsUsername)
+            throws ElementNotFoundException {
+        return passwordVault.getCredentialsPassword(username, applicationName, credentialsUsername);
+    }
+
+    @Override
+    public void updateCredentials(String username, String applicationName,
+                                  String credentialsUsername, String credentialsPassword)
+            throws ElementNotFoundException {
+        if (batch.get() == null) {
+            passwordVault.updateCredentials(username, applicationName, credentialsUsername, credentialsPassword);
+            return;
+        }
+
+        passwordVault.updateCredentials(username, applicationName, credentialsUsername, credentialsPassword,
+                Writer.nullWriter());
+        recordChange(username);
+    }
+
+    @Override
+    public void updateCredentials(String username, String applicationName, String credentialsUsername,
+                                  String credentialsPassword, Writer writer)
+            throws ElementNotFoundException {
+        passwordVault.updateCredentials(username, applicationName, credentialsUsername, credentialsPassword, writer);
+    }
+
+    @Override
+    public void removeCredentials(String username, String applicationName, String credentialsUsername)
+            throws ElementNotFoundException {
+        if (batch.get() == null) {
+            passwordVault.removeCredentials(username, applicationName, credentialsUsername);
+            return;
+        }
+
+        passwordVault.removeCredentials(username, applicationName, credentialsUsername, Writer.nullWriter());
+        recordChange(username);
+    }
+
+    @Override
+    public void removeCredentials(String username, String applicationName, String credentialsUsername,
+                                  Writer writer)
+            throws ElementNotFoundException {
+        passwordVault.removeCredentials(username, applicationName, credentialsUsername, writer);
+    }
+
+    @Override
+    public void flushCredentials(String username) throws ElementNotFoundException {
+        passwordVault.flushCredentials(username);
+        forgetChanges(username);
+    }
+
+    @Override
+    public void flushCredentials(String username, Writer writer) throws ElementNotFoundException {
+        passwordVault.flushCredentials(username, writer);
+        forgetChanges(username);
+    }
+
+    @Override
+    public void sync() {
+        passwordVault.sync();
+    }
+
+    @Override
+    public void compactUsers(int deadRecordsThreshold) {
+        passwordVault.compactUsers(deadRecordsThreshold);
+    }
+
+    @Override
+    public void compactCredentials(int deadRecordsThreshold) {
+        passwordVault.compactCredentials(deadRecordsThreshold);
+    }
+
+    @Override
+    public void reload() {
+        passwordVault.reload();
+    }
+
+    @Override
+    public void reloadCredentials(String username) {
+        passwordVault.reloadCredentials(username);
+    }
+
+    @Override
+    public void runExclusively(Runnable action) {
+        passwordVault.runExclusively(action);
+    }
+
+    private Batch currentBatch() {
+        Batch currentBatch = batch.get();
+        if (currentBatch == null) {
+            throw new IllegalStateException("No batch is begun by this thread.");
+        }
+
+        return currentBatch;
+    }
+
+    private void recordChange(String username) {
+        Batch currentBatch = batch.get();
+        currentBatch.changedUsers.add(username);
+        currentBatch.changesCount++;
+    }
+
+    // the credentials of the user are already persisted or deleted, so the batch has nothing to flush for it
+    private void forgetChanges(String username) {
+        Batch currentBatch = batch.get();
+        if (currentBatch != null) {
+            currentBatch.changedUsers.remove(username);
+        }
+    }
+
+    private static class Batch {
+
+        private final Set<String> changedUsers = new LinkedHashSet<>();
+        private int changesCount;
+
+    }
+
+}
\ No newline at end of file
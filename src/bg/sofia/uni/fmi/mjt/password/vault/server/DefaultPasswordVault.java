@@ -4,13 +4,15 @@ import bg.sofia.uni.fmi.mjt.password.vault.client.HashedPassword;
 import bg.sofia.uni.fmi.mjt.password.vault.client.Password;
 import bg.sofia.uni.fmi.mjt.password.vault.client.encryptor.EncryptionData;
 import bg.sofia.uni.fmi.mjt.password.vault.client.encryptor.generator.PasswordDerivedKey;
+import bg.sofia.uni.fmi.mjt.password.vault.file.AtomicFileWriter;
+import bg.sofia.uni.fmi.mjt.password.vault.server.logger.Level;
 import bg.sofia.uni.fmi.mjt.password.vault.server.logger.Logger;
 import bg.sofia.uni.fmi.mjt.password.vault.server.repository.AccountCredentialsRepository;
 import bg.sofia.uni.fmi.mjt.password.vault.server.repository.Repository;
 import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.ElementNotFoundException;
 import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.RepositoryException;
 import bg.sofia.uni.fmi.mjt.password.vault.server.user.DefaultUser;
-import bg.sofia.uni.fmi.mjt.password.vault.server.user.User;
+import bg.sofia.uni.fmi.mjt.password.vault.server.user.ResidentCredentialsCache;
 import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.CredentialAlreadyExistsException;
 import bg.sofia.uni.fmi.mjt.password.vault.server.user.exceptions.EqualOldAndNewPasswordsException;
 import bg.sofia.uni.fmi.mjt.password.vault.server.user.exceptions.InvalidUsernameOrPasswordException;
@@ -24,12 +26,28 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.util.HashMap;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDateTime;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public class DefaultPasswordVault implements PasswordVault {
 
+    private static final int USER_LOCKS_COUNT = 64;
+    private static final String COMPACTION_FILE_SUFFIX = ".compaction" + AtomicFileWriter.TEMPORARY_FILE_SUFFIX;
+
     private Path usersFilePath;
     private String userCredentialsDirectory;
     private String userCredentialsExtension;
@@ -37,32 +55,82 @@ public class DefaultPasswordVault implements PasswordVault {
     private final Repository<String, DefaultUser> users;
     private final Map<String, Session> loggedInUsers;
     private final Logger logger;
+    private final boolean isAppendOnlyUsers;
+    private final boolean isAppendOnlyCredentials;
+    private final ResidentCredentialsCache credentialsCache;
+    // Changes of the users file and exclusive actions hold the write lock, all other operations hold the read lock
+    // and run at the same time. The ones that change the credentials file of a user hold the lock of the user as
+    // well, which is shared by all users whose names fall into the same stripe.
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantLock[] userLocks = createUserLocks();
+    // one compaction at a time, so the copies of the files do not pile up in memory
+    private final ReentrantLock compactionLock = new ReentrantLock();
 
     public DefaultPasswordVault(Repository<String, DefaultUser> users, Logger logger, Path usersFilePath,
                                 String userCredentialsDirectory, String userCredentialsExtension) {
+        this(users, logger, usersFilePath, userCredentialsDirectory, userCredentialsExtension, false, false);
+    }
+
+    public DefaultPasswordVault(Repository<String, DefaultUser> users, Logger logger, Path usersFilePath,
+                                String userCredentialsDirectory, String userCredentialsExtension,
+                                boolean isAppendOnlyCredentials) {
+        this(users, logger, usersFilePath, userCredentialsDirectory, userCredentialsExtension,
+                false, isAppendOnlyCredentials);
+    }
+
+    // with append-only users or credentials a change appends a record to the users file or the file of the user,
+    // the files are rewritten only by flushes and compactions
+    public DefaultPasswordVault(Repository<String, DefaultUser> users, Logger logger, Path usersFilePath,
+                                String userCredentialsDirectory, String userCredentialsExtension,
+                                boolean isAppendOnlyUsers, boolean isAppendOnlyCredentials) {
+        this(users, logger, usersFilePath, userCredentialsDirectory, userCredentialsExtension,
+                isAppendOnlyUsers, isAppendOnlyCredentials, new ResidentCredentialsCache());
+    }
+
+    // the credentials of a user are read from the file on the first access, e.g. on login, and stay in memory
+    // until the cache unloads them to make room for the credentials of more recently accessed users
+    public DefaultPasswordVault(Repository<String, DefaultUser> users, Logger logger, Path usersFilePath,
+                                String userCredentialsDirectory, String userCredentialsExtension,
+                                boolean isAppendOnlyUsers, boolean isAppendOnlyCredentials,
+                                ResidentCredentialsCache credentialsCache) {
+        if (credentialsCache == null) {
+            throw new IllegalArgumentException("Credentials cache should not be null.");
+        }
+
         this.users = users;
-        loggedInUsers = new HashMap<>();
+        loggedInUsers = new ConcurrentHashMap<>();
         this.usersFilePath = usersFilePath;
         this.userCredentialsDirectory = userCredentialsDirectory;
         this.userCredentialsExtension = userCredentialsExtension;
         this.logger = logger;
-        users.refresh();
+        this.isAppendOnlyUsers = isAppendOnlyUsers;
+        this.isAppendOnlyCredentials = isAppendOnlyCredentials;
+        this.credentialsCache = credentialsCache;
+        recoverInterruptedRewrites();
+        users.setAppendOnly(isAppendOnlyUsers);
+        setAppendOnlyCredentials();
     }
 
     public DefaultPasswordVault(Repository<String, DefaultUser> users, Logger logger) {
         this.users = users;
-        loggedInUsers = new HashMap<>();
+        loggedInUsers = new ConcurrentHashMap<>();
         this.logger = logger;
-        users.refresh();
+        this.isAppendOnlyUsers = false;
+        this.isAppendOnlyCredentials = false;
+        this.credentialsCache = new ResidentCredentialsCache();
     }
 
     @Override
-    public void register(String username, Password password, Password passwordRepeated, EncryptionData encryptionData)
+    public void register(String username, Password password, Password passwordRepeated,
+                         EncryptionData encryptionData)
             throws RepositoryException, UserAuthenticationException {
+        lock.writeLock().lock();
         try (Writer usersWriter = new FileWriter(usersFilePath.toString(), true)) {
             register(username, password, passwordRepeated, encryptionData, usersWriter);
         } catch (IOException e) {
             throw new UncheckedIOException("Cannot open users file for writing.", e);
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
@@ -79,31 +147,42 @@ public class DefaultPasswordVault implements PasswordVault {
             throw new PasswordsDoNotMatchException(
                     "Password and passwordRepeated SHA256 hashes should have equal values.");
         }
-        if (users.contains(username)) {
-            throw new UsernameAlreadyExistsException("User with such an username already exists");
-        }
 
-        DefaultUser newUser = null;
-        if (userCredentialsDirectory != null && userCredentialsExtension != null) {
-            AccountCredentialsRepository repository =
-                    new AccountCredentialsRepository(username, userCredentialsDirectory, userCredentialsExtension);
-            newUser = new DefaultUser(username, (HashedPassword) password,
-                    encryptionData, repository);
-        } else {
-            newUser = new DefaultUser(username, (HashedPassword) password,
-                    encryptionData);
+        lock.writeLock().lock();
+        try {
+            if (users.contains(username)) {
+                throw new UsernameAlreadyExistsException("User with such an username already exists");
+            }
+
+            DefaultUser newUser = null;
+            if (userCredentialsDirectory != null && userCredentialsExtension != null) {
+                AccountCredentialsRepository repository = new AccountCredentialsRepository(username,
+                        userCredentialsDirectory, userCredentialsExtension);
+                repository.setAppendOnly(isAppendOnlyCredentials);
+                newUser = new DefaultUser(username, (HashedPassword) password,
+                        encryptionData, repository);
+            } else {
+                newUser = new DefaultUser(username, (HashedPassword) password,
+                        encryptionData);
+            }
+
+            users.put(newUser, writer);
+        } finally {
+            lock.writeLock().unlock();
         }
-
-        users.put(newUser, writer);
     }
 
     @Override
     public void deleteAccount(String username, Password password, Password passwordRepeated)
             throws RepositoryException, UserAuthenticationException {
-        try (Writer usersWriter = new FileWriter(usersFilePath.toString(), false)) {
+        lock.writeLock().lock();
+        try (Writer usersWriter = openWriter(usersFilePath, isAppendOnlyUsers)) {
             deleteAccount(username, password, passwordRepeated, usersWriter);
+            commitUsers(usersWriter);
         } catch (IOException e) {
             throw new UncheckedIOException("Cannot open users file for writing.", e);
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
@@ -114,21 +193,27 @@ public class DefaultPasswordVault implements PasswordVault {
             throw new IllegalArgumentException("All arguments should have non-null values.");
         }
 
-        DefaultUser user = null;
-        user = users.get(username);
-
-        if (!password.getSha256().equals(passwordRepeated.getSha256())) {
-            throw new PasswordsDoNotMatchException(
-                    "newPassword and newPasswordRepeated SHA256 hashes should have equal values.");
-        }
-
-        Password userPassword = user.getPassword();
-        if (passwordsDoNotMatch(password, userPassword)) {
-            throw new InvalidUsernameOrPasswordException(
-                    "There is no user with such an combination of username and password.");
+        lock.writeLock().lock();
+        try {
+            DefaultUser user = null;
+            user = users.get(username);
+
+            if (!password.getSha256().equals(passwordRepeated.getSha256())) {
+                throw new PasswordsDoNotMatchException(
+                        "newPassword and newPasswordRepeated SHA256 hashes should have equal values.");
+            }
+
+            Password userPassword = user.getPassword();
+            if (passwordsDoNotMatch(password, userPassword)) {
+                throw new InvalidUsernameOrPasswordException(
+                        "There is no user with such an combination of username and password.");
+            }
+
+            users.remove(username, writer);
+            credentialsCache.remove(username);
+        } finally {
+            lock.writeLock().unlock();
         }
-
-        users.remove(username, writer);
     }
 
     @Override
@@ -138,21 +223,28 @@ public class DefaultPasswordVault implements PasswordVault {
             throw new IllegalArgumentException("All arguments should have non-null and non-empty values.");
         }
 
-        User user = null;
-        user = users.get(username);
-
-        Password userPassword = user.getPassword();
-        if (passwordsDoNotMatch(password, userPassword)) {
-            throw new InvalidUsernameOrPasswordException(
-                    "There is no user with such an combination of username and password.");
+        lock.readLock().lock();
+        try {
+            DefaultUser user = null;
+            user = users.get(username);
+
+            Password userPassword = user.getPassword();
+            if (passwordsDoNotMatch(password, userPassword)) {
+                throw new InvalidUsernameOrPasswordException(
+                        "There is no user with such an combination of username and password.");
+            }
+
+            // the credentials are loaded now, so the first request after the login does not wait for them
+            credentialsCache.access(user);
+            EncryptionData encryptionData = user.getEncryptionData();
+            Session session = new Session(user.getUsername(),
+                    new PasswordDerivedKey(encryptionData.getIterationsCount(), encryptionData.getSalt(), null));
+            loggedInUsers.put(user.getUsername(), session);
+
+            return session;
+        } finally {
+            lock.readLock().unlock();
         }
-
-        EncryptionData encryptionData = user.getEncryptionData();
-        Session session = new Session(user.getUsername(),
-                new PasswordDerivedKey(encryptionData.getIterationsCount(), encryptionData.getSalt(), null));
-        loggedInUsers.put(user.getUsername(), session);
-
-        return session;
     }
 
     @Override
@@ -171,10 +263,14 @@ public class DefaultPasswordVault implements PasswordVault {
     public void changePassword(
             String username, Password oldPassword, Password newPassword, Password newPasswordRepeated)
             throws RepositoryException, UserAuthenticationException {
-        try (Writer usersWriter = new FileWriter(usersFilePath.toString(), false)) {
+        lock.writeLock().lock();
+        try (Writer usersWriter = openWriter(usersFilePath, isAppendOnlyUsers)) {
             changePassword(username, oldPassword, newPassword, newPasswordRepeated, usersWriter);
+            commitUsers(usersWriter);
         } catch (IOException e) {
             throw new UncheckedIOException("Cannot open users file for writing.", e);
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
@@ -187,26 +283,31 @@ public class DefaultPasswordVault implements PasswordVault {
             throw new IllegalArgumentException("All arguments should have non-null and non-empty values.");
         }
 
-        DefaultUser user = null;
-        user = users.get(username);
-
-        Password userPassword = user.getPassword();
-        if (passwordsDoNotMatch(oldPassword, userPassword)) {
-            throw new InvalidUsernameOrPasswordException(
-                    "There is no user with such an combination of username and password.");
-        }
-
-        if (!passwordsDoNotMatch(oldPassword, newPassword)) {
-            throw new EqualOldAndNewPasswordsException("New password cannot be the same as the old password.");
-        }
-
-        if (!newPassword.getSha256().equals(newPasswordRepeated.getSha256())) {
-            throw new PasswordsDoNotMatchException(
-                    "newPassword and newPasswordRepeated SHA256 hashes should have equal values.");
+        lock.writeLock().lock();
+        try {
+            DefaultUser user = null;
+            user = users.get(username);
+
+            Password userPassword = user.getPassword();
+            if (passwordsDoNotMatch(oldPassword, userPassword)) {
+                throw new InvalidUsernameOrPasswordException(
+                        "There is no user with such an combination of username and password.");
+            }
+
+            if (!passwordsDoNotMatch(oldPassword, newPassword)) {
+                throw new EqualOldAndNewPasswordsException("New password cannot be the same as the old password.");
+            }
+
+            if (!newPassword.getSha256().equals(newPasswordRepeated.getSha256())) {
+                throw new PasswordsDoNotMatchException(
+                        "newPassword and newPasswordRepeated SHA256 hashes should have equal values.");
+            }
+
+            user.changePassword((HashedPassword) newPassword);
+            users.update(user, writer);
+        } finally {
+            lock.writeLock().unlock();
         }
-
-        user.changePassword((HashedPassword) newPassword);
-        users.update(user, writer);
     }
 
     @Override
@@ -224,19 +325,27 @@ public class DefaultPasswordVault implements PasswordVault {
             throw new IllegalArgumentException("Username should have non-null and non-empty value.");
         }
 
-        return users.get(username).getEncryptionData();
+        lock.readLock().lock();
+        try {
+            return users.get(username).getEncryptionData();
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     @Override
     public void addCredentials(String username, String applicationName,
                                String credentialsUsername, String credentialsPassword)
             throws ElementNotFoundException, CredentialAlreadyExistsException {
-        try (Writer writer = new FileWriter(AccountCredentialsRepository
-                .generateCredentialsFilePath(username, userCredentialsDirectory, userCredentialsExtension).toString(),
-                true)) {
+        Path credentialsFilePath = AccountCredentialsRepository
+                .generateCredentialsFilePath(username, userCredentialsDirectory, userCredentialsExtension);
+        lockUser(username);
+        try (Writer writer = new FileWriter(credentialsFilePath.toString(), true)) {
             addCredentials(username, applicationName, credentialsUsername, credentialsPassword, writer);
         } catch (IOException e) {
             throw new UncheckedIOException("Cannot open users file for writing.", e);
+        } finally {
+            unlockUser(username);
         }
     }
 
@@ -251,21 +360,31 @@ public class DefaultPasswordVault implements PasswordVault {
             throw new IllegalArgumentException("All arguments should have non-null and non-blank values.");
         }
 
-        DefaultUser user = null;
-        user = users.get(username);
-        user.addCredentials(applicationName, credentialsUsername, credentialsPassword, writer);
+        lockUser(username);
+        try {
+            DefaultUser user = null;
+            user = users.get(username);
+            credentialsCache.access(user);
+            user.addCredentials(applicationName, credentialsUsername, credentialsPassword, writer);
+        } finally {
+            unlockUser(username);
+        }
     }
 
     @Override
     public void updateCredentials(String username, String applicationName,
                                   String credentialsUsername, String credentialsPassword)
             throws ElementNotFoundException {
-        try (Writer writer = new FileWriter(AccountCredentialsRepository
-                .generateCredentialsFilePath(username, userCredentialsDirectory, userCredentialsExtension).toString(),
-                false)) {
+        Path credentialsFilePath = AccountCredentialsRepository
+                .generateCredentialsFilePath(username, userCredentialsDirectory, userCredentialsExtension);
+        lockUser(username);
+        try (Writer writer = openWriter(credentialsFilePath, isAppendOnlyCredentials)) {
             updateCredentials(username, applicationName, credentialsUsername, credentialsPassword, writer);
+            commitCredentials(username, writer);
         } catch (IOException e) {
             throw new UncheckedIOException("Cannot open users file for writing.", e);
+        } finally {
+            unlockUser(username);
         }
     }
 
@@ -280,25 +399,36 @@ public class DefaultPasswordVault implements PasswordVault {
             throw new IllegalArgumentException("All arguments should have non-null and non-blank values.");
         }
 
-        DefaultUser user = null;
-        user = users.get(username);
-        user.updateCredentials(applicationName, credentialsUsername, credentialsPassword, writer);
+        lockUser(username);
+        try {
+            DefaultUser user = null;
+            user = users.get(username);
+            credentialsCache.access(user);
+            user.updateCredentials(applicationName, credentialsUsername, credentialsPassword, writer);
+        } finally {
+            unlockUser(username);
+        }
     }
 
     @Override
     public void removeCredentials(String username, String applicationName, String credentialsUsername)
             throws ElementNotFoundException {
-        try (Writer writer = new FileWriter(AccountCredentialsRepository
-                .generateCredentialsFilePath(username, userCredentialsDirectory, userCredentialsExtension).toString(),
-                false)) {
+        Path credentialsFilePath = AccountCredentialsRepository
+                .generateCredentialsFilePath(username, userCredentialsDirectory, userCredentialsExtension);
+        lockUser(username);
+        try (Writer writer = openWriter(credentialsFilePath, isAppendOnlyCredentials)) {
             removeCredentials(username, applicationName, credentialsUsername, writer);
+            commitCredentials(username, writer);
         } catch (IOException e) {
             throw new UncheckedIOException("Cannot open users file for writing.", e);
+        } finally {
+            unlockUser(username);
         }
     }
 
     @Override
-    public void removeCredentials(String username, String applicationName, String credentialsUsername, Writer writer)
+    public void removeCredentials(String username, String applicationName,
+                                  String credentialsUsername, Writer writer)
             throws ElementNotFoundException {
         if (username == null || username.isBlank() ||
                 applicationName == null || applicationName.isBlank() ||
@@ -306,11 +436,172 @@ public class DefaultPasswordVault implements PasswordVault {
             throw new IllegalArgumentException("All arguments should have non-null and non-blank values.");
         }
 
-        DefaultUser user = null;
-        user = users.get(username);
-        user.removeCredentials(applicationName, credentialsUsername, writer);
+        lockUser(username);
+        try {
+            DefaultUser user = null;
+            user = users.get(username);
+            credentialsCache.access(user);
+            user.removeCredentials(applicationName, credentialsUsername, writer);
+        } finally {
+            unlockUser(username);
+        }
+    }
+
+    @Override
+    public void flushCredentials(String username) throws ElementNotFoundException {
+        Path credentialsFilePath = AccountCredentialsRepository
+                .generateCredentialsFilePath(username, userCredentialsDirectory, userCredentialsExtension);
+        lockUser(username);
+        try (AtomicFileWriter writer = new AtomicFileWriter(credentialsFilePath)) {
+            flushCredentials(username, writer);
+            writer.commit();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open users file for writing.", e);
+        } finally {
+            unlockUser(username);
+        }
+    }
+
+    @Override
+    public void flushCredentials(String username, Writer writer) throws ElementNotFoundException {
+        if (username == null || username.isBlank() || writer == null) {
+            throw new IllegalArgumentException("All arguments should have non-null and non-blank values.");
+        }
+
+        lockUser(username);
+        try {
+            DefaultUser user = null;
+            user = users.get(username);
+            credentialsCache.access(user);
+            user.flushCredentials(writer);
+        } finally {
+            unlockUser(username);
+        }
+    }
+
+    @Override
+    public void sync() {
+        if (usersFilePath == null) {
+            // the repositories are not backed by files
+            return;
+        }
+
+        lock.readLock().lock();
+        try {
+            forceIfExists(usersFilePath);
+            for (String username : users.getAll().keySet()) {
+                forceIfExists(AccountCredentialsRepository
+                        .generateCredentialsFilePath(username, userCredentialsDirectory, userCredentialsExtension));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot sync repository files.", e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Compaction starts only when the dead records are at least as many as the live users to keep it rare. Only
+    // copying the live users and replacing the file hold the read lock, so the writes of the users wait for these
+    // short steps but not for the rewrite of the file.
+    @Override
+    public void compactUsers(int deadRecordsThreshold) {
+        compactUsers(deadRecordsThreshold, Runnable::run);
+    }
+
+    @Override
+    public void compactUsers(int deadRecordsThreshold, Consumer<Runnable> exclusiveSection) {
+        if (usersFilePath == null) {
+            return;
+        }
+
+        compact(usersFilePath, () -> users, deadRecordsThreshold, step -> exclusiveSection.accept(() -> {
+            lock.readLock().lock();
+            try {
+                step.run();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }));
+    }
+
+    // the credentials of each user are compacted under the lock of the user, so the other users are not held up
+    @Override
+    public void compactCredentials(int deadRecordsThreshold) {
+        compactCredentials(deadRecordsThreshold, Runnable::run);
+    }
+
+    @Override
+    public void compactCredentials(int deadRecordsThreshold, Consumer<Runnable> exclusiveSection) {
+        if (userCredentialsDirectory == null || userCredentialsExtension == null) {
+            return;
+        }
+
+        Set<String> usernames;
+        lock.readLock().lock();
+        try {
+            usernames = users.getAll().keySet();
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        for (String username : usernames) {
+            compactCredentials(username, deadRecordsThreshold, exclusiveSection);
+        }
+    }
+
+    @Override
+    public void reload() {
+        lock.writeLock().lock();
+        try {
+            credentialsCache.clear();
+            users.reload();
+            setAppendOnlyCredentials();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void reloadCredentials(String username) {
+        if (username == null || username.isBlank()) {
+            throw new IllegalArgumentException("Username should have a non-null and non-blank value.");
+        }
+
+        lockUser(username);
+        try {
+            DefaultUser user;
+            try {
+                user = users.get(username);
+            } catch (ElementNotFoundException e) {
+                // a user that is not in memory has no credentials to drop
+                return;
+            }
+
+            credentialsCache.remove(username);
+            user.unloadCredentials();
+        } finally {
+            unlockUser(username);
+        }
+    }
+
+    @Override
+    public void runExclusively(Runnable action) {
+        if (action == null) {
+            throw new IllegalArgumentException("Action should not be null.");
+        }
+
+        lock.writeLock().lock();
+        // the changes of a batch stay in memory until its flush, so no credentials are unloaded before that
+        credentialsCache.suspendEvictions();
+        try {
+            action.run();
+        } finally {
+            credentialsCache.resumeEvictions();
+            lock.writeLock().unlock();
+        }
     }
 
+    // the credentials repositories guard their own state, so reads of the same user run at the same time as well
     @Override
     public String getCredentialsPassword(String username, String applicationName, String credentialsUsername)
             throws ElementNotFoundException {
@@ -320,10 +611,252 @@ public class DefaultPasswordVault implements PasswordVault {
             throw new IllegalArgumentException("All arguments should have non-null and non-blank values.");
         }
 
-        User user = users.get(username);
-        String credentials = user.getCredentials(applicationName, credentialsUsername);
+        lock.readLock().lock();
+        try {
+            DefaultUser user = users.get(username);
+            credentialsCache.access(user);
+            String credentials = user.getCredentials(applicationName, credentialsUsername);
+
+            return credentials;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void compactCredentials(String username, int deadRecordsThreshold,
+                                    Consumer<Runnable> exclusiveSection) {
+        Path credentialsFilePath = AccountCredentialsRepository.generateCredentialsFilePath(username,
+                userCredentialsDirectory, userCredentialsExtension);
+        compact(credentialsFilePath, () -> getCredentialsRepository(username), deadRecordsThreshold,
+                step -> exclusiveSection.accept(() -> {
+                    lockUser(username);
+                    try {
+                        step.run();
+                    } finally {
+                        unlockUser(username);
+                    }
+                }));
+    }
+
+    // a user that has been deleted or read from the file again has another repository, or none
+    private AccountCredentialsRepository getCredentialsRepository(String username) {
+        try {
+            return users.get(username).getAccountCredentialsRepository();
+        } catch (ElementNotFoundException e) {
+            return null;
+        }
+    }
+
+    // The live records are copied and the end of the file is noted under the exclusive section. The copy is written
+    // and forced without it, then the records appended meanwhile are carried over and the file is replaced under
+    // it again. A crash keeps either the old or the compacted file, as the replacement is atomic.
+    private <K, V> void compact(Path filePath, Supplier<? extends Repository<K, V>> repository,
+                                int deadRecordsThreshold, Consumer<Runnable> exclusiveSection) {
+        compactionLock.lock();
+        try {
+            AtomicReference<CompactionSnapshot<K, V>> snapshot = new AtomicReference<>();
+            exclusiveSection.accept(() -> snapshot.set(takeSnapshot(filePath, repository.get(),
+                    deadRecordsThreshold)));
+            if (snapshot.get() == null) {
+                return;
+            }
+
+            try (AtomicFileWriter writer = new AtomicFileWriter(filePath, compactionFilePath(filePath))) {
+                snapshot.get().repository().flush(snapshot.get().elements(), writer);
+                writer.force();
+                exclusiveSection.accept(() -> replaceWithSnapshot(filePath, repository.get(), snapshot.get(),
+                        writer));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot compact " + filePath + ".", e);
+        } finally {
+            compactionLock.unlock();
+        }
+    }
+
+    private <K, V> CompactionSnapshot<K, V> takeSnapshot(Path filePath, Repository<K, V> repository,
+                                                         int deadRecordsThreshold) {
+        if (repository == null || !repository.needsCompaction(deadRecordsThreshold)) {
+            return null;
+        }
+
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(filePath, BasicFileAttributes.class);
+            if (attributes.fileKey() == null) {
+                // without a key a replaced file cannot be told apart, so the whole rewrite stays in this step
+                try (AtomicFileWriter writer = new AtomicFileWriter(filePath)) {
+                    repository.flush(writer);
+                    writer.commit();
+                }
+                return null;
+            }
+
+            return new CompactionSnapshot<>(repository, repository.getAll(), repository.getDeadRecordsCount(),
+                    attributes.size(), attributes.fileKey());
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot compact " + filePath + ".", e);
+        }
+    }
+
+    // A file that has been replaced, e.g. by a rewrite or by a deleted and registered again user, is left as it is,
+    // and closing the writer deletes the copy. Otherwise the file has only been appended to since the copy.
+    private <K, V> void replaceWithSnapshot(Path filePath, Repository<K, V> repository,
+                                            CompactionSnapshot<K, V> snapshot, AtomicFileWriter writer) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(filePath, BasicFileAttributes.class);
+            if (repository != snapshot.repository() || !snapshot.fileKey().equals(attributes.fileKey()) ||
+                    attributes.size() < snapshot.fileSize()) {
+                return;
+            }
+
+            writer.transferFrom(filePath, snapshot.fileSize());
+            writer.commit();
+            repository.forgetDeadRecords(snapshot.deadRecordsCount());
+        } catch (NoSuchFileException e) {
+            // the file has been deleted together with its user
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot compact " + filePath + ".", e);
+        }
+    }
+
+    // the processes that share the files compact them at the same time, so each one writes its own copy
+    private static Path compactionFilePath(Path filePath) {
+        return filePath.resolveSibling(filePath.getFileName() + "." + ProcessHandle.current().pid() +
+                COMPACTION_FILE_SUFFIX);
+    }
 
-        return credentials;
+    // An append-only file is appended to in place. Any other file is rewritten into a temporary file that
+    // replaces it on commit, so an exception or a crash in the middle of the rewrite keeps the old contents.
+    private static Writer openWriter(Path filePath, boolean isAppendOnly) throws IOException {
+        return isAppendOnly ? new FileWriter(filePath.toString(), true) : new AtomicFileWriter(filePath);
+    }
+
+    private static void commit(Writer writer) throws IOException {
+        if (writer instanceof AtomicFileWriter atomicFileWriter) {
+            atomicFileWriter.commit();
+        }
+    }
+
+    // The change is already in memory when the rewrite is committed. A failed commit keeps the old file,
+    // so the users are read from it again instead of serving the change until the next restart.
+    private void commitUsers(Writer writer) throws IOException {
+        try {
+            commit(writer);
+        } catch (IOException e) {
+            reload();
+            throw e;
+        }
+    }
+
+    // the old credentials are read from the file on the next access
+    private void commitCredentials(String username, Writer writer) throws IOException {
+        try {
+            commit(writer);
+        } catch (IOException e) {
+            reloadCredentials(username);
+            throw e;
+        }
+    }
+
+    // The temporary files of rewrites that were not committed before a crash. The files they were meant to
+    // replace still have their old contents, so the temporary files are only deleted.
+    // The copies of compactions are deleted only when the process that wrote them has ended, since the other
+    // processes that share the files may be compacting them right now.
+    private void recoverInterruptedRewrites() {
+        try {
+            if (usersFilePath != null) {
+                deleteTemporaryFile(AtomicFileWriter.temporaryFilePath(usersFilePath));
+                deleteCompactionFiles(usersFilePath.toAbsolutePath().getParent(),
+                        usersFilePath.getFileName() + ".*" + COMPACTION_FILE_SUFFIX);
+            }
+            if (userCredentialsDirectory == null || userCredentialsExtension == null ||
+                    Files.notExists(Path.of(userCredentialsDirectory))) {
+                return;
+            }
+
+            try (DirectoryStream<Path> temporaryFiles = Files.newDirectoryStream(Path.of(userCredentialsDirectory),
+                    "*" + userCredentialsExtension + AtomicFileWriter.TEMPORARY_FILE_SUFFIX)) {
+                for (Path temporaryFile : temporaryFiles) {
+                    deleteTemporaryFile(temporaryFile);
+                }
+            }
+            deleteCompactionFiles(Path.of(userCredentialsDirectory),
+                    "*" + userCredentialsExtension + ".*" + COMPACTION_FILE_SUFFIX);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot delete the temporary files of interrupted rewrites.", e);
+        }
+    }
+
+    private void deleteCompactionFiles(Path directory, String glob) throws IOException {
+        try (DirectoryStream<Path> compactionFiles = Files.newDirectoryStream(directory, glob)) {
+            for (Path compactionFile : compactionFiles) {
+                if (isWrittenByEndedProcess(compactionFile)) {
+                    deleteTemporaryFile(compactionFile);
+                }
+            }
+        }
+    }
+
+    // a restarted process may get the id of the crashed one, e.g. in a container, so its own ids count as ended
+    private static boolean isWrittenByEndedProcess(Path compactionFile) {
+        String fileName = compactionFile.getFileName().toString();
+        String name = fileName.substring(0, fileName.length() - COMPACTION_FILE_SUFFIX.length());
+        try {
+            long pid = Long.parseLong(name.substring(name.lastIndexOf('.') + 1));
+            return pid == ProcessHandle.current().pid() ||
+                    !ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private void deleteTemporaryFile(Path temporaryFilePath) throws IOException {
+        if (Files.deleteIfExists(temporaryFilePath)) {
+            String logMessage = "Deleted " + temporaryFilePath + " left by a rewrite interrupted by a crash.";
+            logger.log(Level.WARN, LocalDateTime.now(), logMessage);
+            System.out.println(logMessage);
+        }
+    }
+
+    // the read lock is always taken before the lock of the user, so no one waits for the write lock holding one
+    private void lockUser(String username) {
+        ReentrantLock userLock = userLock(username);
+        lock.readLock().lock();
+        userLock.lock();
+    }
+
+    private void unlockUser(String username) {
+        userLock(username).unlock();
+        lock.readLock().unlock();
+    }
+
+    private ReentrantLock userLock(String username) {
+        return userLocks[Math.floorMod(username.hashCode(), USER_LOCKS_COUNT)];
+    }
+
+    private static ReentrantLock[] createUserLocks() {
+        ReentrantLock[] userLocks = new ReentrantLock[USER_LOCKS_COUNT];
+        for (int i = 0; i < USER_LOCKS_COUNT; i++) {
+            userLocks[i] = new ReentrantLock();
+        }
+
+        return userLocks;
+    }
+
+    private void setAppendOnlyCredentials() {
+        users.getAll().values().forEach(user -> user.setAppendOnlyCredentials(isAppendOnlyCredentials));
+    }
+
+    private static void forceIfExists(Path path) throws IOException {
+        if (Files.notExists(path)) {
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
     }
 
     private boolean passwordsDoNotMatch(Password password, Password userPassword) {
@@ -332,4 +865,9 @@ public class DefaultPasswordVault implements PasswordVault {
                 (userPassword.getMd5() != null && !userPassword.getMd5().equals(password.getMd5()));
     }
 
+    // the repository the copy was taken from, its live elements and dead records, and the file at that moment
+    private record CompactionSnapshot<K, V>(Repository<K, V> repository, Map<K, V> elements, int deadRecordsCount,
+                                            long fileSize, Object fileKey) {
+    }
+
 }
\ No newline at end of file
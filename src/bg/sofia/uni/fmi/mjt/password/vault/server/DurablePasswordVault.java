@@ -0,0 +1,247 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server;
+
+import bg.sofia.uni.fmi.mjt.password.vault.client.Password;
+import bg.sofia.uni.fmi.mjt.password.vault.client.encryptor.EncryptionData;
+import bg.sofia.uni.fmi.mjt.password.vault.server.durability.FileSyncer;
+import bg.sofia.uni.fmi.mjt.password.vault.server.repository.AccountCredentialsRepository;
+import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.CredentialAlreadyExistsException;
+import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.ElementNotFoundException;
+import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.RepositoryException;
+import bg.sofia.uni.fmi.mjt.password.vault.server.user.exceptions.UserAuthenticationException;
+import bg.sofia.uni.fmi.mjt.password.vault.session.Session;
+
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+// Returns from the operations that append to the repository files only after the appended file is on the disk.
+// The file is synced after the vault lock is released, so the other requests can write while this one waits.
+// Inside runExclusively the syncs wait until the action has finished and the lock is released. A failed sync
+// is thrown to the caller, so the write is not acknowledged. The operations with a writer of the caller are not
+// synced, the caller owns the writer. The operations that rewrite a file are not synced either, the rewrite is
+// forced by its commit in any durability mode.
+public class DurablePasswordVault implements PasswordVault {
+
+    private final PasswordVault passwordVault;
+    private final FileSyncer fileSyncer;
+    private final Path usersFilePath;
+    private final String userCredentialsDirectory;
+    private final String userCredentialsExtension;
+    private final boolean isAppendOnlyUsers;
+    private final boolean isAppendOnlyCredentials;
+    // the files written inside runExclusively by the current thread, null outside of it
+    private final ThreadLocal<Set<Path>> deferredSyncs;
+
+    // the append-only modes should be the ones of the wrapped vault, they tell which changes append to the files
+    public DurablePasswordVault(PasswordVault passwordVault, FileSyncer fileSyncer, Path usersFilePath,
+                                String userCredentialsDirectory, String userCredentialsExtension,
+                                boolean isAppendOnlyUsers, boolean isAppendOnlyCredentials) {
+        if (passwordVault == null || fileSyncer == null || usersFilePath == null ||
+                userCredentialsDirectory == null || userCredentialsExtension == null) {
+            throw new IllegalArgumentException("All arguments should have non-null values.");
+        }
+
+        this.passwordVault = passwordVault;
+        this.fileSyncer = fileSyncer;
+        this.usersFilePath = usersFilePath;
+        this.userCredentialsDirectory = userCredentialsDirectory;
+        this.userCredentialsExtension = userCredentialsExtension;
+        this.isAppendOnlyUsers = isAppendOnlyUsers;
+        this.isAppendOnlyCredentials = isAppendOnlyCredentials;
+        this.deferredSyncs = new ThreadLocal<>();
+    }
+
+    @Override
+    public void register(String username, Password password, Password passwordRepeated,
+                         EncryptionData encryptionData)
+            throws RepositoryException, UserAuthenticationException {
+        passwordVault.register(username, password, passwordRepeated, encryptionData);
+        syncOrDefer(usersFilePath);
+    }
+
+    @Override
+    public void register(String username, Password password, Password passwordRepeated,
+                         EncryptionData encryptionData, Writer writer)
+            throws RepositoryException, UserAuthenticationException {
+        passwordVault.register(username, password, passwordRepeated, encryptionData, writer);
+    }
+
+    @Override
+    public void deleteAccount(String username, Password password, Password passwordRepeated)
+            throws RepositoryException, UserAuthenticationException {
+        passwordVault.deleteAccount(username, password, passwordRepeated);
+        syncAppendedOrDefer(usersFilePath, isAppendOnlyUsers);
+    }
+
+    @Override
+    public void deleteAccount(String username, Password password, Password passwordRepeated, Writer writer)
+            throws RepositoryException, UserAuthenticationException {
+        passwordVault.deleteAccount(username, password, passwordRepeated, writer);
+    }
+
+    @Override
+    public Session login(String username, Password password)
+            throws RepositoryException, UserAuthenticationException {
+        return passwordVault.login(username, password);
+    }
+
+    @Override
+    public void logout(String username) throws UserAuthenticationException {
+        passwordVault.logout(username);
+    }
+
+    @Override
+    public void changePassword(String username, Password oldPassword, Password newPassword,
+                               Password newPasswordRepeated)
+            throws RepositoryException, UserAuthenticationException {
+        passwordVault.changePassword(username, oldPassword, newPassword, newPasswordRepeated);
+        syncAppendedOrDefer(usersFilePath, isAppendOnlyUsers);
+    }
+
+    @Override
+    public void changePassword(String username, Password oldPassword, Password newPassword,
+                               Password newPasswordRepeated, Writer writer)
+            throws RepositoryException, UserAuthenticationException {
+        passwordVault.changePassword(username, oldPassword, newPassword, newPasswordRepeated, writer);
+    }
+
+    @Override
+    public boolean isLoggedIn(String username) {
+        return passwordVault.isLoggedIn(username);
+    }
+
+    @Override
+    public EncryptionData getEncryptionData(String username) throws RepositoryException {
+        return passwordVault.getEncryptionData(username);
+    }
+
+    @Override
+    public void addCredentials(String username, String applicationName,
+                               String credentialsUsername, String credentialsPassword)
+            throws ElementNotFoundException, CredentialAlreadyExistsException {
+        passwordVault.addCredentials(username, applicationName, credentialsUsername, credentialsPassword);
+        syncOrDefer(credentialsFilePath(username));
+    }
+
+    @Override
+    public void addCredentials(String username, String applicationName,
+                               String credentialsUsername, String credentialsPassword, Writer writer)
+            throws ElementNotFoundException, CredentialAlreadyExistsException {
+        passwordVault.addCredentials(username, applicationName, credentialsUsername, credentialsPassword, writer);
+    }
+
+    @Override
+    public String getCredentialsPassword(String username, String applicationName, String credentialsUsername)
+            throws ElementNotFoundException {
+        return passwordVault.getCredentialsPassword(username, applicationName, credentialsUsername);
+    }
+
+    @Override
+    public void updateCredentials(String username, String applicationName,
+                                  String credentialsUsername, String credentialsPassword)
+            throws ElementNotFoundException {
+        passwordVault.updateCredentials(username, applicationName, credentialsUsername, credentialsPassword);
+        syncAppendedOrDefer(credentialsFilePath(username), isAppendOnlyCredentials);
+    }
+
+    @Override
+    public void updateCredentials(String username, String applicationName, String credentialsUsername,
+                                  String credentialsPassword, Writer writer)
+            throws ElementNotFoundException {
+        passwordVault.updateCredentials(username, applicationName, credentialsUsername, credentialsPassword, writer);
+    }
+
+    @Override
+    public void removeCredentials(String username, String applicationName, String credentialsUsername)
+            throws ElementNotFoundException {
+        passwordVault.removeCredentials(username, applicationName, credentialsUsername);
+        syncAppendedOrDefer(credentialsFilePath(username), isAppendOnlyCredentials);
+    }
+
+    @Override
+    public void removeCredentials(String username, String applicationName, String credentialsUsername,
+                                  Writer writer)
+            throws ElementNotFoundException {
+        passwordVault.removeCredentials(username, applicationName, credentialsUsername, writer);
+    }
+
+    @Override
+    public void flushCredentials(String username) throws ElementNotFoundException {
+        // the flush always rewrites the file
+        passwordVault.flushCredentials(username);
+    }
+
+    @Override
+    public void flushCredentials(String username, Writer writer) throws ElementNotFoundException {
+        passwordVault.flushCredentials(username, writer);
+    }
+
+    @Override
+    public void sync() {
+        passwordVault.sync();
+    }
+
+    @Override
+    public void compactUsers(int deadRecordsThreshold) {
+        passwordVault.compactUsers(deadRecordsThreshold);
+    }
+
+    @Override
+    public void compactCredentials(int deadRecordsThreshold) {
+        passwordVault.compactCredentials(deadRecordsThreshold);
+    }
+
+    @Override
+    public void reload() {
+        passwordVault.reload();
+    }
+
+    @Override
+    public void reloadCredentials(String username) {
+        passwordVault.reloadCredentials(username);
+    }
+
+    @Override
+    public void runExclusively(Runnable action) {
+        if (deferredSyncs.get() != null) {
+            // the outermost action syncs the files of the nested ones
+            passwordVault.runExclusively(action);
+            return;
+        }
+
+        Set<Path> filePaths = new LinkedHashSet<>();
+        deferredSyncs.set(filePaths);
+        try {
+            passwordVault.runExclusively(action);
+        } finally {
+            deferredSyncs.remove();
+        }
+
+        for (Path filePath : filePaths) {
+            fileSyncer.sync(filePath);
+        }
+    }
+
+    // outside of append-only mode the change rewrites the file
+    private void syncAppendedOrDefer(Path filePath, boolean isAppendOnly) {
+        if (isAppendOnly) {
+            syncOrDefer(filePath);
+        }
+    }
+
+    private void syncOrDefer(Path filePath) {
+        Set<Path> filePaths = deferredSyncs.get();
+        if (filePaths != null) {
+            filePaths.add(filePath);
+        } else {
+            fileSyncer.sync(filePath);
+        }
+    }
+
+    private Path credentialsFilePath(String username) {
+        return AccountCredentialsRepository.generateCredentialsFilePath(username,
+                userCredentialsDirectory, userCredentialsExtension);
+    }
+
+}
\ No newline at end of file
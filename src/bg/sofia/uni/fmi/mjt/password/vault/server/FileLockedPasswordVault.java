@@ -0,0 +1,598 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server;
+
+import bg.sofia.uni.fmi.mjt.password.vault.client.Password;
+import bg.sofia.uni.fmi.mjt.password.vault.client.encryptor.EncryptionData;
+import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.CredentialAlreadyExistsException;
+import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.ElementNotFoundException;
+import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.RepositoryException;
+import bg.sofia.uni.fmi.mjt.password.vault.server.user.exceptions.UserAuthenticationException;
+import bg.sofia.uni.fmi.mjt.password.vault.session.Session;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// Lets several server processes share the same data files. Every operation holds an exclusive lock on the
+// lock file, which also keeps a generation that is increased by each change, so a process reloads the vault
+// only when another process has changed the files since its last operation. After the generation the lock file
+// keeps a journal of the last changes, so a process that has missed only credentials changes drops just the
+// credentials of the changed users. Changes of the users file, e.g. a registration, and falling behind the
+// journal make the process reload all users, which takes time proportional to the size of the users file.
+// Sessions are not shared.
+public class FileLockedPasswordVault implements PasswordVault, Closeable {
+
+    private static final int GENERATION_BYTES = Long.BYTES;
+    private static final long UNKNOWN_GENERATION = -1;
+    private static final int JOURNAL_ENTRIES_COUNT = 256;
+    private static final int MAX_JOURNAL_USERNAME_BYTES = 256;
+    // the generation of the entry, the length of the username and the username
+    private static final int JOURNAL_ENTRY_BYTES = Long.BYTES + Short.BYTES + MAX_JOURNAL_USERNAME_BYTES;
+    // the length of the entries that make the other processes reload all users
+    private static final short RELOAD_ALL_LENGTH = -1;
+    // file locks are held by the whole process, so the threads of the process, also the ones of other vaults
+    // on the same lock file, take turns on the lock of the file first
+    private static final Map<Path, ReentrantLock> PROCESS_LOCKS = new ConcurrentHashMap<>();
+
+    private final PasswordVault passwordVault;
+    private final FileChannel lockChannel;
+    private final ReentrantLock lock;
+
+    //accessed only while holding the lock
+    private FileLock fileLock;
+    private long generation;
+    private boolean hasUsersChanges;
+    private final Set<String> credentialsChangedUsers;
+
+    public FileLockedPasswordVault(PasswordVault passwordVault, Path lockFilePath) {
+        if (passwordVault == null || lockFilePath == null) {
+            throw new IllegalArgumentException("PasswordVault and lock file path should not be null.");
+        }
+
+        this.passwordVault = passwordVault;
+        this.lock = processLock(lockFilePath);
+        this.credentialsChangedUsers = new LinkedHashSet<>();
+        this.lockChannel = openLockChannel(lockFilePath);
+        // the vault has been read without holding the lock, so it is reloaded by the first operation
+        this.generation = UNKNOWN_GENERATION;
+    }
+
+    // The vault is created while holding the lock. Its startup recovery deletes the temporary files of
+    // rewrites and truncates torn records, which would break the rewrites and the appends of another process
+    // that is writing the files at the same time.
+    public FileLockedPasswordVault(Supplier<? extends PasswordVault> passwordVaultFactory, Path lockFilePath) {
+        if (passwordVaultFactory == null || lockFilePath == null) {
+            throw new IllegalArgumentException("PasswordVault factory and lock file path should not be null.");
+        }
+
+        this.lock = processLock(lockFilePath);
+        this.credentialsChangedUsers = new LinkedHashSet<>();
+        this.lockChannel = openLockChannel(lockFilePath);
+        lock.lock();
+        try {
+            fileLock = lockChannel.lock();
+            // the vault is read after all changes up to the current generation
+            this.generation = readGeneration();
+            this.passwordVault = passwordVaultFactory.get();
+        } catch (IOException e) {
+            releaseFileLock();
+            closeLockChannel();
+            throw new UncheckedIOException("Cannot lock the data files.", e);
+        } catch (RuntimeException e) {
+            releaseFileLock();
+            closeLockChannel();
+            throw e;
+        } finally {
+            releaseFileLock();
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void register(String username, Password password, Password passwordRepeated,
+                         EncryptionData encryptionData)
+            throws RepositoryException, UserAuthenticationException {
+        lockForUsersChanges();
+        try {
+            passwordVault.register(username, password, passwordRepeated, encryptionData);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public void register(String username, Password password, Password passwordRepeated,
+                         EncryptionData encryptionData, Writer writer)
+            throws RepositoryException, UserAuthenticationException {
+        lockForUsersChanges();
+        try {
+            passwordVault.register(username, password, passwordRepeated, encryptionData, writer);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public void deleteAccount(String username, Password password, Password passwordRepeated)
+            throws RepositoryException, UserAuthenticationException {
+        lockForUsersChanges();
+        try {
+            passwordVault.deleteAccount(username, password, passwordRepeated);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public void deleteAccount(String username, Password password, Password passwordRepeated, Writer writer)
+            throws RepositoryException, UserAuthenticationException {
+        lockForUsersChanges();
+        try {
+            passwordVault.deleteAccount(username, password, passwordRepeated, writer);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public Session login(String username, Password password)
+            throws RepositoryException, UserAuthenticationException {
+        lock();
+        try {
+            return passwordVault.login(username, password);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public void logout(String username) throws UserAuthenticationException {
+        passwordVault.logout(username);
+    }
+
+    @Override
+    public void changePassword(String username, Password oldPassword, Password newPassword,
+                               Password newPasswordRepeated)
+            throws RepositoryException, UserAuthenticationException {
+        lockForUsersChanges();
+        try {
+            passwordVault.changePassword(username, oldPassword, newPassword, newPasswordRepeated);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public void changePassword(String username, Password oldPassword, Password newPassword,
+                               Password newPasswordRepeated, Writer writer)
+            throws RepositoryException, UserAuthenticationException {
+        lockForUsersChanges();
+        try {
+            passwordVault.changePassword(username, oldPassword, newPassword, newPasswordRepeated, writer);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public boolean isLoggedIn(String username) {
+        return passwordVault.isLoggedIn(username);
+    }
+
+    @Override
+    public EncryptionData getEncryptionData(String username) throws RepositoryException {
+        lock();
+        try {
+            return passwordVault.getEncryptionData(username);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public void addCredentials(String username, String applicationName,
+                               String credentialsUsername, String credentialsPassword)
+            throws ElementNotFoundException, CredentialAlreadyExistsException {
+        lockForCredentialsChanges(username);
+        try {
+            passwordVault.addCredentials(username, applicationName, credentialsUsername, credentialsPassword);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public void addCredentials(String username, String applicationName,
+                               String credentialsUsername, String credentialsPassword, Writer writer)
+            throws ElementNotFoundException, CredentialAlreadyExistsException {
+        lockForCredentialsChanges(username);
+        try {
+            passwordVault.addCredentials(username, applicationName, credentialsUsername, credentialsPassword,
+                    writer);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public String getCredentialsPassword(String username, String applicationName, String credentialsUsername)
+            throws ElementNotFoundException {
+        lock();
+        try {
+            return passwordVault.getCredentialsPassword(username, applicationName, credentialsUsername);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public void updateCredentials(String username, String applicationName,
+                                  String credentialsUsername, String credentialsPassword)
+            throws ElementNotFoundException {
+        lockForCredentialsChanges(username);
+        try {
+            passwordVault.updateCredentials(username, applicationName, credentialsUsername, credentialsPassword);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public void updateCredentials(String username, String applicationName, String credentialsUsername,
+                                  String credentialsPassword, Writer writer)
+            throws ElementNotFoundException {
+        lockForCredentialsChanges(username);
+        try {
+            passwordVault.updateCredentials(username, applicationName, credentialsUsername, credentialsPassword,
+                    writer);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public void removeCredentials(String username, String applicationName, String credentialsUsername)
+            throws ElementNotFoundException {
+        lockForCredentialsChanges(username);
+        try {
+            passwordVault.removeCredentials(username, applicationName, credentialsUsername);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public void removeCredentials(String username, String applicationName, String credentialsUsername,
+                                  Writer writer)
+            throws ElementNotFoundException {
+        lockForCredentialsChanges(username);
+        try {
+            passwordVault.removeCredentials(username, applicationName, credentialsUsername, writer);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public void flushCredentials(String username) throws ElementNotFoundException {
+        lockForCredentialsChanges(username);
+        try {
+            passwordVault.flushCredentials(username);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public void flushCredentials(String username, Writer writer) throws ElementNotFoundException {
+        lockForCredentialsChanges(username);
+        try {
+            passwordVault.flushCredentials(username, writer);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public void sync() {
+        lock();
+        try {
+            passwordVault.sync();
+        } finally {
+            unlock();
+        }
+    }
+
+    // The users stay the same, so the other processes do not need to reload them. The lock is held only while
+    // the live users are copied and while the file is replaced, not while the copy is written.
+    @Override
+    public void compactUsers(int deadRecordsThreshold) {
+        compactUsers(deadRecordsThreshold, Runnable::run);
+    }
+
+    @Override
+    public void compactUsers(int deadRecordsThreshold, Consumer<Runnable> exclusiveSection) {
+        passwordVault.compactUsers(deadRecordsThreshold, step -> exclusiveSection.accept(() -> runLocked(step)));
+    }
+
+    // the credentials stay the same, so the other processes do not need to reload them
+    @Override
+    public void compactCredentials(int deadRecordsThreshold) {
+        compactCredentials(deadRecordsThreshold, Runnable::run);
+    }
+
+    @Override
+    public void compactCredentials(int deadRecordsThreshold, Consumer<Runnable> exclusiveSection) {
+        passwordVault.compactCredentials(deadRecordsThreshold,
+                step -> exclusiveSection.accept(() -> runLocked(step)));
+    }
+
+    @Override
+    public void reload() {
+        lock();
+        try {
+            passwordVault.reload();
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public void reloadCredentials(String username) {
+        lock();
+        try {
+            passwordVault.reloadCredentials(username);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public void runExclusively(Runnable action) {
+        if (action == null) {
+            throw new IllegalArgumentException("Action should not be null.");
+        }
+
+        // the action may change the vault in memory and write it later, so no reload may happen in between,
+        // the operations of the action record their own changes
+        lock();
+        try {
+            passwordVault.runExclusively(action);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lockChannel.close();
+    }
+
+    private static ReentrantLock processLock(Path lockFilePath) {
+        return PROCESS_LOCKS.computeIfAbsent(lockFilePath.toAbsolutePath().normalize(),
+                path -> new ReentrantLock());
+    }
+
+    private static FileChannel openLockChannel(Path lockFilePath) {
+        try {
+            return FileChannel.open(lockFilePath,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open lock file.", e);
+        }
+    }
+
+    private void closeLockChannel() {
+        try {
+            lockChannel.close();
+        } catch (IOException e) {
+            System.out.println("Cannot close lock file.");
+        }
+    }
+
+    private void runLocked(Runnable action) {
+        lock();
+        try {
+            action.run();
+        } finally {
+            unlock();
+        }
+    }
+
+    private void lockForUsersChanges() {
+        lock();
+        hasUsersChanges = true;
+    }
+
+    private void lockForCredentialsChanges(String username) {
+        lock();
+        if (username == null || username.isBlank()) {
+            // the operation fails, but it is not known what it has written before that
+            hasUsersChanges = true;
+        } else {
+            credentialsChangedUsers.add(username);
+        }
+    }
+
+    private void lock() {
+        lock.lock();
+        if (lock.getHoldCount() > 1) {
+            return;
+        }
+
+        try {
+            fileLock = lockChannel.lock();
+            long currentGeneration = readGeneration();
+            if (currentGeneration != generation) {
+                reloadChanges(currentGeneration);
+                generation = currentGeneration;
+            }
+        } catch (IOException e) {
+            releaseFileLock();
+            lock.unlock();
+            throw new UncheckedIOException("Cannot lock the data files.", e);
+        } catch (RuntimeException e) {
+            releaseFileLock();
+            lock.unlock();
+            throw e;
+        }
+    }
+
+    private void unlock() {
+        try {
+            if (lock.getHoldCount() == 1 && (hasUsersChanges || !credentialsChangedUsers.isEmpty())) {
+                // failed operations are counted as changes as well, since they may have written part of a file
+                writeChanges();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write lock file.", e);
+        } finally {
+            if (lock.getHoldCount() == 1) {
+                hasUsersChanges = false;
+                credentialsChangedUsers.clear();
+                releaseFileLock();
+            }
+            lock.unlock();
+        }
+    }
+
+    private void reloadChanges(long currentGeneration) throws IOException {
+        Set<String> usernames = readCredentialsChangedUsers(currentGeneration);
+        if (usernames == null) {
+            passwordVault.reload();
+            return;
+        }
+
+        for (String username : usernames) {
+            passwordVault.reloadCredentials(username);
+        }
+    }
+
+    // returns null when the journal does not tell which users have changed since the last operation
+    private Set<String> readCredentialsChangedUsers(long currentGeneration) throws IOException {
+        if (generation == UNKNOWN_GENERATION || currentGeneration < generation ||
+                currentGeneration - generation > JOURNAL_ENTRIES_COUNT) {
+            return null;
+        }
+
+        Set<String> usernames = new LinkedHashSet<>();
+        for (long entryGeneration = generation + 1; entryGeneration <= currentGeneration; entryGeneration++) {
+            String username = readJournalEntry(entryGeneration);
+            if (username == null) {
+                return null;
+            }
+            usernames.add(username);
+        }
+
+        return usernames;
+    }
+
+    private void writeChanges() throws IOException {
+        if (hasUsersChanges || credentialsChangedUsers.size() > JOURNAL_ENTRIES_COUNT) {
+            writeJournalEntry(++generation, null);
+        } else {
+            for (String username : credentialsChangedUsers) {
+                writeJournalEntry(++generation, username);
+            }
+        }
+        // the generation is written last, so the other processes do not read the entries before they are complete
+        writeGeneration(generation);
+    }
+
+    private void releaseFileLock() {
+        if (fileLock == null) {
+            return;
+        }
+
+        try {
+            fileLock.release();
+        } catch (IOException e) {
+            System.out.println("Cannot release lock of the data files.");
+        }
+        fileLock = null;
+    }
+
+    private long readGeneration() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(GENERATION_BYTES);
+        if (!readFully(buffer, 0)) {
+            // the lock file has just been created
+            return 0;
+        }
+
+        return buffer.flip().getLong();
+    }
+
+    private void writeGeneration(long generation) throws IOException {
+        writeFully(ByteBuffer.allocate(GENERATION_BYTES).putLong(generation).flip(), 0);
+    }
+
+    // returns null when the entry has been overwritten by a later generation or makes the process reload all users
+    private String readJournalEntry(long entryGeneration) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(JOURNAL_ENTRY_BYTES);
+        if (!readFully(buffer, journalEntryPosition(entryGeneration))) {
+            return null;
+        }
+
+        buffer.flip();
+        if (buffer.getLong() != entryGeneration) {
+            return null;
+        }
+        short length = buffer.getShort();
+        if (length == RELOAD_ALL_LENGTH) {
+            return null;
+        }
+        byte[] username = new byte[length];
+        buffer.get(username);
+
+        return new String(username, StandardCharsets.UTF_8);
+    }
+
+    // a null username makes the other processes reload all users
+    private void writeJournalEntry(long entryGeneration, String username) throws IOException {
+        byte[] usernameBytes = username == null ? null : username.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(JOURNAL_ENTRY_BYTES).putLong(entryGeneration);
+        if (usernameBytes == null || usernameBytes.length > MAX_JOURNAL_USERNAME_BYTES) {
+            buffer.putShort(RELOAD_ALL_LENGTH);
+        } else {
+            buffer.putShort((short) usernameBytes.length).put(usernameBytes);
+        }
+        buffer.position(JOURNAL_ENTRY_BYTES);
+
+        writeFully(buffer.flip(), journalEntryPosition(entryGeneration));
+    }
+
+    private static long journalEntryPosition(long entryGeneration) {
+        return GENERATION_BYTES + (entryGeneration % JOURNAL_ENTRIES_COUNT) * JOURNAL_ENTRY_BYTES;
+    }
+
+    // returns false when the file ends before the buffer is full
+    private boolean readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (lockChannel.read(buffer, position + buffer.position()) < 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            lockChannel.write(buffer, position + buffer.position());
+        }
+    }
+
+}
\ No newline at end of file
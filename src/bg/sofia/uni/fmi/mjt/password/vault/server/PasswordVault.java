@@ -4,6 +4,7 @@ import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.Credenti
 import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.ElementNotFoundException;
 
 import java.io.Writer;
+import java.util.function.Consumer;
 
 public interface PasswordVault extends Authenticatable {
 
@@ -32,4 +33,38 @@ public interface PasswordVault extends Authenticatable {
     void removeCredentials(String username, String applicationName, String credentialsUsername, Writer writer)
             throws ElementNotFoundException;
 
+    void flushCredentials(String username) throws ElementNotFoundException;
+
+    void flushCredentials(String username, Writer writer) throws ElementNotFoundException;
+
+    // forces the written users and credentials to the storage device
+    void sync();
+
+    // rewrites the append-only users file, if it has more dead records than the threshold
+    void compactUsers(int deadRecordsThreshold);
+
+    // Like compactUsers, but the steps that read the vault and replace the file run through exclusiveSection, which
+    // a vault that shares the files with other processes wraps with its lock. The vaults that write the live users
+    // between the steps do not hold it meanwhile, the others run the whole compaction as one step.
+    default void compactUsers(int deadRecordsThreshold, Consumer<Runnable> exclusiveSection) {
+        exclusiveSection.accept(() -> compactUsers(deadRecordsThreshold));
+    }
+
+    // rewrites the append-only credentials files with more dead records than the threshold
+    void compactCredentials(int deadRecordsThreshold);
+
+    // like compactUsers with an exclusive section, for the credentials file of each user
+    default void compactCredentials(int deadRecordsThreshold, Consumer<Runnable> exclusiveSection) {
+        exclusiveSection.accept(() -> compactCredentials(deadRecordsThreshold));
+    }
+
+    // drops the users and credentials in memory and reads them again from the files
+    void reload();
+
+    // drops the credentials of the user in memory, so the next access reads them again from the file
+    void reloadCredentials(String username);
+
+    // runs the action without operations of other threads or server processes in between
+    void runExclusively(Runnable action);
+
 }
\ No newline at end of file
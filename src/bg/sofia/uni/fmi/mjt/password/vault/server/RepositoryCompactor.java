@@ -0,0 +1,46 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server;
+
+import bg.sofia.uni.fmi.mjt.password.vault.server.logger.Level;
+import bg.sofia.uni.fmi.mjt.password.vault.server.logger.Logger;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+// Runs periodically in the background and rewrites the append-only files that have too many dead records.
+public class RepositoryCompactor implements Runnable {
+
+    private final String filesName;
+    private final IntConsumer compaction;
+    private final int deadRecordsThreshold;
+    private final Logger logger;
+
+    // the compaction receives the threshold, e.g. PasswordVault::compactUsers
+    public RepositoryCompactor(String filesName, IntConsumer compaction, int deadRecordsThreshold, Logger logger) {
+        if (filesName == null || compaction == null || logger == null) {
+            throw new IllegalArgumentException("Files name, compaction and logger should not be null.");
+        }
+        if (deadRecordsThreshold <= 0) {
+            throw new IllegalArgumentException("Dead records threshold should have a positive value.");
+        }
+
+        this.filesName = filesName;
+        this.compaction = compaction;
+        this.deadRecordsThreshold = deadRecordsThreshold;
+        this.logger = logger;
+    }
+
+    @Override
+    public void run() {
+        // an exception would cancel the next runs of the scheduled task
+        try {
+            compaction.accept(deadRecordsThreshold);
+        } catch (RuntimeException e) {
+            String logMessage = filesName + " cannot be compacted. " +
+                    "Stacktrace: " + Arrays.toString(e.getStackTrace());
+            logger.log(Level.ERROR, LocalDateTime.now(), logMessage);
+            System.out.println(logMessage);
+        }
+    }
+
+}
\ No newline at end of file
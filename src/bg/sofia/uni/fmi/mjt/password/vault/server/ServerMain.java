@@ -10,17 +10,22 @@ import bg.sofia.uni.fmi.mjt.password.vault.server.command.ServerCommand;
 import bg.sofia.uni.fmi.mjt.password.vault.server.command.ServerCommandType;
 import bg.sofia.uni.fmi.mjt.password.vault.server.compromised.CompromisedPasswordsClient;
 import bg.sofia.uni.fmi.mjt.password.vault.server.compromised.DefaultCompromisedPasswordsClient;
+import bg.sofia.uni.fmi.mjt.password.vault.server.durability.FileSyncer;
+import bg.sofia.uni.fmi.mjt.password.vault.server.durability.GroupCommitFileSyncer;
+import bg.sofia.uni.fmi.mjt.password.vault.server.durability.PerWriteFileSyncer;
 import bg.sofia.uni.fmi.mjt.password.vault.server.logger.DefaultLogParser;
 import bg.sofia.uni.fmi.mjt.password.vault.server.logger.DefaultLogger;
 import bg.sofia.uni.fmi.mjt.password.vault.server.logger.Level;
 import bg.sofia.uni.fmi.mjt.password.vault.server.logger.LogParser;
 import bg.sofia.uni.fmi.mjt.password.vault.server.logger.Logger;
 import bg.sofia.uni.fmi.mjt.password.vault.server.logger.exceptions.LogParserException;
+import bg.sofia.uni.fmi.mjt.password.vault.server.metrics.MetricsHttpServer;
 import bg.sofia.uni.fmi.mjt.password.vault.server.nio.NioPasswordVaultServer;
 import bg.sofia.uni.fmi.mjt.password.vault.server.nio.PasswordVaultServer;
 import bg.sofia.uni.fmi.mjt.password.vault.server.repository.Repository;
 import bg.sofia.uni.fmi.mjt.password.vault.server.repository.UserRepository;
 import bg.sofia.uni.fmi.mjt.password.vault.server.user.DefaultUser;
+import bg.sofia.uni.fmi.mjt.password.vault.server.user.ResidentCredentialsCache;
 import bg.sofia.uni.fmi.mjt.password.vault.file.FileCreator;
 
 import java.io.File;
@@ -31,12 +36,15 @@ import java.io.Writer;
 import java.net.http.HttpClient;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Scanner;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 public class ServerMain {
 
@@ -53,6 +61,10 @@ public class ServerMain {
     private static final Path CREDENTIALS_FILE_DIRECTORY =
             Path.of("data" + File.separator + "server" + File.separator + "credentials" + File.separator);
     private static final String CREDENTIALS_FILE_EXTENSION = "dat";
+    private static final long COMPACTION_PERIOD_SECONDS = 10;
+
+    private static final Path DATA_LOCK_FILE_PATH =
+            Path.of("data" + File.separator + "server" + File.separator + "data.lock");
 
     private static final Path LOG_FILES_DIRECTORY = Path.of("logs");
 
@@ -80,9 +92,40 @@ public class ServerMain {
 
         LogParser logParser = new DefaultLogParser(LOG_FILES_DIRECTORY);
 
-        Repository<String, DefaultUser> users = new UserRepository<>(USERS_FILE_PATH, DefaultUser.class);
-        PasswordVault passwordVault = new DefaultPasswordVault(users, logger, USERS_FILE_PATH,
-                CREDENTIALS_FILE_DIRECTORY.toString(), CREDENTIALS_FILE_EXTENSION);
+        ResidentCredentialsCache credentialsCache =
+                new ResidentCredentialsCache(configurationData.getMaxResidentCredentialsBytes());
+        Supplier<PasswordVault> passwordVaultFactory = () -> {
+            Repository<String, DefaultUser> users = new UserRepository<>(USERS_FILE_PATH, DefaultUser.class);
+            return new DefaultPasswordVault(users, logger, USERS_FILE_PATH,
+                    CREDENTIALS_FILE_DIRECTORY.toString(), CREDENTIALS_FILE_EXTENSION,
+                    configurationData.isAppendOnlyUsers(), configurationData.isAppendOnlyCredentials(),
+                    credentialsCache);
+        };
+        PasswordVault passwordVault;
+        if (configurationData.isReusePort()) {
+            // the other server processes on the port change the same files, even while this one starts
+            passwordVault = new FileLockedPasswordVault(passwordVaultFactory, DATA_LOCK_FILE_PATH);
+        } else {
+            passwordVault = passwordVaultFactory.get();
+        }
+        FileSyncer fileSyncer = createFileSyncer(configurationData);
+        if (fileSyncer != null) {
+            passwordVault = new DurablePasswordVault(passwordVault, fileSyncer, USERS_FILE_PATH,
+                    CREDENTIALS_FILE_DIRECTORY.toString(), CREDENTIALS_FILE_EXTENSION,
+                    configurationData.isAppendOnlyUsers(), configurationData.isAppendOnlyCredentials());
+        }
+        if (configurationData.isAppendOnlyUsers()) {
+            loggerExecutorService.scheduleWithFixedDelay(
+                    new RepositoryCompactor("Users file", passwordVault::compactUsers,
+                            configurationData.getUsersCompactionThreshold(), logger),
+                    COMPACTION_PERIOD_SECONDS, COMPACTION_PERIOD_SECONDS, TimeUnit.SECONDS);
+        }
+        if (configurationData.isAppendOnlyCredentials()) {
+            loggerExecutorService.scheduleWithFixedDelay(
+                    new RepositoryCompactor("Credentials files", passwordVault::compactCredentials,
+                            configurationData.getCredentialsCompactionThreshold(), logger),
+                    COMPACTION_PERIOD_SECONDS, COMPACTION_PERIOD_SECONDS, TimeUnit.SECONDS);
+        }
 
         HttpClient httpClient = HttpClient.newBuilder()
                 .build();
@@ -92,24 +135,50 @@ public class ServerMain {
                 .setSecret(compromisedApiKeyData.getSecret())
                 .build();
 
-        runServer(loggerExecutorService, logger,
-                configurationData, logParser, passwordVault, compromisedPasswordsClient);
+        runServer(loggerExecutorService, logger, configurationData, logParser, passwordVault, fileSyncer,
+                credentialsCache, compromisedPasswordsClient);
+    }
+
+    // with a durability mode other than NONE an append is acknowledged only after the appended file is on the disk
+    private static FileSyncer createFileSyncer(ConfigurationData configurationData) {
+        return switch (configurationData.getDurabilityMode()) {
+            case NONE -> null;
+            case BATCHED -> new GroupCommitFileSyncer(configurationData.getGroupCommitIntervalMillis(),
+                    configurationData.getGroupCommitMaxBatchSize());
+            case PER_WRITE -> new PerWriteFileSyncer();
+        };
     }
 
     private static void runServer(ScheduledExecutorService loggerExecutorService, Logger logger,
                                   ConfigurationData configurationData, LogParser logParser,
-                                  PasswordVault passwordVault, CompromisedPasswordsClient compromisedPasswordsClient) {
+                                  PasswordVault passwordVault, FileSyncer fileSyncer,
+                                  ResidentCredentialsCache credentialsCache,
+                                  CompromisedPasswordsClient compromisedPasswordsClient) {
         PasswordVaultServer passwordVaultServer =
                 new NioPasswordVaultServer(configurationData,
                         passwordVault, compromisedPasswordsClient, logger);
         Thread serverThread = new Thread(passwordVaultServer);
         serverThread.start();
 
-        executeCommands(loggerExecutorService, logger, logParser, passwordVaultServer);
+        MetricsHttpServer metricsHttpServer = null;
+        if (configurationData.getMetricsPort() != 0) {
+            metricsHttpServer = new MetricsHttpServer(configurationData.getServerHost(),
+                    configurationData.getMetricsPort(), passwordVaultServer, logger);
+            metricsHttpServer.start();
+        }
+
+        executeCommands(loggerExecutorService, logger, logParser, passwordVaultServer, fileSyncer, credentialsCache,
+                Duration.ofMillis(configurationData.getDrainTimeoutMillis()));
+
+        if (metricsHttpServer != null) {
+            metricsHttpServer.stop();
+        }
     }
 
     private static void executeCommands(ScheduledExecutorService loggerExecutorService, Logger logger,
-                                        LogParser logParser, PasswordVaultServer passwordVaultServer) {
+                                        LogParser logParser, PasswordVaultServer passwordVaultServer,
+                                        FileSyncer fileSyncer, ResidentCredentialsCache credentialsCache,
+                                        Duration drainTimeout) {
         try (Scanner scanner = new Scanner(System.in)) {
             ServerCommand command = null;
             do {
@@ -127,8 +196,13 @@ public class ServerMain {
 
                 switch (commandType) {
                     case HELP -> printHelp();
-                    case STOP -> stopServer(loggerExecutorService, passwordVaultServer);
+                    case STOP -> stopServer(loggerExecutorService, passwordVaultServer, fileSyncer, drainTimeout);
                     case LAST_LOGS -> printLastLogs(logger, logParser, command);
+                    case POOL_STATS -> System.out.print(passwordVaultServer.getBufferPoolStats());
+                    case ADMISSION_STATS -> System.out.print(passwordVaultServer.getAdmissionStats());
+                    case DISPATCH_STATS -> printDispatchCounts(passwordVaultServer);
+                    case STATS -> System.out.print(passwordVaultServer.getMetrics());
+                    case CREDENTIALS_STATS -> System.out.print(credentialsCache.getStats());
                     case UNKNOWN -> System.out.println("Unknown command");
                 }
             }
@@ -137,12 +211,25 @@ public class ServerMain {
     }
 
     private static void stopServer(ScheduledExecutorService loggerExecutorService,
-                                   PasswordVaultServer passwordVaultServer) {
-        passwordVaultServer.stop();
+                                   PasswordVaultServer passwordVaultServer, FileSyncer fileSyncer,
+                                   Duration drainTimeout) {
+        System.out.print(passwordVaultServer.drainAndStop(drainTimeout));
+        // closed after the drain, so the syncs of the requests completed by it are not cut short
+        if (fileSyncer != null) {
+            fileSyncer.close();
+        }
         loggerExecutorService.shutdown();
         System.out.println("Quitting the application.");
     }
 
+    private static void printDispatchCounts(PasswordVaultServer passwordVaultServer) {
+        passwordVaultServer.getDispatchCounts().forEach((type, count) -> {
+            if (count > 0) {
+                System.out.println(type + ": " + count);
+            }
+        });
+    }
+
     private static void printLastLogs(Logger logger, LogParser logParser, ServerCommand command) {
         try {
             logParser.getLogsTail(command.argument());
@@ -1,9 +1,11 @@
 package bg.sofia.uni.fmi.mjt.password.vault.server;
 
 import bg.sofia.uni.fmi.mjt.password.vault.client.HashedPassword;
+import com.google.gson.annotations.JsonAdapter;
 
 import java.util.Objects;
 
+@JsonAdapter(ServerPasswordTypeAdapter.class)
 public class ServerPassword {
 
     private final HashedPassword hashedPassword;
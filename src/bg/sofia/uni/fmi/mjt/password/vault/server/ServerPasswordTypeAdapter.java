@@ -0,0 +1,66 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server;
+
+import bg.sofia.uni.fmi.mjt.password.vault.client.HashedPassword;
+import bg.sofia.uni.fmi.mjt.password.vault.client.HashedPasswordTypeAdapter;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+public class ServerPasswordTypeAdapter extends TypeAdapter<ServerPassword> {
+
+    private static final String HASHED_PASSWORD_FIELD = "hashedPassword";
+    private static final String ENCRYPTED_PASSWORD_FIELD = "encryptedPassword";
+
+    private final HashedPasswordTypeAdapter hashedPasswordAdapter = new HashedPasswordTypeAdapter();
+
+    @Override
+    public void write(JsonWriter writer, ServerPassword password) throws IOException {
+        if (password == null) {
+            writer.nullValue();
+            return;
+        }
+
+        writer.beginObject();
+        if (password.getHashedPassword() != null) {
+            writer.name(HASHED_PASSWORD_FIELD);
+            hashedPasswordAdapter.write(writer, password.getHashedPassword());
+        }
+        if (password.getAesEncryptedPassword() != null) {
+            writer.name(ENCRYPTED_PASSWORD_FIELD).value(password.getAesEncryptedPassword());
+        }
+        writer.endObject();
+    }
+
+    @Override
+    public ServerPassword read(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+
+        HashedPassword hashedPassword = null;
+        String encryptedPassword = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.skipValue();
+                continue;
+            }
+
+            switch (name) {
+                case HASHED_PASSWORD_FIELD -> hashedPassword = hashedPasswordAdapter.read(reader);
+                case ENCRYPTED_PASSWORD_FIELD -> encryptedPassword = reader.nextString();
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return new ServerPassword(hashedPassword, encryptedPassword);
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,248 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server;
+
+import bg.sofia.uni.fmi.mjt.password.vault.client.Password;
+import bg.sofia.uni.fmi.mjt.password.vault.client.encryptor.EncryptionData;
+import bg.sofia.uni.fmi.mjt.password.vault.server.metrics.ServerMetrics;
+import bg.sofia.uni.fmi.mjt.password.vault.server.metrics.TimedStage;
+import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.CredentialAlreadyExistsException;
+import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.ElementNotFoundException;
+import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.RepositoryException;
+import bg.sofia.uni.fmi.mjt.password.vault.server.user.exceptions.UserAuthenticationException;
+import bg.sofia.uni.fmi.mjt.password.vault.session.Session;
+
+import java.io.Writer;
+
+// Records how long the operations that write to the repositories take, including the wait for the vault lock.
+public class TimedPasswordVault implements PasswordVault {
+
+    private final PasswordVault passwordVault;
+    private final ServerMetrics metrics;
+
+    public TimedPasswordVault(PasswordVault passwordVault, ServerMetrics metrics) {
+        if (passwordVault == null || metrics == null) {
+            throw new IllegalArgumentException("PasswordVault and metrics should not be null.");
+        }
+
+        this.passwordVault = passwordVault;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void register(String username, Password password, Password passwordRepeated,
+                         EncryptionData encryptionData)
+            throws RepositoryException, UserAuthenticationException {
+        long startTime = System.nanoTime();
+        try {
+            passwordVault.register(username, password, passwordRepeated, encryptionData);
+        } finally {
+            metrics.recordStage(TimedStage.REPOSITORY_WRITE, System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void register(String username, Password password, Password passwordRepeated,
+                         EncryptionData encryptionData, Writer writer)
+            throws RepositoryException, UserAuthenticationException {
+        long startTime = System.nanoTime();
+        try {
+            passwordVault.register(username, password, passwordRepeated, encryptionData, writer);
+        } finally {
+            metrics.recordStage(TimedStage.REPOSITORY_WRITE, System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void deleteAccount(String username, Password password, Password passwordRepeated)
+            throws RepositoryException, UserAuthenticationException {
+        long startTime = System.nanoTime();
+        try {
+            passwordVault.deleteAccount(username, password, passwordRepeated);
+        } finally {
+            metrics.recordStage(TimedStage.REPOSITORY_WRITE, System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void deleteAccount(String username, Password password, Password passwordRepeated, Writer writer)
+            throws RepositoryException, UserAuthenticationException {
+        long startTime = System.nanoTime();
+        try {
+            passwordVault.deleteAccount(username, password, passwordRepeated, writer);
+        } finally {
+            metrics.recordStage(TimedStage.REPOSITORY_WRITE, System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public Session login(String username, Password password)
+            throws RepositoryException, UserAuthenticationException {
+        return passwordVault.login(username, password);
+    }
+
+    @Override
+    public void logout(String username) throws UserAuthenticationException {
+        passwordVault.logout(username);
+    }
+
+    @Override
+    public void changePassword(String username, Password oldPassword, Password newPassword,
+                               Password newPasswordRepeated)
+            throws RepositoryException, UserAuthenticationException {
+        long startTime = System.nanoTime();
+        try {
+            passwordVault.changePassword(username, oldPassword, newPassword, newPasswordRepeated);
+        } finally {
+            metrics.recordStage(TimedStage.REPOSITORY_WRITE, System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void changePassword(String username, Password oldPassword, Password newPassword,
+                               Password newPasswordRepeated, Writer writer)
+            throws RepositoryException, UserAuthenticationException {
+        long startTime = System.nanoTime();
+        try {
+            passwordVault.changePassword(username, oldPassword, newPassword, newPasswordRepeated, writer);
+        } finally {
+            metrics.recordStage(TimedStage.REPOSITORY_WRITE, System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public boolean isLoggedIn(String username) {
+        return passwordVault.isLoggedIn(username);
+    }
+
+    @Override
+    public EncryptionData getEncryptionData(String username) throws RepositoryException {
+        return passwordVault.getEncryptionData(username);
+    }
+
+    @Override
+    public void addCredentials(String username, String applicationName,
+                               String credentialsUsername, String credentialsPassword)
+            throws ElementNotFoundException, CredentialAlreadyExistsException {
+        long startTime = System.nanoTime();
+        try {
+            passwordVault.addCredentials(username, applicationName, credentialsUsername, credentialsPassword);
+        } finally {
+            metrics.recordStage(TimedStage.REPOSITORY_WRITE, System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void addCredentials(String username, String applicationName,
+                               String credentialsUsername, String credentialsPassword, Writer writer)
+            throws ElementNotFoundException, CredentialAlreadyExistsException {
+        long startTime = System.nanoTime();
+        try {
+            passwordVault.addCredentials(username, applicationName, credentialsUsername, credentialsPassword, writer);
+        } finally {
+            metrics.recordStage(TimedStage.REPOSITORY_WRITE, System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public String getCredentialsPassword(String username, String applicationName, String credentialsUsername)
+            throws ElementNotFoundException {
+        return passwordVault.getCredentialsPassword(username, applicationName, credentialsUsername);
+    }
+
+    @Override
+    public void updateCredentials(String username, String applicationName,
+                                  String credentialsUsername, String credentialsPassword)
+            throws ElementNotFoundException {
+        long startTime = System.nanoTime();
+        try {
+            passwordVault.updateCredentials(username, applicationName, credentialsUsername, credentialsPassword);
+        } finally {
+            metrics.recordStage(TimedStage.REPOSITORY_WRITE, System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void updateCredentials(String username, String applicationName, String credentialsUsername,
+                                  String credentialsPassword, Writer writer)
+            throws ElementNotFoundException {
+        long startTime = System.nanoTime();
+        try {
+            passwordVault.updateCredentials(username, applicationName, credentialsUsername, credentialsPassword, writer);
+        } finally {
+            metrics.recordStage(TimedStage.REPOSITORY_WRITE, System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void removeCredentials(String username, String applicationName, String credentialsUsername)
+            throws ElementNotFoundException {
+        long startTime = System.nanoTime();
+        try {
+            passwordVault.removeCredentials(username, applicationName, credentialsUsername);
+        } finally {
+            metrics.recordStage(TimedStage.REPOSITORY_WRITE, System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void removeCredentials(String username, String applicationName, String credentialsUsername,
+                                  Writer writer)
+            throws ElementNotFoundException {
+        long startTime = System.nanoTime();
+        try {
+            passwordVault.removeCredentials(username, applicationName, credentialsUsername, writer);
+        } finally {
+            metrics.recordStage(TimedStage.REPOSITORY_WRITE, System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void flushCredentials(String username) throws ElementNotFoundException {
+        long startTime = System.nanoTime();
+        try {
+            passwordVault.flushCredentials(username);
+        } finally {
+            metrics.recordStage(TimedStage.REPOSITORY_WRITE, System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void flushCredentials(String username, Writer writer) throws ElementNotFoundException {
+        long startTime = System.nanoTime();
+        try {
+            passwordVault.flushCredentials(username, writer);
+        } finally {
+            metrics.recordStage(TimedStage.REPOSITORY_WRITE, System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void sync() {
+        passwordVault.sync();
+    }
+
+    @Override
+    public void compactUsers(int deadRecordsThreshold) {
+        passwordVault.compactUsers(deadRecordsThreshold);
+    }
+
+    @Override
+    public void compactCredentials(int deadRecordsThreshold) {
+        passwordVault.compactCredentials(deadRecordsThreshold);
+    }
+
+    @Override
+    public void reload() {
+        passwordVault.reload();
+    }
+
+    @Override
+    public void reloadCredentials(String username) {
+        passwordVault.reloadCredentials(username);
+    }
+
+    @Override
+    public void runExclusively(Runnable action) {
+        passwordVault.runExclusively(action);
+    }
+
+}
\ No newline at end of file
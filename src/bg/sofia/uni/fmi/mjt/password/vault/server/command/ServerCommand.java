@@ -32,6 +32,11 @@ public record ServerCommand(ServerCommandType type, int argument) {
                 case "help" -> ServerCommandType.HELP;
                 case "stop" -> ServerCommandType.STOP;
                 case "last-logs" -> ServerCommandType.LAST_LOGS;
+                case "pool-stats" -> ServerCommandType.POOL_STATS;
+                case "admission-stats" -> ServerCommandType.ADMISSION_STATS;
+                case "dispatch-stats" -> ServerCommandType.DISPATCH_STATS;
+                case "stats" -> ServerCommandType.STATS;
+                case "credentials-stats" -> ServerCommandType.CREDENTIALS_STATS;
                 default -> ServerCommandType.UNKNOWN;
             };
 
@@ -5,6 +5,11 @@ public enum ServerCommandType {
     HELP(0, "help"),
     STOP(0, "stop"),
     LAST_LOGS(1, "last-logs <count>"),
+    POOL_STATS(0, "pool-stats"),
+    ADMISSION_STATS(0, "admission-stats"),
+    DISPATCH_STATS(0, "dispatch-stats"),
+    STATS(0, "stats"),
+    CREDENTIALS_STATS(0, "credentials-stats"),
     UNKNOWN(0, "");
 
     public final int argumentsCount;
@@ -4,6 +4,7 @@ import bg.sofia.uni.fmi.mjt.password.vault.client.HashedPassword;
 import bg.sofia.uni.fmi.mjt.password.vault.server.compromised.dto.CompromisedPassword;
 import bg.sofia.uni.fmi.mjt.password.vault.server.compromised.dto.CompromisedPasswordCandidates;
 import bg.sofia.uni.fmi.mjt.password.vault.server.compromised.exceptions.CompromisedPasswordsClientException;
+import bg.sofia.uni.fmi.mjt.password.vault.server.jfr.BreachCheckEvent;
 import com.google.gson.Gson;
 
 import java.net.URI;
@@ -46,8 +47,20 @@ public class DefaultCompromisedPasswordsClient implements CompromisedPasswordsCl
             throw new IllegalArgumentException("Password argument cannot be null.");
         }
 
-        Collection<CompromisedPassword> candidates = getCompromisedPasswordCandidates(password);
+        BreachCheckEvent event = new BreachCheckEvent();
+        event.begin();
+        try {
+            Collection<CompromisedPassword> candidates = getCompromisedPasswordCandidates(password, event);
+            event.candidatesCount = candidates.size();
+            event.isCompromised = containsPassword(candidates, password);
+
+            return event.isCompromised;
+        } finally {
+            event.commit();
+        }
+    }
 
+    private boolean containsPassword(Collection<CompromisedPassword> candidates, HashedPassword password) {
         for (CompromisedPassword candidate : candidates) {
             if ((candidate.getMd5() != null && candidate.getMd5().equals(password.getMd5())) ||
                     (candidate.getSha1() != null && candidate.getSha1().equals(password.getSha1())) ||
@@ -59,11 +72,15 @@ public class DefaultCompromisedPasswordsClient implements CompromisedPasswordsCl
         return false;
     }
 
-    private Collection<CompromisedPassword> getCompromisedPasswordCandidates(HashedPassword password)
+    private Collection<CompromisedPassword> getCompromisedPasswordCandidates(HashedPassword password,
+                                                                             BreachCheckEvent event)
             throws CompromisedPasswordsClientException {
         try {
             return sendApiRequest(password)
-                    .thenApply(response -> parseResponse(response))
+                    .thenApply(response -> {
+                        event.statusCode = response.statusCode();
+                        return parseResponse(response);
+                    })
                     .get();
         } catch (InterruptedException e) {
             throw new CompromisedPasswordsClientException("Sending request was interrupted.", e);
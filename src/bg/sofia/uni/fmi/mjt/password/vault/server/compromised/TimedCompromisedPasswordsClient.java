@@ -0,0 +1,37 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.compromised;
+
+import bg.sofia.uni.fmi.mjt.password.vault.client.HashedPassword;
+import bg.sofia.uni.fmi.mjt.password.vault.server.compromised.exceptions.CompromisedPasswordsClientException;
+import bg.sofia.uni.fmi.mjt.password.vault.server.metrics.ServerMetrics;
+import bg.sofia.uni.fmi.mjt.password.vault.server.metrics.TimedStage;
+
+public class TimedCompromisedPasswordsClient implements CompromisedPasswordsClient {
+
+    private final CompromisedPasswordsClient compromisedPasswordsClient;
+    private final ServerMetrics metrics;
+
+    public TimedCompromisedPasswordsClient(CompromisedPasswordsClient compromisedPasswordsClient,
+                                           ServerMetrics metrics) {
+        if (compromisedPasswordsClient == null || metrics == null) {
+            throw new IllegalArgumentException("CompromisedPasswordsClient and metrics should not be null.");
+        }
+
+        this.compromisedPasswordsClient = compromisedPasswordsClient;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public boolean isCompromised(HashedPassword password)
+            throws CompromisedPasswordsClientException {
+        long startTime = System.nanoTime();
+        try {
+            return compromisedPasswordsClient.isCompromised(password);
+        } catch (CompromisedPasswordsClientException | RuntimeException e) {
+            metrics.recordBreachCheckError();
+            throw e;
+        } finally {
+            metrics.recordStage(TimedStage.BREACH_CHECK, System.nanoTime() - startTime);
+        }
+    }
+
+}
\ No newline at end of file
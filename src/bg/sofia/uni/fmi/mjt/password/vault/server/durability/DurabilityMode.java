@@ -0,0 +1,13 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.durability;
+
+public enum DurabilityMode {
+
+    // The appended files are left to the operating system, a power failure may lose acknowledged changes. The
+    // rewritten files are still forced when their rewrite is committed, so a crash keeps the old or the new file.
+    NONE,
+    // the files written by concurrent requests are forced together by a single flusher thread
+    BATCHED,
+    // every request forces the files it has written by itself
+    PER_WRITE
+
+}
\ No newline at end of file
@@ -0,0 +1,15 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.durability;
+
+import java.nio.file.Path;
+
+public interface FileSyncer extends AutoCloseable {
+
+    // returns once the contents of the file are on the disk, a file that does not exist is skipped
+    void sync(Path filePath);
+
+    // stops the threads of the syncer, the one that syncs on the calling thread has nothing to stop
+    @Override
+    default void close() {
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,170 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.durability;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// The requesting threads enqueue the files they have written and wait. A single flusher thread takes a batch of
+// requests, forces every file of the batch once and releases the whole batch, so concurrent writers share the
+// fsyncs. A batch is closed once it has maxBatchSize requests or interval has passed since its first request.
+public class GroupCommitFileSyncer implements FileSyncer {
+
+    private static final String THREAD_NAME = "group-commit-flusher";
+    private static final long CLOSE_CHECK_MILLIS = 100;
+
+    private final BlockingQueue<SyncRequest> requests;
+    private final long intervalNanos;
+    private final int maxBatchSize;
+    private final Thread flusherThread;
+    private final Object closeLock;
+    private final LongAdder batchesCount;
+    private final LongAdder requestsCount;
+    private volatile boolean isClosed;
+
+    private record SyncRequest(Path filePath, CompletableFuture<Void> isDurable) {
+    }
+
+    public GroupCommitFileSyncer(long intervalMillis, int maxBatchSize) {
+        if (intervalMillis < 0) {
+            throw new IllegalArgumentException("Interval should not be negative.");
+        }
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Max batch size should have a positive value.");
+        }
+
+        this.requests = new LinkedBlockingQueue<>();
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        this.maxBatchSize = maxBatchSize;
+        this.closeLock = new Object();
+        this.batchesCount = new LongAdder();
+        this.requestsCount = new LongAdder();
+        this.flusherThread = new Thread(this::flushBatches, THREAD_NAME);
+        flusherThread.setDaemon(true);
+        flusherThread.start();
+    }
+
+    @Override
+    public void sync(Path filePath) {
+        if (filePath == null) {
+            throw new IllegalArgumentException("File path should not be null.");
+        }
+
+        SyncRequest request = new SyncRequest(filePath, new CompletableFuture<>());
+        synchronized (closeLock) {
+            if (isClosed) {
+                // the flusher thread may have already stopped
+                new PerWriteFileSyncer().sync(filePath);
+                return;
+            }
+            requests.add(request);
+        }
+
+        try {
+            request.isDurable().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException uncheckedIOException) {
+                throw uncheckedIOException;
+            }
+            throw e;
+        }
+    }
+
+    public long getBatchesCount() {
+        return batchesCount.sum();
+    }
+
+    public long getRequestsCount() {
+        return requestsCount.sum();
+    }
+
+    // the requests enqueued before closing are still forced
+    @Override
+    public void close() {
+        synchronized (closeLock) {
+            isClosed = true;
+        }
+
+        try {
+            flusherThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void flushBatches() {
+        List<SyncRequest> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (!isClosed || !requests.isEmpty()) {
+                SyncRequest firstRequest = requests.poll(CLOSE_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+                if (firstRequest == null) {
+                    continue;
+                }
+
+                batch.add(firstRequest);
+                collectBatch(batch);
+                forceBatch(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void collectBatch(List<SyncRequest> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + intervalNanos;
+        while (batch.size() < maxBatchSize) {
+            long remainingNanos = deadline - System.nanoTime();
+            SyncRequest request = remainingNanos > 0 ?
+                    requests.poll(remainingNanos, TimeUnit.NANOSECONDS) : requests.poll();
+            if (request == null) {
+                return;
+            }
+
+            batch.add(request);
+        }
+    }
+
+    private void forceBatch(List<SyncRequest> batch) {
+        Set<Path> filePaths = new LinkedHashSet<>();
+        for (SyncRequest request : batch) {
+            filePaths.add(request.filePath());
+        }
+
+        Map<Path, IOException> failures = new HashMap<>();
+        Set<Path> directoryPaths = new LinkedHashSet<>();
+        for (Path filePath : filePaths) {
+            try {
+                PerWriteFileSyncer.force(filePath);
+                directoryPaths.add(filePath.toAbsolutePath().getParent());
+            } catch (IOException e) {
+                failures.put(filePath, e);
+            }
+        }
+        directoryPaths.forEach(PerWriteFileSyncer::forceDirectory);
+
+        batchesCount.increment();
+        requestsCount.add(batch.size());
+        for (SyncRequest request : batch) {
+            IOException failure = failures.get(request.filePath());
+            if (failure == null) {
+                request.isDurable().complete(null);
+            } else {
+                request.isDurable().completeExceptionally(
+                        new UncheckedIOException("Cannot sync file " + request.filePath() + ".", failure));
+            }
+        }
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,50 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.durability;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class PerWriteFileSyncer implements FileSyncer {
+
+    @Override
+    public void sync(Path filePath) {
+        if (filePath == null) {
+            throw new IllegalArgumentException("File path should not be null.");
+        }
+
+        try {
+            force(filePath);
+            forceDirectory(filePath.toAbsolutePath().getParent());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot sync file " + filePath + ".", e);
+        }
+    }
+
+    static void force(Path filePath) throws IOException {
+        if (Files.notExists(filePath)) {
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+
+    // The directory keeps the name of a file that replaced another one with a rename. Directories cannot be
+    // opened on every platform, so forcing them is skipped where it fails.
+    static void forceDirectory(Path directoryPath) {
+        if (directoryPath == null) {
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(directoryPath, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // the file itself has been forced
+        }
+    }
+
+}
\ No newline at end of file
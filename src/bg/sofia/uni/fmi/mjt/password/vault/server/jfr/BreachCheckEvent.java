@@ -0,0 +1,26 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("bg.sofia.uni.fmi.mjt.password.vault.BreachCheck")
+@Label("Breach Check")
+@Category({"Password Vault", "Compromised Passwords"})
+@Description("A call to the compromised passwords API.")
+public class BreachCheckEvent extends Event {
+
+    @Label("Status Code")
+    @Description("Zero when no response has been received.")
+    public int statusCode;
+
+    @Label("Candidates")
+    @Description("Compromised passwords whose partial hashes match the checked password.")
+    public int candidatesCount;
+
+    @Label("Compromised")
+    public boolean isCompromised;
+
+}
\ No newline at end of file
@@ -0,0 +1,41 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.nio.charset.StandardCharsets;
+
+@Name("bg.sofia.uni.fmi.mjt.password.vault.RepositoryWrite")
+@Label("Repository Write")
+@Category({"Password Vault", "Repositories"})
+@Description("A repository has appended an entry to its file or has rewritten the whole file.")
+public class RepositoryWriteEvent extends Event {
+
+    @Label("Repository")
+    public String repository;
+
+    @Label("Path")
+    @Description("Empty when the repository has not been read from a file.")
+    public String path;
+
+    @Label("Rewrite")
+    @Description("Whether all entries have been written instead of appending a single one.")
+    public boolean isRewrite;
+
+    @Label("Entries")
+    public int entriesCount;
+
+    @Label("Written")
+    @DataAmount
+    public long writtenBytes;
+
+    // the repositories write each entry as a line of text
+    public static long lineBytes(String line) {
+        return line.getBytes(StandardCharsets.UTF_8).length + System.lineSeparator().length();
+    }
+
+}
\ No newline at end of file
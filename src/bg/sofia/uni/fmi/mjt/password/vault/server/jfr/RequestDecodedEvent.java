@@ -0,0 +1,34 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Starts when the selector loop takes a frame of the request, so the event marks when the request was received.
+@Name("bg.sofia.uni.fmi.mjt.password.vault.RequestDecoded")
+@Label("Request Decoded")
+@Category({"Password Vault", "Requests"})
+@Description("A request frame has been received and decoded by a selector loop.")
+@StackTrace(false)
+public class RequestDecodedEvent extends Event {
+
+    @Label("Protocol")
+    public String protocol;
+
+    @Label("Frame Size")
+    @DataAmount
+    public long frameBytes;
+
+    @Label("Request Type")
+    @Description("Empty when the request cannot be decoded or its type is unknown.")
+    public String requestType;
+
+    @Label("Request Id")
+    @Description("-1 when the client has not sent an id.")
+    public long requestId;
+
+}
\ No newline at end of file
@@ -0,0 +1,29 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("bg.sofia.uni.fmi.mjt.password.vault.RequestHandled")
+@Label("Request Handled")
+@Category({"Password Vault", "Requests"})
+@Description("A handler thread has handled a request.")
+@StackTrace(false)
+public class RequestHandledEvent extends Event {
+
+    @Label("Request Type")
+    public String requestType;
+
+    @Label("Response Type")
+    public String responseType;
+
+    @Label("Queue Time")
+    @Description("Time from decoding the request until a handler thread has taken it.")
+    @Timespan(Timespan.NANOSECONDS)
+    public long queueTime;
+
+}
\ No newline at end of file
@@ -0,0 +1,27 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("bg.sofia.uni.fmi.mjt.password.vault.ResponseWritten")
+@Label("Response Written")
+@Category({"Password Vault", "Requests"})
+@Description("Encoded responses have been written to the socket of a connection.")
+@StackTrace(false)
+public class ResponseWrittenEvent extends Event {
+
+    @Label("Written")
+    @DataAmount
+    public long writtenBytes;
+
+    @Label("Remaining")
+    @Description("Bytes left for the next write because the socket send buffer is full.")
+    @DataAmount
+    public long remainingBytes;
+
+}
\ No newline at end of file
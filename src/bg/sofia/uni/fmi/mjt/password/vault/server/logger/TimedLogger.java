@@ -0,0 +1,39 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.logger;
+
+import bg.sofia.uni.fmi.mjt.password.vault.server.metrics.ServerMetrics;
+import bg.sofia.uni.fmi.mjt.password.vault.server.metrics.TimedStage;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+// The logger writes on the calling thread, so the time spent in it is the delay it adds to the caller.
+public class TimedLogger implements Logger {
+
+    private final Logger logger;
+    private final ServerMetrics metrics;
+
+    public TimedLogger(Logger logger, ServerMetrics metrics) {
+        if (logger == null || metrics == null) {
+            throw new IllegalArgumentException("Logger and metrics should not be null.");
+        }
+
+        this.logger = logger;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void log(Level level, LocalDateTime timestamp, String message) {
+        long startTime = System.nanoTime();
+        try {
+            logger.log(level, timestamp, message);
+        } finally {
+            metrics.recordStage(TimedStage.LOG_WRITE, System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public Path getCurrentFilePath() {
+        return logger.getCurrentFilePath();
+    }
+
+}
\ No newline at end of file
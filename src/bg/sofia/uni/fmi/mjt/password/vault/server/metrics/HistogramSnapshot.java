@@ -0,0 +1,42 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.metrics;
+
+public record HistogramSnapshot(long[] bucketCounts, long sum, long max) {
+
+    public long count() {
+        long count = 0;
+        for (long bucketCount : bucketCounts) {
+            count += bucketCount;
+        }
+
+        return count;
+    }
+
+    public double mean() {
+        long count = count();
+        return count == 0 ? 0.0 : (double) sum / count;
+    }
+
+    // the percentile should be between 0 and 100, returns 0 when nothing is recorded
+    public long valueAtPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile should be between 0 and 100.");
+        }
+
+        long count = count();
+        if (count == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < bucketCounts.length; i++) {
+            seen += bucketCounts[i];
+            if (seen >= rank) {
+                return Math.min(LatencyHistogram.bucketUpperBound(i), max);
+            }
+        }
+
+        return max;
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,63 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Every power of two is split into eight buckets, so a recorded value is reported with an error below 12.5%
+// while the whole long range fits in a few hundred buckets. Recording never takes a lock.
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS_COUNT = 1 << SUB_BUCKET_BITS;
+    static final int BUCKETS_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS_COUNT;
+
+    private final AtomicLongArray buckets;
+    private final LongAdder sum;
+    private final LongAccumulator max;
+
+    public LatencyHistogram() {
+        this.buckets = new AtomicLongArray(BUCKETS_COUNT);
+        this.sum = new LongAdder();
+        this.max = new LongAccumulator(Math::max, 0);
+    }
+
+    // negative values, which may come from a clock going back, are recorded as zero
+    public void record(long value) {
+        long recordedValue = Math.max(value, 0);
+        buckets.incrementAndGet(bucketIndex(recordedValue));
+        sum.add(recordedValue);
+        max.accumulate(recordedValue);
+    }
+
+    public HistogramSnapshot snapshot() {
+        long[] bucketCounts = new long[BUCKETS_COUNT];
+        for (int i = 0; i < BUCKETS_COUNT; i++) {
+            bucketCounts[i] = buckets.get(i);
+        }
+
+        return new HistogramSnapshot(bucketCounts, sum.sum(), max.get());
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS_COUNT) {
+            return (int) value;
+        }
+
+        int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKETS_COUNT - 1);
+        return (shift + 1) * SUB_BUCKETS_COUNT + subBucket;
+    }
+
+    // the largest value that falls in the bucket
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS_COUNT) {
+            return index;
+        }
+
+        int shift = index / SUB_BUCKETS_COUNT - 1;
+        long subBucket = index % SUB_BUCKETS_COUNT;
+        return ((SUB_BUCKETS_COUNT + subBucket + 1) << shift) - 1;
+    }
+
+}
\ No newline at end of file
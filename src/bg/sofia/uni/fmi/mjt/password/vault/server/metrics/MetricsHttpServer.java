@@ -0,0 +1,81 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.metrics;
+
+import bg.sofia.uni.fmi.mjt.password.vault.server.logger.Level;
+import bg.sofia.uni.fmi.mjt.password.vault.server.logger.Logger;
+import bg.sofia.uni.fmi.mjt.password.vault.server.nio.PasswordVaultServer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+// Serves the metrics on GET /metrics from a single thread of its own, apart from the selector loops.
+public class MetricsHttpServer {
+
+    private static final String METRICS_PATH = "/metrics";
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final int STATUS_OK = 200;
+    private static final int STATUS_METHOD_NOT_ALLOWED = 405;
+    private static final int NO_RESPONSE_BODY = -1;
+
+    private final String host;
+    private final int port;
+    private final PrometheusMetricsWriter metricsWriter;
+    private final Logger logger;
+
+    private HttpServer httpServer;
+
+    public MetricsHttpServer(String host, int port, PasswordVaultServer passwordVaultServer, Logger logger) {
+        if (host == null || passwordVaultServer == null || logger == null) {
+            throw new IllegalArgumentException("All arguments should have non-null values.");
+        }
+
+        this.host = host;
+        this.port = port;
+        this.metricsWriter = new PrometheusMetricsWriter(passwordVaultServer);
+        this.logger = logger;
+    }
+
+    public void start() {
+        try {
+            httpServer = HttpServer.create(new InetSocketAddress(host, port), 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot start the metrics endpoint on port " + port + ".", e);
+        }
+        httpServer.createContext(METRICS_PATH, this::handleScrape);
+        httpServer.start();
+
+        String logMessage = "The metrics endpoint has been started on port " + port + ".";
+        logger.log(Level.INFO, LocalDateTime.now(), logMessage);
+        System.out.println(logMessage);
+    }
+
+    public void stop() {
+        if (httpServer != null) {
+            httpServer.stop(0);
+        }
+    }
+
+    private void handleScrape(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(STATUS_METHOD_NOT_ALLOWED, NO_RESPONSE_BODY);
+                return;
+            }
+
+            byte[] body = metricsWriter.write().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(STATUS_OK, body.length);
+            try (OutputStream responseBody = exchange.getResponseBody()) {
+                responseBody.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,53 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.metrics;
+
+import bg.sofia.uni.fmi.mjt.password.vault.request.RequestType;
+import bg.sofia.uni.fmi.mjt.password.vault.response.ResponseType;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public record MetricsSnapshot(long uptimeNanos, Map<RequestType, HistogramSnapshot> requests,
+                              Map<ResponseType, HistogramSnapshot> responses,
+                              Map<TimedStage, HistogramSnapshot> stages, long breachCheckErrors) {
+
+    private static final String ROW_FORMAT = "  %-38s %10s %10s %10s %10s %10s %10s%n";
+    private static final double NANOS_PER_MICRO = 1000.0;
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("uptime: %d s, latencies in microseconds%n",
+                TimeUnit.NANOSECONDS.toSeconds(uptimeNanos)));
+        builder.append(String.format(ROW_FORMAT, "", "count", "rate/s", "p50", "p99", "p999", "max"));
+
+        builder.append(String.format("stages:%n"));
+        stages.forEach((stage, histogram) -> appendRow(builder, stage.displayName, histogram));
+        builder.append(String.format("breach check errors: %d%n", breachCheckErrors));
+        builder.append(String.format("requests:%n"));
+        requests.forEach((type, histogram) -> appendRow(builder, type.toString(), histogram));
+        builder.append(String.format("responses:%n"));
+        responses.forEach((type, histogram) -> appendRow(builder, type.toString(), histogram));
+
+        return builder.toString();
+    }
+
+    private void appendRow(StringBuilder builder, String name, HistogramSnapshot histogram) {
+        long count = histogram.count();
+        if (count == 0) {
+            return;
+        }
+
+        double uptimeSeconds = Math.max(uptimeNanos, 1) / (double) TimeUnit.SECONDS.toNanos(1);
+        builder.append(String.format(ROW_FORMAT, name, count,
+                String.format("%.1f", count / uptimeSeconds),
+                toMicros(histogram.valueAtPercentile(50)),
+                toMicros(histogram.valueAtPercentile(99)),
+                toMicros(histogram.valueAtPercentile(99.9)),
+                toMicros(histogram.max())));
+    }
+
+    private static String toMicros(long nanos) {
+        return String.format("%.1f", nanos / NANOS_PER_MICRO);
+    }
+
+}
\ No newline at end of file
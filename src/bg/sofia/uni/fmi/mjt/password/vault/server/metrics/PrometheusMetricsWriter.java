@@ -0,0 +1,172 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.metrics;
+
+import bg.sofia.uni.fmi.mjt.password.vault.server.nio.PasswordVaultServer;
+import bg.sofia.uni.fmi.mjt.password.vault.server.nio.admission.AdmissionStats;
+import bg.sofia.uni.fmi.mjt.password.vault.server.nio.buffer.ByteBufferPoolStats;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryUsage;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Writes the metrics of the server and the JVM in the Prometheus text exposition format. The latencies are
+// cumulative since the start of the server, so they are exposed as summaries with a few fixed quantiles.
+public class PrometheusMetricsWriter {
+
+    private static final String PREFIX = "password_vault_";
+    private static final double[] QUANTILES = {0.5, 0.99, 0.999};
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final double MILLIS_PER_SECOND = TimeUnit.SECONDS.toMillis(1);
+
+    private final PasswordVaultServer passwordVaultServer;
+
+    public PrometheusMetricsWriter(PasswordVaultServer passwordVaultServer) {
+        if (passwordVaultServer == null) {
+            throw new IllegalArgumentException("PasswordVaultServer should not be null.");
+        }
+
+        this.passwordVaultServer = passwordVaultServer;
+    }
+
+    public String write() {
+        StringBuilder builder = new StringBuilder();
+        writeAdmissionStats(builder, passwordVaultServer.getAdmissionStats());
+        writeServerMetrics(builder, passwordVaultServer.getMetrics());
+        writeDispatchCounts(builder, passwordVaultServer.getDispatchCounts());
+        writeBufferPoolStats(builder, passwordVaultServer.getBufferPoolStats());
+        writeJvmMetrics(builder);
+
+        return builder.toString();
+    }
+
+    private void writeAdmissionStats(StringBuilder builder, AdmissionStats stats) {
+        writeHeader(builder, PREFIX + "open_connections", "Connections that are currently open.", "gauge");
+        writeSample(builder, PREFIX + "open_connections", "", stats.openConnections());
+        writeHeader(builder, PREFIX + "max_connections", "Connections that may be open at the same time.",
+                "gauge");
+        writeSample(builder, PREFIX + "max_connections", "", stats.maxConnections());
+        writeHeader(builder, PREFIX + "rejected_connections_total",
+                "Connections closed because the server was at its connections limit.", "counter");
+        writeSample(builder, PREFIX + "rejected_connections_total", "", stats.rejectedConnections());
+
+        writeHeader(builder, PREFIX + "pending_requests", "Requests that are queued or being handled.", "gauge");
+        writeSample(builder, PREFIX + "pending_requests", "", stats.pendingRequests());
+        writeHeader(builder, PREFIX + "completed_requests_total", "Requests that have been handled.", "counter");
+        writeSample(builder, PREFIX + "completed_requests_total", "", stats.completedRequests());
+        writeHeader(builder, PREFIX + "rejected_requests_total",
+                "Requests rejected with SERVER_BUSY.", "counter");
+        writeSample(builder, PREFIX + "rejected_requests_total", "", stats.rejectedRequests());
+    }
+
+    private void writeServerMetrics(StringBuilder builder, MetricsSnapshot snapshot) {
+        String requestsName = PREFIX + "request_duration_seconds";
+        writeHeader(builder, requestsName, "Time from decoding a request to enqueueing its response.", "summary");
+        snapshot.requests().forEach((type, histogram) -> writeSummary(builder, requestsName,
+                "type=\"" + type + "\"", histogram));
+
+        String responsesName = PREFIX + "response_duration_seconds";
+        writeHeader(builder, responsesName, "Request duration by the type of the response.", "summary");
+        snapshot.responses().forEach((type, histogram) -> writeSummary(builder, responsesName,
+                "type=\"" + type + "\"", histogram));
+
+        String stagesName = PREFIX + "stage_duration_seconds";
+        writeHeader(builder, stagesName, "Time spent in each stage of handling requests. " +
+                "Repository writes include flushing the credentials files.", "summary");
+        snapshot.stages().forEach((stage, histogram) -> writeSummary(builder, stagesName,
+                "stage=\"" + stage.toString().toLowerCase() + "\"", histogram));
+
+        writeHeader(builder, PREFIX + "breach_check_errors_total",
+                "Calls to the compromised passwords API that have failed.", "counter");
+        writeSample(builder, PREFIX + "breach_check_errors_total", "", snapshot.breachCheckErrors());
+
+        writeHeader(builder, PREFIX + "uptime_seconds", "Time since the server has been created.", "gauge");
+        writeSample(builder, PREFIX + "uptime_seconds", "", snapshot.uptimeNanos() / NANOS_PER_SECOND);
+    }
+
+    private void writeDispatchCounts(StringBuilder builder, Map<?, Long> dispatchCounts) {
+        String name = PREFIX + "dispatched_requests_total";
+        writeHeader(builder, name, "Requests dispatched to the handler of their type.", "counter");
+        dispatchCounts.forEach((type, count) -> writeSample(builder, name, "type=\"" + type + "\"", count));
+    }
+
+    private void writeBufferPoolStats(StringBuilder builder, ByteBufferPoolStats stats) {
+        writeHeader(builder, PREFIX + "buffer_pool_hits_total", "Buffers taken from the pool.", "counter");
+        writeSample(builder, PREFIX + "buffer_pool_hits_total", "", stats.hits());
+        writeHeader(builder, PREFIX + "buffer_pool_misses_total", "Buffers allocated by the pool.", "counter");
+        writeSample(builder, PREFIX + "buffer_pool_misses_total", "", stats.misses());
+        writeHeader(builder, PREFIX + "buffer_pool_borrowed_buffers", "Buffers that are in use.", "gauge");
+        writeSample(builder, PREFIX + "buffer_pool_borrowed_buffers", "", stats.borrowedBuffers());
+        writeHeader(builder, PREFIX + "buffer_pool_pooled_bytes", "Bytes kept in the pool.", "gauge");
+        writeSample(builder, PREFIX + "buffer_pool_pooled_bytes", "", stats.pooledBytes());
+    }
+
+    private void writeJvmMetrics(StringBuilder builder) {
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        MemoryUsage nonHeap = ManagementFactory.getMemoryMXBean().getNonHeapMemoryUsage();
+        writeHeader(builder, "jvm_memory_bytes_used", "Used bytes of a memory area.", "gauge");
+        writeSample(builder, "jvm_memory_bytes_used", "area=\"heap\"", heap.getUsed());
+        writeSample(builder, "jvm_memory_bytes_used", "area=\"nonheap\"", nonHeap.getUsed());
+        writeHeader(builder, "jvm_memory_bytes_committed", "Committed bytes of a memory area.", "gauge");
+        writeSample(builder, "jvm_memory_bytes_committed", "area=\"heap\"", heap.getCommitted());
+        writeSample(builder, "jvm_memory_bytes_committed", "area=\"nonheap\"", nonHeap.getCommitted());
+        writeHeader(builder, "jvm_memory_bytes_max", "Max bytes of a memory area, -1 when undefined.", "gauge");
+        writeSample(builder, "jvm_memory_bytes_max", "area=\"heap\"", heap.getMax());
+        writeSample(builder, "jvm_memory_bytes_max", "area=\"nonheap\"", nonHeap.getMax());
+
+        writeHeader(builder, "jvm_memory_pool_bytes_used", "Used bytes of a memory pool.", "gauge");
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            writeSample(builder, "jvm_memory_pool_bytes_used", "pool=\"" + escapeLabelValue(pool.getName()) + "\"",
+                    pool.getUsage().getUsed());
+        }
+
+        writeHeader(builder, "jvm_gc_collection_seconds", "Time spent in a garbage collector.", "summary");
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            String labels = "gc=\"" + escapeLabelValue(collector.getName()) + "\"";
+            writeSample(builder, "jvm_gc_collection_seconds_count", labels, collector.getCollectionCount());
+            writeSample(builder, "jvm_gc_collection_seconds_sum", labels,
+                    collector.getCollectionTime() / MILLIS_PER_SECOND);
+        }
+
+        writeHeader(builder, "jvm_threads_current", "Live threads of the JVM.", "gauge");
+        writeSample(builder, "jvm_threads_current", "", ManagementFactory.getThreadMXBean().getThreadCount());
+    }
+
+    private void writeSummary(StringBuilder builder, String name, String labels, HistogramSnapshot histogram) {
+        for (double quantile : QUANTILES) {
+            writeSample(builder, name, labels + ",quantile=\"" + quantile + "\"",
+                    histogram.valueAtPercentile(quantile * 100) / NANOS_PER_SECOND);
+        }
+        writeSample(builder, name + "_sum", labels, histogram.sum() / NANOS_PER_SECOND);
+        writeSample(builder, name + "_count", labels, histogram.count());
+    }
+
+    private void writeHeader(StringBuilder builder, String name, String help, String type) {
+        builder.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        builder.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private void writeSample(StringBuilder builder, String name, String labels, long value) {
+        writeSampleName(builder, name, labels);
+        builder.append(value).append('\n');
+    }
+
+    private void writeSample(StringBuilder builder, String name, String labels, double value) {
+        writeSampleName(builder, name, labels);
+        builder.append(value).append('\n');
+    }
+
+    private void writeSampleName(StringBuilder builder, String name, String labels) {
+        builder.append(name);
+        if (!labels.isEmpty()) {
+            builder.append('{').append(labels).append('}');
+        }
+        builder.append(' ');
+    }
+
+    private static String escapeLabelValue(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,73 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.metrics;
+
+import bg.sofia.uni.fmi.mjt.password.vault.request.RequestType;
+import bg.sofia.uni.fmi.mjt.password.vault.response.ResponseType;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// All histograms are created up front and indexed by ordinal, so recording is a few atomic additions and
+// the registry can be shared by the selector loops and the handler threads without locking.
+public class ServerMetrics {
+
+    private final long startTime;
+    private final LatencyHistogram[] requestLatencies;
+    private final LatencyHistogram[] responseLatencies;
+    private final LatencyHistogram[] stageLatencies;
+    private final LongAdder breachCheckErrors;
+
+    public ServerMetrics() {
+        this.startTime = System.nanoTime();
+        this.requestLatencies = newHistograms(RequestType.values().length);
+        this.responseLatencies = newHistograms(ResponseType.values().length);
+        this.stageLatencies = newHistograms(TimedStage.values().length);
+        this.breachCheckErrors = new LongAdder();
+    }
+
+    // the request type is null when the request cannot be decoded
+    public void recordRequest(RequestType requestType, ResponseType responseType, long latencyNanos) {
+        if (requestType != null) {
+            requestLatencies[requestType.ordinal()].record(latencyNanos);
+        }
+        if (responseType != null) {
+            responseLatencies[responseType.ordinal()].record(latencyNanos);
+        }
+    }
+
+    public void recordStage(TimedStage stage, long latencyNanos) {
+        stageLatencies[stage.ordinal()].record(latencyNanos);
+    }
+
+    public void recordBreachCheckError() {
+        breachCheckErrors.increment();
+    }
+
+    public MetricsSnapshot snapshot() {
+        Map<RequestType, HistogramSnapshot> requests = new EnumMap<>(RequestType.class);
+        for (RequestType type : RequestType.values()) {
+            requests.put(type, requestLatencies[type.ordinal()].snapshot());
+        }
+        Map<ResponseType, HistogramSnapshot> responses = new EnumMap<>(ResponseType.class);
+        for (ResponseType type : ResponseType.values()) {
+            responses.put(type, responseLatencies[type.ordinal()].snapshot());
+        }
+        Map<TimedStage, HistogramSnapshot> stages = new EnumMap<>(TimedStage.class);
+        for (TimedStage stage : TimedStage.values()) {
+            stages.put(stage, stageLatencies[stage.ordinal()].snapshot());
+        }
+
+        return new MetricsSnapshot(System.nanoTime() - startTime, requests, responses, stages,
+                breachCheckErrors.sum());
+    }
+
+    private static LatencyHistogram[] newHistograms(int count) {
+        LatencyHistogram[] histograms = new LatencyHistogram[count];
+        for (int i = 0; i < count; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+
+        return histograms;
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,18 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.metrics;
+
+public enum TimedStage {
+
+    DECODE("decode"),
+    HANDLER("handler"),
+    REPOSITORY_WRITE("repository write"),
+    BREACH_CHECK("breach check"),
+    ENCODE("encode"),
+    LOG_WRITE("log write");
+
+    public final String displayName;
+
+    TimedStage(String displayName) {
+        this.displayName = displayName;
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,11 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.nio;
+
+public record DrainStats(long completedRequests, long abandonedRequests, long drainMillis) {
+
+    @Override
+    public String toString() {
+        return String.format("completed requests: %d, abandoned requests: %d, drained in %d ms%n",
+                completedRequests, abandonedRequests, drainMillis);
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,113 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.nio;
+
+import bg.sofia.uni.fmi.mjt.password.vault.server.nio.buffer.ByteBufferPool;
+import bg.sofia.uni.fmi.mjt.password.vault.server.nio.exceptions.FrameTooLongException;
+
+import java.nio.ByteBuffer;
+
+public abstract class FrameDecoder {
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 1024;
+
+    private final ByteBufferPool pool;
+    private final int initialCapacity;
+    protected final int maxFrameLength;
+
+    //Write mode between calls, frames that are not consumed yet start at frameStart
+    protected ByteBuffer accumulator;
+    protected int frameStart;
+
+    protected FrameDecoder(ByteBufferPool pool, int maxFrameLength) {
+        this(pool, Math.min(DEFAULT_INITIAL_CAPACITY, maxFrameLength), maxFrameLength);
+    }
+
+    protected FrameDecoder(ByteBufferPool pool, int initialCapacity, int maxFrameLength) {
+        if (pool == null) {
+            throw new IllegalArgumentException("Pool should not be null.");
+        }
+        if (initialCapacity <= 0 || maxFrameLength <= 0) {
+            throw new IllegalArgumentException("Capacity and max frame length should have positive values.");
+        }
+
+        this.pool = pool;
+        this.initialCapacity = initialCapacity;
+        this.maxFrameLength = maxFrameLength;
+        this.frameStart = 0;
+    }
+
+    public void append(ByteBuffer source) {
+        if (source == null) {
+            throw new IllegalArgumentException("Source buffer should not be null.");
+        }
+
+        if (accumulator == null) {
+            accumulator = pool.acquire(Math.max(initialCapacity, source.remaining()));
+        }
+        discardConsumedFrames();
+        ensureCapacity(source.remaining());
+        accumulator.put(source);
+    }
+
+    // The returned buffer is a view of the decoder memory and is valid until the next call to the decoder.
+    public abstract ByteBuffer nextFrame() throws FrameTooLongException;
+
+    public int getBufferedBytes() {
+        return accumulator == null ? 0 : accumulator.position() - frameStart;
+    }
+
+    public void release() {
+        if (accumulator != null) {
+            pool.release(accumulator);
+            accumulator = null;
+        }
+        frameStart = 0;
+    }
+
+    protected ByteBuffer consumeFrame(int payloadStart, int payloadLimit, int nextFrameStart) {
+        ByteBuffer frame = accumulator.duplicate();
+        frame.position(payloadStart);
+        frame.limit(payloadLimit);
+        frameStart = nextFrameStart;
+
+        return frame.slice();
+    }
+
+    protected void releaseIfEmpty() {
+        if (frameStart == accumulator.position()) {
+            // idle connections do not keep pooled memory
+            release();
+        }
+    }
+
+    private void discardConsumedFrames() {
+        if (frameStart == 0) {
+            return;
+        }
+
+        //Read mode
+        accumulator.flip();
+        accumulator.position(frameStart);
+        //Write mode
+        accumulator.compact();
+        frameStart = 0;
+    }
+
+    private void ensureCapacity(int additionalBytes) {
+        if (accumulator.remaining() >= additionalBytes) {
+            return;
+        }
+
+        int requiredCapacity = accumulator.position() + additionalBytes;
+        int newCapacity = accumulator.capacity();
+        while (newCapacity < requiredCapacity) {
+            newCapacity *= 2;
+        }
+
+        ByteBuffer grownAccumulator = pool.acquire(newCapacity);
+        accumulator.flip();
+        grownAccumulator.put(accumulator);
+        pool.release(accumulator);
+        accumulator = grownAccumulator;
+    }
+
+}
\ No newline at end of file
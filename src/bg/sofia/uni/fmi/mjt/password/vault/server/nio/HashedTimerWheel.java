@@ -0,0 +1,174 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.nio;
+
+import java.util.function.Consumer;
+
+// Scheduling and cancelling are O(1) and every tick visits a single bucket, so the cost of a tick does not
+// depend on the number of scheduled timeouts. It is not thread-safe and is driven by its owning selector loop.
+public class HashedTimerWheel<T> {
+
+    private final long tickDuration;
+    private final long startTime;
+    private final Timeout<T>[] buckets;
+    private final int mask;
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public HashedTimerWheel(long tickDuration, int ticksPerWheel, long startTime) {
+        if (tickDuration <= 0 || ticksPerWheel <= 0 || Integer.bitCount(ticksPerWheel) != 1) {
+            throw new IllegalArgumentException(
+                    "Tick duration should be positive and ticks per wheel should be a power of two.");
+        }
+
+        this.tickDuration = tickDuration;
+        this.startTime = startTime;
+        this.buckets = (Timeout<T>[]) new Timeout[ticksPerWheel];
+        this.mask = ticksPerWheel - 1;
+        this.currentTick = 0;
+        this.size = 0;
+    }
+
+    public Timeout<T> newTimeout(T task) {
+        return new Timeout<>(task);
+    }
+
+    public void schedule(Timeout<T> timeout, long deadline) {
+        if (timeout == null) {
+            throw new IllegalArgumentException("Timeout should not be null.");
+        }
+
+        cancel(timeout);
+
+        // the deadline is rounded up to a tick, so timeouts never expire early
+        long deadlineTick = Math.max(ceilDiv(deadline - startTime, tickDuration), currentTick);
+        timeout.deadline = deadline;
+        timeout.remainingRounds = (deadlineTick - currentTick) / buckets.length;
+        addToBucket(timeout, (int) (deadlineTick & mask));
+        size++;
+    }
+
+    public void cancel(Timeout<T> timeout) {
+        if (timeout == null) {
+            throw new IllegalArgumentException("Timeout should not be null.");
+        }
+        if (timeout.bucket < 0) {
+            return;
+        }
+
+        removeFromBucket(timeout);
+        size--;
+    }
+
+    // passes the expired timeouts to the consumer, which may schedule them again
+    public void advance(long now, Consumer<Timeout<T>> expiredTimeoutConsumer) {
+        if (expiredTimeoutConsumer == null) {
+            throw new IllegalArgumentException("Consumer should not be null.");
+        }
+
+        if (size == 0) {
+            // nothing can expire, so the elapsed ticks are skipped instead of visited
+            currentTick = Math.max(currentTick, Math.floorDiv(now - startTime, tickDuration) + 1);
+            return;
+        }
+
+        while (tickTime(currentTick) <= now) {
+            // currentTick is moved first, so timeouts scheduled by the consumer go to the following ticks
+            int bucket = (int) (currentTick++ & mask);
+            expireBucket(bucket, expiredTimeoutConsumer);
+        }
+    }
+
+    // the time at which advance has work to do, Long.MAX_VALUE when nothing is scheduled
+    public long getNextTickTime() {
+        return size == 0 ? Long.MAX_VALUE : tickTime(currentTick);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void expireBucket(int bucket, Consumer<Timeout<T>> expiredTimeoutConsumer) {
+        // the bucket is detached, so timeouts scheduled by the consumer are not visited during this tick
+        Timeout<T> timeout = buckets[bucket];
+        buckets[bucket] = null;
+
+        while (timeout != null) {
+            Timeout<T> next = timeout.next;
+            timeout.previous = null;
+            timeout.next = null;
+            timeout.bucket = -1;
+
+            if (timeout.remainingRounds > 0) {
+                timeout.remainingRounds--;
+                addToBucket(timeout, bucket);
+            } else {
+                size--;
+                expiredTimeoutConsumer.accept(timeout);
+            }
+            timeout = next;
+        }
+    }
+
+    private void addToBucket(Timeout<T> timeout, int bucket) {
+        Timeout<T> head = buckets[bucket];
+        timeout.next = head;
+        timeout.previous = null;
+        if (head != null) {
+            head.previous = timeout;
+        }
+        buckets[bucket] = timeout;
+        timeout.bucket = bucket;
+    }
+
+    private void removeFromBucket(Timeout<T> timeout) {
+        if (timeout.previous != null) {
+            timeout.previous.next = timeout.next;
+        } else {
+            buckets[timeout.bucket] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.previous = timeout.previous;
+        }
+
+        timeout.previous = null;
+        timeout.next = null;
+        timeout.bucket = -1;
+    }
+
+    private long tickTime(long tick) {
+        return startTime + tick * tickDuration;
+    }
+
+    private static long ceilDiv(long dividend, long divisor) {
+        return -Math.floorDiv(-dividend, divisor);
+    }
+
+    public static class Timeout<T> {
+
+        private final T task;
+        private long deadline;
+        private long remainingRounds;
+        private Timeout<T> previous;
+        private Timeout<T> next;
+        private int bucket;
+
+        private Timeout(T task) {
+            this.task = task;
+            this.bucket = -1;
+        }
+
+        public T getTask() {
+            return task;
+        }
+
+        public long getDeadline() {
+            return deadline;
+        }
+
+        public boolean isScheduled() {
+            return bucket >= 0;
+        }
+
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,44 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.nio;
+
+import bg.sofia.uni.fmi.mjt.password.vault.server.nio.buffer.ByteBufferPool;
+import bg.sofia.uni.fmi.mjt.password.vault.server.nio.exceptions.FrameTooLongException;
+
+import java.nio.ByteBuffer;
+
+public class LengthFieldFrameDecoder extends FrameDecoder {
+
+    private static final int LENGTH_FIELD_SIZE = Integer.BYTES;
+
+    public LengthFieldFrameDecoder(ByteBufferPool pool, int maxFrameLength) {
+        super(pool, maxFrameLength);
+    }
+
+    public LengthFieldFrameDecoder(ByteBufferPool pool, int initialCapacity, int maxFrameLength) {
+        super(pool, initialCapacity, maxFrameLength);
+    }
+
+    @Override
+    public ByteBuffer nextFrame() throws FrameTooLongException {
+        if (accumulator == null) {
+            return null;
+        }
+
+        int bufferedBytes = accumulator.position() - frameStart;
+        if (bufferedBytes < LENGTH_FIELD_SIZE) {
+            releaseIfEmpty();
+            return null;
+        }
+
+        int frameLength = accumulator.getInt(frameStart);
+        if (frameLength < 0 || frameLength > maxFrameLength) {
+            throw new FrameTooLongException("Frame exceeds the maximum length of " + maxFrameLength + " bytes.");
+        }
+        if (bufferedBytes - LENGTH_FIELD_SIZE < frameLength) {
+            return null;
+        }
+
+        int payloadStart = frameStart + LENGTH_FIELD_SIZE;
+        return consumeFrame(payloadStart, payloadStart + frameLength, payloadStart + frameLength);
+    }
+
+}
\ No newline at end of file
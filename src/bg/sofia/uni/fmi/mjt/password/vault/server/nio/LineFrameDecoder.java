@@ -0,0 +1,66 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.nio;
+
+import bg.sofia.uni.fmi.mjt.password.vault.server.nio.buffer.ByteBufferPool;
+import bg.sofia.uni.fmi.mjt.password.vault.server.nio.exceptions.FrameTooLongException;
+
+import java.nio.ByteBuffer;
+
+public class LineFrameDecoder extends FrameDecoder {
+
+    private static final byte LINE_FEED = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+
+    //bytes after frameStart that are already known not to contain a line feed
+    private int scannedBytes;
+
+    public LineFrameDecoder(ByteBufferPool pool, int maxFrameLength) {
+        super(pool, maxFrameLength);
+        this.scannedBytes = 0;
+    }
+
+    public LineFrameDecoder(ByteBufferPool pool, int initialCapacity, int maxFrameLength) {
+        super(pool, initialCapacity, maxFrameLength);
+        this.scannedBytes = 0;
+    }
+
+    @Override
+    public ByteBuffer nextFrame() throws FrameTooLongException {
+        if (accumulator == null) {
+            return null;
+        }
+
+        int frameEnd = findLineFeed();
+        if (frameEnd < 0) {
+            if (accumulator.position() - frameStart > maxFrameLength) {
+                throw new FrameTooLongException(
+                        "Frame exceeds the maximum length of " + maxFrameLength + " bytes.");
+            }
+            releaseIfEmpty();
+            return null;
+        }
+
+        int frameLimit = frameEnd;
+        if (frameLimit > frameStart && accumulator.get(frameLimit - 1) == CARRIAGE_RETURN) {
+            --frameLimit;
+        }
+        if (frameLimit - frameStart > maxFrameLength) {
+            throw new FrameTooLongException("Frame exceeds the maximum length of " + maxFrameLength + " bytes.");
+        }
+
+        scannedBytes = 0;
+        return consumeFrame(frameStart, frameLimit, frameEnd + 1);
+    }
+
+    private int findLineFeed() {
+        int end = accumulator.position();
+        for (int i = frameStart + scannedBytes; i < end; i++) {
+            if (accumulator.get(i) == LINE_FEED) {
+                return i;
+            }
+        }
+
+        scannedBytes = end - frameStart;
+        return -1;
+    }
+
+}
\ No newline at end of file
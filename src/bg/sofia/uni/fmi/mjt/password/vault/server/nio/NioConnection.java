@@ -0,0 +1,266 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.nio;
+
+import bg.sofia.uni.fmi.mjt.password.vault.protocol.BinaryProtocol;
+import bg.sofia.uni.fmi.mjt.password.vault.protocol.WireProtocol;
+import bg.sofia.uni.fmi.mjt.password.vault.response.NioResponse;
+import bg.sofia.uni.fmi.mjt.password.vault.server.nio.buffer.ByteBufferPool;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class NioConnection {
+
+    private final SelectionKey key;
+    private final ByteBufferPool pool;
+    private final int maxRequestLength;
+    private final Queue<NioResponse> pendingResponses;
+    private final int outboundHighWaterMark;
+    private final int outboundLowWaterMark;
+    private final AtomicInteger inFlightRequests;
+
+    //accessed only from the owning selector loop
+    private WireProtocol protocol;
+    private FrameDecoder frameDecoder;
+    private ByteBuffer handshake;
+    private final Queue<ByteBuffer> outboundBuffers;
+    private long outboundBytes;
+    private boolean isReadingPaused;
+    private boolean isReadingStopped;
+    private CompletableFuture<Void> lastRequest;
+    private long lastActivityTime;
+    private HashedTimerWheel.Timeout<NioConnection> idleTimeout;
+    private boolean isClosed;
+
+    NioConnection(SelectionKey key, ByteBufferPool pool, int maxRequestLength, int outboundHighWaterMark) {
+        this.key = key;
+        this.pool = pool;
+        this.maxRequestLength = maxRequestLength;
+        this.pendingResponses = new ConcurrentLinkedQueue<>();
+        this.outboundHighWaterMark = outboundHighWaterMark;
+        this.outboundLowWaterMark = outboundHighWaterMark / 2;
+        this.outboundBuffers = new ArrayDeque<>();
+        this.outboundBytes = 0;
+        this.isReadingPaused = false;
+        this.lastRequest = CompletableFuture.completedFuture(null);
+        this.inFlightRequests = new AtomicInteger();
+    }
+
+    SelectionKey getKey() {
+        return key;
+    }
+
+    SocketChannel getChannel() {
+        return (SocketChannel) key.channel();
+    }
+
+    // null until the client has chosen a protocol with its first bytes
+    WireProtocol getProtocol() {
+        return protocol;
+    }
+
+    void setProtocol(WireProtocol protocol) {
+        this.protocol = protocol;
+        this.frameDecoder = switch (protocol) {
+            case JSON -> new LineFrameDecoder(pool, maxRequestLength);
+            case BINARY -> new LengthFieldFrameDecoder(pool, maxRequestLength);
+        };
+        this.handshake = null;
+    }
+
+    FrameDecoder getFrameDecoder() {
+        return frameDecoder;
+    }
+
+    boolean isReceivingHandshake() {
+        return handshake != null;
+    }
+
+    // collects the handshake across reads, returns null until all of its bytes are received
+    ByteBuffer collectHandshake(ByteBuffer source) {
+        if (handshake == null) {
+            handshake = ByteBuffer.allocate(BinaryProtocol.HANDSHAKE_LENGTH);
+        }
+        while (handshake.hasRemaining() && source.hasRemaining()) {
+            handshake.put(source.get());
+        }
+        if (handshake.hasRemaining()) {
+            return null;
+        }
+
+        return handshake.flip();
+    }
+
+    boolean isOpen() {
+        return key.isValid() && key.channel().isOpen();
+    }
+
+    // System.nanoTime of the last read or write
+    long getLastActivityTime() {
+        return lastActivityTime;
+    }
+
+    void setLastActivityTime(long lastActivityTime) {
+        this.lastActivityTime = lastActivityTime;
+    }
+
+    HashedTimerWheel.Timeout<NioConnection> getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    void setIdleTimeout(HashedTimerWheel.Timeout<NioConnection> idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    int getInFlightRequestsCount() {
+        return inFlightRequests.get();
+    }
+
+    // The returned future completes once the task has run, exceptionally if the task has thrown. A task that the
+    // executor rejects right away is thrown as a RejectedExecutionException and leaves no request in flight.
+    // An ordered task that is rejected once the requests before it have completed fails its future instead.
+    CompletableFuture<Void> submitRequest(Runnable requestTask, Executor executor, boolean isOrdered) {
+        inFlightRequests.incrementAndGet();
+
+        CompletableFuture<Void> request;
+        try {
+            if (!isOrdered || lastRequest.isDone()) {
+                // the client matches the responses with an id by it, so they are written as soon as they are ready
+                request = CompletableFuture.runAsync(requestTask, executor);
+            } else {
+                // requests without an id are chained so that responses are written in the order of the requests,
+                // a failed request does not skip the ones after it
+                CompletableFuture<Void> chainedRequest = new CompletableFuture<>();
+                lastRequest.whenComplete((result, exception) -> runAsync(requestTask, executor, chainedRequest));
+                request = chainedRequest;
+            }
+        } catch (RejectedExecutionException e) {
+            inFlightRequests.decrementAndGet();
+            throw e;
+        }
+        if (isOrdered) {
+            lastRequest = request;
+        }
+
+        return request.whenComplete((result, exception) -> inFlightRequests.decrementAndGet());
+    }
+
+    // unlike handleAsync, fails the request when the executor rejects the task after the previous request
+    private static void runAsync(Runnable requestTask, Executor executor, CompletableFuture<Void> request) {
+        try {
+            CompletableFuture.runAsync(requestTask, executor).whenComplete((result, exception) -> {
+                if (exception != null) {
+                    request.completeExceptionally(exception);
+                } else {
+                    request.complete(null);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            request.completeExceptionally(e);
+        }
+    }
+
+    // true while a request is being handled or its response has not been written yet
+    boolean hasPendingWork() {
+        return inFlightRequests.get() > 0 || !pendingResponses.isEmpty() || !outboundBuffers.isEmpty();
+    }
+
+    // unlike the pause on the high water mark, reading is not resumed once it is stopped
+    void stopReading() {
+        isReadingStopped = true;
+        updateInterestOps();
+    }
+
+    void enqueueResponse(NioResponse response) {
+        pendingResponses.add(response);
+    }
+
+    NioResponse pollResponse() {
+        return pendingResponses.poll();
+    }
+
+    // the buffer should be acquired from the connection pool, it is released once it is written
+    void enqueueOutbound(ByteBuffer buffer) {
+        outboundBuffers.add(buffer);
+        outboundBytes += buffer.remaining();
+    }
+
+    long getOutboundBytes() {
+        return outboundBytes;
+    }
+
+    // returns the number of written bytes
+    long flushOutbound() throws IOException {
+        SocketChannel channel = getChannel();
+
+        long flushedBytes = 0;
+        ByteBuffer buffer;
+        while ((buffer = outboundBuffers.peek()) != null) {
+            int writtenBytes = channel.write(buffer);
+            outboundBytes -= writtenBytes;
+            flushedBytes += writtenBytes;
+            if (buffer.hasRemaining()) {
+                // the socket send buffer is full, wait for OP_WRITE
+                break;
+            }
+            pool.release(outboundBuffers.poll());
+        }
+
+        updateInterestOps();
+        return flushedBytes;
+    }
+
+    // returns false if the connection has already been closed
+    boolean close() {
+        if (isClosed) {
+            return false;
+        }
+        isClosed = true;
+
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            System.out.println("Cannot close client channel.");
+        }
+
+        if (frameDecoder != null) {
+            frameDecoder.release();
+        }
+        ByteBuffer buffer;
+        while ((buffer = outboundBuffers.poll()) != null) {
+            pool.release(buffer);
+        }
+        outboundBytes = 0;
+        return true;
+    }
+
+    private void updateInterestOps() {
+        if (!key.isValid()) {
+            return;
+        }
+
+        if (!isReadingPaused && outboundBytes > outboundHighWaterMark) {
+            isReadingPaused = true;
+        } else if (isReadingPaused && outboundBytes <= outboundLowWaterMark) {
+            isReadingPaused = false;
+        }
+
+        int interestOps = 0;
+        if (!isReadingPaused && !isReadingStopped) {
+            interestOps |= SelectionKey.OP_READ;
+        }
+        if (!outboundBuffers.isEmpty()) {
+            interestOps |= SelectionKey.OP_WRITE;
+        }
+        key.interestOps(interestOps);
+    }
+
+}
\ No newline at end of file
@@ -2,70 +2,134 @@ package bg.sofia.uni.fmi.mjt.password.vault.server.nio;
 
 import bg.sofia.uni.fmi.mjt.password.vault.configuration.ConfigurationData;
 import bg.sofia.uni.fmi.mjt.password.vault.request.NioRequest;
+import bg.sofia.uni.fmi.mjt.password.vault.request.RequestType;
 import bg.sofia.uni.fmi.mjt.password.vault.response.NioResponse;
 import bg.sofia.uni.fmi.mjt.password.vault.response.ResponseType;
 import bg.sofia.uni.fmi.mjt.password.vault.server.PasswordVault;
+import bg.sofia.uni.fmi.mjt.password.vault.server.TimedPasswordVault;
 import bg.sofia.uni.fmi.mjt.password.vault.server.compromised.CompromisedPasswordsClient;
+import bg.sofia.uni.fmi.mjt.password.vault.server.compromised.TimedCompromisedPasswordsClient;
 import bg.sofia.uni.fmi.mjt.password.vault.server.logger.Level;
 import bg.sofia.uni.fmi.mjt.password.vault.server.logger.Logger;
+import bg.sofia.uni.fmi.mjt.password.vault.server.logger.TimedLogger;
+import bg.sofia.uni.fmi.mjt.password.vault.server.metrics.MetricsSnapshot;
+import bg.sofia.uni.fmi.mjt.password.vault.server.metrics.ServerMetrics;
+import bg.sofia.uni.fmi.mjt.password.vault.server.nio.admission.AdmissionController;
+import bg.sofia.uni.fmi.mjt.password.vault.server.nio.admission.AdmissionStats;
+import bg.sofia.uni.fmi.mjt.password.vault.server.nio.buffer.ByteBufferPool;
+import bg.sofia.uni.fmi.mjt.password.vault.server.nio.buffer.ByteBufferPoolStats;
 import bg.sofia.uni.fmi.mjt.password.vault.server.nio.exceptions.RequestNotSupportedException;
 import bg.sofia.uni.fmi.mjt.password.vault.server.nio.handler.NioRequestHandler;
-import com.google.gson.Gson;
+import bg.sofia.uni.fmi.mjt.password.vault.server.nio.handler.NioRequestHandlerRegistry;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.net.InetSocketAddress;
-import java.nio.ByteBuffer;
+import java.net.StandardSocketOptions;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
-import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public class NioPasswordVaultServer implements PasswordVaultServer {
 
-    private static final Gson GSON = new Gson();
     private final String serverHost;
-    private static final int BUFFER_SIZE = 1024;
     private final int port;
+    private final int selectorThreadsCount;
+    private final int outboundHighWaterMarkBytes;
+    private final long idleTimeoutMillis;
+    private final boolean reusePort;
+    private final ByteBufferPool bufferPool;
+    private final AdmissionController admissionController;
+    private final ServerMetrics metrics;
     private final PasswordVault passwordVault;
-    private final CompromisedPasswordsClient compromisedPasswordsClient;
+    private final NioRequestHandlerRegistry handlerRegistry;
     private final Logger logger;
+    private final ExecutorService handlerExecutorService;
+    private final boolean ownsHandlerExecutorService;
 
-    private boolean isServerWorking = true;
+    private volatile boolean isServerWorking = true;
+    private volatile ServerSocketChannel serverSocketChannel;
+    // set by drainAndStop, the acceptor thread closes the server socket channel when it sees it
+    private volatile boolean shouldStopAccepting;
+    private final CountDownLatch acceptingStoppedLatch = new CountDownLatch(1);
     private Selector selector;
-
-    private final boolean hasDisconnected = false;
+    private volatile NioSelectorLoop[] selectorLoops;
+    private int nextSelectorLoop = 0;
 
     public NioPasswordVaultServer(ConfigurationData data, PasswordVault passwordVault,
                                   CompromisedPasswordsClient compromisedPasswordsClient, Logger logger) {
+        this(data, passwordVault, compromisedPasswordsClient, logger,
+                RequestHandlerExecutors.newDefaultExecutor(), true);
+    }
+
+    public NioPasswordVaultServer(ConfigurationData data, PasswordVault passwordVault,
+                                  CompromisedPasswordsClient compromisedPasswordsClient, Logger logger,
+                                  ExecutorService handlerExecutorService) {
+        this(data, passwordVault, compromisedPasswordsClient, logger, handlerExecutorService, false);
+    }
+
+    private NioPasswordVaultServer(ConfigurationData data, PasswordVault passwordVault,
+                                   CompromisedPasswordsClient compromisedPasswordsClient, Logger logger,
+                                   ExecutorService handlerExecutorService, boolean ownsHandlerExecutorService) {
+        if (handlerExecutorService == null) {
+            throw new IllegalArgumentException("Handler executor service should not be null.");
+        }
+        if (data.isReusePort() && !isReusePortSupported()) {
+            throw new IllegalArgumentException(
+                    "SO_REUSEPORT is not supported on this platform, so reusePort should be disabled.");
+        }
+
         this.serverHost = data.getServerHost();
         this.port = data.getServerPort();
+        this.selectorThreadsCount = data.getSelectorThreadsCount();
+        this.outboundHighWaterMarkBytes = data.getOutboundHighWaterMarkBytes();
+        this.idleTimeoutMillis = data.getIdleTimeoutMillis();
+        this.reusePort = data.isReusePort();
+        this.bufferPool = new ByteBufferPool(data.getBufferPoolMaxBytes());
+        this.admissionController = new AdmissionController(data.getMaxConnections(), data.getMaxPendingRequests());
+        this.metrics = new ServerMetrics();
         this.passwordVault = passwordVault;
-        this.compromisedPasswordsClient = compromisedPasswordsClient;
-        this.logger = logger;
+        this.logger = new TimedLogger(logger, metrics);
+        this.handlerRegistry = NioRequestHandlerRegistry.withDefaultHandlers(
+                new TimedPasswordVault(passwordVault, metrics),
+                new TimedCompromisedPasswordsClient(compromisedPasswordsClient, metrics), this.logger);
+        this.handlerExecutorService = handlerExecutorService;
+        this.ownsHandlerExecutorService = ownsHandlerExecutorService;
     }
 
     @Override
     public void run() {
         try (ServerSocketChannel serverSocketChannel = ServerSocketChannel.open()) {
+            this.serverSocketChannel = serverSocketChannel;
+            if (reusePort) {
+                enableReusePort(serverSocketChannel);
+            }
             serverSocketChannel.bind(new InetSocketAddress(serverHost, port));
             serverSocketChannel.configureBlocking(false);
 
             selector = Selector.open();
             serverSocketChannel.register(selector, SelectionKey.OP_ACCEPT);
-            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            startSelectorLoops();
 
-            String logMessage = "The server has been started.";
+            String logMessage = "The server has been started with " + selectorThreadsCount + " selector threads.";
             logger.log(Level.INFO, LocalDateTime.now(), logMessage);
             System.out.println(logMessage);
 
-            while (!hasDisconnected && isServerWorking) {
+            while (isServerWorking) {
                 int readyChannels = selector.select();
+                if (shouldStopAccepting && serverSocketChannel.isOpen()) {
+                    closeServerSocketChannel();
+                }
                 if (readyChannels == 0) {
                     // select() is blocking but may still return with 0, check javadoc
                     continue;
@@ -76,34 +140,8 @@ public class NioPasswordVaultServer implements PasswordVaultServer {
 
                 while (keyIterator.hasNext()) {
                     SelectionKey key = keyIterator.next();
-                    if (key.isReadable()) {
-                        SocketChannel socketChannel = (SocketChannel) key.channel();
-
-                        //Write mode
-                        buffer.clear();
-                        int readSymbols = 0;
-                        try {
-                            readSymbols = socketChannel.read(buffer);
-
-                        } catch (IOException e) {
-                            System.out.println("Client has disconnected.");
-                            continue;
-                        }
-                        if (readSymbols < 0) {
-                            System.out.println("Client has closed the connection");
-                            socketChannel.close();
-                            continue;
-                        }
-
-                        NioRequest request = readRequestFromClient(buffer, readSymbols);
-                        NioResponse response = handleRequest(request);
-                        try {
-                            writeResponseToClient(buffer, socketChannel, response);
-                        } catch (IOException e) {
-                            System.out.println("Client has disconnected.");
-                            continue;
-                        }
-                    } else if (key.isAcceptable()) {
+                    // the key is cancelled when the server socket channel is closed
+                    if (key.isValid() && key.isAcceptable()) {
                         acceptNewClient(key);
                     }
 
@@ -117,13 +155,19 @@ public class NioPasswordVaultServer implements PasswordVaultServer {
             System.out.println(logMessage);
 
             throw new UncheckedIOException("A problem with the server socket occurred.", e);
+        } finally {
+            acceptingStoppedLatch.countDown();
+            stopSelectorLoops();
+            if (ownsHandlerExecutorService) {
+                handlerExecutorService.shutdown();
+            }
         }
     }
 
     @Override
     public void stop() {
         this.isServerWorking = false;
-        if (selector.isOpen()) {
+        if (selector != null && selector.isOpen()) {
             selector.wakeup();
         }
 
@@ -132,19 +176,178 @@ public class NioPasswordVaultServer implements PasswordVaultServer {
         System.out.println(logMessage);
     }
 
+    @Override
+    public DrainStats drainAndStop(Duration timeout) {
+        if (timeout == null || timeout.isNegative()) {
+            throw new IllegalArgumentException("Timeout should not be null or negative.");
+        }
+
+        long drainStart = System.nanoTime();
+        long deadline = drainStart + timeout.toNanos();
+        long completedRequestsBeforeDrain = admissionController.getStats().completedRequests();
+
+        stopAccepting(deadline);
+        awaitSelectorLoopsDrained(deadline);
+
+        AdmissionStats stats = admissionController.getStats();
+        long completedRequests = stats.completedRequests() - completedRequestsBeforeDrain;
+        long abandonedRequests = stats.pendingRequests();
+        syncPasswordVault();
+        stop();
+
+        String logMessage = "The server has been drained. Completed requests: " + completedRequests +
+                ", abandoned requests: " + abandonedRequests + ".";
+        logger.log(abandonedRequests == 0 ? Level.INFO : Level.WARN, LocalDateTime.now(), logMessage);
+        System.out.println(logMessage);
+
+        return new DrainStats(completedRequests, abandonedRequests,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - drainStart));
+    }
+
+    // lets request types be handled without changing the default handlers, it should be called before run
+    public void registerHandler(RequestType type, NioRequestHandler handler) {
+        if (selector != null) {
+            throw new IllegalStateException("Handlers should be registered before the server is started.");
+        }
+
+        handlerRegistry.register(type, handler);
+    }
+
+    @Override
+    public Map<RequestType, Long> getDispatchCounts() {
+        return handlerRegistry.getDispatchCounts();
+    }
+
+    @Override
+    public MetricsSnapshot getMetrics() {
+        return metrics.snapshot();
+    }
+
+    @Override
+    public ByteBufferPoolStats getBufferPoolStats() {
+        return bufferPool.getStats();
+    }
+
+    @Override
+    public AdmissionStats getAdmissionStats() {
+        return admissionController.getStats();
+    }
+
+    private void startSelectorLoops() {
+        selectorLoops = new NioSelectorLoop[selectorThreadsCount];
+        for (int i = 0; i < selectorThreadsCount; i++) {
+            selectorLoops[i] = new NioSelectorLoop(i, this::handleRequest, handlerExecutorService,
+                    bufferPool, outboundHighWaterMarkBytes, idleTimeoutMillis, admissionController, metrics, logger);
+
+            Thread selectorThread = new Thread(selectorLoops[i], "selector-loop-" + i);
+            selectorThread.start();
+        }
+    }
+
+    private void stopSelectorLoops() {
+        if (selectorLoops == null) {
+            return;
+        }
+
+        for (NioSelectorLoop selectorLoop : selectorLoops) {
+            if (selectorLoop != null) {
+                selectorLoop.stop();
+            }
+        }
+    }
+
+    // checked when the server is created, so an unsupported option does not stop the acceptor after it has started
+    private static boolean isReusePortSupported() {
+        try (ServerSocketChannel serverSocketChannel = ServerSocketChannel.open()) {
+            return serverSocketChannel.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open a server socket channel.", e);
+        }
+    }
+
+    private void enableReusePort(ServerSocketChannel serverSocketChannel) throws IOException {
+        // the kernel balances the new connections between all processes bound to the port
+        serverSocketChannel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+    }
+
+    // the acceptor thread closes the channel, so it is not closed while the thread is selecting or accepting on it
+    private void stopAccepting(long deadline) {
+        if (selector == null) {
+            return;
+        }
+
+        shouldStopAccepting = true;
+        selector.wakeup();
+        try {
+            acceptingStoppedLatch.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void closeServerSocketChannel() {
+        try {
+            // the clients waiting in the backlog are refused, so they can connect to another instance
+            serverSocketChannel.close();
+            // the socket of a registered channel is released only when the selector deregisters its key
+            selector.selectNow();
+        } catch (IOException e) {
+            System.out.println("Cannot close server socket channel.");
+        } finally {
+            acceptingStoppedLatch.countDown();
+        }
+    }
+
+    private void awaitSelectorLoopsDrained(long deadline) {
+        if (selectorLoops == null) {
+            return;
+        }
+
+        for (NioSelectorLoop selectorLoop : selectorLoops) {
+            selectorLoop.drain();
+        }
+        try {
+            for (NioSelectorLoop selectorLoop : selectorLoops) {
+                if (!selectorLoop.awaitDrained(deadline - System.nanoTime())) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void syncPasswordVault() {
+        try {
+            passwordVault.sync();
+        } catch (UncheckedIOException e) {
+            String logMessage = "The password vault cannot be synced before stopping the server. " +
+                    "Stacktrace: " + Arrays.toString(e.getStackTrace());
+            logger.log(Level.ERROR, LocalDateTime.now(), logMessage);
+            System.out.println(logMessage);
+        }
+    }
+
     private void acceptNewClient(SelectionKey key) throws IOException {
         ServerSocketChannel socketChannel = (ServerSocketChannel) key.channel();
         SocketChannel newClient = socketChannel.accept();
-        newClient.configureBlocking(false);
-        newClient.register(selector, SelectionKey.OP_READ);
+        if (newClient == null) {
+            return;
+        }
+        if (!admissionController.tryAcquireConnection()) {
+            // closing right away lets the client back off instead of waiting for a response that never comes
+            newClient.close();
+            return;
+        }
+
+        selectorLoops[nextSelectorLoop].addClient(newClient);
+        nextSelectorLoop = (nextSelectorLoop + 1) % selectorLoops.length;
     }
 
     private NioResponse handleRequest(NioRequest request) {
         NioResponse response = null;
         try {
-            NioRequestHandler handler =
-                    NioRequestHandler.of(request, passwordVault, compromisedPasswordsClient, logger);
-            response = handler.handle(request);
+            response = handlerRegistry.dispatch(request);
         } catch (RequestNotSupportedException e) {
             String logMessage = "Client has send an unsupported request. Type: " + request.getType().toString() +
                     "Stacktrace: " + Arrays.toString(e.getStackTrace());
@@ -156,28 +359,4 @@ public class NioPasswordVaultServer implements PasswordVaultServer {
         return response;
     }
 
-    private NioRequest readRequestFromClient(ByteBuffer buffer, int readSymbols) {
-        int requestSymbols = readSymbols - System.lineSeparator().length();
-        byte[] byteRequest = new byte[requestSymbols];
-        //Read mode
-        buffer.flip();
-        buffer.get(byteRequest, 0, requestSymbols);
-        //System.out.println("Command: " + new String(byteRequest, StandardCharsets.UTF_8));
-
-        NioRequest request = NioRequest.of(byteRequest);
-        return request;
-    }
-
-    private void writeResponseToClient(ByteBuffer buffer, SocketChannel socketChannel, NioResponse response)
-            throws IOException {
-        String responseMessage = GSON.toJson(response) + System.lineSeparator();
-        //Write mode
-        buffer.clear();
-        buffer.put(responseMessage.getBytes(StandardCharsets.UTF_8));
-
-        //Read mode
-        buffer.flip();
-        socketChannel.write(buffer);
-    }
-
 }
\ No newline at end of file
@@ -0,0 +1,609 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.nio;
+
+import bg.sofia.uni.fmi.mjt.password.vault.protocol.BinaryCodec;
+import bg.sofia.uni.fmi.mjt.password.vault.protocol.BinaryProtocol;
+import bg.sofia.uni.fmi.mjt.password.vault.protocol.WireProtocol;
+import bg.sofia.uni.fmi.mjt.password.vault.protocol.exceptions.MalformedMessageException;
+import bg.sofia.uni.fmi.mjt.password.vault.request.NioRequest;
+import bg.sofia.uni.fmi.mjt.password.vault.request.RequestType;
+import bg.sofia.uni.fmi.mjt.password.vault.response.NioResponse;
+import bg.sofia.uni.fmi.mjt.password.vault.response.ResponseType;
+import bg.sofia.uni.fmi.mjt.password.vault.server.jfr.RequestDecodedEvent;
+import bg.sofia.uni.fmi.mjt.password.vault.server.jfr.RequestHandledEvent;
+import bg.sofia.uni.fmi.mjt.password.vault.server.jfr.ResponseWrittenEvent;
+import bg.sofia.uni.fmi.mjt.password.vault.server.logger.Level;
+import bg.sofia.uni.fmi.mjt.password.vault.server.logger.Logger;
+import bg.sofia.uni.fmi.mjt.password.vault.server.metrics.ServerMetrics;
+import bg.sofia.uni.fmi.mjt.password.vault.server.metrics.TimedStage;
+import bg.sofia.uni.fmi.mjt.password.vault.server.nio.admission.AdmissionController;
+import bg.sofia.uni.fmi.mjt.password.vault.server.nio.buffer.ByteBufferPool;
+import bg.sofia.uni.fmi.mjt.password.vault.server.nio.buffer.ByteBufferReader;
+import bg.sofia.uni.fmi.mjt.password.vault.server.nio.buffer.ByteBufferWriter;
+import bg.sofia.uni.fmi.mjt.password.vault.server.nio.exceptions.FrameTooLongException;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+class NioSelectorLoop implements Runnable {
+
+    private static final Gson GSON = new Gson();
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_REQUEST_LENGTH = 1024 * 1024;
+    private static final int RESPONSE_BUFFER_SIZE = 1024;
+    private static final int IDLE_TIMER_TICKS_PER_WHEEL = 64;
+    private static final long MIN_IDLE_TIMER_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long DRAIN_CHECK_INTERVAL_MILLIS = 10;
+    private static final long NO_REQUEST_ID = -1;
+
+    private final int loopId;
+    private final Selector selector;
+    private final Queue<SocketChannel> pendingClients;
+    private final Queue<NioConnection> connectionsWithResponses;
+    private final Function<NioRequest, NioResponse> requestHandler;
+    private final Executor handlerExecutor;
+    private final ByteBufferPool bufferPool;
+    private final int outboundHighWaterMark;
+    private final long idleTimeoutNanos;
+    private final AdmissionController admissionController;
+    private final ServerMetrics metrics;
+    private final Logger logger;
+    private final CountDownLatch drainedLatch;
+
+    //accessed only from the loop thread
+    private HashedTimerWheel<NioConnection> idleTimerWheel;
+    private long now;
+
+    private volatile boolean isLoopWorking = true;
+    private volatile boolean isDraining = false;
+    private boolean hasStoppedReading = false;
+
+    NioSelectorLoop(int loopId, Function<NioRequest, NioResponse> requestHandler, Executor handlerExecutor,
+                    ByteBufferPool bufferPool, int outboundHighWaterMark, long idleTimeoutMillis,
+                    AdmissionController admissionController, ServerMetrics metrics, Logger logger) {
+        this.loopId = loopId;
+        this.requestHandler = requestHandler;
+        this.handlerExecutor = handlerExecutor;
+        this.bufferPool = bufferPool;
+        this.outboundHighWaterMark = outboundHighWaterMark;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.admissionController = admissionController;
+        this.metrics = metrics;
+        this.logger = logger;
+        this.pendingClients = new ConcurrentLinkedQueue<>();
+        this.connectionsWithResponses = new ConcurrentLinkedQueue<>();
+        this.drainedLatch = new CountDownLatch(1);
+        try {
+            this.selector = Selector.open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open selector for selector loop " + loopId + ".", e);
+        }
+    }
+
+    @Override
+    public void run() {
+        ByteBuffer buffer = bufferPool.acquire(BUFFER_SIZE);
+        now = System.nanoTime();
+        if (idleTimeoutNanos > 0) {
+            // a connection is closed at most one tick after its idle timeout
+            long tickDuration = Math.max(idleTimeoutNanos / IDLE_TIMER_TICKS_PER_WHEEL, MIN_IDLE_TIMER_TICK_NANOS);
+            idleTimerWheel = new HashedTimerWheel<>(tickDuration, IDLE_TIMER_TICKS_PER_WHEEL, now);
+        }
+
+        try {
+            while (isLoopWorking) {
+                select();
+                now = System.nanoTime();
+                registerPendingClients();
+                writePendingResponses();
+
+                Set<SelectionKey> selectedKeys = selector.selectedKeys();
+                Iterator<SelectionKey> keyIterator = selectedKeys.iterator();
+
+                while (keyIterator.hasNext()) {
+                    SelectionKey key = keyIterator.next();
+                    keyIterator.remove();
+
+                    try {
+                        if (key.isValid() && key.isWritable()) {
+                            flushClient((NioConnection) key.attachment());
+                        }
+                        if (key.isValid() && key.isReadable()) {
+                            readFromClient(key, buffer);
+                        }
+                    } catch (RuntimeException e) {
+                        closeAfterUnexpectedError((NioConnection) key.attachment(), e);
+                    }
+                }
+
+                if (idleTimerWheel != null) {
+                    idleTimerWheel.advance(now, this::closeIfIdle);
+                }
+                if (isDraining) {
+                    checkDrained();
+                }
+            }
+        } catch (IOException e) {
+            String logMessage = "A problem with selector loop " + loopId + " occurred. " +
+                    "Stacktrace: " + Arrays.toString(e.getStackTrace());
+            logger.log(Level.ERROR, LocalDateTime.now(), logMessage);
+            System.out.println(logMessage);
+
+            throw new UncheckedIOException("A problem with selector loop " + loopId + " occurred.", e);
+        } finally {
+            closeSelector();
+            bufferPool.release(buffer);
+        }
+    }
+
+    void addClient(SocketChannel client) {
+        pendingClients.add(client);
+        selector.wakeup();
+    }
+
+    // stops reading requests, the already read ones are handled and their responses are written
+    void drain() {
+        isDraining = true;
+        selector.wakeup();
+    }
+
+    boolean awaitDrained(long timeoutNanos) throws InterruptedException {
+        return drainedLatch.await(timeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+    void stop() {
+        isLoopWorking = false;
+        if (selector.isOpen()) {
+            selector.wakeup();
+        }
+    }
+
+    private void select() throws IOException {
+        long nextTickTime = idleTimerWheel == null ? Long.MAX_VALUE : idleTimerWheel.getNextTickTime();
+        if (nextTickTime == Long.MAX_VALUE && !isDraining) {
+            selector.select();
+            return;
+        }
+
+        long remainingMillis = nextTickTime == Long.MAX_VALUE ? Long.MAX_VALUE :
+                TimeUnit.NANOSECONDS.toMillis(nextTickTime - now) + 1;
+        if (isDraining) {
+            // handlers finish without waking the selector, so the loop checks on them periodically
+            remainingMillis = Math.min(remainingMillis, DRAIN_CHECK_INTERVAL_MILLIS);
+        }
+        if (remainingMillis > 0) {
+            selector.select(remainingMillis);
+        } else {
+            selector.selectNow();
+        }
+    }
+
+    private void registerPendingClients() {
+        SocketChannel client;
+        while ((client = pendingClients.poll()) != null) {
+            if (isDraining) {
+                closeClient(client);
+                admissionController.releaseConnection();
+                continue;
+            }
+
+            try {
+                client.configureBlocking(false);
+                SelectionKey key = client.register(selector, SelectionKey.OP_READ);
+                NioConnection connection =
+                        new NioConnection(key, bufferPool, MAX_REQUEST_LENGTH, outboundHighWaterMark);
+                key.attach(connection);
+                connection.setLastActivityTime(now);
+                if (idleTimerWheel != null) {
+                    connection.setIdleTimeout(idleTimerWheel.newTimeout(connection));
+                    idleTimerWheel.schedule(connection.getIdleTimeout(), now + idleTimeoutNanos);
+                }
+            } catch (ClosedChannelException e) {
+                System.out.println("Client has disconnected before being registered.");
+                admissionController.releaseConnection();
+            } catch (IOException e) {
+                closeClient(client);
+                admissionController.releaseConnection();
+            }
+        }
+    }
+
+    private void readFromClient(SelectionKey key, ByteBuffer buffer) {
+        SocketChannel socketChannel = (SocketChannel) key.channel();
+        NioConnection connection = (NioConnection) key.attachment();
+
+        //Write mode
+        buffer.clear();
+        int readSymbols = 0;
+        try {
+            readSymbols = socketChannel.read(buffer);
+        } catch (IOException e) {
+            System.out.println("Client has disconnected.");
+            closeConnection(connection);
+            return;
+        }
+        if (readSymbols < 0) {
+            System.out.println("Client has closed the connection");
+            closeConnection(connection);
+            return;
+        }
+        connection.setLastActivityTime(now);
+
+        //Read mode
+        buffer.flip();
+        if (connection.getProtocol() == null && !negotiateProtocol(connection, buffer)) {
+            return;
+        }
+        connection.getFrameDecoder().append(buffer);
+
+        try {
+            ByteBuffer frame;
+            while ((frame = connection.getFrameDecoder().nextFrame()) != null) {
+                if (!frame.hasRemaining()) {
+                    continue;
+                }
+                dispatchRequest(connection, frame);
+            }
+        } catch (FrameTooLongException e) {
+            String logMessage = "Client has sent a request longer than " + MAX_REQUEST_LENGTH + " bytes. " +
+                    "The connection will be closed.";
+            logger.log(Level.WARN, LocalDateTime.now(), logMessage);
+            System.out.println(logMessage);
+
+            closeConnection(connection);
+        }
+    }
+
+    private boolean negotiateProtocol(NioConnection connection, ByteBuffer buffer) {
+        if (!buffer.hasRemaining()) {
+            return false;
+        }
+        if (!connection.isReceivingHandshake() && !BinaryProtocol.isHandshakeStart(buffer.get(buffer.position()))) {
+            connection.setProtocol(WireProtocol.JSON);
+            return true;
+        }
+
+        ByteBuffer handshake = connection.collectHandshake(buffer);
+        if (handshake == null) {
+            return false;
+        }
+
+        byte version;
+        try {
+            version = BinaryProtocol.negotiateVersion(BinaryProtocol.readHandshake(handshake));
+        } catch (MalformedMessageException e) {
+            String logMessage = "Client has sent an invalid handshake. The connection will be closed.";
+            logger.log(Level.WARN, LocalDateTime.now(), logMessage);
+            System.out.println(logMessage);
+
+            closeConnection(connection);
+            return false;
+        }
+
+        // clients whose version is rejected keep talking JSON on the same connection
+        connection.setProtocol(version == BinaryProtocol.REJECTED_VERSION ? WireProtocol.JSON : WireProtocol.BINARY);
+        ByteBuffer handshakeResponse = bufferPool.acquire(BinaryProtocol.HANDSHAKE_LENGTH);
+        BinaryProtocol.writeHandshake(handshakeResponse, version);
+        connection.enqueueOutbound(handshakeResponse.flip());
+        flushClient(connection);
+
+        return connection.isOpen();
+    }
+
+    private void dispatchRequest(NioConnection connection, ByteBuffer frame) {
+        RequestDecodedEvent decodedEvent = new RequestDecodedEvent();
+        decodedEvent.begin();
+        long receivedTime = System.nanoTime();
+        int frameBytes = frame.remaining();
+        NioRequest request = decodeRequest(connection.getProtocol(), frame);
+        metrics.recordStage(TimedStage.DECODE, System.nanoTime() - receivedTime);
+
+        Long requestId = request == null ? null : request.getRequestId();
+        RequestType requestType = request == null ? null : request.getType();
+        decodedEvent.end();
+        if (decodedEvent.shouldCommit()) {
+            decodedEvent.protocol = connection.getProtocol().toString();
+            decodedEvent.frameBytes = frameBytes;
+            decodedEvent.requestType = requestType == null ? "" : requestType.toString();
+            decodedEvent.requestId = requestId == null ? NO_REQUEST_ID : requestId;
+            decodedEvent.commit();
+        }
+        if (requestType == null) {
+            rejectRequest(connection, null,
+                    new NioResponse(ResponseType.REQUEST_NOT_SUPPORTED, null, requestId), receivedTime);
+            return;
+        }
+        if (!admissionController.tryAcquireRequest()) {
+            rejectRequest(connection, requestType,
+                    new NioResponse(ResponseType.SERVER_BUSY, null, requestId), receivedTime);
+            return;
+        }
+
+        // the executor rejects the requests e.g. once it is shut down, these are answered as busy as well
+        NioResponse busyResponse = new NioResponse(ResponseType.SERVER_BUSY, null, requestId);
+        boolean isOrdered = requestId == null;
+        try {
+            connection.submitRequest(() -> handleRequest(connection, request, receivedTime), handlerExecutor,
+                            isOrdered)
+                    .whenComplete((result, exception) -> {
+                        admissionController.releaseRequest();
+                        if (isRejectedExecution(exception)) {
+                            completeRequest(connection, requestType, busyResponse, receivedTime);
+                        }
+                    });
+        } catch (RejectedExecutionException e) {
+            // a rejected ordered request has no previous requests left to wait for
+            admissionController.releaseRequest();
+            completeRequest(connection, requestType, busyResponse, receivedTime);
+        }
+    }
+
+    private void rejectRequest(NioConnection connection, RequestType requestType, NioResponse response,
+                               long receivedTime) {
+        if (response.getRequestId() != null) {
+            completeRequest(connection, requestType, response, receivedTime);
+            return;
+        }
+
+        // the response still has to wait for the responses of the previous requests
+        Runnable completion = () -> completeRequest(connection, requestType, response, receivedTime);
+        try {
+            connection.submitRequest(completion, handlerExecutor, true)
+                    .whenComplete((result, exception) -> {
+                        if (isRejectedExecution(exception)) {
+                            completion.run();
+                        }
+                    });
+        } catch (RejectedExecutionException e) {
+            completion.run();
+        }
+    }
+
+    private static boolean isRejectedExecution(Throwable exception) {
+        Throwable cause = exception instanceof CompletionException ? exception.getCause() : exception;
+        return cause instanceof RejectedExecutionException;
+    }
+
+    private NioRequest decodeRequest(WireProtocol protocol, ByteBuffer frame) {
+        try {
+            return switch (protocol) {
+                case JSON -> NioRequest.fromJson(new ByteBufferReader(frame));
+                case BINARY -> BinaryCodec.readRequest(frame);
+            };
+        } catch (JsonParseException | MalformedMessageException e) {
+            return null;
+        }
+    }
+
+    private void handleRequest(NioConnection connection, NioRequest request, long receivedTime) {
+        NioResponse response;
+        RequestHandledEvent handledEvent = new RequestHandledEvent();
+        handledEvent.begin();
+        long handlerStartTime = System.nanoTime();
+        try {
+            response = requestHandler.apply(request);
+        } catch (RuntimeException e) {
+            String logMessage = "An unexpected error occurred while handling a request. " +
+                    "Stacktrace: " + Arrays.toString(e.getStackTrace());
+            logger.log(Level.ERROR, LocalDateTime.now(), logMessage);
+            System.out.println(logMessage);
+
+            response = new NioResponse(ResponseType.INTERNAL_SERVER_ERROR, null);
+        }
+        metrics.recordStage(TimedStage.HANDLER, System.nanoTime() - handlerStartTime);
+        handledEvent.end();
+        if (handledEvent.shouldCommit()) {
+            handledEvent.requestType = request.getType().toString();
+            handledEvent.responseType = String.valueOf(response.getType());
+            handledEvent.queueTime = handlerStartTime - receivedTime;
+            handledEvent.commit();
+        }
+
+        if (request.getRequestId() != null) {
+            response = response.withRequestId(request.getRequestId());
+        }
+        completeRequest(connection, request.getType(), response, receivedTime);
+    }
+
+    // the latency covers decoding, waiting for a handler thread and handling, but not writing the response
+    private void completeRequest(NioConnection connection, RequestType requestType, NioResponse response,
+                                 long receivedTime) {
+        metrics.recordRequest(requestType, response.getType(), System.nanoTime() - receivedTime);
+        enqueueResponse(connection, response);
+    }
+
+    private void enqueueResponse(NioConnection connection, NioResponse response) {
+        connection.enqueueResponse(response);
+        connectionsWithResponses.add(connection);
+        selector.wakeup();
+    }
+
+    private void writePendingResponses() {
+        NioConnection connection;
+        while ((connection = connectionsWithResponses.poll()) != null) {
+            try {
+                writeResponses(connection);
+            } catch (RuntimeException e) {
+                closeAfterUnexpectedError(connection, e);
+            }
+        }
+    }
+
+    private void writeResponses(NioConnection connection) {
+        NioResponse response;
+        while ((response = connection.pollResponse()) != null) {
+            if (connection.isOpen()) {
+                long encodeStartTime = System.nanoTime();
+                connection.enqueueOutbound(encodeResponse(connection.getProtocol(), response));
+                metrics.recordStage(TimedStage.ENCODE, System.nanoTime() - encodeStartTime);
+            }
+        }
+
+        if (connection.isOpen()) {
+            flushClient(connection);
+        }
+    }
+
+    private void flushClient(NioConnection connection) {
+        ResponseWrittenEvent writtenEvent = new ResponseWrittenEvent();
+        writtenEvent.begin();
+        try {
+            long writtenBytes = connection.flushOutbound();
+            if (writtenBytes > 0) {
+                connection.setLastActivityTime(now);
+            }
+
+            writtenEvent.end();
+            if (writtenEvent.shouldCommit()) {
+                writtenEvent.writtenBytes = writtenBytes;
+                writtenEvent.remainingBytes = connection.getOutboundBytes();
+                writtenEvent.commit();
+            }
+        } catch (IOException e) {
+            System.out.println("Client has disconnected.");
+            closeConnection(connection);
+        }
+    }
+
+    private void checkDrained() {
+        if (!hasStoppedReading) {
+            for (SelectionKey key : selector.keys()) {
+                if (key.isValid() && key.attachment() instanceof NioConnection connection) {
+                    connection.stopReading();
+                }
+            }
+            hasStoppedReading = true;
+        }
+
+        if (!connectionsWithResponses.isEmpty()) {
+            return;
+        }
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof NioConnection connection &&
+                    connection.isOpen() && connection.hasPendingWork()) {
+                return;
+            }
+        }
+        drainedLatch.countDown();
+    }
+
+    private void closeIfIdle(HashedTimerWheel.Timeout<NioConnection> idleTimeout) {
+        NioConnection connection = idleTimeout.getTask();
+        if (!connection.isOpen()) {
+            return;
+        }
+
+        // reads and writes only update the activity time, the deadline is moved when the timeout expires
+        long idleDeadline = connection.getLastActivityTime() + idleTimeoutNanos;
+        if (idleDeadline - now > 0) {
+            idleTimerWheel.schedule(idleTimeout, idleDeadline);
+            return;
+        }
+        if (connection.getInFlightRequestsCount() > 0) {
+            idleTimerWheel.schedule(idleTimeout, now + idleTimeoutNanos);
+            return;
+        }
+
+        String logMessage = "Client has been idle for more than " + TimeUnit.NANOSECONDS.toMillis(idleTimeoutNanos) +
+                " milliseconds. The connection will be closed.";
+        logger.log(Level.INFO, LocalDateTime.now(), logMessage);
+        System.out.println(logMessage);
+
+        closeConnection(connection);
+    }
+
+    // a bug triggered by one connection closes only that connection, the loop keeps serving the others
+    private void closeAfterUnexpectedError(NioConnection connection, RuntimeException e) {
+        String logMessage = "An unexpected error occurred in selector loop " + loopId + ". " +
+                "The connection will be closed. Stacktrace: " + Arrays.toString(e.getStackTrace());
+        logger.log(Level.ERROR, LocalDateTime.now(), logMessage);
+        System.out.println(logMessage);
+
+        if (connection != null) {
+            closeConnection(connection);
+        }
+    }
+
+    private void closeConnection(NioConnection connection) {
+        if (idleTimerWheel != null && connection.getIdleTimeout() != null) {
+            idleTimerWheel.cancel(connection.getIdleTimeout());
+        }
+        if (connection.close()) {
+            admissionController.releaseConnection();
+        }
+    }
+
+    private ByteBuffer encodeResponse(WireProtocol protocol, NioResponse response) {
+        return switch (protocol) {
+            case JSON -> encodeJsonResponse(response);
+            case BINARY -> encodeBinaryResponse(response);
+        };
+    }
+
+    private ByteBuffer encodeBinaryResponse(NioResponse response) {
+        ByteBuffer buffer = bufferPool.acquire(BinaryCodec.maxResponseFrameLength(response));
+        BinaryCodec.writeResponseFrame(buffer, response);
+
+        return buffer.flip();
+    }
+
+    private ByteBuffer encodeJsonResponse(NioResponse response) {
+        ByteBufferWriter writer = new ByteBufferWriter(bufferPool, RESPONSE_BUFFER_SIZE);
+        try {
+            GSON.toJson(response, writer);
+            writer.write(System.lineSeparator());
+        } catch (IOException e) {
+            writer.close();
+            throw new UncheckedIOException("Cannot encode response.", e);
+        }
+
+        return writer.toByteBuffer();
+    }
+
+    private void closeClient(SocketChannel socketChannel) {
+        try {
+            socketChannel.close();
+        } catch (IOException e) {
+            System.out.println("Cannot close client channel.");
+        }
+    }
+
+    private void closeSelector() {
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof NioConnection connection) {
+                closeConnection(connection);
+            } else {
+                closeClient((SocketChannel) key.channel());
+            }
+        }
+        SocketChannel client;
+        while ((client = pendingClients.poll()) != null) {
+            closeClient(client);
+            admissionController.releaseConnection();
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            System.out.println("Cannot close selector of selector loop " + loopId + ".");
+        }
+    }
+
+}
\ No newline at end of file
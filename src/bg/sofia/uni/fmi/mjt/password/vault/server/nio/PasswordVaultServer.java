@@ -1,7 +1,26 @@
 package bg.sofia.uni.fmi.mjt.password.vault.server.nio;
 
+import bg.sofia.uni.fmi.mjt.password.vault.request.RequestType;
+import bg.sofia.uni.fmi.mjt.password.vault.server.metrics.MetricsSnapshot;
+import bg.sofia.uni.fmi.mjt.password.vault.server.nio.admission.AdmissionStats;
+import bg.sofia.uni.fmi.mjt.password.vault.server.nio.buffer.ByteBufferPoolStats;
+
+import java.time.Duration;
+import java.util.Map;
+
 public interface PasswordVaultServer extends Runnable {
 
     void stop();
 
+    // stops accepting, waits up to the timeout for the accepted requests and syncs the vault before stopping
+    DrainStats drainAndStop(Duration timeout);
+
+    Map<RequestType, Long> getDispatchCounts();
+
+    MetricsSnapshot getMetrics();
+
+    ByteBufferPoolStats getBufferPoolStats();
+
+    AdmissionStats getAdmissionStats();
+
 }
\ No newline at end of file
@@ -0,0 +1,48 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.nio;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RequestHandlerExecutors {
+
+    private static final String VIRTUAL_THREAD_EXECUTOR_METHOD = "newVirtualThreadPerTaskExecutor";
+    private static final String THREAD_NAME_PREFIX = "request-handler-";
+
+    private RequestHandlerExecutors() {
+    }
+
+    public static ExecutorService newDefaultExecutor() {
+        ExecutorService virtualThreadExecutor = newVirtualThreadExecutor();
+        if (virtualThreadExecutor != null) {
+            return virtualThreadExecutor;
+        }
+
+        return newPlatformThreadExecutor();
+    }
+
+    public static ExecutorService newPlatformThreadExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, THREAD_NAME_PREFIX + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+
+        return Executors.newCachedThreadPool(threadFactory);
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        // virtual threads are only available on Java 21+, the platform thread pool is used on older runtimes
+        try {
+            Method factoryMethod = Executors.class.getMethod(VIRTUAL_THREAD_EXECUTOR_METHOD);
+            return (ExecutorService) factoryMethod.invoke(null);
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            return null;
+        }
+    }
+
+}
\ No newline at end of file
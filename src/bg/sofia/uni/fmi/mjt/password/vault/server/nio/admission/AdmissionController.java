@@ -0,0 +1,76 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.nio.admission;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Work above the limits is rejected right away instead of being queued, so under overload the admitted
+// requests keep their latency and the rest fail fast. It is shared by the acceptor and all selector loops.
+public class AdmissionController {
+
+    private final int maxConnections;
+    private final int maxPendingRequests;
+    private final AtomicInteger openConnections;
+    private final AtomicInteger pendingRequests;
+    private final LongAdder rejectedConnections;
+    private final LongAdder completedRequests;
+    private final LongAdder rejectedRequests;
+
+    public AdmissionController(int maxConnections, int maxPendingRequests) {
+        if (maxConnections <= 0 || maxPendingRequests <= 0) {
+            throw new IllegalArgumentException("Limits should have positive values.");
+        }
+
+        this.maxConnections = maxConnections;
+        this.maxPendingRequests = maxPendingRequests;
+        this.openConnections = new AtomicInteger();
+        this.pendingRequests = new AtomicInteger();
+        this.rejectedConnections = new LongAdder();
+        this.completedRequests = new LongAdder();
+        this.rejectedRequests = new LongAdder();
+    }
+
+    public boolean tryAcquireConnection() {
+        if (tryAcquire(openConnections, maxConnections)) {
+            return true;
+        }
+
+        rejectedConnections.increment();
+        return false;
+    }
+
+    public void releaseConnection() {
+        openConnections.decrementAndGet();
+    }
+
+    public boolean tryAcquireRequest() {
+        if (tryAcquire(pendingRequests, maxPendingRequests)) {
+            return true;
+        }
+
+        rejectedRequests.increment();
+        return false;
+    }
+
+    public void releaseRequest() {
+        pendingRequests.decrementAndGet();
+        completedRequests.increment();
+    }
+
+    public AdmissionStats getStats() {
+        return new AdmissionStats(openConnections.get(), maxConnections, rejectedConnections.sum(),
+                pendingRequests.get(), maxPendingRequests, completedRequests.sum(), rejectedRequests.sum());
+    }
+
+    private static boolean tryAcquire(AtomicInteger counter, int limit) {
+        int current;
+        do {
+            current = counter.get();
+            if (current >= limit) {
+                return false;
+            }
+        } while (!counter.compareAndSet(current, current + 1));
+
+        return true;
+    }
+
+}
\ No newline at end of file
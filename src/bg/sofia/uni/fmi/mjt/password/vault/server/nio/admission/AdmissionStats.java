@@ -0,0 +1,15 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.nio.admission;
+
+public record AdmissionStats(int openConnections, int maxConnections, long rejectedConnections,
+                             int pendingRequests, int maxPendingRequests, long completedRequests,
+                             long rejectedRequests) {
+
+    @Override
+    public String toString() {
+        return String.format("connections: %d / %d, rejected: %d%n", openConnections, maxConnections,
+                rejectedConnections) +
+                String.format("pending requests: %d / %d, completed: %d, rejected: %d%n", pendingRequests,
+                        maxPendingRequests, completedRequests, rejectedRequests);
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,115 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.nio.buffer;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ByteBufferPool {
+
+    private static final int MIN_SIZE_CLASS_SHIFT = 10;
+    private static final int MAX_SIZE_CLASS_SHIFT = 21;
+    private static final int SIZE_CLASSES_COUNT = MAX_SIZE_CLASS_SHIFT - MIN_SIZE_CLASS_SHIFT + 1;
+
+    private final long maxPooledBytes;
+    private final Queue<ByteBuffer>[] sizeClasses;
+    private final AtomicInteger[] pooledBuffersCounts;
+    private final AtomicLong pooledBytes;
+    private final AtomicLong borrowedBuffers;
+
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder discards;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public ByteBufferPool(long maxPooledBytes) {
+        if (maxPooledBytes < 0) {
+            throw new IllegalArgumentException("maxPooledBytes should not be negative.");
+        }
+
+        this.maxPooledBytes = maxPooledBytes;
+        this.sizeClasses = new Queue[SIZE_CLASSES_COUNT];
+        this.pooledBuffersCounts = new AtomicInteger[SIZE_CLASSES_COUNT];
+        for (int i = 0; i < SIZE_CLASSES_COUNT; i++) {
+            sizeClasses[i] = new ConcurrentLinkedQueue<>();
+            pooledBuffersCounts[i] = new AtomicInteger();
+        }
+        this.pooledBytes = new AtomicLong();
+        this.borrowedBuffers = new AtomicLong();
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.discards = new LongAdder();
+    }
+
+    public ByteBuffer acquire(int minCapacity) {
+        if (minCapacity <= 0) {
+            throw new IllegalArgumentException("minCapacity should have a positive value.");
+        }
+
+        borrowedBuffers.incrementAndGet();
+        int sizeClass = sizeClassOf(minCapacity);
+        if (sizeClass >= SIZE_CLASSES_COUNT) {
+            misses.increment();
+            return ByteBuffer.allocateDirect(minCapacity);
+        }
+
+        ByteBuffer buffer = sizeClasses[sizeClass].poll();
+        if (buffer == null) {
+            misses.increment();
+            return ByteBuffer.allocateDirect(capacityOf(sizeClass));
+        }
+
+        pooledBuffersCounts[sizeClass].decrementAndGet();
+        pooledBytes.addAndGet(-buffer.capacity());
+        hits.increment();
+
+        buffer.clear();
+        return buffer;
+    }
+
+    public void release(ByteBuffer buffer) {
+        if (buffer == null) {
+            throw new IllegalArgumentException("Buffer should not be null.");
+        }
+
+        borrowedBuffers.decrementAndGet();
+        int sizeClass = sizeClassOf(buffer.capacity());
+        if (!buffer.isDirect() || sizeClass >= SIZE_CLASSES_COUNT || buffer.capacity() != capacityOf(sizeClass)) {
+            discards.increment();
+            return;
+        }
+        if (pooledBytes.addAndGet(buffer.capacity()) > maxPooledBytes) {
+            pooledBytes.addAndGet(-buffer.capacity());
+            discards.increment();
+            return;
+        }
+
+        buffer.clear();
+        pooledBuffersCounts[sizeClass].incrementAndGet();
+        sizeClasses[sizeClass].add(buffer);
+    }
+
+    public ByteBufferPoolStats getStats() {
+        int[] pooledBuffers = new int[SIZE_CLASSES_COUNT];
+        int[] capacities = new int[SIZE_CLASSES_COUNT];
+        for (int i = 0; i < SIZE_CLASSES_COUNT; i++) {
+            pooledBuffers[i] = pooledBuffersCounts[i].get();
+            capacities[i] = capacityOf(i);
+        }
+
+        return new ByteBufferPoolStats(hits.sum(), misses.sum(), discards.sum(), borrowedBuffers.get(),
+                pooledBytes.get(), maxPooledBytes, capacities, pooledBuffers);
+    }
+
+    private static int sizeClassOf(int capacity) {
+        int shift = Integer.SIZE - Integer.numberOfLeadingZeros(capacity - 1);
+        return Math.max(shift, MIN_SIZE_CLASS_SHIFT) - MIN_SIZE_CLASS_SHIFT;
+    }
+
+    private static int capacityOf(int sizeClass) {
+        return 1 << (sizeClass + MIN_SIZE_CLASS_SHIFT);
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,29 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.nio.buffer;
+
+public record ByteBufferPoolStats(long hits, long misses, long discards, long borrowedBuffers,
+                                  long pooledBytes, long maxPooledBytes,
+                                  int[] sizeClassCapacities, int[] pooledBuffersPerSizeClass) {
+
+    public double hitRatio() {
+        long acquires = hits + misses;
+        return acquires == 0 ? 0.0 : (double) hits / acquires;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("hits: %d, misses: %d (hit ratio %.2f%%), discards: %d, borrowed: %d%n",
+                hits, misses, hitRatio() * 100, discards, borrowedBuffers));
+        builder.append(String.format("pooled: %d / %d bytes%n", pooledBytes, maxPooledBytes));
+        for (int i = 0; i < sizeClassCapacities.length; i++) {
+            if (pooledBuffersPerSizeClass[i] == 0) {
+                continue;
+            }
+            builder.append(String.format("  %8d bytes: %d buffers%n",
+                    sizeClassCapacities[i], pooledBuffersPerSizeClass[i]));
+        }
+
+        return builder.toString();
+    }
+
+}
\ No newline at end of file
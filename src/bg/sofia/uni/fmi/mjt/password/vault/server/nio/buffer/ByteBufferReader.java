@@ -0,0 +1,57 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.nio.buffer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+public class ByteBufferReader extends Reader {
+
+    private final ByteBuffer source;
+    private final CharsetDecoder decoder;
+    private boolean isFlushed;
+
+    public ByteBufferReader(ByteBuffer source) {
+        if (source == null) {
+            throw new IllegalArgumentException("Source buffer should not be null.");
+        }
+
+        this.source = source;
+        this.decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.isFlushed = false;
+    }
+
+    @Override
+    public int read(char[] chars, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (isFlushed) {
+            return -1;
+        }
+
+        CharBuffer target = CharBuffer.wrap(chars, offset, length);
+        CoderResult result = decoder.decode(source, target, true);
+        if (result.isError()) {
+            throw new CharacterCodingException();
+        }
+        if (!source.hasRemaining() && decoder.flush(target).isUnderflow()) {
+            isFlushed = true;
+        }
+
+        int readChars = target.position() - offset;
+        return readChars == 0 && isFlushed ? -1 : readChars;
+    }
+
+    @Override
+    public void close() {
+    }
+
+}
\ No newline at end of file
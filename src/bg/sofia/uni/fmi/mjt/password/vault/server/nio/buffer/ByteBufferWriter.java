@@ -0,0 +1,93 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.nio.buffer;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+public class ByteBufferWriter extends Writer {
+
+    private final ByteBufferPool pool;
+    private final CharsetEncoder encoder;
+
+    //Write mode
+    private ByteBuffer buffer;
+
+    public ByteBufferWriter(ByteBufferPool pool, int initialCapacity) {
+        if (pool == null) {
+            throw new IllegalArgumentException("Pool should not be null.");
+        }
+
+        this.pool = pool;
+        this.encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.buffer = pool.acquire(initialCapacity);
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) throws IOException {
+        encode(CharBuffer.wrap(chars, offset, length));
+    }
+
+    @Override
+    public void write(String string, int offset, int length) throws IOException {
+        encode(CharBuffer.wrap(string, offset, offset + length));
+    }
+
+    @Override
+    public void write(int character) throws IOException {
+        encode(CharBuffer.wrap(new char[] {(char) character}));
+    }
+
+    public ByteBuffer toByteBuffer() {
+        //Read mode
+        buffer.flip();
+        ByteBuffer result = buffer;
+        buffer = null;
+        return result;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+        if (buffer != null) {
+            pool.release(buffer);
+            buffer = null;
+        }
+    }
+
+    private void encode(CharBuffer chars) throws IOException {
+        if (buffer == null) {
+            throw new IOException("Writer has already been closed.");
+        }
+
+        while (true) {
+            CoderResult result = encoder.encode(chars, buffer, false);
+            if (result.isError()) {
+                throw new CharacterCodingException();
+            }
+            if (result.isUnderflow()) {
+                return;
+            }
+            grow();
+        }
+    }
+
+    private void grow() {
+        ByteBuffer grownBuffer = pool.acquire(buffer.capacity() * 2);
+        buffer.flip();
+        grownBuffer.put(buffer);
+        pool.release(buffer);
+        buffer = grownBuffer;
+    }
+
+}
\ No newline at end of file
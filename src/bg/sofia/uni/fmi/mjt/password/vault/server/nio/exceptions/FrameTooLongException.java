@@ -0,0 +1,13 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.nio.exceptions;
+
+public class FrameTooLongException extends Exception {
+
+    public FrameTooLongException(String message) {
+        super(message);
+    }
+
+    public FrameTooLongException(String message, Throwable e) {
+        super(message, e);
+    }
+
+}
\ No newline at end of file
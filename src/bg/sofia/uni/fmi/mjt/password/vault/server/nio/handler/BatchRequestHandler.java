@@ -0,0 +1,128 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.nio.handler;
+
+import bg.sofia.uni.fmi.mjt.password.vault.request.NioRequest;
+import bg.sofia.uni.fmi.mjt.password.vault.request.RequestType;
+import bg.sofia.uni.fmi.mjt.password.vault.response.NioResponse;
+import bg.sofia.uni.fmi.mjt.password.vault.response.ResponseType;
+import bg.sofia.uni.fmi.mjt.password.vault.server.BatchingPasswordVault;
+import bg.sofia.uni.fmi.mjt.password.vault.server.logger.Level;
+import bg.sofia.uni.fmi.mjt.password.vault.server.logger.Logger;
+import bg.sofia.uni.fmi.mjt.password.vault.server.nio.exceptions.RequestNotSupportedException;
+import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.ElementNotFoundException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// Dispatches the requests of a batch through the registry of the server, so every handler of the server can be
+// batched and the requests are counted like the other ones. The credentials changes of the handlers that write
+// through the batching vault are persisted with a single flush per user.
+public class BatchRequestHandler implements NioRequestHandler {
+
+    private final BatchingPasswordVault batchingPasswordVault;
+    private final NioRequestHandlerRegistry handlerRegistry;
+    private final Logger logger;
+
+    public BatchRequestHandler(BatchingPasswordVault batchingPasswordVault,
+                               NioRequestHandlerRegistry handlerRegistry, Logger logger) {
+        this.batchingPasswordVault = batchingPasswordVault;
+        this.handlerRegistry = handlerRegistry;
+        this.logger = logger;
+    }
+
+    @Override
+    public NioResponse handle(NioRequest request) {
+        if (request == null) {
+            throw new IllegalArgumentException("Request should not be null.");
+        }
+
+        String username = request.getUsername();
+        List<NioRequest> requests = request.getRequests();
+        if (username == null || requests == null) {
+            throw new IllegalStateException("Username and requests should have non-null values.");
+        }
+
+        // validation and breach checks run before the lock is taken, so it is held only while the changes are applied
+        List<Supplier<NioResponse>> preparedRequests = new ArrayList<>(requests.size());
+        for (NioRequest batchRequest : requests) {
+            preparedRequests.add(prepareBatchRequest(batchRequest));
+        }
+
+        List<NioResponse> responses = new ArrayList<>(requests.size());
+        // the changes are kept in memory until the flush, so nothing else may change the vault in between
+        batchingPasswordVault.runExclusively(() -> applyBatchRequests(username, requests, preparedRequests, responses));
+
+        String logMessage = username + " executed a batch of " + requests.size() + " requests.";
+        logger.log(Level.INFO, LocalDateTime.now(), logMessage);
+        System.out.println(logMessage);
+
+        return NioResponse.ofBatch(responses);
+    }
+
+    private void applyBatchRequests(String username, List<NioRequest> requests,
+                                    List<Supplier<NioResponse>> preparedRequests, List<NioResponse> responses) {
+        // whether each request has changed credentials that the flush persists
+        boolean[] hasChanges = new boolean[preparedRequests.size()];
+        Map<String, Exception> failures;
+        batchingPasswordVault.beginBatch();
+        try {
+            for (int i = 0; i < preparedRequests.size(); i++) {
+                int changesCount = batchingPasswordVault.getBatchChangesCount();
+                responses.add(applyBatchRequest(preparedRequests.get(i)));
+                hasChanges[i] = batchingPasswordVault.getBatchChangesCount() != changesCount;
+            }
+        } finally {
+            failures = batchingPasswordVault.flush();
+        }
+
+        for (Map.Entry<String, Exception> failure : failures.entrySet()) {
+            String logMessage = username + " sent a batch whose changes to the credentials of " + failure.getKey() +
+                    " could not be saved. Stacktrace: " + Arrays.toString(failure.getValue().getStackTrace());
+            logger.log(Level.ERROR, LocalDateTime.now(), logMessage);
+            System.out.println(logMessage);
+        }
+        // the requests whose changes are not saved are not reported as successful
+        for (int i = 0; i < responses.size(); i++) {
+            Exception failure = hasChanges[i] ? failures.get(requests.get(i).getUsername()) : null;
+            if (failure != null) {
+                responses.set(i, new NioResponse(failure instanceof ElementNotFoundException
+                        ? ResponseType.USER_NOT_FOUND : ResponseType.INTERNAL_SERVER_ERROR, null));
+            }
+        }
+    }
+
+    private Supplier<NioResponse> prepareBatchRequest(NioRequest request) {
+        if (request == null || request.getType() == null || request.getType() == RequestType.BATCH) {
+            return () -> new NioResponse(ResponseType.REQUEST_NOT_SUPPORTED, null);
+        }
+
+        try {
+            return handlerRegistry.prepare(request);
+        } catch (RequestNotSupportedException e) {
+            return () -> new NioResponse(ResponseType.REQUEST_NOT_SUPPORTED, null);
+        } catch (RuntimeException e) {
+            return () -> unexpectedError(e);
+        }
+    }
+
+    private NioResponse applyBatchRequest(Supplier<NioResponse> preparedRequest) {
+        try {
+            return preparedRequest.get();
+        } catch (RuntimeException e) {
+            return unexpectedError(e);
+        }
+    }
+
+    private NioResponse unexpectedError(RuntimeException e) {
+        String logMessage = "An unexpected error occurred while handling a batch request. " +
+                "Stacktrace: " + Arrays.toString(e.getStackTrace());
+        logger.log(Level.ERROR, LocalDateTime.now(), logMessage);
+        System.out.println(logMessage);
+
+        return new NioResponse(ResponseType.INTERNAL_SERVER_ERROR, null);
+    }
+
+}
\ No newline at end of file
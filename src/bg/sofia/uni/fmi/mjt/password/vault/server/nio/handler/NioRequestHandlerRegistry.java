@@ -0,0 +1,98 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.nio.handler;
+
+import bg.sofia.uni.fmi.mjt.password.vault.request.NioRequest;
+import bg.sofia.uni.fmi.mjt.password.vault.request.RequestType;
+import bg.sofia.uni.fmi.mjt.password.vault.response.NioResponse;
+import bg.sofia.uni.fmi.mjt.password.vault.server.BatchingPasswordVault;
+import bg.sofia.uni.fmi.mjt.password.vault.server.PasswordVault;
+import bg.sofia.uni.fmi.mjt.password.vault.server.compromised.CompromisedPasswordsClient;
+import bg.sofia.uni.fmi.mjt.password.vault.server.logger.Logger;
+import bg.sofia.uni.fmi.mjt.password.vault.server.nio.exceptions.RequestNotSupportedException;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Handlers are stateless, so a single instance of each one serves all requests of its type. Handlers should be
+// registered before the first dispatch, after that the registry is only read and is safe to share between threads.
+public class NioRequestHandlerRegistry {
+
+    private final Map<RequestType, NioRequestHandler> handlers;
+    private final LongAdder[] dispatchCounts;
+
+    public NioRequestHandlerRegistry() {
+        this.handlers = new EnumMap<>(RequestType.class);
+        this.dispatchCounts = new LongAdder[RequestType.values().length];
+        for (int i = 0; i < dispatchCounts.length; i++) {
+            dispatchCounts[i] = new LongAdder();
+        }
+    }
+
+    public static NioRequestHandlerRegistry withDefaultHandlers(PasswordVault passwordVault,
+                                                                CompromisedPasswordsClient compromisedPasswordsClient,
+                                                                Logger logger) {
+        if (passwordVault == null || compromisedPasswordsClient == null) {
+            throw new IllegalArgumentException("All arguments should have non-null values.");
+        }
+
+        // outside a batch it writes through, so the handlers share it and their changes can be batched as well
+        BatchingPasswordVault batchingPasswordVault = new BatchingPasswordVault(passwordVault);
+        NioRequestHandlerRegistry registry = new NioRequestHandlerRegistry();
+        registry.register(RequestType.REGISTER, new RegisterRequestHandler(batchingPasswordVault, logger));
+        registry.register(RequestType.DELETE_ACCOUNT, new DeleteAccountRequestHandler(batchingPasswordVault, logger));
+        registry.register(RequestType.LOGIN, new LoginRequestHandler(batchingPasswordVault, logger));
+        registry.register(RequestType.CHANGE_ACCOUNT_PASSWORD,
+                new ChangeAccountPasswordRequestHandler(batchingPasswordVault, logger));
+        registry.register(RequestType.LOGOUT, new LogoutRequestHandler(batchingPasswordVault, logger));
+        registry.register(RequestType.STORE_PASSWORD,
+                new StorePasswordRequestHandler(batchingPasswordVault, compromisedPasswordsClient, logger));
+        registry.register(RequestType.UPDATE_PASSWORD,
+                new UpdatePasswordRequestHandler(batchingPasswordVault, compromisedPasswordsClient, logger));
+        registry.register(RequestType.GET_PASSWORD, new GetPasswordRequestHandler(batchingPasswordVault, logger));
+        registry.register(RequestType.REMOVE_PASSWORD, new RemovePasswordRequestHandler(batchingPasswordVault, logger));
+        // the requests of a batch are dispatched through this registry, so they reach the registered handlers
+        registry.register(RequestType.BATCH, new BatchRequestHandler(batchingPasswordVault, registry, logger));
+
+        return registry;
+    }
+
+    // replaces the handler that is already registered for the type
+    public void register(RequestType type, NioRequestHandler handler) {
+        if (type == null || handler == null) {
+            throw new IllegalArgumentException("Type and handler should not be null.");
+        }
+
+        handlers.put(type, handler);
+    }
+
+    public NioResponse dispatch(NioRequest request) throws RequestNotSupportedException {
+        return prepare(request).get();
+    }
+
+    // counts the request as dispatched, the returned supplier completes it, see NioRequestHandler.prepare
+    public Supplier<NioResponse> prepare(NioRequest request) throws RequestNotSupportedException {
+        if (request == null) {
+            throw new IllegalArgumentException("Request should not be null.");
+        }
+
+        RequestType type = request.getType();
+        NioRequestHandler handler = type == null ? null : handlers.get(type);
+        if (handler == null) {
+            throw new RequestNotSupportedException("Request with such a type is not supported.");
+        }
+
+        dispatchCounts[type.ordinal()].increment();
+        return handler.prepare(request);
+    }
+
+    public Map<RequestType, Long> getDispatchCounts() {
+        Map<RequestType, Long> counts = new EnumMap<>(RequestType.class);
+        for (RequestType type : RequestType.values()) {
+            counts.put(type, dispatchCounts[type.ordinal()].sum());
+        }
+
+        return counts;
+    }
+
+}
\ No newline at end of file
@@ -14,6 +14,7 @@ import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.Reposito
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.function.Supplier;
 
 public class StorePasswordRequestHandler implements NioRequestHandler {
 
@@ -30,6 +31,12 @@ public class StorePasswordRequestHandler implements NioRequestHandler {
 
     @Override
     public NioResponse handle(NioRequest request) {
+        return prepare(request).get();
+    }
+
+    // the breach check calls a remote service, so it runs before the batch takes the vault lock
+    @Override
+    public Supplier<NioResponse> prepare(NioRequest request) {
         if (request == null) {
             throw new IllegalArgumentException("Request should not be null.");
         }
@@ -56,31 +63,7 @@ public class StorePasswordRequestHandler implements NioRequestHandler {
         }
 
         if (!isCompromised) {
-            try {
-                passwordVault.addCredentials(username, applicationName, credentialsUsername, encryptedPassword);
-            } catch (ElementNotFoundException e) {
-                String logMessage = username +
-                        "tried to add credentials. It failed because user with such an username was not found. " +
-                        "Stacktrace: " + Arrays.toString(e.getStackTrace());
-                logger.log(Level.INFO, LocalDateTime.now(), logMessage);
-                System.out.println(logMessage);
-
-                return new NioResponse(ResponseType.USER_NOT_FOUND, null);
-            } catch (RepositoryException e) {
-                String logMessage = username + " tried to add credentials for application  " + applicationName + "." +
-                        "It failed because credentials with such an combination of application name and " +
-                        "credentials username already exist. " +
-                        "Stacktrace: " + Arrays.toString(e.getStackTrace());
-                logger.log(Level.INFO, LocalDateTime.now(), logMessage);
-                System.out.println(logMessage);
-
-                return new NioResponse(ResponseType.CREDENTIALS_ALREADY_EXIST, null);
-            }
-            String logMessage = username + " successfully stored credentials for  " + applicationName + ".";
-            logger.log(Level.INFO, LocalDateTime.now(), logMessage);
-            System.out.println(logMessage);
-
-            return new NioResponse(ResponseType.PASSWORD_STORED_SUCCESSFULLY, null);
+            return () -> addCredentials(username, applicationName, credentialsUsername, encryptedPassword);
         }
 
         String logMessage = username + " tried to add credentials for application  " + applicationName + "." +
@@ -88,7 +71,36 @@ public class StorePasswordRequestHandler implements NioRequestHandler {
         logger.log(Level.INFO, LocalDateTime.now(), logMessage);
         System.out.println(logMessage);
 
-        return new NioResponse(ResponseType.PASSWORD_COMPROMISED, null);
+        return () -> new NioResponse(ResponseType.PASSWORD_COMPROMISED, null);
+    }
+
+    private NioResponse addCredentials(String username, String applicationName, String credentialsUsername,
+                                      String encryptedPassword) {
+        try {
+            passwordVault.addCredentials(username, applicationName, credentialsUsername, encryptedPassword);
+        } catch (ElementNotFoundException e) {
+            String logMessage = username +
+                    "tried to add credentials. It failed because user with such an username was not found. " +
+                    "Stacktrace: " + Arrays.toString(e.getStackTrace());
+            logger.log(Level.INFO, LocalDateTime.now(), logMessage);
+            System.out.println(logMessage);
+
+            return new NioResponse(ResponseType.USER_NOT_FOUND, null);
+        } catch (RepositoryException e) {
+            String logMessage = username + " tried to add credentials for application  " + applicationName + "." +
+                    "It failed because credentials with such an combination of application name and " +
+                    "credentials username already exist. " +
+                    "Stacktrace: " + Arrays.toString(e.getStackTrace());
+            logger.log(Level.INFO, LocalDateTime.now(), logMessage);
+            System.out.println(logMessage);
+
+            return new NioResponse(ResponseType.CREDENTIALS_ALREADY_EXIST, null);
+        }
+        String logMessage = username + " successfully stored credentials for  " + applicationName + ".";
+        logger.log(Level.INFO, LocalDateTime.now(), logMessage);
+        System.out.println(logMessage);
+
+        return new NioResponse(ResponseType.PASSWORD_STORED_SUCCESSFULLY, null);
     }
 
 }
\ No newline at end of file
@@ -14,6 +14,7 @@ import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.UserNotF
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.function.Supplier;
 
 public class UpdatePasswordRequestHandler implements NioRequestHandler {
 
@@ -30,6 +31,12 @@ public class UpdatePasswordRequestHandler implements NioRequestHandler {
 
     @Override
     public NioResponse handle(NioRequest request) {
+        return prepare(request).get();
+    }
+
+    // the breach check calls a remote service, so it runs before the batch takes the vault lock
+    @Override
+    public Supplier<NioResponse> prepare(NioRequest request) {
         if (request == null) {
             throw new IllegalArgumentException("Request should not be null.");
         }
@@ -56,41 +63,46 @@ public class UpdatePasswordRequestHandler implements NioRequestHandler {
         }
 
         if (!isCompromised) {
-            try {
-                passwordVault.updateCredentials(
-                        username, applicationName, credentialsUsername, encryptedPassword);
-            } catch (UserNotFoundException e) {
-                String logMessage = username +
-                        "tried to add credentials. It failed because user with such an username was not found. " +
-                        "Stacktrace: " + Arrays.toString(e.getStackTrace());
-                logger.log(Level.INFO, LocalDateTime.now(), logMessage);
-                System.out.println(logMessage);
-
-                return new NioResponse(ResponseType.USER_NOT_FOUND, null);
-            } catch (ElementNotFoundException e) {
-                String logMessage = username + " tried to add credentials for application  " + applicationName + "." +
-                        "It failed because credentials with such an combination of application name and " +
-                        "credentials username were not found. " +
-                        "Stacktrace: " + Arrays.toString(e.getStackTrace());
-                logger.log(Level.INFO, LocalDateTime.now(), logMessage);
-                System.out.println(logMessage);
-
-                return new NioResponse(ResponseType.CREDENTIALS_NOT_FOUND, null);
-            }
+            return () -> updateCredentials(username, applicationName, credentialsUsername, encryptedPassword);
+        }
+
+        String logMessage = username + " tried to add credentials for application  " + applicationName + "." +
+                "It failed because password is compromised.";
+        logger.log(Level.INFO, LocalDateTime.now(), logMessage);
+        System.out.println(logMessage);
+
+        return () -> new NioResponse(ResponseType.PASSWORD_COMPROMISED, null);
+    }
+
+    private NioResponse updateCredentials(String username, String applicationName,
+                                          String credentialsUsername, String encryptedPassword) {
+        try {
+            passwordVault.updateCredentials(
+                    username, applicationName, credentialsUsername, encryptedPassword);
+        } catch (UserNotFoundException e) {
+            String logMessage = username +
+                    "tried to add credentials. It failed because user with such an username was not found. " +
+                    "Stacktrace: " + Arrays.toString(e.getStackTrace());
+            logger.log(Level.INFO, LocalDateTime.now(), logMessage);
+            System.out.println(logMessage);
+
+            return new NioResponse(ResponseType.USER_NOT_FOUND, null);
+        } catch (ElementNotFoundException e) {
             String logMessage = username + " tried to add credentials for application  " + applicationName + "." +
-                    "It failed because password is compromised.";
+                    "It failed because credentials with such an combination of application name and " +
+                    "credentials username were not found. " +
+                    "Stacktrace: " + Arrays.toString(e.getStackTrace());
             logger.log(Level.INFO, LocalDateTime.now(), logMessage);
             System.out.println(logMessage);
 
-            return new NioResponse(ResponseType.PASSWORD_UPDATED_SUCCESSFULLY, null);
+            return new NioResponse(ResponseType.CREDENTIALS_NOT_FOUND, null);
         }
-
         String logMessage = username + " tried to add credentials for application  " + applicationName + "." +
                 "It failed because password is compromised.";
         logger.log(Level.INFO, LocalDateTime.now(), logMessage);
         System.out.println(logMessage);
 
-        return new NioResponse(ResponseType.PASSWORD_COMPROMISED, null);
+        return new NioResponse(ResponseType.PASSWORD_UPDATED_SUCCESSFULLY, null);
     }
 
 }
\ No newline at end of file
@@ -2,36 +2,49 @@ package bg.sofia.uni.fmi.mjt.password.vault.server.repository;
 
 import bg.sofia.uni.fmi.mjt.password.vault.server.credentials.AccountCredentials;
 import bg.sofia.uni.fmi.mjt.password.vault.server.credentials.AccountCredentialsKey;
+import bg.sofia.uni.fmi.mjt.password.vault.server.jfr.RepositoryWriteEvent;
 import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.DataFileException;
 import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.CredentialAlreadyExistsException;
 import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.CredentialNotFoundException;
 import bg.sofia.uni.fmi.mjt.password.vault.file.FileCreator;
+import bg.sofia.uni.fmi.mjt.password.vault.file.TornTailTruncator;
 import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 public class AccountCredentialsRepository implements Repository<AccountCredentialsKey, AccountCredentials> {
 
     private static final Gson GSON = new Gson();
+    // the rough heap cost of an entry of the map and the objects of its key and credentials
+    private static final long ENTRY_OVERHEAD_BYTES = 160;
     private String credentialsFilePath;
+    // null until the credentials are first accessed and after they are unloaded, which the credentials cache may do
+    // from another thread at any time, so the methods that use them are synchronized
     transient private Map<AccountCredentialsKey, AccountCredentials> credentials;
+    transient private boolean isAppendOnly;
+    // the records in the file that are overwritten or removed by later records
+    transient private int deadRecordsCount;
+    transient private long loadedBytes;
+    // whether the last line that was read is an incomplete record
+    transient private boolean isLastRecordTorn;
 
     public AccountCredentialsRepository(String username, String credentialsDirectory, String credentialsExtension) {
         credentialsFilePath =
                 generateCredentialsFilePath(username, credentialsDirectory, credentialsExtension).toString();
         FileCreator.createFileIfDoesNotExist(Path.of(credentialsFilePath));
-        credentials = readCredentialsFromPath(credentialsFilePath);
     }
 
     public AccountCredentialsRepository(Reader reader) {
@@ -39,11 +52,12 @@ public class AccountCredentialsRepository implements Repository<AccountCredentia
     }
 
     @Override
-    public AccountCredentials get(AccountCredentialsKey key) throws CredentialNotFoundException {
+    public synchronized AccountCredentials get(AccountCredentialsKey key) throws CredentialNotFoundException {
         if (key == null) {
             throw new IllegalArgumentException("Key cannot be null.");
         }
 
+        load();
         AccountCredentials user = credentials.get(key);
         if (user == null) {
             throw new CredentialNotFoundException(
@@ -54,21 +68,23 @@ public class AccountCredentialsRepository implements Repository<AccountCredentia
     }
 
     @Override
-    public boolean contains(AccountCredentialsKey key) {
+    public synchronized boolean contains(AccountCredentialsKey key) {
         if (key == null) {
             throw new IllegalArgumentException("Key should have a non-null value.");
         }
 
+        load();
         return credentials.containsKey(key);
     }
 
     @Override
-    public void put(AccountCredentials accountCredentials, Writer appendWriter)
+    public synchronized void put(AccountCredentials accountCredentials, Writer appendWriter)
             throws CredentialAlreadyExistsException {
         if (accountCredentials == null || appendWriter == null) {
             throw new IllegalArgumentException("All arguments should have non-null values");
         }
 
+        load();
         AccountCredentialsKey key = new AccountCredentialsKey(accountCredentials.getApplicationName(),
                 accountCredentials.getUsername());
         if (credentials.containsKey(key)) {
@@ -77,46 +93,167 @@ public class AccountCredentialsRepository implements Repository<AccountCredentia
         }
 
         writeCredential(accountCredentials, appendWriter);
-        credentials.put(key, accountCredentials);
+        putCredentials(key, accountCredentials);
     }
 
     @Override
-    public void update(AccountCredentials accountCredentials, Writer writer) throws CredentialNotFoundException {
+    public synchronized void update(AccountCredentials accountCredentials, Writer writer)
+            throws CredentialNotFoundException {
         if (accountCredentials == null || writer == null) {
             throw new IllegalArgumentException("All arguments should have non-null values");
         }
 
+        load();
         AccountCredentialsKey key = new AccountCredentialsKey(accountCredentials.getApplicationName(),
                 accountCredentials.getUsername());
         if (!credentials.containsKey(key)) {
-            writeAllCredentials(writer);
+            if (!isAppendOnly) {
+                writeAllCredentials(writer);
+            }
             throw new CredentialNotFoundException(
                     "Credentials with such an combination of username and password does not exist.");
         }
 
-        credentials.put(key, accountCredentials);
-        writeAllCredentials(writer);
+        AccountCredentials previousCredentials = putCredentials(key, accountCredentials);
+        try {
+            if (isAppendOnly) {
+                writeRecord(CredentialsLogRecord.update(accountCredentials), writer);
+            } else {
+                writeAllCredentials(writer);
+            }
+        } catch (UncheckedIOException e) {
+            // the file keeps the previous credentials, so the memory does as well
+            putCredentials(key, previousCredentials);
+            throw e;
+        }
+        if (isAppendOnly) {
+            deadRecordsCount++;
+        }
     }
 
     @Override
-    public void remove(AccountCredentialsKey key, Writer writer) throws CredentialNotFoundException {
+    public synchronized void remove(AccountCredentialsKey key, Writer writer) throws CredentialNotFoundException {
         if (key == null || writer == null) {
             throw new IllegalArgumentException("All arguments should have non-null values");
         }
 
+        load();
         if (!credentials.containsKey(key)) {
-            writeAllCredentials(writer);
+            if (!isAppendOnly) {
+                writeAllCredentials(writer);
+            }
             throw new CredentialNotFoundException(
                     "Credentials with such an combination of username and password does not exist.");
         }
 
-        credentials.remove(key);
+        AccountCredentials removedCredentials = removeCredentials(key);
+        try {
+            if (isAppendOnly) {
+                writeRecord(CredentialsLogRecord.remove(key), writer);
+            } else {
+                writeAllCredentials(writer);
+            }
+        } catch (UncheckedIOException e) {
+            // the file keeps the removed credentials, so the memory does as well
+            putCredentials(key, removedCredentials);
+            throw e;
+        }
+        if (isAppendOnly) {
+            // both the removed record and the remove record itself
+            deadRecordsCount += 2;
+        }
+    }
+
+    // writes the live credentials only, so the writer should truncate the file
+    @Override
+    public synchronized void flush(Writer writer) {
+        if (writer == null) {
+            throw new IllegalArgumentException("Writer should not be null.");
+        }
+
+        load();
         writeAllCredentials(writer);
+        deadRecordsCount = 0;
+    }
+
+    // not synchronized, since it does not read the credentials in memory, so writing a large file does not hold up
+    // the other operations
+    @Override
+    public void flush(Map<AccountCredentialsKey, AccountCredentials> elements, Writer writer) {
+        if (elements == null || writer == null) {
+            throw new IllegalArgumentException("Elements and writer should not be null.");
+        }
+
+        writeAllCredentials(elements.values(), writer);
+    }
+
+    // In append-only mode update and remove append a record to the writer instead of writing all credentials,
+    // so the writer should append to the file. Reading the file replays the records.
+    @Override
+    public synchronized void setAppendOnly(boolean isAppendOnly) {
+        this.isAppendOnly = isAppendOnly;
+    }
+
+    public synchronized boolean isAppendOnly() {
+        return isAppendOnly;
+    }
+
+    @Override
+    public synchronized int getDeadRecordsCount() {
+        return deadRecordsCount;
+    }
+
+    @Override
+    public synchronized void forgetDeadRecords(int deadRecordsCount) {
+        // the credentials may have been unloaded and read again meanwhile, which counts the dead records anew
+        this.deadRecordsCount = Math.max(this.deadRecordsCount - deadRecordsCount, 0);
+    }
+
+    // The file is compacted only when the dead records also outnumber the live ones, so the cost of rewriting
+    // the live credentials is spread over at least as many changes.
+    @Override
+    public synchronized boolean needsCompaction(int deadRecordsThreshold) {
+        if (deadRecordsThreshold <= 0) {
+            throw new IllegalArgumentException("Dead records threshold should have a positive value.");
+        }
+
+        // the dead records of unloaded credentials are counted again when they are loaded
+        return isLoaded() && deadRecordsCount >= deadRecordsThreshold && deadRecordsCount >= credentials.size();
+    }
+
+    // reads the credentials from the file, unless they are already in memory
+    public synchronized void load() {
+        if (credentials == null) {
+            FileCreator.createFileIfDoesNotExist(Path.of(credentialsFilePath));
+            credentials = readCredentialsFromPath(credentialsFilePath);
+        }
+    }
+
+    public synchronized boolean isLoaded() {
+        return credentials != null;
+    }
+
+    // Drops the credentials from memory, the next access reads them from the file again.
+    // Changes written to a null writer are lost unless they are flushed first.
+    public synchronized void unload() {
+        if (credentialsFilePath == null) {
+            // the credentials come from a reader and cannot be read again
+            return;
+        }
+
+        credentials = null;
+        deadRecordsCount = 0;
+        loadedBytes = 0;
+    }
+
+    // a rough estimate of the heap the loaded credentials take
+    public synchronized long estimateLoadedBytes() {
+        return loadedBytes;
     }
 
     @Override
-    public Map<AccountCredentialsKey, AccountCredentials> getAll() {
-        readCredentialsFromPathIfNotPresent();
+    public synchronized Map<AccountCredentialsKey, AccountCredentials> getAll() {
+        load();
 
         return Map.copyOf(credentials);
     }
@@ -127,8 +264,18 @@ public class AccountCredentialsRepository implements Repository<AccountCredentia
     }
 
     @Override
-    public void refresh() {
-        readCredentialsFromPathIfNotPresent();
+    public synchronized void refresh() {
+        load();
+    }
+
+    @Override
+    public synchronized void reload() {
+        if (credentialsFilePath == null) {
+            return;
+        }
+
+        unload();
+        load();
     }
 
     @Override
@@ -150,13 +297,20 @@ public class AccountCredentialsRepository implements Repository<AccountCredentia
             throw new IllegalArgumentException("UsersFile cannot be null.");
         }
 
+        Map<AccountCredentialsKey, AccountCredentials> readCredentials;
         try (Reader reader = new FileReader(credentialsFilePath)) {
-            return readCredentials(reader);
+            readCredentials = readCredentials(reader);
         } catch (FileNotFoundException e) {
             throw new DataFileException("Invalid path to credentials file.", e);
         } catch (IOException e) {
             throw new DataFileException("Cannot read credentials file.", e);
         }
+
+        if (isLastRecordTorn) {
+            truncateTornRecord(Path.of(credentialsFilePath));
+        }
+
+        return readCredentials;
     }
 
     private Map<AccountCredentialsKey, AccountCredentials> readCredentials(Reader credentialsReader) {
@@ -165,34 +319,148 @@ public class AccountCredentialsRepository implements Repository<AccountCredentia
         }
 
         BufferedReader bufferedReader = new BufferedReader(credentialsReader);
-        Gson gson = new Gson();
 
-        credentials = bufferedReader.lines()
-                .map(line -> gson.fromJson(line, AccountCredentials.class))
-                .collect(Collectors.toMap(elem ->
-                                new AccountCredentialsKey(elem.getApplicationName(), elem.getUsername()),
-                        elem -> new AccountCredentials(elem.getApplicationName(),
-                                elem.getUsername(), elem.getEncryptedPassword())));
+        credentials = new HashMap<>();
+        deadRecordsCount = 0;
+        loadedBytes = 0;
+        isLastRecordTorn = false;
+        try {
+            String line = bufferedReader.readLine();
+            while (line != null) {
+                // the next line is read first, so a malformed line is known to be the last one or not
+                String nextLine = bufferedReader.readLine();
+                CredentialsLogRecord record = null;
+                try {
+                    record = CredentialsLogRecord.of(line);
+                } catch (JsonParseException e) {
+                    if (nextLine != null) {
+                        throw new DataFileException("Credentials file has a malformed record before its end.", e);
+                    }
+                    // a crash has interrupted the append of the last record, the records before it are complete
+                    isLastRecordTorn = true;
+                }
+                if (record != null) {
+                    replayRecord(record);
+                }
+                line = nextLine;
+            }
+        } catch (IOException e) {
+            throw new DataFileException("Cannot read credentials file.", e);
+        }
 
         return credentials;
     }
 
+    // the next append would continue the torn line and make a record that cannot be read, so the line is removed
+    private void truncateTornRecord(Path credentialsFile) {
+        try {
+            long removedBytes = TornTailTruncator.truncateLastLine(credentialsFile);
+            System.out.println("The last record of credentials file " + credentialsFile.getFileName() +
+                    " was not written completely. " + removedBytes + " bytes were removed from the end of the file.");
+        } catch (IOException e) {
+            throw new DataFileException("Cannot remove the incomplete last record of credentials file.", e);
+        }
+        isLastRecordTorn = false;
+    }
+
+    private void replayRecord(CredentialsLogRecord record) {
+        switch (record.getType()) {
+            case PUT, UPDATE -> {
+                if (putCredentials(record.getKey(), record.getCredentials()) != null) {
+                    deadRecordsCount++;
+                }
+            }
+            case REMOVE -> deadRecordsCount += removeCredentials(record.getKey()) != null ? 2 : 1;
+        }
+    }
+
+    private AccountCredentials putCredentials(AccountCredentialsKey key, AccountCredentials accountCredentials) {
+        AccountCredentials previousCredentials = credentials.put(key, accountCredentials);
+        loadedBytes += estimateBytes(accountCredentials) - estimateBytes(previousCredentials);
+        return previousCredentials;
+    }
+
+    private AccountCredentials removeCredentials(AccountCredentialsKey key) {
+        AccountCredentials removedCredentials = credentials.remove(key);
+        loadedBytes -= estimateBytes(removedCredentials);
+        return removedCredentials;
+    }
+
+    // characters are counted as two bytes
+    private static long estimateBytes(AccountCredentials accountCredentials) {
+        if (accountCredentials == null) {
+            return 0;
+        }
+
+        return ENTRY_OVERHEAD_BYTES + 2L * (accountCredentials.getApplicationName().length() +
+                accountCredentials.getUsername().length() + accountCredentials.getEncryptedPassword().length());
+    }
+
     private void writeCredential(AccountCredentials accountCredentials, Writer writer) {
-        PrintWriter printWriter = new PrintWriter(new BufferedWriter(writer), true);
-        printWriter.println(accountCredentials);
+        RepositoryWriteEvent event = new RepositoryWriteEvent();
+        event.begin();
+        String line = accountCredentials.toString();
+        writeLine(line, writer);
+
+        commitWriteEvent(event, false, 1, event.isEnabled() ? RepositoryWriteEvent.lineBytes(line) : 0);
+    }
+
+    private void writeRecord(CredentialsLogRecord record, Writer writer) {
+        RepositoryWriteEvent event = new RepositoryWriteEvent();
+        event.begin();
+        String line = record.toString();
+        writeLine(line, writer);
+
+        commitWriteEvent(event, false, 1, event.isEnabled() ? RepositoryWriteEvent.lineBytes(line) : 0);
     }
 
     private void writeAllCredentials(Writer writer) {
-        PrintWriter printWriter = new PrintWriter(new BufferedWriter(writer), true);
-        for (AccountCredentials elem : credentials.values()) {
-            printWriter.println(elem);
+        writeAllCredentials(credentials.values(), writer);
+    }
+
+    private void writeAllCredentials(Collection<AccountCredentials> elements, Writer writer) {
+        RepositoryWriteEvent event = new RepositoryWriteEvent();
+        event.begin();
+        long writtenBytes = 0;
+        BufferedWriter bufferedWriter = new BufferedWriter(writer);
+        try {
+            for (AccountCredentials elem : elements) {
+                String line = elem.toString();
+                bufferedWriter.write(line);
+                bufferedWriter.newLine();
+                if (event.isEnabled()) {
+                    writtenBytes += RepositoryWriteEvent.lineBytes(line);
+                }
+            }
+            bufferedWriter.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write credentials file.", e);
         }
+
+        commitWriteEvent(event, true, elements.size(), writtenBytes);
     }
 
-    private void readCredentialsFromPathIfNotPresent() {
-        if (credentials == null || credentials.size() == 0) {
-            FileCreator.createFileIfDoesNotExist(Path.of(credentialsFilePath));
-            credentials = readCredentialsFromPath(credentialsFilePath);
+    // a failed write is thrown, so the caller does not commit a file that is missing the line
+    private static void writeLine(String line, Writer writer) {
+        try {
+            writer.write(line);
+            writer.write(System.lineSeparator());
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write credentials file.", e);
+        }
+    }
+
+    private void commitWriteEvent(RepositoryWriteEvent event, boolean isRewrite, int entriesCount,
+                                  long writtenBytes) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.repository = getClass().getSimpleName();
+            event.path = credentialsFilePath == null ? "" : credentialsFilePath;
+            event.isRewrite = isRewrite;
+            event.entriesCount = entriesCount;
+            event.writtenBytes = writtenBytes;
+            event.commit();
         }
     }
 
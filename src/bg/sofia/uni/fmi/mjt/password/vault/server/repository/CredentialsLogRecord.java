@@ -0,0 +1,69 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.repository;
+
+import bg.sofia.uni.fmi.mjt.password.vault.server.credentials.AccountCredentials;
+import bg.sofia.uni.fmi.mjt.password.vault.server.credentials.AccountCredentialsKey;
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+
+// A line of a credentials file. The lines of rewritten files have no type and are read as PUT records,
+// so both kinds of files are read the same way.
+class CredentialsLogRecord {
+
+    private static final Gson GSON = new Gson();
+
+    enum RecordType {
+        PUT,
+        UPDATE,
+        REMOVE
+    }
+
+    private final RecordType type;
+    private final String applicationName;
+    private final String username;
+    private final String encryptedPassword;
+
+    private CredentialsLogRecord(RecordType type, String applicationName, String username,
+                                 String encryptedPassword) {
+        this.type = type;
+        this.applicationName = applicationName;
+        this.username = username;
+        this.encryptedPassword = encryptedPassword;
+    }
+
+    static CredentialsLogRecord update(AccountCredentials accountCredentials) {
+        return new CredentialsLogRecord(RecordType.UPDATE, accountCredentials.getApplicationName(),
+                accountCredentials.getUsername(), accountCredentials.getEncryptedPassword());
+    }
+
+    static CredentialsLogRecord remove(AccountCredentialsKey key) {
+        return new CredentialsLogRecord(RecordType.REMOVE, key.getApplicationName(), key.getUsername(), null);
+    }
+
+    // throws JsonParseException when the line is not a complete record
+    static CredentialsLogRecord of(String line) {
+        CredentialsLogRecord record = GSON.fromJson(line, CredentialsLogRecord.class);
+        if (record == null) {
+            throw new JsonSyntaxException("Credentials record should not be empty.");
+        }
+
+        return record;
+    }
+
+    RecordType getType() {
+        return type == null ? RecordType.PUT : type;
+    }
+
+    AccountCredentialsKey getKey() {
+        return new AccountCredentialsKey(applicationName, username);
+    }
+
+    AccountCredentials getCredentials() {
+        return new AccountCredentials(applicationName, username, encryptedPassword);
+    }
+
+    @Override
+    public String toString() {
+        return GSON.toJson(this);
+    }
+
+}
\ No newline at end of file
@@ -26,4 +26,26 @@ public interface Repository<K, V> {
 
     void refresh();
 
+    // drops the elements in memory and reads them again from the file, if the repository has one
+    void reload();
+
+    // writes all elements, the writer should replace the contents of the file
+    void flush(Writer writer);
+
+    // writes the given elements, e.g. the ones returned by an earlier getAll, the writer should replace the contents
+    // of the file
+    void flush(Map<K, V> elements, Writer writer);
+
+    // in append-only mode update and remove append a record instead of writing all elements
+    void setAppendOnly(boolean isAppendOnly);
+
+    // true when the file has enough overwritten and removed records to be worth rewriting with flush
+    boolean needsCompaction(int deadRecordsThreshold);
+
+    // the count of the overwritten and removed records in the file
+    int getDeadRecordsCount();
+
+    // the file has been rewritten without the given count of dead records, e.g. by a compaction
+    void forgetDeadRecords(int deadRecordsCount);
+
 }
\ No newline at end of file
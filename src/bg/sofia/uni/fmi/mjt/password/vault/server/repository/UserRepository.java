@@ -1,39 +1,57 @@
 package bg.sofia.uni.fmi.mjt.password.vault.server.repository;
 
+import bg.sofia.uni.fmi.mjt.password.vault.server.jfr.RepositoryWriteEvent;
 import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.DataFileException;
 import bg.sofia.uni.fmi.mjt.password.vault.server.user.User;
 import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.UserDeletionException;
 import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.UserNotFoundException;
 import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.UsernameAlreadyExistsException;
 import bg.sofia.uni.fmi.mjt.password.vault.file.FileCreator;
+import bg.sofia.uni.fmi.mjt.password.vault.file.TornTailTruncator;
 import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 public class UserRepository<T extends User> implements Repository<String, T> {
 
+    // the only field of the record that marks a user as removed
+    private static final String TOMBSTONE_FIELD = "removedUsername";
+    private static final Gson GSON = new Gson();
+
     private final Map<String, T> users;
+    private final Class<T> clazz;
     private String usersFilePath;
+    private boolean isAppendOnly;
+    // the lines in the file that are overwritten by later lines or belong to removed users
+    private int deadRecordsCount;
+    // whether the last line that was read is an incomplete record
+    private boolean isLastRecordTorn;
 
     public UserRepository(Path usersFilePath, Class<T> clazz) {
         users = readUsersFromPath(usersFilePath, clazz);
+        this.clazz = clazz;
         FileCreator.createFileIfDoesNotExist(usersFilePath);
         this.usersFilePath = usersFilePath.toString();
     }
 
     public UserRepository(Reader usersReader, Class<T> clazz) {
         users = readUsers(usersReader, clazz);
+        this.clazz = clazz;
     }
 
     @Override
@@ -80,13 +98,29 @@ public class UserRepository<T extends User> implements Repository<String, T> {
         }
 
         if (!users.containsKey(user.getUsername())) {
-            writeAllUsers(writer);
+            if (!isAppendOnly) {
+                writeAllUsers(writer);
+            }
             throw new UserNotFoundException(
                     "User with such an username does not exist in repository.");
         }
 
-        users.put(user.getUsername(), user);
-        writeAllUsers(writer);
+        T previousUser = users.put(user.getUsername(), user);
+        try {
+            if (isAppendOnly) {
+                // the line of a user holds all of its data, so the last line of the user wins
+                writeUser(user, writer);
+            } else {
+                writeAllUsers(writer);
+            }
+        } catch (UncheckedIOException e) {
+            // the file keeps the previous user, so the memory does as well
+            users.put(previousUser.getUsername(), previousUser);
+            throw e;
+        }
+        if (isAppendOnly) {
+            deadRecordsCount++;
+        }
     }
 
     @Override
@@ -96,17 +130,85 @@ public class UserRepository<T extends User> implements Repository<String, T> {
                     "Username should have a non-null and non-empty value and writer should not be null.");
         }
 
-        User user = users.get(username);
+        T user = users.get(username);
         if (user == null) {
-            writeAllUsers(writer);
+            if (!isAppendOnly) {
+                writeAllUsers(writer);
+            }
             throw new UserNotFoundException("User with such an username does not exist");
         }
 
         users.remove(username);
-        writeAllUsers(writer);
+        try {
+            if (isAppendOnly) {
+                writeTombstone(username, writer);
+            } else {
+                writeAllUsers(writer);
+            }
+        } catch (UncheckedIOException e) {
+            // the file keeps the removed user, so the memory does as well
+            users.put(username, user);
+            throw e;
+        }
+        if (isAppendOnly) {
+            // both the line of the user and the tombstone
+            deadRecordsCount += 2;
+        }
         user.delete();
     }
 
+    // writes the live users only, so the writer should truncate the file
+    @Override
+    public void flush(Writer writer) {
+        if (writer == null) {
+            throw new IllegalArgumentException("Writer should not be null.");
+        }
+
+        writeAllUsers(writer);
+        deadRecordsCount = 0;
+    }
+
+    // does not read the users in memory, so it may run at the same time as the changes of other threads
+    @Override
+    public void flush(Map<String, T> elements, Writer writer) {
+        if (elements == null || writer == null) {
+            throw new IllegalArgumentException("Elements and writer should not be null.");
+        }
+
+        writeAllUsers(elements.values(), writer);
+    }
+
+    // In append-only mode update appends the line of the user and remove appends a tombstone instead of
+    // writing all users, so the writer should append to the file. Reading the file replays the lines.
+    @Override
+    public void setAppendOnly(boolean isAppendOnly) {
+        this.isAppendOnly = isAppendOnly;
+    }
+
+    public boolean isAppendOnly() {
+        return isAppendOnly;
+    }
+
+    @Override
+    public int getDeadRecordsCount() {
+        return deadRecordsCount;
+    }
+
+    @Override
+    public void forgetDeadRecords(int deadRecordsCount) {
+        // the users may have been read from the file again meanwhile, which counts the dead records anew
+        this.deadRecordsCount = Math.max(this.deadRecordsCount - deadRecordsCount, 0);
+    }
+
+    @Override
+    public boolean needsCompaction(int deadRecordsThreshold) {
+        if (deadRecordsThreshold <= 0) {
+            throw new IllegalArgumentException("Dead records threshold should have a positive value.");
+        }
+
+        return deadRecordsCount >= deadRecordsThreshold && deadRecordsCount >= users.size();
+    }
+
     @Override
     public Map<String, T> getAll() {
         return Map.copyOf(users);
@@ -123,18 +225,35 @@ public class UserRepository<T extends User> implements Repository<String, T> {
                 .forEach(user -> user.refreshCredentials());
     }
 
+    @Override
+    public void reload() {
+        if (usersFilePath == null) {
+            return;
+        }
+
+        users.clear();
+        users.putAll(readUsersFromPath(Path.of(usersFilePath), clazz));
+    }
+
     private Map<String, T> readUsersFromPath(Path usersFile, Class<T> clazz) {
         if (usersFile == null || clazz == null) {
             throw new IllegalArgumentException("Nether usersFile nor clazz can be null.");
         }
 
+        Map<String, T> users;
         try (Reader reader = new FileReader(usersFile.toString())) {
-            return readUsers(reader, clazz);
+            users = readUsers(reader, clazz);
         } catch (FileNotFoundException e) {
             throw new DataFileException("Invalid path to users file.");
         } catch (IOException e) {
             throw new DataFileException("Cannot read users file.");
         }
+
+        if (isLastRecordTorn) {
+            truncateTornRecord(usersFile);
+        }
+
+        return users;
     }
 
     private Map<String, T> readUsers(Reader usersReader, Class<T> clazz) {
@@ -143,23 +262,123 @@ public class UserRepository<T extends User> implements Repository<String, T> {
         }
 
         BufferedReader bufferedReader = new BufferedReader(usersReader);
-        Gson gson = new Gson();
-        Map<String, T> users = bufferedReader.lines()
-                .map(line -> gson.fromJson(line, clazz))
-                .collect(Collectors.toMap(elem -> elem.getUsername(), elem -> elem));
+        Map<String, T> users = new HashMap<>();
+        deadRecordsCount = 0;
+        isLastRecordTorn = false;
+        try {
+            String line = bufferedReader.readLine();
+            while (line != null) {
+                // the next line is read first, so a malformed line is known to be the last one or not
+                String nextLine = bufferedReader.readLine();
+                try {
+                    replayLine(JsonParser.parseString(line).getAsJsonObject(), users, clazz);
+                } catch (JsonParseException | IllegalStateException e) {
+                    if (nextLine != null) {
+                        throw new DataFileException("Users file has a malformed record before its end.", e);
+                    }
+                    // a crash has interrupted the append of the last record, the records before it are complete
+                    isLastRecordTorn = true;
+                }
+                line = nextLine;
+            }
+        } catch (IOException e) {
+            throw new DataFileException("Cannot read users file.", e);
+        }
 
         return users;
     }
 
+    // the next append would continue the torn line and make a record that cannot be read, so the line is removed
+    private void truncateTornRecord(Path usersFile) {
+        try {
+            long removedBytes = TornTailTruncator.truncateLastLine(usersFile);
+            System.out.println("The last record of the users file was not written completely. " +
+                    removedBytes + " bytes were removed from the end of the file.");
+        } catch (IOException e) {
+            throw new DataFileException("Cannot remove the incomplete last record of users file.", e);
+        }
+        isLastRecordTorn = false;
+    }
+
+    private void replayLine(JsonObject json, Map<String, T> users, Class<T> clazz) {
+        if (json.has(TOMBSTONE_FIELD)) {
+            deadRecordsCount += users.remove(json.get(TOMBSTONE_FIELD).getAsString()) != null ? 2 : 1;
+            return;
+        }
+
+        T user = GSON.fromJson(json, clazz);
+        if (users.put(user.getUsername(), user) != null) {
+            deadRecordsCount++;
+        }
+    }
+
     private void writeUser(User user, Writer writer) {
-        PrintWriter printWriter = new PrintWriter(new BufferedWriter(writer), true);
-        printWriter.println(user);
+        RepositoryWriteEvent event = new RepositoryWriteEvent();
+        event.begin();
+        String line = user.toString();
+        writeLine(line, writer);
+
+        commitWriteEvent(event, false, 1, event.isEnabled() ? RepositoryWriteEvent.lineBytes(line) : 0);
+    }
+
+    private void writeTombstone(String username, Writer writer) {
+        RepositoryWriteEvent event = new RepositoryWriteEvent();
+        event.begin();
+        JsonObject tombstone = new JsonObject();
+        tombstone.addProperty(TOMBSTONE_FIELD, username);
+        String line = tombstone.toString();
+        writeLine(line, writer);
+
+        commitWriteEvent(event, false, 1, event.isEnabled() ? RepositoryWriteEvent.lineBytes(line) : 0);
     }
 
     private void writeAllUsers(Writer writer) {
-        PrintWriter printWriter = new PrintWriter(new BufferedWriter(writer), true);
-        for (User user : users.values()) {
-            printWriter.println(user);
+        writeAllUsers(users.values(), writer);
+    }
+
+    private void writeAllUsers(Collection<T> elements, Writer writer) {
+        RepositoryWriteEvent event = new RepositoryWriteEvent();
+        event.begin();
+        long writtenBytes = 0;
+        BufferedWriter bufferedWriter = new BufferedWriter(writer);
+        try {
+            for (User user : elements) {
+                String line = user.toString();
+                bufferedWriter.write(line);
+                bufferedWriter.newLine();
+                if (event.isEnabled()) {
+                    writtenBytes += RepositoryWriteEvent.lineBytes(line);
+                }
+            }
+            bufferedWriter.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write users file.", e);
+        }
+
+        commitWriteEvent(event, true, elements.size(), writtenBytes);
+    }
+
+    // a failed write is thrown, so the caller does not commit a file that is missing the line
+    private static void writeLine(String line, Writer writer) {
+        try {
+            writer.write(line);
+            writer.write(System.lineSeparator());
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write users file.", e);
+        }
+    }
+
+    private void commitWriteEvent(RepositoryWriteEvent event, boolean isRewrite, int entriesCount,
+                                  long writtenBytes) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.repository = getClass().getSimpleName();
+            event.path = usersFilePath == null ? "" : usersFilePath;
+            event.isRewrite = isRewrite;
+            event.entriesCount = entriesCount;
+            event.writtenBytes = writtenBytes;
+            event.commit();
         }
     }
 
@@ -125,6 +125,50 @@ public class DefaultUser implements User {
                 new AccountCredentialsKey(applicationName, credentialsUsername), writer);
     }
 
+    @Override
+    public void flushCredentials(Writer writer) {
+        if (writer == null) {
+            throw new IllegalArgumentException("Writer should not be null.");
+        }
+        if (accountCredentialsRepository == null) {
+            throw new RepositoryNotInitialisedException("AccountCredentialsRepository is null.");
+        }
+
+        accountCredentialsRepository.flush(writer);
+    }
+
+    public void setAppendOnlyCredentials(boolean isAppendOnly) {
+        if (accountCredentialsRepository != null) {
+            accountCredentialsRepository.setAppendOnly(isAppendOnly);
+        }
+    }
+
+    // null for a user whose credentials are not kept in a file
+    public AccountCredentialsRepository getAccountCredentialsRepository() {
+        return accountCredentialsRepository;
+    }
+
+    // a user without a credentials repository has nothing to load
+    public boolean isCredentialsLoaded() {
+        return accountCredentialsRepository == null || accountCredentialsRepository.isLoaded();
+    }
+
+    public void loadCredentials() {
+        if (accountCredentialsRepository != null) {
+            accountCredentialsRepository.load();
+        }
+    }
+
+    public void unloadCredentials() {
+        if (accountCredentialsRepository != null) {
+            accountCredentialsRepository.unload();
+        }
+    }
+
+    public long estimateCredentialsBytes() {
+        return accountCredentialsRepository != null ? accountCredentialsRepository.estimateLoadedBytes() : 0;
+    }
+
     @Override
     public void delete() throws UserDeletionException {
         if (accountCredentialsRepository != null) {
@@ -138,7 +182,9 @@ public class DefaultUser implements User {
 
     @Override
     public void refreshCredentials() {
-        accountCredentialsRepository.refresh();
+        if (accountCredentialsRepository != null) {
+            accountCredentialsRepository.refresh();
+        }
     }
 
     @Override
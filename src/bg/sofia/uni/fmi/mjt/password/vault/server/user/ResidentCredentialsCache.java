@@ -0,0 +1,162 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.user;
+
+import bg.sofia.uni.fmi.mjt.password.vault.server.metrics.LatencyHistogram;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Keeps the credentials of the recently accessed users in memory and unloads the least recently accessed ones
+// when the estimated size of all resident credentials goes over the limit. The user that is being accessed is
+// never unloaded. It is thread-safe, the credentials repositories guard their own state, so another thread may
+// use the credentials of a user while they are unloaded, and they are read from the file again.
+public class ResidentCredentialsCache {
+
+    public static final long DEFAULT_MAX_RESIDENT_BYTES = 64L * 1024 * 1024;
+
+    private final long maxResidentBytes;
+    // in access order, so the first entry is the least recently accessed user
+    private final LinkedHashMap<String, ResidentUser> residentUsers;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+    private final LatencyHistogram loadTimes;
+    private volatile long residentBytes;
+    private volatile int residentUsersCount;
+    // evictions are suspended while changes that are not in the files yet may be in memory
+    private int suspensionsCount;
+
+    public ResidentCredentialsCache() {
+        this(DEFAULT_MAX_RESIDENT_BYTES);
+    }
+
+    public ResidentCredentialsCache(long maxResidentBytes) {
+        if (maxResidentBytes <= 0) {
+            throw new IllegalArgumentException("Max resident bytes should have a positive value.");
+        }
+
+        this.maxResidentBytes = maxResidentBytes;
+        this.residentUsers = new LinkedHashMap<>(16, 0.75f, true);
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.evictions = new LongAdder();
+        this.loadTimes = new LatencyHistogram();
+    }
+
+    // loads the credentials of the user unless they are resident and marks the user as the most recently accessed
+    public void access(DefaultUser user) {
+        if (user == null) {
+            throw new IllegalArgumentException("User should not be null.");
+        }
+
+        // the file is read outside the lock of the cache, so it holds up only the accesses of the same user
+        if (user.isCredentialsLoaded() && isResident(user)) {
+            hits.increment();
+        } else {
+            misses.increment();
+            long startTime = System.nanoTime();
+            user.loadCredentials();
+            loadTimes.record(System.nanoTime() - startTime);
+        }
+
+        track(user);
+    }
+
+    // forgets the user, e.g. because the account was deleted
+    public synchronized void remove(String username) {
+        untrack(username);
+        residentUsersCount = residentUsers.size();
+    }
+
+    // forgets all users, e.g. because the users were read from the file again
+    public synchronized void clear() {
+        residentUsers.clear();
+        residentBytes = 0;
+        residentUsersCount = 0;
+    }
+
+    public synchronized void suspendEvictions() {
+        suspensionsCount++;
+    }
+
+    public synchronized void resumeEvictions() {
+        if (suspensionsCount == 0) {
+            throw new IllegalStateException("Evictions are not suspended.");
+        }
+
+        suspensionsCount--;
+        evictOverflow(null);
+    }
+
+    public ResidentCredentialsStats getStats() {
+        return new ResidentCredentialsStats(hits.sum(), misses.sum(), evictions.sum(), residentUsersCount,
+                residentBytes, maxResidentBytes, loadTimes.snapshot());
+    }
+
+    private synchronized boolean isResident(DefaultUser user) {
+        ResidentUser residentUser = residentUsers.get(user.getUsername());
+        return residentUser != null && residentUser.user == user;
+    }
+
+    private synchronized void track(DefaultUser user) {
+        ResidentUser residentUser = residentUsers.get(user.getUsername());
+        if (residentUser == null || residentUser.user != user) {
+            untrack(user.getUsername());
+            residentUser = new ResidentUser(user);
+            residentUsers.put(user.getUsername(), residentUser);
+        }
+
+        // the credentials may have grown or shrunk since the last access
+        long bytes = user.estimateCredentialsBytes();
+        updateResidentBytes(bytes - residentUser.bytes);
+        residentUser.bytes = bytes;
+        residentUsersCount = residentUsers.size();
+
+        evictOverflow(user.getUsername());
+    }
+
+    private void evictOverflow(String accessedUsername) {
+        if (suspensionsCount > 0) {
+            return;
+        }
+
+        Iterator<Map.Entry<String, ResidentUser>> iterator = residentUsers.entrySet().iterator();
+        while (residentBytes > maxResidentBytes && iterator.hasNext()) {
+            Map.Entry<String, ResidentUser> entry = iterator.next();
+            if (entry.getKey().equals(accessedUsername)) {
+                continue;
+            }
+
+            entry.getValue().user.unloadCredentials();
+            updateResidentBytes(-entry.getValue().bytes);
+            iterator.remove();
+            evictions.increment();
+        }
+        residentUsersCount = residentUsers.size();
+    }
+
+    private void untrack(String username) {
+        ResidentUser residentUser = residentUsers.remove(username);
+        if (residentUser != null) {
+            updateResidentBytes(-residentUser.bytes);
+        }
+    }
+
+    // written only while holding the lock of the cache
+    private void updateResidentBytes(long delta) {
+        residentBytes += delta;
+    }
+
+    private static class ResidentUser {
+
+        private final DefaultUser user;
+        private long bytes;
+
+        private ResidentUser(DefaultUser user) {
+            this.user = user;
+        }
+
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,27 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.user;
+
+import bg.sofia.uni.fmi.mjt.password.vault.server.metrics.HistogramSnapshot;
+
+import java.util.concurrent.TimeUnit;
+
+public record ResidentCredentialsStats(long hits, long misses, long evictions, int residentUsers,
+                                       long residentBytes, long maxResidentBytes, HistogramSnapshot loadTimes) {
+
+    public double hitRatio() {
+        long accesses = hits + misses;
+        return accesses == 0 ? 0.0 : (double) hits / accesses;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("hits: %d, misses: %d (hit ratio %.2f%%), evictions: %d%n", hits, misses,
+                hitRatio() * 100, evictions) +
+                String.format("resident: %d users, %d / %d bytes%n", residentUsers, residentBytes,
+                        maxResidentBytes) +
+                String.format("load time: p50 %d us, p99 %d us, max %d us%n",
+                        TimeUnit.NANOSECONDS.toMicros(loadTimes.valueAtPercentile(50)),
+                        TimeUnit.NANOSECONDS.toMicros(loadTimes.valueAtPercentile(99)),
+                        TimeUnit.NANOSECONDS.toMicros(loadTimes.max()));
+    }
+
+}
\ No newline at end of file
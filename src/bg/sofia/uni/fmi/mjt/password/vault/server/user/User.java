@@ -30,6 +30,8 @@ public interface User {
     void removeCredentials(String applicationName, String credentialsUsername, Writer writer)
             throws CredentialNotFoundException;
 
+    void flushCredentials(Writer writer);
+
     void delete() throws UserDeletionException;
 
     void refreshCredentials();
@@ -0,0 +1,115 @@
+package bg.sofia.uni.fmi.mjt.password.vault.request;
+
+import bg.sofia.uni.fmi.mjt.password.vault.response.NioResponse;
+import bg.sofia.uni.fmi.mjt.password.vault.response.ResponseType;
+import com.google.gson.Gson;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PipedReader;
+import java.io.PipedWriter;
+import java.io.PrintWriter;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class NioRequestSenderTest {
+
+    private static final Gson GSON = new Gson();
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private NioRequestSender sender;
+    private BufferedReader serverReader;
+    private PrintWriter serverWriter;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        PipedReader requestsReader = new PipedReader();
+        PipedReader responsesReader = new PipedReader();
+        PrintWriter clientWriter = new PrintWriter(new PipedWriter(requestsReader), true);
+        serverWriter = new PrintWriter(new PipedWriter(responsesReader), true);
+        serverReader = new BufferedReader(requestsReader);
+
+        sender = new NioRequestSender(new BufferedReader(responsesReader), clientWriter);
+    }
+
+    @Test
+    public void testSendAsyncMatchesResponsesCompletedOutOfOrder() throws Exception {
+        CompletableFuture<NioResponse> firstResponse = sender.sendAsync(requestOf(RequestType.STORE_PASSWORD));
+        CompletableFuture<NioResponse> secondResponse = sender.sendAsync(requestOf(RequestType.GET_PASSWORD));
+        NioRequest firstRequest = GSON.fromJson(serverReader.readLine(), NioRequest.class);
+        NioRequest secondRequest = GSON.fromJson(serverReader.readLine(), NioRequest.class);
+
+        serverWriter.println(GSON.toJson(
+                new NioResponse(ResponseType.CREDENTIALS_FOUND, null, secondRequest.getRequestId())));
+        serverWriter.println(GSON.toJson(
+                new NioResponse(ResponseType.PASSWORD_STORED_SUCCESSFULLY, null, firstRequest.getRequestId())));
+
+        assertEquals(ResponseType.PASSWORD_STORED_SUCCESSFULLY,
+                firstResponse.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).getType(),
+                "Response should be matched to its request by id.");
+        assertEquals(ResponseType.CREDENTIALS_FOUND, secondResponse.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).getType(),
+                "Response should be matched to its request by id.");
+        assertEquals(0, sender.getPendingRequestsCount(), "No requests should be pending.");
+    }
+
+    @Test
+    public void testSendAsyncMatchesResponsesWithoutIdsInRequestOrder() throws Exception {
+        CompletableFuture<NioResponse> firstResponse = sender.sendAsync(requestOf(RequestType.LOGIN));
+        CompletableFuture<NioResponse> secondResponse = sender.sendAsync(requestOf(RequestType.LOGOUT));
+        serverReader.readLine();
+        serverReader.readLine();
+
+        serverWriter.println(GSON.toJson(new NioResponse(ResponseType.LOGIN_SUCCESSFUL, null)));
+        serverWriter.println(GSON.toJson(new NioResponse(ResponseType.LOGOUT_SUCCESSFUL, null)));
+
+        assertEquals(ResponseType.LOGIN_SUCCESSFUL, firstResponse.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).getType(),
+                "Responses without ids should be matched in the order of the requests.");
+        assertEquals(ResponseType.LOGOUT_SUCCESSFUL, secondResponse.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).getType(),
+                "Responses without ids should be matched in the order of the requests.");
+    }
+
+    @Test
+    public void testSendAsyncFailsAfterServerHasClosedConnection() throws Exception {
+        CompletableFuture<NioResponse> response = sender.sendAsync(requestOf(RequestType.LOGIN));
+        serverReader.readLine();
+        serverWriter.println(GSON.toJson(new NioResponse(ResponseType.LOGIN_SUCCESSFUL, null)));
+        response.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        serverWriter.close();
+        CompletableFuture<NioResponse> responseAfterClose = sender.sendAsync(requestOf(RequestType.LOGOUT));
+
+        assertThrows(ExecutionException.class, () -> responseAfterClose.get(TIMEOUT_SECONDS, TimeUnit.SECONDS),
+                "Requests sent after the server has closed the connection should fail.");
+        assertThrows(ExecutionException.class, () -> sender.sendAsync(requestOf(RequestType.LOGOUT))
+                        .get(TIMEOUT_SECONDS, TimeUnit.SECONDS),
+                "Requests sent after the response reader has exited should fail.");
+        assertEquals(0, sender.getPendingRequestsCount(), "No requests should be pending.");
+    }
+
+    @Test
+    public void testSendAsyncFailsPendingAndLaterRequestsAfterMalformedResponse() throws Exception {
+        CompletableFuture<NioResponse> response = sender.sendAsync(requestOf(RequestType.LOGIN));
+        serverReader.readLine();
+
+        serverWriter.println("{\"type\":");
+
+        assertThrows(ExecutionException.class, () -> response.get(TIMEOUT_SECONDS, TimeUnit.SECONDS),
+                "A pending request should fail when the server sends a malformed response.");
+        assertThrows(ExecutionException.class, () -> sender.sendAsync(requestOf(RequestType.LOGOUT))
+                        .get(TIMEOUT_SECONDS, TimeUnit.SECONDS),
+                "Requests sent after a malformed response should fail.");
+    }
+
+    private static NioRequest requestOf(RequestType type) {
+        return NioRequest.builder("username")
+                .setType(type)
+                .build();
+    }
+
+}
\ No newline at end of file
@@ -1,11 +1,19 @@
 package bg.sofia.uni.fmi.mjt.password.vault.request;
 
+import bg.sofia.uni.fmi.mjt.password.vault.client.HashedPassword;
+import bg.sofia.uni.fmi.mjt.password.vault.client.encryptor.EncryptionData;
+import bg.sofia.uni.fmi.mjt.password.vault.server.ServerPassword;
 import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 import org.junit.jupiter.api.Test;
 
+import java.io.StringReader;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public class NioRequestTest {
@@ -28,4 +36,131 @@ public class NioRequestTest {
                 "Method does not return correct NioRequest");
     }
 
+    @Test
+    public void testFromJsonDecodesAllRequestFields() {
+        ServerPassword password = new ServerPassword(new HashedPassword("password".toCharArray()), "encrypted");
+        NioRequest expectedRequest = NioRequest.builder("username")
+                .setType(RequestType.STORE_PASSWORD)
+                .setApplicationName("application")
+                .setCredentialsUsername("credentialsUsername")
+                .setPassword(password)
+                .setEncryptionData(new EncryptionData(1000, new byte[]{1, -2, 3}))
+                .build();
+        Gson gson = new Gson();
+
+        NioRequest request = NioRequest.fromJson(new StringReader(gson.toJson(expectedRequest)));
+
+        assertEquals(expectedRequest, request, "Method does not return correct NioRequest");
+        assertEquals("application", request.getApplicationName(), "Application name is not decoded correctly.");
+        assertEquals("credentialsUsername", request.getCredentialsUsername(),
+                "Credentials username is not decoded correctly.");
+        assertEquals(password, request.getPassword(), "Password is not decoded correctly.");
+        assertNull(request.getOldPassword(), "Missing fields should be decoded as null.");
+        assertEquals(1000, request.getEncryptionData().getIterationsCount(),
+                "Iterations count is not decoded correctly.");
+        assertArrayEquals(new byte[]{1, -2, 3}, request.getEncryptionData().getSalt(),
+                "Salt is not decoded correctly.");
+    }
+
+    @Test
+    public void testFromJsonDecodesRequestWithReflectiveGsonLayout() {
+        String json = "{\"type\":\"LOGIN\",\"username\":\"username\",\"password\":{\"hashedPassword\":" +
+                "{\"passwordHashes\":{\"SHA256\":\"c\",\"SHA1\":\"b\",\"MD5\":\"a\"}}," +
+                "\"encryptedPassword\":\"encrypted\"},\"unknownField\":[1,{\"a\":2}]}";
+
+        NioRequest request = NioRequest.fromJson(new StringReader(json));
+
+        assertEquals(RequestType.LOGIN, request.getType(), "Type is not decoded correctly.");
+        assertEquals("a", request.getPassword().getHashedPassword().getMd5(), "MD5 hash is not decoded correctly.");
+        assertEquals("b", request.getPassword().getHashedPassword().getSha1(), "SHA1 hash is not decoded correctly.");
+        assertEquals("c", request.getPassword().getHashedPassword().getSha256(),
+                "SHA256 hash is not decoded correctly.");
+        assertEquals("encrypted", request.getPassword().getAesEncryptedPassword(),
+                "Encrypted password is not decoded correctly.");
+    }
+
+    @Test
+    public void testFromJsonDecodesUnknownRequestTypeAsNull() {
+        NioRequest request = NioRequest.fromJson(new StringReader("{\"type\":\"UNKNOWN\",\"username\":\"user\"}"));
+
+        assertNull(request.getType(), "Unknown request types should be decoded as null.");
+    }
+
+    @Test
+    public void testFromJsonDecodesBatchRequests() {
+        NioRequest getRequest = NioRequest.builder("username")
+                .setType(RequestType.GET_PASSWORD)
+                .setApplicationName("application")
+                .build();
+        NioRequest batchRequest = NioRequest.builder("username")
+                .setType(RequestType.BATCH)
+                .setRequests(List.of(getRequest))
+                .build();
+
+        NioRequest request = NioRequest.fromJson(new StringReader(new Gson().toJson(batchRequest)));
+
+        assertEquals(List.of(getRequest), request.getRequests(), "Batch requests are not decoded correctly.");
+        assertEquals("application", request.getRequests().get(0).getApplicationName(),
+                "Fields of batch requests are not decoded correctly.");
+    }
+
+    @Test
+    public void testFromJsonSkipsNestedBatchRequests() {
+        String json = "{\"type\":\"BATCH\",\"username\":\"user\",\"requests\":[{\"type\":\"BATCH\"," +
+                "\"username\":\"user\",\"requests\":[{\"type\":\"LOGOUT\",\"username\":\"user\"}]}]}";
+
+        NioRequest request = NioRequest.fromJson(new StringReader(json));
+
+        assertNull(request.getRequests().get(0).getRequests(), "Nested batch requests should not be decoded.");
+    }
+
+    @Test
+    public void testFromJsonThrowsJsonParseExceptionIfRequestIdIsNotANumber() {
+        String json = "{\"requestId\":\"x\",\"type\":\"LOGOUT\",\"username\":\"user\"}";
+
+        assertThrows(JsonParseException.class, () -> NioRequest.fromJson(new StringReader(json)),
+                "Method should throw a JsonParseException when request id is not a number.");
+    }
+
+    @Test
+    public void testFromJsonThrowsJsonParseExceptionIfRequestIdIsNotIntegral() {
+        String json = "{\"requestId\":1.5,\"type\":\"LOGOUT\",\"username\":\"user\"}";
+
+        assertThrows(JsonParseException.class, () -> NioRequest.fromJson(new StringReader(json)),
+                "Method should throw a JsonParseException when request id is not an integral number.");
+    }
+
+    @Test
+    public void testFromJsonThrowsJsonParseExceptionIfIterationsCountIsNotANumber() {
+        String json = "{\"type\":\"REGISTER\",\"username\":\"user\"," +
+                "\"encryptionData\":{\"iterationsCount\":\"x\",\"salt\":[1]}}";
+
+        assertThrows(JsonParseException.class, () -> NioRequest.fromJson(new StringReader(json)),
+                "Method should throw a JsonParseException when iterations count is not a number.");
+    }
+
+    @Test
+    public void testFromJsonThrowsJsonParseExceptionIfSaltByteIsNotIntegral() {
+        String json = "{\"type\":\"REGISTER\",\"username\":\"user\"," +
+                "\"encryptionData\":{\"iterationsCount\":1000,\"salt\":[1,2.5]}}";
+
+        assertThrows(JsonParseException.class, () -> NioRequest.fromJson(new StringReader(json)),
+                "Method should throw a JsonParseException when a salt byte is not an integral number.");
+    }
+
+    @Test
+    public void testFromJsonThrowsJsonParseExceptionIfSaltByteIsOutOfRange() {
+        String json = "{\"type\":\"REGISTER\",\"username\":\"user\"," +
+                "\"encryptionData\":{\"iterationsCount\":1000,\"salt\":[300,-999]}}";
+
+        assertThrows(JsonParseException.class, () -> NioRequest.fromJson(new StringReader(json)),
+                "Method should throw a JsonParseException when a salt byte is out of the byte range.");
+    }
+
+    @Test
+    public void testFromJsonThrowsIllegalArgumentExceptionIfReaderIsNull() {
+        assertThrows(IllegalArgumentException.class, () -> NioRequest.fromJson(null),
+                "Method should throw an IllegalArgumentException when reader is null.");
+    }
+
 }
\ No newline at end of file
@@ -5,6 +5,7 @@ import com.google.gson.Gson;
 import org.junit.jupiter.api.Test;
 
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -27,4 +28,20 @@ public class NioResponseTest {
                 "Method does not return correct NioResponse");
     }
 
+    @Test
+    public void testGetBatchResponsesReturnsResponsesInOrder() {
+        List<NioResponse> responses = List.of(new NioResponse(ResponseType.CREDENTIALS_FOUND, "\"password\""),
+                new NioResponse(ResponseType.CREDENTIALS_NOT_FOUND, null));
+
+        assertEquals(responses, NioResponse.ofBatch(responses).getBatchResponses(),
+                "Method does not return the responses of the batch in order.");
+    }
+
+    @Test
+    public void testGetBatchResponsesThrowsIllegalStateExceptionIfResponseIsNotBatch() {
+        assertThrows(IllegalStateException.class,
+                () -> new NioResponse(ResponseType.REGISTER_SUCCESSFUL, null).getBatchResponses(),
+                "Method should throw an IllegalStateException when the response is not a batch response.");
+    }
+
 }
\ No newline at end of file
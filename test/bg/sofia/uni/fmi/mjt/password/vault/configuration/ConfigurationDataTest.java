@@ -1,6 +1,7 @@
 package bg.sofia.uni.fmi.mjt.password.vault.configuration;
 
 import bg.sofia.uni.fmi.mjt.password.vault.configuration.exceptions.ConfigurationDataException;
+import bg.sofia.uni.fmi.mjt.password.vault.protocol.WireProtocol;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -69,6 +70,20 @@ public class ConfigurationDataTest {
         }
     }
 
+    @Test
+    public void testOfThrowsConfigurationDataExceptionWhenFileHasInvalidValue() throws IOException {
+        Path configurationPath = Path.of(CONFIGURATION_DATA_FILE_NAME);
+        Files.writeString(configurationPath,
+                "{\"serverHost\":\"localhost\",\"serverPort\":7515,\"selectorThreadsCount\":0}");
+
+        try {
+            assertThrows(ConfigurationDataException.class, () -> ConfigurationData.of(configurationPath),
+                    "Method should throw a ConfigurationDataException when a value would be rejected by the builder.");
+        } finally {
+            Files.deleteIfExists(configurationPath);
+        }
+    }
+
     @Test
     public void testOfReadsDataCorrectlyFromInputStream() {
         try(InputStream inputStream = new ByteArrayInputStream(
@@ -94,4 +109,124 @@ public class ConfigurationDataTest {
                 "Configuration data has not been written correctly.");
     }
 
+    @Test
+    public void testGetSelectorThreadsCountReturnsAvailableProcessorsWhenNotConfigured() {
+        assertEquals(Runtime.getRuntime().availableProcessors(), CONFIGURATION_DATA.getSelectorThreadsCount(),
+                "Selector threads count should default to the count of available processors.");
+    }
+
+    @Test
+    public void testBuilderSetsSelectorThreadsCount() {
+        ConfigurationData configurationData = ConfigurationData.builder(SERVER_HOST, SERVER_PORT)
+                .setSelectorThreadsCount(4)
+                .build();
+
+        assertEquals(4, configurationData.getSelectorThreadsCount(),
+                "Selector threads count has not been set correctly.");
+    }
+
+    @Test
+    public void testBuilderThrowsIllegalArgumentExceptionWhenSelectorThreadsCountIsNotPositive() {
+        assertThrows(IllegalArgumentException.class,
+                () -> ConfigurationData.builder(SERVER_HOST, SERVER_PORT).setSelectorThreadsCount(0),
+                "Method should throw an IllegalArgumentException when selector threads count is not positive.");
+    }
+
+    @Test
+    public void testBuilderSetsOutboundHighWaterMarkBytes() {
+        ConfigurationData configurationData = ConfigurationData.builder(SERVER_HOST, SERVER_PORT)
+                .setOutboundHighWaterMarkBytes(4096)
+                .build();
+
+        assertEquals(4096, configurationData.getOutboundHighWaterMarkBytes(),
+                "Outbound high-water mark has not been set correctly.");
+    }
+
+    @Test
+    public void testWireProtocolDefaultsToJson() {
+        ConfigurationData configurationData = new ConfigurationData(SERVER_HOST, SERVER_PORT);
+
+        assertEquals(WireProtocol.JSON, configurationData.getWireProtocol(),
+                "Clients should talk JSON unless the binary protocol is configured.");
+    }
+
+    @Test
+    public void testBuilderThrowsIllegalArgumentExceptionWhenIdleTimeoutIsNegative() {
+        assertThrows(IllegalArgumentException.class,
+                () -> ConfigurationData.builder(SERVER_HOST, SERVER_PORT).setIdleTimeoutMillis(-1),
+                "Method should throw an IllegalArgumentException when idle timeout is negative.");
+    }
+
+    @Test
+    public void testBuilderSetsIdleTimeoutMillis() {
+        ConfigurationData configurationData = ConfigurationData.builder(SERVER_HOST, SERVER_PORT)
+                .setIdleTimeoutMillis(0)
+                .build();
+
+        assertEquals(0, configurationData.getIdleTimeoutMillis(),
+                "Zero idle timeout should be kept to disable closing of idle connections.");
+    }
+
+    @Test
+    public void testBuilderThrowsIllegalArgumentExceptionWhenMaxConnectionsIsNotPositive() {
+        assertThrows(IllegalArgumentException.class,
+                () -> ConfigurationData.builder(SERVER_HOST, SERVER_PORT).setMaxConnections(0),
+                "Method should throw an IllegalArgumentException when max connections is not positive.");
+    }
+
+    @Test
+    public void testBuilderThrowsIllegalArgumentExceptionWhenMaxPendingRequestsIsNotPositive() {
+        assertThrows(IllegalArgumentException.class,
+                () -> ConfigurationData.builder(SERVER_HOST, SERVER_PORT).setMaxPendingRequests(-1),
+                "Method should throw an IllegalArgumentException when max pending requests is not positive.");
+    }
+
+    @Test
+    public void testBuilderThrowsIllegalArgumentExceptionWhenDrainTimeoutIsNegative() {
+        assertThrows(IllegalArgumentException.class,
+                () -> ConfigurationData.builder(SERVER_HOST, SERVER_PORT).setDrainTimeoutMillis(-1),
+                "Method should throw an IllegalArgumentException when drain timeout is negative.");
+    }
+
+    @Test
+    public void testBuilderThrowsIllegalArgumentExceptionWhenMetricsPortIsOutOfRange() {
+        assertThrows(IllegalArgumentException.class,
+                () -> ConfigurationData.builder(SERVER_HOST, SERVER_PORT).setMetricsPort(65536),
+                "Method should throw an IllegalArgumentException when metrics port is out of range.");
+    }
+
+    @Test
+    public void testBuilderThrowsIllegalArgumentExceptionWhenCredentialsCompactionThresholdIsNotPositive() {
+        assertThrows(IllegalArgumentException.class,
+                () -> ConfigurationData.builder(SERVER_HOST, SERVER_PORT).setCredentialsCompactionThreshold(0),
+                "Method should throw an IllegalArgumentException when compaction threshold is not positive.");
+    }
+
+    @Test
+    public void testBuilderThrowsIllegalArgumentExceptionWhenGroupCommitSettingsAreInvalid() {
+        assertThrows(IllegalArgumentException.class,
+                () -> ConfigurationData.builder(SERVER_HOST, SERVER_PORT).setDurabilityMode(null),
+                "Method should throw an IllegalArgumentException when durability mode is null.");
+        assertThrows(IllegalArgumentException.class,
+                () -> ConfigurationData.builder(SERVER_HOST, SERVER_PORT).setGroupCommitIntervalMillis(-1),
+                "Method should throw an IllegalArgumentException when group commit interval is negative.");
+        assertThrows(IllegalArgumentException.class,
+                () -> ConfigurationData.builder(SERVER_HOST, SERVER_PORT).setGroupCommitMaxBatchSize(0),
+                "Method should throw an IllegalArgumentException when group commit batch size is not positive.");
+    }
+
+    @Test
+    public void testBuilderThrowsIllegalArgumentExceptionWhenMaxResidentCredentialsBytesIsNotPositive() {
+        assertThrows(IllegalArgumentException.class,
+                () -> ConfigurationData.builder(SERVER_HOST, SERVER_PORT).setMaxResidentCredentialsBytes(0),
+                "Method should throw an IllegalArgumentException when max resident credentials bytes is not positive.");
+    }
+
+    @Test
+    public void testBuilderThrowsIllegalArgumentExceptionWhenUsersCompactionThresholdIsNotPositive() {
+        assertThrows(IllegalArgumentException.class,
+                () -> ConfigurationData.builder(SERVER_HOST, SERVER_PORT).setUsersCompactionThreshold(-1),
+                "Method should throw an IllegalArgumentException when compaction threshold is not positive.");
+    }
+
 }
\ No newline at end of file
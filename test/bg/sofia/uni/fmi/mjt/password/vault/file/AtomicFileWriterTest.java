@@ -0,0 +1,69 @@
+package bg.sofia.uni.fmi.mjt.password.vault.file;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class AtomicFileWriterTest {
+
+    private static final Path FILE_PATH = Path.of("testAtomicFile.txt");
+    private static final String OLD_CONTENTS = "old contents";
+    private static final String NEW_CONTENTS = "new contents";
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        Files.writeString(FILE_PATH, OLD_CONTENTS);
+    }
+
+    @Test
+    public void testConstructorThrowsIllegalArgumentExceptionWhenPathIsNull() {
+        assertThrows(IllegalArgumentException.class, () -> new AtomicFileWriter(null),
+                "Constructor should throw an IllegalArgumentException when path is null.");
+    }
+
+    @Test
+    public void testCommitReplacesContentsOfFile() throws IOException {
+        try (AtomicFileWriter writer = new AtomicFileWriter(FILE_PATH)) {
+            writer.write(NEW_CONTENTS);
+            assertEquals(OLD_CONTENTS, Files.readString(FILE_PATH),
+                    "File should keep its old contents before commit.");
+            writer.commit();
+        }
+
+        assertEquals(NEW_CONTENTS, Files.readString(FILE_PATH), "File should have the new contents after commit.");
+        assertFalse(Files.exists(AtomicFileWriter.temporaryFilePath(FILE_PATH)),
+                "Temporary file should not exist after commit.");
+    }
+
+    @Test
+    public void testCloseWithoutCommitKeepsContentsOfFile() throws IOException {
+        try (AtomicFileWriter writer = new AtomicFileWriter(FILE_PATH)) {
+            writer.write(NEW_CONTENTS);
+        }
+
+        assertEquals(OLD_CONTENTS, Files.readString(FILE_PATH),
+                "File should keep its old contents when the writer is not committed.");
+        assertFalse(Files.exists(AtomicFileWriter.temporaryFilePath(FILE_PATH)),
+                "Temporary file should be deleted when the writer is not committed.");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        try {
+            Files.deleteIfExists(FILE_PATH);
+            Files.deleteIfExists(AtomicFileWriter.temporaryFilePath(FILE_PATH));
+        } catch (IOException e) {
+            fail("File deletion has thrown an IOException.", e);
+        }
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,161 @@
+package bg.sofia.uni.fmi.mjt.password.vault.protocol;
+
+import bg.sofia.uni.fmi.mjt.password.vault.client.HashedPassword;
+import bg.sofia.uni.fmi.mjt.password.vault.client.encryptor.EncryptionData;
+import bg.sofia.uni.fmi.mjt.password.vault.client.hasher.HashingAlgorithm;
+import bg.sofia.uni.fmi.mjt.password.vault.protocol.exceptions.MalformedMessageException;
+import bg.sofia.uni.fmi.mjt.password.vault.request.NioRequest;
+import bg.sofia.uni.fmi.mjt.password.vault.request.RequestType;
+import bg.sofia.uni.fmi.mjt.password.vault.response.NioResponse;
+import bg.sofia.uni.fmi.mjt.password.vault.response.ResponseType;
+import bg.sofia.uni.fmi.mjt.password.vault.server.ServerPassword;
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BinaryCodecTest {
+
+    // two, three and four byte UTF-8 sequences
+    private static final String APPLICATION_NAME = "caf\u00e9 \u20ac \uD83D\uDD11";
+
+    @Test
+    public void testReadRequestDecodesEncodedRequest() throws MalformedMessageException {
+        ServerPassword password = new ServerPassword(new HashedPassword("password".toCharArray()), "encrypted");
+        NioRequest expectedRequest = NioRequest.builder("username")
+                .setType(RequestType.STORE_PASSWORD)
+                .setRequestId(42L)
+                .setApplicationName(APPLICATION_NAME)
+                .setPassword(password)
+                .setEncryptionData(new EncryptionData(1000, new byte[]{1, -2, 3}))
+                .build();
+
+        NioRequest request = BinaryCodec.readRequest(payloadOf(encodeRequest(expectedRequest)));
+
+        assertEquals(expectedRequest, request, "Method does not return correct NioRequest");
+        assertEquals(42L, (long) request.getRequestId(), "Request id is not decoded correctly.");
+        assertEquals(APPLICATION_NAME, request.getApplicationName(), "Application name is not decoded correctly.");
+        assertNull(request.getCredentialsUsername(), "Missing fields should be decoded as null.");
+        assertEquals(password, request.getPassword(), "Password is not decoded correctly.");
+        assertEquals(1000, request.getEncryptionData().getIterationsCount(),
+                "Iterations count is not decoded correctly.");
+        assertArrayEquals(new byte[]{1, -2, 3}, request.getEncryptionData().getSalt(),
+                "Salt is not decoded correctly.");
+    }
+
+    @Test
+    public void testWriteRequestFrameIsSmallerThanJson() {
+        NioRequest request = NioRequest.builder("username")
+                .setType(RequestType.LOGIN)
+                .setPassword(new ServerPassword(new HashedPassword("password".toCharArray()), null))
+                .build();
+
+        int jsonLength = new Gson().toJson(request).getBytes(StandardCharsets.UTF_8).length;
+
+        assertTrue(encodeRequest(request).remaining() < jsonLength / 2,
+                "Raw digests should make the binary request much smaller than the JSON one.");
+    }
+
+    @Test
+    public void testReadRequestKeepsDigestsThatAreNotInCanonicalForm() throws MalformedMessageException {
+        Map<HashingAlgorithm, String> passwordHashes = new EnumMap<>(HashingAlgorithm.class);
+        passwordHashes.put(HashingAlgorithm.MD5, "ABCDEF");
+        passwordHashes.put(HashingAlgorithm.SHA1, "0".repeat(40));
+        ServerPassword password = new ServerPassword(new HashedPassword(passwordHashes), null);
+        NioRequest expectedRequest = NioRequest.builder("username")
+                .setType(RequestType.LOGIN)
+                .setPassword(password)
+                .build();
+
+        NioRequest request = BinaryCodec.readRequest(payloadOf(encodeRequest(expectedRequest)));
+
+        assertEquals(password, request.getPassword(), "Digests should survive the round trip unchanged.");
+    }
+
+    @Test
+    public void testReadRequestThrowsMalformedMessageExceptionWhenRequestIsTruncated() {
+        NioRequest request = NioRequest.builder("username")
+                .setType(RequestType.LOGOUT)
+                .build();
+        ByteBuffer payload = payloadOf(encodeRequest(request));
+        payload.limit(payload.limit() - 1);
+
+        assertThrows(MalformedMessageException.class, () -> BinaryCodec.readRequest(payload),
+                "Method should throw MalformedMessageException when the request is truncated.");
+    }
+
+    @Test
+    public void testReadRequestThrowsMalformedMessageExceptionWhenTypeIsUnknown() {
+        ByteBuffer payload = ByteBuffer.wrap(new byte[]{(byte) 0xFE, 0});
+
+        assertThrows(MalformedMessageException.class, () -> BinaryCodec.readRequest(payload),
+                "Method should throw MalformedMessageException when the request type is unknown.");
+    }
+
+    @Test
+    public void testReadRequestDecodesBatchRequests() throws MalformedMessageException {
+        NioRequest getRequest = NioRequest.builder("username")
+                .setType(RequestType.GET_PASSWORD)
+                .setApplicationName(APPLICATION_NAME)
+                .setCredentialsUsername("credentials")
+                .build();
+        NioRequest removeRequest = NioRequest.builder("username")
+                .setType(RequestType.REMOVE_PASSWORD)
+                .build();
+        NioRequest batchRequest = NioRequest.builder("username")
+                .setType(RequestType.BATCH)
+                .setRequestId(3L)
+                .setRequests(List.of(getRequest, removeRequest))
+                .build();
+
+        NioRequest request = BinaryCodec.readRequest(payloadOf(encodeRequest(batchRequest)));
+
+        assertEquals(List.of(getRequest, removeRequest), request.getRequests(),
+                "Batch requests are not decoded correctly.");
+        assertEquals(APPLICATION_NAME, request.getRequests().get(0).getApplicationName(),
+                "Fields of batch requests are not decoded correctly.");
+    }
+
+    @Test
+    public void testReadRequestThrowsMalformedMessageExceptionWhenBatchesAreNested() {
+        // BATCH, no fields, one request: a four byte length and another BATCH without fields and requests
+        byte batch = (byte) RequestType.BATCH.ordinal();
+        ByteBuffer payload = ByteBuffer.wrap(new byte[]{batch, 0, 1, 0, 0, 0, 3, batch, 0, 0});
+
+        assertThrows(MalformedMessageException.class, () -> BinaryCodec.readRequest(payload),
+                "Method should throw MalformedMessageException when batches are nested.");
+    }
+
+    @Test
+    public void testReadResponseDecodesEncodedResponse() throws MalformedMessageException {
+        NioResponse expectedResponse = new NioResponse(ResponseType.CREDENTIALS_FOUND, "\"body\"", 7L);
+        ByteBuffer frame = ByteBuffer.allocate(BinaryCodec.maxResponseFrameLength(expectedResponse));
+        BinaryCodec.writeResponseFrame(frame, expectedResponse);
+
+        assertEquals(expectedResponse, BinaryCodec.readResponse(payloadOf(frame.flip())),
+                "Method does not return correct NioResponse");
+    }
+
+    private static ByteBuffer encodeRequest(NioRequest request) {
+        ByteBuffer frame = ByteBuffer.allocate(BinaryCodec.maxRequestFrameLength(request));
+        BinaryCodec.writeRequestFrame(frame, request);
+        return frame.flip();
+    }
+
+    private static ByteBuffer payloadOf(ByteBuffer frame) {
+        int length = frame.getInt();
+        assertEquals(length, frame.remaining(), "Length field should match the payload length.");
+        return frame.slice();
+    }
+
+}
\ No newline at end of file
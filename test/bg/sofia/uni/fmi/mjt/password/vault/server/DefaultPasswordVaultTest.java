@@ -3,10 +3,13 @@ package bg.sofia.uni.fmi.mjt.password.vault.server;
 import bg.sofia.uni.fmi.mjt.password.vault.client.HashedPassword;
 import bg.sofia.uni.fmi.mjt.password.vault.client.Password;
 import bg.sofia.uni.fmi.mjt.password.vault.client.encryptor.EncryptionData;
+import bg.sofia.uni.fmi.mjt.password.vault.file.AtomicFileWriter;
 import bg.sofia.uni.fmi.mjt.password.vault.server.logger.Level;
 import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.CredentialAlreadyExistsException;
 import bg.sofia.uni.fmi.mjt.password.vault.server.logger.Logger;
+import bg.sofia.uni.fmi.mjt.password.vault.server.repository.AccountCredentialsRepository;
 import bg.sofia.uni.fmi.mjt.password.vault.server.repository.Repository;
+import bg.sofia.uni.fmi.mjt.password.vault.server.repository.UserRepository;
 import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.ElementAlreadyExistsException;
 import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.ElementNotFoundException;
 import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.RepositoryException;
@@ -30,13 +33,21 @@ import org.mockito.Mockito;
 import java.io.File;
 import java.io.IOException;
 import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -53,8 +64,14 @@ public class DefaultPasswordVaultTest {
 
     private static final Path TEST_FOLDER_PATH = Path.of("testData");
     private static final Path TEST_USERS_FILE_PATH = Path.of("Users.dat");
+    private static final Path BLOCKED_FOLDER_PATH = Path.of(TEST_FOLDER_PATH.toString(), "blocked");
+    private static final Path BLOCKED_USERS_FILE_PATH = Path.of(BLOCKED_FOLDER_PATH.toString(), "Users.dat");
     private static final int ITERATIONS_COUNT = 1024;
     private static final String USERNAME = "USERNAME";
+    private static final String OTHER_USERNAME = "OTHER_USERNAME";
+    private static final String LAZY_USERNAME = "LAZY_USERNAME";
+    private static final Path LAZY_USERS_FILE_PATH = Path.of(TEST_FOLDER_PATH.toString(), "users", "LazyUsers.dat");
+    private static final String CREDENTIALS_DIRECTORY = TEST_FOLDER_PATH + File.separator + "credentials";
     private static final String APPLICATION_NAME = "APPNAME";
     private static final String CREDENTIALS_USERNAME = "CRED_USER";
     private static final String CREDENTIALS_PASSWORD = "CRED_PSWD";
@@ -63,6 +80,7 @@ public class DefaultPasswordVaultTest {
     private static final EncryptionData ENCRYPTION_DATA =
             new EncryptionData(ITERATIONS_COUNT, "test_salt".getBytes(StandardCharsets.UTF_8));
     private static final String EXCEPTION_MESSAGE = "This is an exception thrown in a test.";
+    private static final long WAIT_SECONDS = 5;
 
     private static final Writer STRING_WRITER = new StringWriter();
     @Mock
@@ -394,6 +412,26 @@ public class DefaultPasswordVaultTest {
         verify(userMock, atLeastOnce()).changePassword((HashedPassword) PASSWORD_2);
     }
 
+    @Test
+    public void testChangePasswordWithFilesReloadsUsersWhenRewriteCannotBeCommitted()
+            throws RepositoryException, UserAuthenticationException {
+        when(usersMock.get(USERNAME)).thenReturn(userMock);
+        when(userMock.getPassword()).thenReturn(PASSWORD_1);
+        // the rewritten file cannot replace a directory that is not empty
+        createNonEmptyFolder(BLOCKED_USERS_FILE_PATH);
+        try {
+            PasswordVault vault = new DefaultPasswordVault(usersMock, loggerMock, BLOCKED_USERS_FILE_PATH,
+                    BLOCKED_FOLDER_PATH.toString(), "dat");
+
+            assertThrows(UncheckedIOException.class,
+                    () -> vault.changePassword(USERNAME, PASSWORD_1, PASSWORD_2, PASSWORD_2),
+                    "Method should throw an UncheckedIOException when the rewrite cannot be committed.");
+            verify(usersMock, times(1)).reload();
+        } finally {
+            deleteFolder(BLOCKED_FOLDER_PATH);
+        }
+    }
+
     @Test
     public void testGetEncryptionDataThrowsIllegalArgumentExceptionWhenusernameHasNullOrBlankValue()
             throws ElementNotFoundException {
@@ -575,6 +613,24 @@ public class DefaultPasswordVaultTest {
         verify(loggerMock, never()).log(Mockito.any(Level.class), Mockito.any(LocalDateTime.class), anyString());
     }
 
+    @Test
+    public void testRemoveCredentialsWithFilesUnloadsCredentialsWhenRewriteCannotBeCommitted()
+            throws ElementNotFoundException {
+        when(usersMock.get(USERNAME)).thenReturn(userMock);
+        createNonEmptyFolder(Path.of(BLOCKED_FOLDER_PATH.toString(), USERNAME + "Credentials.dat"));
+        try {
+            PasswordVault vault = new DefaultPasswordVault(usersMock, loggerMock, BLOCKED_USERS_FILE_PATH,
+                    BLOCKED_FOLDER_PATH.toString(), "dat");
+
+            assertThrows(UncheckedIOException.class,
+                    () -> vault.removeCredentials(USERNAME, APPLICATION_NAME, CREDENTIALS_USERNAME),
+                    "Method should throw an UncheckedIOException when the rewrite cannot be committed.");
+            verify(userMock, times(1)).unloadCredentials();
+        } finally {
+            deleteFolder(BLOCKED_FOLDER_PATH);
+        }
+    }
+
     @Test
     public void testGetCredentialsPasswordThrowsIllegalArgumentExceptionWhenUsernameHasNullOrBlankValue()
             throws ElementNotFoundException {
@@ -610,6 +666,45 @@ public class DefaultPasswordVaultTest {
         verify(loggerMock, never()).log(Mockito.any(Level.class), Mockito.any(LocalDateTime.class), anyString());
     }
 
+    @Test
+    public void testGetEncryptionDataIsNotHeldUpByGetCredentialsPasswordInProgress() throws Exception {
+        CountDownLatch readStartedLatch = new CountDownLatch(1);
+        CountDownLatch releaseReadLatch = new CountDownLatch(1);
+        when(usersMock.get(USERNAME)).thenReturn(userMock);
+        when(userMock.getEncryptionData()).thenReturn(ENCRYPTION_DATA);
+        when(userMock.getCredentials(APPLICATION_NAME, CREDENTIALS_USERNAME)).thenAnswer(invocation -> {
+            readStartedLatch.countDown();
+            releaseReadLatch.await();
+            return CREDENTIALS_PASSWORD;
+        });
+
+        CompletableFuture<String> credentialsPassword = CompletableFuture.supplyAsync(() -> {
+            try {
+                return passwordVault.getCredentialsPassword(USERNAME, APPLICATION_NAME, CREDENTIALS_USERNAME);
+            } catch (ElementNotFoundException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        try {
+            assertTrue(readStartedLatch.await(WAIT_SECONDS, TimeUnit.SECONDS),
+                    "The credentials should have been read.");
+            CompletableFuture<EncryptionData> encryptionData = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return passwordVault.getEncryptionData(USERNAME);
+                } catch (RepositoryException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+
+            assertEquals(ENCRYPTION_DATA, encryptionData.get(WAIT_SECONDS, TimeUnit.SECONDS),
+                    "A read should not wait for another read of the vault.");
+        } finally {
+            releaseReadLatch.countDown();
+        }
+        assertEquals(CREDENTIALS_PASSWORD, credentialsPassword.get(WAIT_SECONDS, TimeUnit.SECONDS),
+                "The read in progress should complete.");
+    }
+
     @Test
     public void testIsLoggedInThrowsIllegalArgumentExceptionWhenUsernameHaveNullOrBlankValue()
             throws ElementNotFoundException {
@@ -622,6 +717,129 @@ public class DefaultPasswordVaultTest {
         verify(usersMock, never()).get(ArgumentMatchers.isNull());
     }
 
+    @Test
+    public void testConstructorDeletesTemporaryFilesOfInterruptedRewrites() throws IOException {
+        Path usersFilePath = Path.of(TEST_FOLDER_PATH.toString(), TEST_USERS_FILE_PATH.toString());
+        Path temporaryUsersFilePath = AtomicFileWriter.temporaryFilePath(usersFilePath);
+        Path temporaryCredentialsFilePath = AtomicFileWriter.temporaryFilePath(
+                Path.of(TEST_FOLDER_PATH.toString(), "credentials", USERNAME + "Credentials.dat"));
+        // this process stands in for a restarted one, its parent for another live process that shares the files
+        Path endedCompactionFilePath = Path.of(TEST_FOLDER_PATH.toString(),
+                TEST_USERS_FILE_PATH + "." + ProcessHandle.current().pid() + ".compaction.tmp");
+        Path liveCompactionFilePath = Path.of(TEST_FOLDER_PATH.toString(),
+                TEST_USERS_FILE_PATH + "." + ProcessHandle.current().parent().orElseThrow().pid() + ".compaction.tmp");
+        Files.writeString(temporaryUsersFilePath, "{\"username\":");
+        Files.writeString(temporaryCredentialsFilePath, "{\"applicationName\":");
+        Files.writeString(endedCompactionFilePath, "{\"username\":");
+        Files.writeString(liveCompactionFilePath, "{\"username\":");
+
+        try {
+            new DefaultPasswordVault(usersMock, loggerMock, usersFilePath,
+                    TEST_FOLDER_PATH + File.separator + "credentials", "dat");
+            assertTrue(Files.notExists(temporaryUsersFilePath),
+                    "The temporary file of an interrupted users rewrite should be deleted.");
+            assertTrue(Files.notExists(temporaryCredentialsFilePath),
+                    "The temporary file of an interrupted credentials rewrite should be deleted.");
+            assertTrue(Files.notExists(endedCompactionFilePath),
+                    "The copy of a compaction of a process that has ended should be deleted.");
+            assertTrue(Files.exists(liveCompactionFilePath),
+                    "The copy of a compaction of a live process should be kept.");
+        } finally {
+            Files.deleteIfExists(liveCompactionFilePath);
+        }
+    }
+
+    @Test
+    public void testCompactUsersKeepsUsersRegisteredWhileCompactedCopyIsWritten() throws Exception {
+        Path usersFilePath = Path.of(TEST_FOLDER_PATH.toString(), "users", "CompactedUsers.dat");
+        Files.deleteIfExists(usersFilePath);
+        createFileIfDoesNotExist(usersFilePath);
+        PasswordVault vault = new DefaultPasswordVault(new UserRepository<>(usersFilePath, DefaultUser.class),
+                loggerMock, usersFilePath, TEST_FOLDER_PATH + File.separator + "credentials", "dat", true, false);
+        vault.register(USERNAME, PASSWORD_1, PASSWORD_1, ENCRYPTION_DATA);
+        vault.changePassword(USERNAME, PASSWORD_1, PASSWORD_2, PASSWORD_2);
+        vault.changePassword(USERNAME, PASSWORD_2, PASSWORD_1, PASSWORD_1);
+        AtomicInteger stepsCount = new AtomicInteger();
+
+        vault.compactUsers(1, step -> {
+            // the second step replaces the file, so the user is registered after the live users have been copied
+            if (stepsCount.incrementAndGet() == 2) {
+                try {
+                    vault.register(OTHER_USERNAME, PASSWORD_2, PASSWORD_2, ENCRYPTION_DATA);
+                } catch (RepositoryException | UserAuthenticationException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            step.run();
+        });
+
+        UserRepository<DefaultUser> compactedUsers = new UserRepository<>(usersFilePath, DefaultUser.class);
+        assertEquals(2, Files.readAllLines(usersFilePath).size(),
+                "The compacted file should have only the records of the live users.");
+        assertEquals(0, compactedUsers.getDeadRecordsCount(), "The compacted file should not have dead records.");
+        assertTrue(compactedUsers.getAll().containsKey(OTHER_USERNAME),
+                "The user registered while the copy was written should be kept.");
+        assertTrue(vault.login(OTHER_USERNAME, PASSWORD_2) != null,
+                "The user registered while the copy was written should log in.");
+    }
+
+    @Test
+    public void testConstructorDoesNotLoadCredentials() throws Exception {
+        UserRepository<DefaultUser> users = readRegisteredUser();
+
+        new DefaultPasswordVault(users, loggerMock, LAZY_USERS_FILE_PATH, CREDENTIALS_DIRECTORY, "dat");
+        assertFalse(users.get(LAZY_USERNAME).isCredentialsLoaded(),
+                "The credentials should not be read before the first access of their user.");
+    }
+
+    @Test
+    public void testLoginLoadsCredentials() throws Exception {
+        UserRepository<DefaultUser> users = readRegisteredUser();
+        PasswordVault vault = new DefaultPasswordVault(users, loggerMock, LAZY_USERS_FILE_PATH,
+                CREDENTIALS_DIRECTORY, "dat");
+
+        vault.login(LAZY_USERNAME, PASSWORD_1);
+        assertTrue(users.get(LAZY_USERNAME).isCredentialsLoaded(), "The login should read the credentials.");
+    }
+
+    @Test
+    public void testFirstAccessLoadsCredentials() throws Exception {
+        UserRepository<DefaultUser> users = readRegisteredUser();
+        PasswordVault vault = new DefaultPasswordVault(users, loggerMock, LAZY_USERS_FILE_PATH,
+                CREDENTIALS_DIRECTORY, "dat");
+
+        assertEquals(CREDENTIALS_PASSWORD,
+                vault.getCredentialsPassword(LAZY_USERNAME, APPLICATION_NAME, CREDENTIALS_USERNAME),
+                "The first access should read the credentials from the file.");
+        assertTrue(users.get(LAZY_USERNAME).isCredentialsLoaded(), "The credentials should stay in memory.");
+    }
+
+    @Test
+    public void testReloadCredentialsUnloadsCredentials() throws Exception {
+        UserRepository<DefaultUser> users = readRegisteredUser();
+        PasswordVault vault = new DefaultPasswordVault(users, loggerMock, LAZY_USERS_FILE_PATH,
+                CREDENTIALS_DIRECTORY, "dat");
+        vault.login(LAZY_USERNAME, PASSWORD_1);
+
+        vault.reloadCredentials(LAZY_USERNAME);
+        assertFalse(users.get(LAZY_USERNAME).isCredentialsLoaded(),
+                "The credentials should be read again only on the next access.");
+    }
+
+    // the users read from the file have credentials that are not in memory yet
+    private static UserRepository<DefaultUser> readRegisteredUser() throws Exception {
+        Files.deleteIfExists(LAZY_USERS_FILE_PATH);
+        Files.deleteIfExists(AccountCredentialsRepository.generateCredentialsFilePath(LAZY_USERNAME,
+                CREDENTIALS_DIRECTORY, "dat"));
+        createFileIfDoesNotExist(LAZY_USERS_FILE_PATH);
+        PasswordVault vault = new DefaultPasswordVault(new UserRepository<>(LAZY_USERS_FILE_PATH, DefaultUser.class),
+                mock(Logger.class), LAZY_USERS_FILE_PATH, CREDENTIALS_DIRECTORY, "dat");
+        vault.register(LAZY_USERNAME, PASSWORD_1, PASSWORD_1, ENCRYPTION_DATA);
+        vault.addCredentials(LAZY_USERNAME, APPLICATION_NAME, CREDENTIALS_USERNAME, CREDENTIALS_PASSWORD);
+
+        return new UserRepository<>(LAZY_USERS_FILE_PATH, DefaultUser.class);
+    }
+
     private static void createFolderIfDoesNotExist(Path path) {
         if (Files.notExists(path)) {
             try {
@@ -652,6 +870,20 @@ public class DefaultPasswordVaultTest {
         }
     }
 
+    private static void createNonEmptyFolder(Path path) {
+        createFolderIfDoesNotExist(path);
+        createFileIfDoesNotExist(Path.of(path.toString(), "file"));
+    }
+
+    private static void deleteFolder(Path path) {
+        try (Stream<Path> paths = Files.walk(path)) {
+            paths.sorted(Comparator.reverseOrder())
+                    .forEach(DefaultPasswordVaultTest::deleteFile);
+        } catch (IOException e) {
+            fail("Deleting folder has thrown an IOException.", e);
+        }
+    }
+
     private static void deleteFile(Path path) {
         try {
             Files.delete(path);
@@ -0,0 +1,138 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server;
+
+import bg.sofia.uni.fmi.mjt.password.vault.server.durability.FileSyncer;
+import bg.sofia.uni.fmi.mjt.password.vault.server.repository.AccountCredentialsRepository;
+import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.CredentialAlreadyExistsException;
+import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.ElementNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
+
+public class DurablePasswordVaultTest {
+
+    private static final Path USERS_FILE_PATH = Path.of("testData", "Users.dat");
+    private static final String CREDENTIALS_DIRECTORY = "testData";
+    private static final String CREDENTIALS_EXTENSION = "dat";
+    private static final String USERNAME = "USERNAME";
+    private static final String APPLICATION_NAME = "APPNAME";
+    private static final String PASSWORD = "PASSWORD";
+    private static final Path CREDENTIALS_FILE_PATH = AccountCredentialsRepository
+            .generateCredentialsFilePath(USERNAME, CREDENTIALS_DIRECTORY, CREDENTIALS_EXTENSION);
+
+    @Mock
+    private final PasswordVault passwordVaultMock = mock(PasswordVault.class);
+    private final List<String> events = new ArrayList<>();
+    private boolean isInsideVaultLock;
+    private FileSyncer fileSyncer;
+    private DurablePasswordVault passwordVault;
+
+    @BeforeEach
+    public void setUp() throws ElementNotFoundException, CredentialAlreadyExistsException {
+        reset(passwordVaultMock);
+        events.clear();
+        fileSyncer = filePath -> events.add((isInsideVaultLock ? "locked sync " : "sync ") + filePath);
+        passwordVault = new DurablePasswordVault(passwordVaultMock, filePath -> fileSyncer.sync(filePath),
+                USERS_FILE_PATH, CREDENTIALS_DIRECTORY, CREDENTIALS_EXTENSION, true, true);
+
+        doAnswer(invocation -> {
+            events.add("write");
+            return null;
+        }).when(passwordVaultMock).addCredentials(USERNAME, APPLICATION_NAME, USERNAME, PASSWORD);
+        doAnswer(invocation -> {
+            events.add("update");
+            return null;
+        }).when(passwordVaultMock).updateCredentials(USERNAME, APPLICATION_NAME, USERNAME, PASSWORD);
+        doAnswer(invocation -> {
+            events.add("flush");
+            return null;
+        }).when(passwordVaultMock).flushCredentials(USERNAME);
+        doAnswer(invocation -> {
+            isInsideVaultLock = true;
+            try {
+                invocation.<Runnable>getArgument(0).run();
+            } finally {
+                isInsideVaultLock = false;
+            }
+            return null;
+        }).when(passwordVaultMock).runExclusively(any(Runnable.class));
+    }
+
+    @Test
+    public void testWriteReturnsAfterWrittenFileIsSynced()
+            throws ElementNotFoundException, CredentialAlreadyExistsException {
+        passwordVault.addCredentials(USERNAME, APPLICATION_NAME, USERNAME, PASSWORD);
+
+        assertEquals(List.of("write", "sync " + CREDENTIALS_FILE_PATH), events,
+                "The written file should be synced before the write returns.");
+    }
+
+    @Test
+    public void testWriteWithWriterOfCallerIsNotSynced()
+            throws ElementNotFoundException, CredentialAlreadyExistsException {
+        passwordVault.addCredentials(USERNAME, APPLICATION_NAME, USERNAME, PASSWORD, Writer.nullWriter());
+
+        assertEquals(List.of(), events, "The caller owns the writer, so nothing should be synced.");
+    }
+
+    @Test
+    public void testRewriteIsNotSyncedAgain() throws ElementNotFoundException {
+        DurablePasswordVault rewritingPasswordVault = new DurablePasswordVault(passwordVaultMock, fileSyncer,
+                USERS_FILE_PATH, CREDENTIALS_DIRECTORY, CREDENTIALS_EXTENSION, false, false);
+
+        rewritingPasswordVault.updateCredentials(USERNAME, APPLICATION_NAME, USERNAME, PASSWORD);
+        passwordVault.flushCredentials(USERNAME);
+
+        assertEquals(List.of("update", "flush"), events,
+                "The commit of a rewrite forces the file, so it should not be synced again.");
+    }
+
+    @Test
+    public void testRunExclusivelySyncsWrittenFilesAfterReleasingVaultLock() {
+        passwordVault.runExclusively(() -> {
+            try {
+                passwordVault.updateCredentials(USERNAME, APPLICATION_NAME, USERNAME, PASSWORD);
+                passwordVault.updateCredentials(USERNAME, APPLICATION_NAME, USERNAME, PASSWORD);
+            } catch (ElementNotFoundException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        assertEquals(List.of("update", "update", "sync " + CREDENTIALS_FILE_PATH), events,
+                "A file written inside the action should be synced once, after the vault lock is released.");
+    }
+
+    @Test
+    public void testWriteThrowsWhenSyncFails() {
+        fileSyncer = filePath -> {
+            throw new UncheckedIOException("Cannot sync file.", new IOException());
+        };
+
+        assertThrows(UncheckedIOException.class,
+                () -> passwordVault.addCredentials(USERNAME, APPLICATION_NAME, USERNAME, PASSWORD),
+                "A write whose file cannot be synced should not be acknowledged.");
+        assertThrows(UncheckedIOException.class,
+                () -> passwordVault.runExclusively(() -> {
+                    try {
+                        passwordVault.updateCredentials(USERNAME, APPLICATION_NAME, USERNAME, PASSWORD);
+                    } catch (ElementNotFoundException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }),
+                "An action whose files cannot be synced should not be acknowledged.");
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,232 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server;
+
+import bg.sofia.uni.fmi.mjt.password.vault.client.HashedPassword;
+import bg.sofia.uni.fmi.mjt.password.vault.client.Password;
+import bg.sofia.uni.fmi.mjt.password.vault.client.encryptor.EncryptionData;
+import bg.sofia.uni.fmi.mjt.password.vault.server.logger.Logger;
+import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.ElementNotFoundException;
+import bg.sofia.uni.fmi.mjt.password.vault.server.repository.UserRepository;
+import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.RepositoryException;
+import bg.sofia.uni.fmi.mjt.password.vault.server.user.DefaultUser;
+import bg.sofia.uni.fmi.mjt.password.vault.server.user.exceptions.UserAuthenticationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class FileLockedPasswordVaultTest {
+
+    private static final Path TEST_LOCK_FILE_PATH = Path.of("testData", "data.lock");
+    private static final Path TEST_USERS_FILE_PATH = Path.of("testData", "LockedUsers.dat");
+    private static final Path TEST_TEMPORARY_USERS_FILE_PATH = Path.of("testData", "LockedUsers.dat.tmp");
+    private static final long WAIT_MILLIS = 5000;
+    private static final String USERNAME = "USERNAME";
+    private static final String OTHER_USERNAME = "OTHER_USERNAME";
+    private static final String APPLICATION_NAME = "APPNAME";
+    private static final Password PASSWORD = new HashedPassword("password".toCharArray());
+    private static final EncryptionData ENCRYPTION_DATA = new EncryptionData(1024, new byte[] {1, 2, 3});
+
+    @Mock
+    private final PasswordVault passwordVaultMock = mock(PasswordVault.class);
+    @Mock
+    private final PasswordVault otherPasswordVaultMock = mock(PasswordVault.class);
+    @Mock
+    private final Logger loggerMock = mock(Logger.class);
+
+    private FileLockedPasswordVault passwordVault;
+    private FileLockedPasswordVault otherPasswordVault;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        Files.createDirectories(TEST_LOCK_FILE_PATH.getParent());
+        Files.deleteIfExists(TEST_LOCK_FILE_PATH);
+        passwordVault = new FileLockedPasswordVault(passwordVaultMock, TEST_LOCK_FILE_PATH);
+        otherPasswordVault = new FileLockedPasswordVault(otherPasswordVaultMock, TEST_LOCK_FILE_PATH);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        passwordVault.close();
+        otherPasswordVault.close();
+        Files.deleteIfExists(TEST_LOCK_FILE_PATH);
+        Files.deleteIfExists(TEST_USERS_FILE_PATH);
+        Files.deleteIfExists(TEST_TEMPORARY_USERS_FILE_PATH);
+    }
+
+    @Test
+    public void testOperationReloadsVaultOnlyAfterChangesOfOtherVault() throws ElementNotFoundException {
+        passwordVault.removeCredentials(USERNAME, APPLICATION_NAME, USERNAME);
+        reset(passwordVaultMock);
+        passwordVault.getCredentialsPassword(USERNAME, APPLICATION_NAME, USERNAME);
+        verify(passwordVaultMock, never()).reload();
+
+        otherPasswordVault.removeCredentials(USERNAME, APPLICATION_NAME, USERNAME);
+        passwordVault.getCredentialsPassword(USERNAME, APPLICATION_NAME, USERNAME);
+        passwordVault.getCredentialsPassword(USERNAME, APPLICATION_NAME, USERNAME);
+        verify(passwordVaultMock, times(1)).reloadCredentials(USERNAME);
+        verify(passwordVaultMock, never()).reload();
+    }
+
+    @Test
+    public void testOperationReloadsAllUsersAfterOtherVaultChangesUsers()
+            throws ElementNotFoundException, RepositoryException, UserAuthenticationException {
+        passwordVault.getCredentialsPassword(USERNAME, APPLICATION_NAME, USERNAME);
+        reset(passwordVaultMock);
+
+        otherPasswordVault.changePassword(USERNAME, PASSWORD, PASSWORD, PASSWORD);
+        otherPasswordVault.removeCredentials(USERNAME, APPLICATION_NAME, USERNAME);
+        passwordVault.getCredentialsPassword(USERNAME, APPLICATION_NAME, USERNAME);
+        verify(passwordVaultMock, times(1)).reload();
+        verify(passwordVaultMock, never()).reloadCredentials(USERNAME);
+    }
+
+    @Test
+    public void testOperationReloadsCredentialsOfEveryUserChangedInsideExclusiveAction()
+            throws ElementNotFoundException {
+        passwordVault.getCredentialsPassword(USERNAME, APPLICATION_NAME, USERNAME);
+        reset(passwordVaultMock);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(otherPasswordVaultMock).runExclusively(any(Runnable.class));
+
+        otherPasswordVault.runExclusively(() -> {
+            try {
+                otherPasswordVault.removeCredentials(USERNAME, APPLICATION_NAME, USERNAME);
+                otherPasswordVault.removeCredentials(OTHER_USERNAME, APPLICATION_NAME, USERNAME);
+            } catch (ElementNotFoundException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        passwordVault.getCredentialsPassword(USERNAME, APPLICATION_NAME, USERNAME);
+        verify(passwordVaultMock, times(1)).reloadCredentials(USERNAME);
+        verify(passwordVaultMock, times(1)).reloadCredentials(OTHER_USERNAME);
+        verify(passwordVaultMock, never()).reload();
+    }
+
+    @Test
+    public void testReadOperationDoesNotMakeOtherVaultReload() throws ElementNotFoundException {
+        otherPasswordVault.getCredentialsPassword(USERNAME, APPLICATION_NAME, USERNAME);
+        reset(otherPasswordVaultMock);
+
+        passwordVault.getCredentialsPassword(USERNAME, APPLICATION_NAME, USERNAME);
+        otherPasswordVault.getCredentialsPassword(USERNAME, APPLICATION_NAME, USERNAME);
+        verify(otherPasswordVaultMock, never()).reload();
+    }
+
+    @Test
+    public void testFailedOperationReleasesLock() throws ElementNotFoundException {
+        doThrow(new IllegalStateException())
+                .when(passwordVaultMock)
+                .removeCredentials(USERNAME, APPLICATION_NAME, USERNAME);
+
+        assertThrows(IllegalStateException.class,
+                () -> passwordVault.removeCredentials(USERNAME, APPLICATION_NAME, USERNAME),
+                "Exception of the vault should be passed to the caller.");
+        otherPasswordVault.removeCredentials(USERNAME, APPLICATION_NAME, USERNAME);
+        verify(otherPasswordVaultMock, times(1)).removeCredentials(USERNAME, APPLICATION_NAME, USERNAME);
+    }
+
+    @Test
+    public void testCompactUsersHoldsLockOnlyForExclusiveSteps() throws Exception {
+        passwordVault.getCredentialsPassword(USERNAME, APPLICATION_NAME, USERNAME);
+        reset(passwordVaultMock);
+        doAnswer(invocation -> {
+            Consumer<Runnable> exclusiveSection = invocation.getArgument(1);
+            exclusiveSection.accept(() -> { });
+            // the copy is written between the steps, so the other vault is not held up meanwhile
+            CompletableFuture.runAsync(() -> {
+                try {
+                    otherPasswordVault.removeCredentials(USERNAME, APPLICATION_NAME, USERNAME);
+                } catch (ElementNotFoundException e) {
+                    throw new IllegalStateException(e);
+                }
+            }).get(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+            exclusiveSection.accept(() -> { });
+            return null;
+        }).when(passwordVaultMock).compactUsers(eq(1), any());
+
+        passwordVault.compactUsers(1);
+        verify(passwordVaultMock, never()).compactUsers(1);
+        verify(passwordVaultMock, times(1)).reloadCredentials(USERNAME);
+    }
+
+    @Test
+    public void testVaultStartedWhileOtherVaultRewritesFilesWaitsForRewrite() throws Exception {
+        Files.writeString(TEST_USERS_FILE_PATH, "");
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(passwordVaultMock).runExclusively(any(Runnable.class));
+
+        CompletableFuture<FileLockedPasswordVault> startedVault = new CompletableFuture<>();
+        passwordVault.runExclusively(() -> {
+            try {
+                writeRegisteredUser(TEST_TEMPORARY_USERS_FILE_PATH);
+                Thread startingThread = new Thread(() -> startedVault.complete(
+                        new FileLockedPasswordVault(() -> new DefaultPasswordVault(
+                                new UserRepository<>(TEST_USERS_FILE_PATH, DefaultUser.class), loggerMock,
+                                TEST_USERS_FILE_PATH, null, null), TEST_LOCK_FILE_PATH)));
+                startingThread.start();
+                awaitWaiting(startingThread);
+
+                assertTrue(Files.exists(TEST_TEMPORARY_USERS_FILE_PATH),
+                        "The temporary file of a rewrite in progress should not be deleted by a starting vault.");
+                Files.move(TEST_TEMPORARY_USERS_FILE_PATH, TEST_USERS_FILE_PATH, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        try (FileLockedPasswordVault vault = startedVault.get(WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+            assertEquals(ENCRYPTION_DATA.getIterationsCount(), vault.getEncryptionData(USERNAME).getIterationsCount(),
+                    "The started vault should read the users after the rewrite.");
+        }
+    }
+
+    private static void writeRegisteredUser(Path filePath) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(filePath, StandardCharsets.UTF_8)) {
+            new UserRepository<>(new StringReader(""), DefaultUser.class)
+                    .put(new DefaultUser(USERNAME, (HashedPassword) PASSWORD, ENCRYPTION_DATA), writer);
+        } catch (RepositoryException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void awaitWaiting(Thread thread) {
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (thread.getState() != Thread.State.WAITING) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("The vault should wait for the lock held by the other vault.");
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,92 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.durability;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class GroupCommitFileSyncerTest {
+
+    private static final Path FILE_PATH = Path.of("testGroupCommitFile.txt");
+    private static final int WRITERS_COUNT = 8;
+    // long enough for the batch to be closed by its size
+    private static final long LONG_INTERVAL_MILLIS = 60_000;
+
+    private GroupCommitFileSyncer fileSyncer;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        Files.writeString(FILE_PATH, "contents");
+    }
+
+    @Test
+    public void testConstructorThrowsIllegalArgumentExceptionWhenArgumentsAreInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> new GroupCommitFileSyncer(-1, 1),
+                "Constructor should throw an IllegalArgumentException when interval is negative.");
+        assertThrows(IllegalArgumentException.class, () -> new GroupCommitFileSyncer(0, 0),
+                "Constructor should throw an IllegalArgumentException when max batch size is not positive.");
+    }
+
+    @Test
+    public void testSyncForcesConcurrentRequestsInOneBatch() throws InterruptedException {
+        fileSyncer = new GroupCommitFileSyncer(LONG_INTERVAL_MILLIS, WRITERS_COUNT);
+        CountDownLatch synced = new CountDownLatch(WRITERS_COUNT);
+        List<Thread> writers = new ArrayList<>();
+        for (int i = 0; i < WRITERS_COUNT; i++) {
+            Thread writer = new Thread(() -> {
+                fileSyncer.sync(FILE_PATH);
+                synced.countDown();
+            });
+            writer.start();
+            writers.add(writer);
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        assertEquals(0, synced.getCount(), "All writers should return from sync.");
+        assertEquals(1, fileSyncer.getBatchesCount(), "The concurrent requests should be forced in one batch.");
+        assertEquals(WRITERS_COUNT, fileSyncer.getRequestsCount(), "All requests should be counted.");
+    }
+
+    @Test
+    public void testSyncSkipsFileThatDoesNotExist() {
+        fileSyncer = new GroupCommitFileSyncer(0, 1);
+        fileSyncer.sync(Path.of("missingGroupCommitFile.txt"));
+
+        assertEquals(1, fileSyncer.getRequestsCount(), "The request for a missing file should be completed.");
+    }
+
+    @Test
+    public void testSyncForcesFileByItselfAfterClose() {
+        fileSyncer = new GroupCommitFileSyncer(0, 1);
+        fileSyncer.close();
+        fileSyncer.sync(FILE_PATH);
+
+        assertEquals(0, fileSyncer.getRequestsCount(),
+                "The file should be forced without the flusher thread after close.");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (fileSyncer != null) {
+            fileSyncer.close();
+        }
+        try {
+            Files.deleteIfExists(FILE_PATH);
+        } catch (IOException e) {
+            fail("File deletion has thrown an IOException.", e);
+        }
+    }
+
+}
\ No newline at end of file
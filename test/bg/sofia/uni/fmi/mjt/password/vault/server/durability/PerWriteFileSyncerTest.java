@@ -0,0 +1,62 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.durability;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PerWriteFileSyncerTest {
+
+    private static final Path DIRECTORY_PATH = Path.of("testPerWriteSync");
+    private static final Path FILE_PATH = DIRECTORY_PATH.resolve("file.txt");
+    private static final String CONTENTS = "contents";
+
+    private final PerWriteFileSyncer fileSyncer = new PerWriteFileSyncer();
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        Files.createDirectories(DIRECTORY_PATH);
+        Files.writeString(FILE_PATH, CONTENTS);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(FILE_PATH);
+        Files.deleteIfExists(DIRECTORY_PATH);
+    }
+
+    @Test
+    public void testSyncThrowsIllegalArgumentExceptionWhenFilePathIsNull() {
+        assertThrows(IllegalArgumentException.class, () -> fileSyncer.sync(null),
+                "Method should throw an IllegalArgumentException when file path is null.");
+    }
+
+    @Test
+    public void testSyncReturnsWithUnchangedFileAfterForcingIt() throws IOException {
+        fileSyncer.sync(FILE_PATH);
+
+        assertEquals(CONTENTS, Files.readString(FILE_PATH), "Syncing should not change the file.");
+    }
+
+    @Test
+    public void testSyncSkipsFileThatDoesNotExist() {
+        assertDoesNotThrow(() -> fileSyncer.sync(DIRECTORY_PATH.resolve("missing.txt")),
+                "A file that does not exist has nothing to sync.");
+    }
+
+    @Test
+    public void testSyncThrowsUncheckedIOExceptionWhenFileCannotBeForced() {
+        // a directory cannot be opened for writing
+        assertThrows(UncheckedIOException.class, () -> fileSyncer.sync(DIRECTORY_PATH),
+                "A failed force should be thrown to the writer, so the write is not acknowledged.");
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,68 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LatencyHistogramTest {
+
+    private static final double MAX_RELATIVE_ERROR = 0.125;
+
+    @Test
+    public void testBucketUpperBoundIsNotLessThanValuesInBucket() {
+        long[] values = {0, 1, 7, 8, 9, 15, 16, 1000, 123_456_789, Long.MAX_VALUE};
+        for (long value : values) {
+            long upperBound = LatencyHistogram.bucketUpperBound(LatencyHistogram.bucketIndex(value));
+
+            assertTrue(upperBound >= value, "Upper bound of the bucket should not be less than " + value + ".");
+            assertTrue(upperBound - value <= value * MAX_RELATIVE_ERROR,
+                    "Upper bound of the bucket should be close to " + value + ".");
+        }
+        assertEquals(LatencyHistogram.BUCKETS_COUNT - 1, LatencyHistogram.bucketIndex(Long.MAX_VALUE),
+                "The largest value should fall in the last bucket.");
+    }
+
+    @Test
+    public void testValueAtPercentileReturnsValuesWithinBucketError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value);
+        }
+
+        HistogramSnapshot snapshot = histogram.snapshot();
+        assertEquals(1000, snapshot.count(), "All recorded values should be counted.");
+        assertEquals(1000, snapshot.max(), "Max should be the largest recorded value.");
+        assertEquals(500.5, snapshot.mean(), "Mean should be computed from the exact sum.");
+        assertWithinBucketError(500, snapshot.valueAtPercentile(50));
+        assertWithinBucketError(990, snapshot.valueAtPercentile(99));
+        assertEquals(1000, snapshot.valueAtPercentile(100), "Percentile 100 should be the max.");
+    }
+
+    @Test
+    public void testRecordRecordsNegativeValuesAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+
+        HistogramSnapshot snapshot = histogram.snapshot();
+        assertEquals(1, snapshot.count(), "Negative value should be counted.");
+        assertEquals(0, snapshot.sum(), "Negative value should be recorded as zero.");
+        assertEquals(0, snapshot.valueAtPercentile(50), "Negative value should be recorded as zero.");
+    }
+
+    @Test
+    public void testValueAtPercentileThrowsIllegalArgumentExceptionWhenPercentileIsOutOfRange() {
+        HistogramSnapshot snapshot = new LatencyHistogram().snapshot();
+
+        assertEquals(0, snapshot.valueAtPercentile(99), "Empty histogram should return zero.");
+        assertThrows(IllegalArgumentException.class, () -> snapshot.valueAtPercentile(101),
+                "Percentile over 100 should not be accepted.");
+    }
+
+    private static void assertWithinBucketError(long expected, long actual) {
+        assertTrue(actual >= expected && actual - expected <= expected * MAX_RELATIVE_ERROR,
+                "Expected a value close to " + expected + " but was " + actual + ".");
+    }
+
+}
\ No newline at end of file
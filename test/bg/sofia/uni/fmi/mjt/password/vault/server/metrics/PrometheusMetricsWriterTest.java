@@ -0,0 +1,78 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.metrics;
+
+import bg.sofia.uni.fmi.mjt.password.vault.request.RequestType;
+import bg.sofia.uni.fmi.mjt.password.vault.response.ResponseType;
+import bg.sofia.uni.fmi.mjt.password.vault.server.nio.PasswordVaultServer;
+import bg.sofia.uni.fmi.mjt.password.vault.server.nio.admission.AdmissionStats;
+import bg.sofia.uni.fmi.mjt.password.vault.server.nio.buffer.ByteBufferPoolStats;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class PrometheusMetricsWriterTest {
+
+    @Mock
+    private final PasswordVaultServer passwordVaultServerMock = mock(PasswordVaultServer.class);
+    private final ServerMetrics metrics = new ServerMetrics();
+    private final PrometheusMetricsWriter metricsWriter = new PrometheusMetricsWriter(passwordVaultServerMock);
+
+    @BeforeEach
+    public void setUp() {
+        Map<RequestType, Long> dispatchCounts = new EnumMap<>(RequestType.class);
+        dispatchCounts.put(RequestType.LOGIN, 3L);
+
+        when(passwordVaultServerMock.getAdmissionStats()).thenReturn(new AdmissionStats(2, 10, 1, 0, 5, 7, 4));
+        when(passwordVaultServerMock.getBufferPoolStats())
+                .thenReturn(new ByteBufferPoolStats(0, 0, 0, 0, 0, 0, new int[0], new int[0]));
+        when(passwordVaultServerMock.getDispatchCounts()).thenReturn(dispatchCounts);
+        when(passwordVaultServerMock.getMetrics()).thenAnswer(invocation -> metrics.snapshot());
+    }
+
+    @Test
+    public void testConstructorThrowsIllegalArgumentExceptionWhenServerIsNull() {
+        assertThrows(IllegalArgumentException.class, () -> new PrometheusMetricsWriter(null),
+                "Constructor should throw an IllegalArgumentException when server is null.");
+    }
+
+    @Test
+    public void testWriteWritesConnectionAndDispatchCounts() {
+        String output = metricsWriter.write();
+
+        assertTrue(output.contains("password_vault_open_connections 2\n"), "Open connections should be written.");
+        assertTrue(output.contains("password_vault_rejected_requests_total 4\n"),
+                "Rejected requests should be written.");
+        assertTrue(output.contains("password_vault_dispatched_requests_total{type=\"LOGIN\"} 3\n"),
+                "Dispatch counts should be labeled with the request type.");
+        assertTrue(output.contains("# TYPE jvm_memory_bytes_used gauge\n"), "JVM memory should be written.");
+    }
+
+    @Test
+    public void testWriteWritesLatenciesInSecondsAsSummaries() {
+        metrics.recordRequest(RequestType.LOGIN, ResponseType.LOGIN_SUCCESSFUL, TimeUnit.MILLISECONDS.toNanos(2));
+        metrics.recordStage(TimedStage.BREACH_CHECK, TimeUnit.MILLISECONDS.toNanos(5));
+        metrics.recordBreachCheckError();
+
+        String output = metricsWriter.write();
+
+        assertTrue(output.contains("# TYPE password_vault_request_duration_seconds summary\n"),
+                "Request latencies should be written as a summary.");
+        assertTrue(output.contains("password_vault_request_duration_seconds_count{type=\"LOGIN\"} 1\n"),
+                "Request count should be labeled with the request type.");
+        assertTrue(output.contains("password_vault_request_duration_seconds_sum{type=\"LOGIN\"} 0.002\n"),
+                "Request latencies should be written in seconds.");
+        assertTrue(output.contains("password_vault_stage_duration_seconds_count{stage=\"breach_check\"} 1\n"),
+                "Stage count should be labeled with the stage.");
+        assertTrue(output.contains("password_vault_breach_check_errors_total 1\n"),
+                "Breach check errors should be written.");
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,100 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.nio;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HashedTimerWheelTest {
+
+    private static final long TICK_DURATION = 10;
+    private static final int TICKS_PER_WHEEL = 8;
+    private static final long START_TIME = 1000;
+
+    private HashedTimerWheel<String> wheel;
+    private List<String> expiredTasks;
+
+    @BeforeEach
+    public void setUp() {
+        wheel = new HashedTimerWheel<>(TICK_DURATION, TICKS_PER_WHEEL, START_TIME);
+        expiredTasks = new ArrayList<>();
+    }
+
+    @Test
+    public void testConstructorThrowsIllegalArgumentExceptionWhenTicksPerWheelIsNotPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new HashedTimerWheel<String>(TICK_DURATION, 6, 0),
+                "Constructor should throw an IllegalArgumentException when ticks per wheel is not a power of two.");
+    }
+
+    @Test
+    public void testAdvanceExpiresTimeoutOnlyAfterItsDeadline() {
+        wheel.schedule(wheel.newTimeout("task"), START_TIME + 25);
+
+        wheel.advance(START_TIME + 24, this::expire);
+        assertTrue(expiredTasks.isEmpty(), "Timeouts should not expire before their deadline.");
+
+        wheel.advance(START_TIME + 30, this::expire);
+        assertEquals(List.of("task"), expiredTasks, "Timeouts should expire on the first tick after their deadline.");
+        assertEquals(0, wheel.size(), "Expired timeouts should be removed from the wheel.");
+    }
+
+    @Test
+    public void testAdvanceExpiresTimeoutsLongerThanOneTurnOfTheWheel() {
+        long deadline = START_TIME + 3 * TICKS_PER_WHEEL * TICK_DURATION + 5;
+        wheel.schedule(wheel.newTimeout("task"), deadline);
+
+        for (long now = START_TIME; now < deadline; now += TICK_DURATION / 2) {
+            wheel.advance(now, this::expire);
+        }
+        assertTrue(expiredTasks.isEmpty(), "Timeouts should wait for all of their rounds.");
+
+        wheel.advance(deadline + TICK_DURATION, this::expire);
+        assertEquals(List.of("task"), expiredTasks, "Timeouts should expire after their last round.");
+    }
+
+    @Test
+    public void testCancelRemovesTimeout() {
+        HashedTimerWheel.Timeout<String> cancelledTimeout = wheel.newTimeout("cancelled");
+        wheel.schedule(cancelledTimeout, START_TIME + 15);
+        wheel.schedule(wheel.newTimeout("task"), START_TIME + 15);
+
+        wheel.cancel(cancelledTimeout);
+        wheel.advance(START_TIME + 100, this::expire);
+
+        assertFalse(cancelledTimeout.isScheduled(), "Cancelled timeouts should not be scheduled.");
+        assertEquals(List.of("task"), expiredTasks, "Cancelled timeouts should not expire.");
+    }
+
+    @Test
+    public void testTimeoutRescheduledByConsumerExpiresOnLaterTick() {
+        HashedTimerWheel.Timeout<String> timeout = wheel.newTimeout("task");
+        wheel.schedule(timeout, START_TIME + 10);
+
+        wheel.advance(START_TIME + 10, expiredTimeout -> wheel.schedule(expiredTimeout, START_TIME + 10));
+        assertTrue(timeout.isScheduled(), "Consumers should be able to schedule expired timeouts again.");
+
+        wheel.advance(START_TIME + 20, this::expire);
+        assertEquals(List.of("task"), expiredTasks, "Rescheduled timeouts should expire on the next tick.");
+    }
+
+    @Test
+    public void testGetNextTickTimeIsMaxValueWhenWheelIsEmpty() {
+        wheel.advance(START_TIME + 1000, this::expire);
+        assertEquals(Long.MAX_VALUE, wheel.getNextTickTime(), "Empty wheels should not need ticks.");
+
+        wheel.schedule(wheel.newTimeout("task"), START_TIME + 1015);
+        assertEquals(START_TIME + 1010, wheel.getNextTickTime(),
+                "Empty wheels should skip the ticks elapsed while they were empty.");
+    }
+
+    private void expire(HashedTimerWheel.Timeout<String> timeout) {
+        expiredTasks.add(timeout.getTask());
+    }
+
+}
\ No newline at end of file
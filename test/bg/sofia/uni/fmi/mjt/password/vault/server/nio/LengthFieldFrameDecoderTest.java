@@ -0,0 +1,82 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.nio;
+
+import bg.sofia.uni.fmi.mjt.password.vault.server.nio.buffer.ByteBufferPool;
+import bg.sofia.uni.fmi.mjt.password.vault.server.nio.exceptions.FrameTooLongException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class LengthFieldFrameDecoderTest {
+
+    private static final int INITIAL_CAPACITY = 8;
+    private static final int MAX_FRAME_LENGTH = 64;
+    private static final long MAX_POOLED_BYTES = 64 * 1024;
+
+    private LengthFieldFrameDecoder frameDecoder;
+
+    @BeforeEach
+    public void setUp() {
+        frameDecoder = new LengthFieldFrameDecoder(new ByteBufferPool(MAX_POOLED_BYTES), INITIAL_CAPACITY,
+                MAX_FRAME_LENGTH);
+    }
+
+    @Test
+    public void testNextFrameJoinsFrameSplitAcrossSeveralReads() {
+        ByteBuffer frame = frameOf("payload");
+        ByteBuffer firstPart = frame.slice(0, 2);
+        ByteBuffer secondPart = frame.slice(2, frame.remaining() - 2);
+
+        frameDecoder.append(firstPart);
+        assertNull(nextFrame(), "Method should return null when the length field is incomplete.");
+        frameDecoder.append(secondPart);
+
+        assertEquals("payload", nextFrame(), "Frame split across reads is not joined correctly.");
+        assertEquals(0, frameDecoder.getBufferedBytes(), "Decoder should be empty after the frame is read.");
+    }
+
+    @Test
+    public void testNextFrameReturnsEveryFrameOfASingleRead() {
+        ByteBuffer frames = ByteBuffer.allocate(64);
+        frames.put(frameOf("first")).put(frameOf("second")).flip();
+
+        frameDecoder.append(frames);
+
+        assertEquals("first", nextFrame(), "First frame is not decoded correctly.");
+        assertEquals("second", nextFrame(), "Second frame is not decoded correctly.");
+        assertNull(nextFrame(), "Method should return null when there are no more frames.");
+    }
+
+    @Test
+    public void testNextFrameThrowsFrameTooLongExceptionWhenLengthFieldIsTooLarge() {
+        frameDecoder.append(ByteBuffer.allocate(Integer.BYTES).putInt(0, MAX_FRAME_LENGTH + 1));
+
+        assertThrows(FrameTooLongException.class, () -> frameDecoder.nextFrame(),
+                "Method should throw FrameTooLongException when the frame exceeds the max length.");
+    }
+
+    private String nextFrame() {
+        try {
+            ByteBuffer frame = frameDecoder.nextFrame();
+            return frame == null ? null : StandardCharsets.UTF_8.decode(frame).toString();
+        } catch (FrameTooLongException e) {
+            fail("Method has thrown FrameTooLongException.", e);
+            return null;
+        }
+    }
+
+    private static ByteBuffer frameOf(String payload) {
+        byte[] payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(Integer.BYTES + payloadBytes.length)
+                .putInt(payloadBytes.length)
+                .put(payloadBytes)
+                .flip();
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,89 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.nio;
+
+import bg.sofia.uni.fmi.mjt.password.vault.server.nio.buffer.ByteBufferPool;
+import bg.sofia.uni.fmi.mjt.password.vault.server.nio.exceptions.FrameTooLongException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class LineFrameDecoderTest {
+
+    private static final int INITIAL_CAPACITY = 8;
+    private static final int MAX_FRAME_LENGTH = 64;
+    private static final long MAX_POOLED_BYTES = 64 * 1024;
+
+    private LineFrameDecoder frameDecoder;
+
+    @BeforeEach
+    public void setUp() {
+        frameDecoder = new LineFrameDecoder(new ByteBufferPool(MAX_POOLED_BYTES), INITIAL_CAPACITY, MAX_FRAME_LENGTH);
+    }
+
+    @Test
+    public void testNextFrameReturnsNullWhenThereIsNoCompleteFrame() {
+        frameDecoder.append(bufferOf("{\"type\":"));
+
+        assertNull(nextFrame(), "Method should return null when the delimiter has not been received.");
+        assertEquals(8, frameDecoder.getBufferedBytes(), "Partial frame should be kept in the decoder.");
+    }
+
+    @Test
+    public void testNextFrameJoinsFrameSplitAcrossSeveralReads() {
+        frameDecoder.append(bufferOf("{\"type\":"));
+        assertNull(nextFrame(), "Method should return null when the delimiter has not been received.");
+        frameDecoder.append(bufferOf("\"LOGIN\"}"));
+        assertNull(nextFrame(), "Method should return null when the delimiter has not been received.");
+        frameDecoder.append(bufferOf(System.lineSeparator()));
+
+        assertEquals("{\"type\":\"LOGIN\"}", nextFrame(), "Frame split across reads is not joined correctly.");
+        assertEquals(0, frameDecoder.getBufferedBytes(), "Decoder should be empty after the frame is read.");
+    }
+
+    @Test
+    public void testNextFrameReturnsEveryFrameOfASingleRead() {
+        frameDecoder.append(bufferOf("first\nsecond\r\nthi"));
+
+        assertEquals("first", nextFrame(), "First frame is not decoded correctly.");
+        assertEquals("second", nextFrame(), "Carriage return should be stripped from the second frame.");
+        assertNull(nextFrame(), "Incomplete third frame should not be returned.");
+
+        frameDecoder.append(bufferOf("rd\n"));
+        assertEquals("third", nextFrame(), "Third frame is not decoded correctly.");
+    }
+
+    @Test
+    public void testNextFrameThrowsFrameTooLongExceptionWhenDelimiterIsMissingForTooLong() {
+        frameDecoder.append(bufferOf("x".repeat(MAX_FRAME_LENGTH + 1)));
+
+        assertThrows(FrameTooLongException.class, () -> frameDecoder.nextFrame(),
+                "Method should throw FrameTooLongException when the frame exceeds the max length.");
+    }
+
+    @Test
+    public void testAppendThrowsIllegalArgumentExceptionWhenSourceIsNull() {
+        assertThrows(IllegalArgumentException.class, () -> frameDecoder.append(null),
+                "Method should throw an IllegalArgumentException when source is null.");
+    }
+
+    private String nextFrame() {
+        try {
+            ByteBuffer frame = frameDecoder.nextFrame();
+            return frame == null ? null : StandardCharsets.UTF_8.decode(frame).toString();
+        } catch (FrameTooLongException e) {
+            fail("Method has thrown FrameTooLongException.", e);
+            return null;
+        }
+    }
+
+    private static ByteBuffer bufferOf(String content) {
+        return ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,147 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.nio;
+
+import bg.sofia.uni.fmi.mjt.password.vault.server.nio.buffer.ByteBufferPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class NioConnectionTest {
+
+    private static final int MAX_REQUEST_LENGTH = 1024;
+    private static final int OUTBOUND_HIGH_WATER_MARK = 64 * 1024;
+    private static final int OUTBOUND_BUFFER_BYTES = 16 * 1024;
+    // far more than the socket buffers of both sides can take
+    private static final int OUTBOUND_BUFFERS_COUNT = 512;
+    private static final int SOCKET_BUFFER_BYTES = 8 * 1024;
+    private static final long POOL_MAX_BYTES = 1024 * 1024;
+    private static final long WAIT_SECONDS = 5;
+
+    private ServerSocketChannel serverChannel;
+    private SocketChannel client;
+    private Selector selector;
+    private ExecutorService executor;
+    private NioConnection connection;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress("127.0.0.1", 0));
+        client = SocketChannel.open();
+        client.setOption(StandardSocketOptions.SO_RCVBUF, SOCKET_BUFFER_BYTES);
+        client.connect(serverChannel.getLocalAddress());
+
+        SocketChannel channel = serverChannel.accept();
+        channel.setOption(StandardSocketOptions.SO_SNDBUF, SOCKET_BUFFER_BYTES);
+        channel.configureBlocking(false);
+        selector = Selector.open();
+        SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+        connection = new NioConnection(key, new ByteBufferPool(POOL_MAX_BYTES), MAX_REQUEST_LENGTH,
+                OUTBOUND_HIGH_WATER_MARK);
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @Test
+    public void testFlushOutboundPausesReadingOverHighWaterMarkAndResumesUnderLowWaterMark() throws IOException {
+        for (int i = 0; i < OUTBOUND_BUFFERS_COUNT; i++) {
+            connection.enqueueOutbound(ByteBuffer.allocate(OUTBOUND_BUFFER_BYTES));
+        }
+
+        connection.flushOutbound();
+        assertTrue(connection.getOutboundBytes() > OUTBOUND_HIGH_WATER_MARK,
+                "The client does not read, so the bytes over the socket buffers should stay queued.");
+        assertEquals(SelectionKey.OP_WRITE, connection.getKey().interestOps(),
+                "Reading should be paused while the queued bytes are over the high water mark.");
+
+        ByteBuffer received = ByteBuffer.allocate(OUTBOUND_BUFFER_BYTES);
+        while (connection.getOutboundBytes() > OUTBOUND_HIGH_WATER_MARK / 2) {
+            client.read(received.clear());
+            connection.flushOutbound();
+        }
+
+        assertTrue((connection.getKey().interestOps() & SelectionKey.OP_READ) != 0,
+                "Reading should be resumed once the queued bytes are under the low water mark.");
+    }
+
+    @Test
+    public void testSubmitRequestRunsOrderedRequestAfterFailedOne() throws Exception {
+        AtomicBoolean hasRun = new AtomicBoolean();
+
+        CompletableFuture<Void> failedRequest = connection.submitRequest(() -> {
+            throw new IllegalStateException("Unexpected error.");
+        }, executor, true);
+        CompletableFuture<Void> nextRequest = connection.submitRequest(() -> hasRun.set(true), executor, true);
+        nextRequest.get(WAIT_SECONDS, TimeUnit.SECONDS);
+
+        assertTrue(failedRequest.isCompletedExceptionally(), "The failed request should report its failure.");
+        assertTrue(hasRun.get(), "The ordered request after a failed one should still run.");
+        assertFalse(connection.hasPendingWork(), "No request should be in flight after both have completed.");
+    }
+
+    @Test
+    public void testSubmitRequestThrowsRejectionWithoutLeavingRequestInFlight() {
+        executor.shutdown();
+
+        assertThrows(RejectedExecutionException.class, () -> connection.submitRequest(() -> { }, executor, false),
+                "A request rejected by the executor should be thrown to the caller.");
+        assertThrows(RejectedExecutionException.class, () -> connection.submitRequest(() -> { }, executor, true),
+                "An ordered request rejected by the executor should be thrown to the caller.");
+        assertFalse(connection.hasPendingWork(), "The rejected requests should not be left in flight.");
+    }
+
+    @Test
+    public void testSubmitRequestFailsOrderedRequestRejectedAfterPreviousOne() throws Exception {
+        CountDownLatch releaseRequestLatch = new CountDownLatch(1);
+        CompletableFuture<Void> previousRequest = connection.submitRequest(() -> {
+            try {
+                releaseRequestLatch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, executor, true);
+        CompletableFuture<Void> rejectedRequest = connection.submitRequest(() -> { }, executor, true);
+
+        // the previous request keeps running, only the one chained after it is rejected
+        executor.shutdown();
+        releaseRequestLatch.countDown();
+        previousRequest.get(WAIT_SECONDS, TimeUnit.SECONDS);
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> rejectedRequest.get(WAIT_SECONDS, TimeUnit.SECONDS),
+                "The ordered request rejected after the previous one should fail.");
+
+        assertTrue(exception.getCause() instanceof RejectedExecutionException,
+                "The ordered request should fail with the rejection of the executor.");
+        assertFalse(connection.hasPendingWork(), "The rejected request should not be left in flight.");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        executor.shutdownNow();
+        connection.close();
+        selector.close();
+        client.close();
+        serverChannel.close();
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,290 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.nio;
+
+import bg.sofia.uni.fmi.mjt.password.vault.configuration.ConfigurationData;
+import bg.sofia.uni.fmi.mjt.password.vault.request.RequestType;
+import bg.sofia.uni.fmi.mjt.password.vault.response.NioResponse;
+import bg.sofia.uni.fmi.mjt.password.vault.response.ResponseType;
+import bg.sofia.uni.fmi.mjt.password.vault.server.DefaultPasswordVault;
+import bg.sofia.uni.fmi.mjt.password.vault.server.logger.Level;
+import bg.sofia.uni.fmi.mjt.password.vault.server.logger.Logger;
+import bg.sofia.uni.fmi.mjt.password.vault.server.nio.admission.AdmissionStats;
+import bg.sofia.uni.fmi.mjt.password.vault.server.repository.UserRepository;
+import bg.sofia.uni.fmi.mjt.password.vault.server.user.DefaultUser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class NioPasswordVaultServerTest {
+
+    private static final int SOCKET_TIMEOUT_MILLIS = 5000;
+    private static final long WAIT_MILLIS = 5000;
+    private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(5);
+    // a single request in flight saturates the server
+    private static final int MAX_PENDING_REQUESTS = 1;
+    private static final String LOGOUT_REQUEST = "{\"type\":\"LOGOUT\",\"username\":\"user\"}";
+    private static final NioResponse LOGOUT_RESPONSE = new NioResponse(ResponseType.LOGOUT_SUCCESSFUL, null);
+    private static final Logger LOGGER = new Logger() {
+        @Override
+        public void log(Level level, LocalDateTime timestamp, String message) {
+        }
+
+        @Override
+        public Path getCurrentFilePath() {
+            return null;
+        }
+    };
+
+    private final CountDownLatch requestStartedLatch = new CountDownLatch(1);
+    private final CountDownLatch releaseRequestLatch = new CountDownLatch(1);
+    private final List<Socket> clients = new ArrayList<>();
+    private NioPasswordVaultServer server;
+    private Thread serverThread;
+    private int port;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        port = findFreePort();
+        startServer(new NioPasswordVaultServer(createConfigurationData(),
+                new DefaultPasswordVault(new UserRepository<>(new StringReader(""), DefaultUser.class), LOGGER),
+                password -> false, LOGGER));
+    }
+
+    private void startServer(NioPasswordVaultServer server) {
+        this.server = server;
+        // the logout requests are in flight until the test releases them
+        server.registerHandler(RequestType.LOGOUT, request -> {
+            requestStartedLatch.countDown();
+            try {
+                releaseRequestLatch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return LOGOUT_RESPONSE;
+        });
+        serverThread = new Thread(server, "test-server");
+        serverThread.setDaemon(true);
+        serverThread.start();
+    }
+
+    @Test
+    public void testDrainAndStopCompletesRequestsThatFinishBeforeDeadline() throws Exception {
+        Socket client = connect();
+        sendInFlightRequest(client);
+
+        CompletableFuture<DrainStats> drain = CompletableFuture.supplyAsync(() -> server.drainAndStop(DRAIN_TIMEOUT));
+        // the drain has begun once the new connections are refused
+        assertTrue(awaitConnectionRefused(), "New connections should be refused while the server is drained.");
+        releaseRequestLatch.countDown();
+        DrainStats stats = drain.get(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+
+        assertEquals(LOGOUT_RESPONSE, receive(client), "The in-flight request should be answered.");
+        assertEquals(1, stats.completedRequests(), "The in-flight request should be counted as completed.");
+        assertEquals(0, stats.abandonedRequests(), "No request should be abandoned.");
+    }
+
+    @Test
+    public void testDrainAndStopCountsRequestsThatDoNotFinishBeforeDeadlineAsAbandoned() throws Exception {
+        sendInFlightRequest(connect());
+
+        DrainStats stats = server.drainAndStop(Duration.ofMillis(200));
+
+        assertEquals(0, stats.completedRequests(), "The request that is still running should not be completed.");
+        assertEquals(1, stats.abandonedRequests(), "The request that is still running should be abandoned.");
+    }
+
+    @Test
+    public void testDrainAndStopRejectsNewConnections() throws Exception {
+        sendInFlightRequest(connect());
+
+        CompletableFuture<DrainStats> drain = CompletableFuture.supplyAsync(() -> server.drainAndStop(DRAIN_TIMEOUT));
+        assertTrue(awaitConnectionRefused(), "New connections should be refused while the server is drained.");
+        releaseRequestLatch.countDown();
+
+        assertEquals(1, drain.get(WAIT_MILLIS, TimeUnit.MILLISECONDS).completedRequests(),
+                "The in-flight request should still be completed after the new connections are refused.");
+    }
+
+    @Test
+    public void testServerAnswersServerBusyWhenPendingRequestsAreOverLimit() throws Exception {
+        Socket client = connect();
+        sendInFlightRequest(client, requestWithId(1));
+
+        send(client, requestWithId(2));
+        NioResponse rejectedResponse = receive(client);
+        releaseRequestLatch.countDown();
+        NioResponse response = receive(client);
+
+        assertEquals(ResponseType.SERVER_BUSY, rejectedResponse.getType(),
+                "The request over the limit should be rejected as busy.");
+        assertEquals(Long.valueOf(2), rejectedResponse.getRequestId(),
+                "The rejection should carry the id of its request.");
+        assertEquals(Long.valueOf(1), response.getRequestId(), "The request in flight should still be answered.");
+        assertEquals(1, server.getAdmissionStats().rejectedRequests(), "The rejection should be counted.");
+    }
+
+    @Test
+    public void testServerAnswersServerBusyWhenHandlerExecutorRejectsRequests() throws Exception {
+        ExecutorService rejectingExecutor = Executors.newSingleThreadExecutor();
+        rejectingExecutor.shutdown();
+        server.stop();
+        serverThread.join(WAIT_MILLIS);
+        port = findFreePort();
+        startServer(new NioPasswordVaultServer(createConfigurationData(),
+                new DefaultPasswordVault(new UserRepository<>(new StringReader(""), DefaultUser.class), LOGGER),
+                password -> false, LOGGER, rejectingExecutor));
+        Socket client = connect();
+
+        send(client, requestWithId(1));
+        NioResponse response = receive(client);
+        // the single admission slot has to be released by the rejected request for this one to be admitted
+        send(client, LOGOUT_REQUEST);
+        NioResponse orderedResponse = receive(client);
+
+        assertEquals(ResponseType.SERVER_BUSY, response.getType(),
+                "The request rejected by the executor should be answered as busy.");
+        assertEquals(Long.valueOf(1), response.getRequestId(), "The rejection should carry the id of its request.");
+        assertEquals(ResponseType.SERVER_BUSY, orderedResponse.getType(),
+                "The ordered request rejected by the executor should be answered as busy.");
+        assertEquals(0, server.getAdmissionStats().rejectedRequests(),
+                "Both requests should have been admitted before the executor rejected them.");
+        awaitAdmissionStats(stats -> stats.pendingRequests() == 0);
+    }
+
+    @Test
+    public void testOrderedRequestsAreAnsweredAfterRejectedOrderedRequest() throws Exception {
+        Socket client = connect();
+        sendInFlightRequest(client, LOGOUT_REQUEST);
+
+        send(client, LOGOUT_REQUEST);
+        awaitAdmissionStats(stats -> stats.rejectedRequests() == 1);
+        releaseRequestLatch.countDown();
+
+        assertEquals(ResponseType.LOGOUT_SUCCESSFUL, receive(client).getType(),
+                "The request in flight should be answered first.");
+        assertEquals(ResponseType.SERVER_BUSY, receive(client).getType(),
+                "The rejection should be answered in the order of the requests.");
+        awaitAdmissionStats(stats -> stats.pendingRequests() == 0);
+        send(client, LOGOUT_REQUEST);
+        assertEquals(ResponseType.LOGOUT_SUCCESSFUL, receive(client).getType(),
+                "The ordered requests after a rejection should still be handled.");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException, InterruptedException {
+        releaseRequestLatch.countDown();
+        for (Socket client : clients) {
+            client.close();
+        }
+        server.stop();
+        serverThread.join(WAIT_MILLIS);
+    }
+
+    private ConfigurationData createConfigurationData() {
+        return ConfigurationData.builder("127.0.0.1", port)
+                .setMaxPendingRequests(MAX_PENDING_REQUESTS)
+                .build();
+    }
+
+    private void sendInFlightRequest(Socket client) throws IOException, InterruptedException {
+        sendInFlightRequest(client, LOGOUT_REQUEST);
+    }
+
+    private void sendInFlightRequest(Socket client, String request) throws IOException, InterruptedException {
+        send(client, request);
+        if (!requestStartedLatch.await(WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+            fail("The request should have reached its handler.");
+        }
+    }
+
+    // the rejections of the requests without an id wait for the previous responses, so the stats are polled
+    private void awaitAdmissionStats(Predicate<AdmissionStats> condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (!condition.test(server.getAdmissionStats())) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("The admission stats of the server have not reached the expected state.");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    // the server is started on another thread, so the first attempts may be refused
+    private Socket connect() throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (true) {
+            try {
+                Socket client = new Socket("127.0.0.1", port);
+                client.setSoTimeout(SOCKET_TIMEOUT_MILLIS);
+                clients.add(client);
+                return client;
+            } catch (ConnectException e) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    private boolean awaitConnectionRefused() throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                clients.add(new Socket("127.0.0.1", port));
+                Thread.sleep(10);
+            } catch (ConnectException e) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static String requestWithId(long requestId) {
+        return "{\"requestId\":" + requestId + ",\"type\":\"LOGOUT\",\"username\":\"user\"}";
+    }
+
+    private static void send(Socket client, String request) throws IOException {
+        PrintWriter writer = new PrintWriter(client.getOutputStream(), true, StandardCharsets.UTF_8);
+        writer.println(request);
+    }
+
+    private static NioResponse receive(Socket client) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int symbol;
+        while ((symbol = client.getInputStream().read()) != -1 && symbol != '\n') {
+            line.append((char) symbol);
+        }
+
+        return NioResponse.of(line.toString().strip().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static int findFreePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,192 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.nio;
+
+import bg.sofia.uni.fmi.mjt.password.vault.request.NioRequest;
+import bg.sofia.uni.fmi.mjt.password.vault.response.NioResponse;
+import bg.sofia.uni.fmi.mjt.password.vault.response.ResponseType;
+import bg.sofia.uni.fmi.mjt.password.vault.server.logger.Level;
+import bg.sofia.uni.fmi.mjt.password.vault.server.logger.Logger;
+import bg.sofia.uni.fmi.mjt.password.vault.server.metrics.ServerMetrics;
+import bg.sofia.uni.fmi.mjt.password.vault.server.nio.admission.AdmissionController;
+import bg.sofia.uni.fmi.mjt.password.vault.server.nio.buffer.ByteBufferPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class NioSelectorLoopTest {
+
+    private static final int SOCKET_TIMEOUT_MILLIS = 5000;
+    private static final int OUTBOUND_HIGH_WATER_MARK = 64 * 1024;
+    private static final int SMALL_OUTBOUND_HIGH_WATER_MARK = 4 * 1024;
+    private static final int PIPELINED_REQUESTS_COUNT = 200;
+    private static final long POOL_MAX_BYTES = 1024 * 1024;
+    private static final String LOGOUT_REQUEST = "{\"type\":\"LOGOUT\",\"username\":\"user\"}";
+    private static final Logger LOGGER = new Logger() {
+        @Override
+        public void log(Level level, LocalDateTime timestamp, String message) {
+        }
+
+        @Override
+        public Path getCurrentFilePath() {
+            return null;
+        }
+    };
+
+    private ServerSocketChannel serverChannel;
+    private ExecutorService handlerExecutor;
+    private NioSelectorLoop selectorLoop;
+    private final List<Socket> clients = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress("127.0.0.1", 0));
+        handlerExecutor = Executors.newFixedThreadPool(2);
+    }
+
+    @Test
+    public void testLoopAnswersMalformedRequestIdAndKeepsServingConnection() throws IOException {
+        startLoop(request -> new NioResponse(ResponseType.LOGOUT_SUCCESSFUL, null), handlerExecutor::execute,
+                new AdmissionController(10, 10));
+        Socket client = connect();
+
+        send(client, "{\"requestId\":\"x\",\"type\":\"LOGOUT\",\"username\":\"user\"}");
+        send(client, LOGOUT_REQUEST);
+
+        assertEquals(ResponseType.REQUEST_NOT_SUPPORTED, receive(client).getType(),
+                "A request with a malformed id should be answered as not supported.");
+        assertEquals(ResponseType.LOGOUT_SUCCESSFUL, receive(client).getType(),
+                "The connection should keep working after a malformed request.");
+    }
+
+    @Test
+    public void testLoopClosesOnlyConnectionThatCausedUnexpectedError() throws IOException {
+        AtomicBoolean shouldFail = new AtomicBoolean();
+        ByteBufferPool failingPool = new ByteBufferPool(POOL_MAX_BYTES) {
+            @Override
+            public ByteBuffer acquire(int minCapacity) {
+                if (shouldFail.compareAndSet(true, false)) {
+                    throw new IllegalStateException("Unexpected error.");
+                }
+                return super.acquire(minCapacity);
+            }
+        };
+        startLoop(request -> new NioResponse(ResponseType.LOGOUT_SUCCESSFUL, null), handlerExecutor::execute,
+                new AdmissionController(10, 10), failingPool);
+        Socket failingClient = connect();
+        Socket client = connect();
+        send(client, LOGOUT_REQUEST);
+        receive(client);
+
+        shouldFail.set(true);
+        send(failingClient, LOGOUT_REQUEST);
+        assertNull(readLine(failingClient), "The connection that caused the error should be closed.");
+        send(client, LOGOUT_REQUEST);
+
+        assertEquals(ResponseType.LOGOUT_SUCCESSFUL, receive(client).getType(),
+                "The other connections of the loop should keep working.");
+    }
+
+    @Test
+    public void testLoopAnswersAllPipelinedRequestsWhenResponsesGoOverHighWaterMark() throws IOException {
+        // every response is larger than the high water mark, so reading is paused and resumed many times
+        String largeMessage = "x".repeat(SMALL_OUTBOUND_HIGH_WATER_MARK * 4);
+        startLoop(request -> new NioResponse(ResponseType.LOGOUT_SUCCESSFUL, largeMessage), handlerExecutor::execute,
+                new AdmissionController(10, PIPELINED_REQUESTS_COUNT), new ByteBufferPool(POOL_MAX_BYTES),
+                SMALL_OUTBOUND_HIGH_WATER_MARK);
+        Socket client = connect();
+
+        for (int i = 0; i < PIPELINED_REQUESTS_COUNT; i++) {
+            send(client, LOGOUT_REQUEST);
+        }
+        for (int i = 0; i < PIPELINED_REQUESTS_COUNT; i++) {
+            NioResponse response = receive(client);
+            assertEquals(ResponseType.LOGOUT_SUCCESSFUL, response.getType(), "Every request should be answered.");
+            assertEquals(largeMessage, response.getBody(), "Every response should be written completely.");
+        }
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        for (Socket client : clients) {
+            client.close();
+        }
+        if (selectorLoop != null) {
+            selectorLoop.stop();
+        }
+        handlerExecutor.shutdownNow();
+        serverChannel.close();
+    }
+
+    private void startLoop(Function<NioRequest, NioResponse> requestHandler, Executor executor,
+                           AdmissionController admissionController) {
+        startLoop(requestHandler, executor, admissionController, new ByteBufferPool(POOL_MAX_BYTES));
+    }
+
+    private void startLoop(Function<NioRequest, NioResponse> requestHandler, Executor executor,
+                           AdmissionController admissionController, ByteBufferPool bufferPool) {
+        startLoop(requestHandler, executor, admissionController, bufferPool, OUTBOUND_HIGH_WATER_MARK);
+    }
+
+    private void startLoop(Function<NioRequest, NioResponse> requestHandler, Executor executor,
+                           AdmissionController admissionController, ByteBufferPool bufferPool,
+                           int outboundHighWaterMark) {
+        selectorLoop = new NioSelectorLoop(0, requestHandler, executor, bufferPool,
+                outboundHighWaterMark, 0, admissionController, new ServerMetrics(), LOGGER);
+        Thread loopThread = new Thread(selectorLoop, "test-selector-loop");
+        loopThread.setDaemon(true);
+        loopThread.start();
+    }
+
+    private Socket connect() throws IOException {
+        Socket client = new Socket("127.0.0.1", serverChannel.socket().getLocalPort());
+        client.setSoTimeout(SOCKET_TIMEOUT_MILLIS);
+        clients.add(client);
+        selectorLoop.addClient(serverChannel.accept());
+
+        return client;
+    }
+
+    private static void send(Socket client, String request) throws IOException {
+        PrintWriter writer = new PrintWriter(client.getOutputStream(), true, StandardCharsets.UTF_8);
+        writer.println(request);
+    }
+
+    private static NioResponse receive(Socket client) throws IOException {
+        return NioResponse.of(readLine(client).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // reads byte by byte, so nothing after the line is buffered away from the next read
+    private static String readLine(Socket client) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int symbol;
+        while ((symbol = client.getInputStream().read()) != -1) {
+            if (symbol == '\n') {
+                return line.toString().strip();
+            }
+            line.append((char) symbol);
+        }
+
+        return line.isEmpty() ? null : line.toString();
+    }
+
+}
\ No newline at end of file
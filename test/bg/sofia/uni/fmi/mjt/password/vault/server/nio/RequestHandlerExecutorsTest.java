@@ -0,0 +1,43 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.nio;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class RequestHandlerExecutorsTest {
+
+    @Test
+    public void testNewDefaultExecutorRunsTasksOutsideTheCallingThread() {
+        ExecutorService executorService = RequestHandlerExecutors.newDefaultExecutor();
+        Thread callingThread = Thread.currentThread();
+
+        try {
+            Future<Boolean> isOtherThread = executorService.submit(() -> Thread.currentThread() != callingThread);
+            assertTrue(isOtherThread.get(), "Task should not be executed on the calling thread.");
+        } catch (InterruptedException | ExecutionException e) {
+            fail("Executing a task has thrown an exception.", e);
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void testNewPlatformThreadExecutorCreatesDaemonThreads() {
+        ExecutorService executorService = RequestHandlerExecutors.newPlatformThreadExecutor();
+
+        try {
+            Future<Boolean> isDaemon = executorService.submit(() -> Thread.currentThread().isDaemon());
+            assertTrue(isDaemon.get(), "Request handler threads should be daemon threads.");
+        } catch (InterruptedException | ExecutionException e) {
+            fail("Executing a task has thrown an exception.", e);
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,59 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.nio.admission;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AdmissionControllerTest {
+
+    private static final int MAX_CONNECTIONS = 2;
+    private static final int MAX_PENDING_REQUESTS = 1;
+
+    @Test
+    public void testConstructorThrowsIllegalArgumentExceptionWhenLimitIsNotPositive() {
+        assertThrows(IllegalArgumentException.class, () -> new AdmissionController(0, MAX_PENDING_REQUESTS),
+                "Constructor should throw an IllegalArgumentException when a limit is not positive.");
+    }
+
+    @Test
+    public void testTryAcquireConnectionRejectsConnectionsOverLimit() {
+        AdmissionController admissionController = new AdmissionController(MAX_CONNECTIONS, MAX_PENDING_REQUESTS);
+
+        assertTrue(admissionController.tryAcquireConnection(), "First connection should be admitted.");
+        assertTrue(admissionController.tryAcquireConnection(), "Second connection should be admitted.");
+        assertFalse(admissionController.tryAcquireConnection(), "Connection over the limit should be rejected.");
+
+        AdmissionStats stats = admissionController.getStats();
+        assertEquals(MAX_CONNECTIONS, stats.openConnections(), "Rejected connection should not be counted as open.");
+        assertEquals(1, stats.rejectedConnections(), "Rejected connection should be counted.");
+    }
+
+    @Test
+    public void testReleaseConnectionAdmitsNextConnection() {
+        AdmissionController admissionController = new AdmissionController(1, MAX_PENDING_REQUESTS);
+
+        admissionController.tryAcquireConnection();
+        admissionController.releaseConnection();
+
+        assertTrue(admissionController.tryAcquireConnection(), "Released permit should be reused.");
+    }
+
+    @Test
+    public void testTryAcquireRequestRejectsRequestsOverLimit() {
+        AdmissionController admissionController = new AdmissionController(MAX_CONNECTIONS, MAX_PENDING_REQUESTS);
+
+        assertTrue(admissionController.tryAcquireRequest(), "First request should be admitted.");
+        assertFalse(admissionController.tryAcquireRequest(), "Request over the limit should be rejected.");
+        admissionController.releaseRequest();
+        assertTrue(admissionController.tryAcquireRequest(), "Request should be admitted after a release.");
+
+        AdmissionStats stats = admissionController.getStats();
+        assertEquals(1, stats.pendingRequests(), "One request should be pending.");
+        assertEquals(1, stats.completedRequests(), "Released request should be counted as completed.");
+        assertEquals(1, stats.rejectedRequests(), "Rejected request should be counted.");
+    }
+
+}
\ No newline at end of file
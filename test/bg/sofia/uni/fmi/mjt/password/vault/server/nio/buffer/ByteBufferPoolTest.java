@@ -0,0 +1,76 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.nio.buffer;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ByteBufferPoolTest {
+
+    private static final long MAX_POOLED_BYTES = 4 * 1024;
+
+    @Test
+    public void testAcquireRoundsCapacityUpToSizeClass() {
+        ByteBufferPool pool = new ByteBufferPool(MAX_POOLED_BYTES);
+
+        ByteBuffer buffer = pool.acquire(1500);
+
+        assertEquals(2048, buffer.capacity(), "Capacity should be rounded up to the next size class.");
+        assertTrue(buffer.isDirect(), "Pooled buffers should be direct.");
+    }
+
+    @Test
+    public void testAcquireReusesReleasedBuffer() {
+        ByteBufferPool pool = new ByteBufferPool(MAX_POOLED_BYTES);
+
+        ByteBuffer buffer = pool.acquire(1024);
+        buffer.put((byte) 1);
+        pool.release(buffer);
+        ByteBuffer reusedBuffer = pool.acquire(1000);
+
+        assertSame(buffer, reusedBuffer, "Released buffer should be reused.");
+        assertEquals(0, reusedBuffer.position(), "Reused buffer should be cleared.");
+
+        ByteBufferPoolStats stats = pool.getStats();
+        assertEquals(1, stats.hits(), "Second acquire should be a hit.");
+        assertEquals(1, stats.misses(), "First acquire should be a miss.");
+        assertEquals(1, stats.borrowedBuffers(), "One buffer should be borrowed.");
+    }
+
+    @Test
+    public void testReleaseDiscardsBuffersOverMaxPooledBytes() {
+        ByteBufferPool pool = new ByteBufferPool(MAX_POOLED_BYTES);
+
+        ByteBuffer first = pool.acquire(4096);
+        ByteBuffer second = pool.acquire(4096);
+        pool.release(first);
+        pool.release(second);
+
+        ByteBufferPoolStats stats = pool.getStats();
+        assertEquals(1, stats.discards(), "Buffer over the pool limit should be discarded.");
+        assertEquals(MAX_POOLED_BYTES, stats.pooledBytes(), "Pool should not keep more than its limit.");
+    }
+
+    @Test
+    public void testReleaseDiscardsHeapBuffers() {
+        ByteBufferPool pool = new ByteBufferPool(MAX_POOLED_BYTES);
+
+        pool.release(ByteBuffer.allocate(1024));
+
+        assertEquals(1, pool.getStats().discards(), "Heap buffers should not be pooled.");
+        assertEquals(0, pool.getStats().pooledBytes(), "Heap buffers should not be pooled.");
+    }
+
+    @Test
+    public void testAcquireThrowsIllegalArgumentExceptionWhenCapacityIsNotPositive() {
+        ByteBufferPool pool = new ByteBufferPool(MAX_POOLED_BYTES);
+
+        assertThrows(IllegalArgumentException.class, () -> pool.acquire(0),
+                "Method should throw an IllegalArgumentException when capacity is not positive.");
+    }
+
+}
\ No newline at end of file
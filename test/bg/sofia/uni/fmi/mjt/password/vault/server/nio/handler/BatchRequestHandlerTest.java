@@ -0,0 +1,233 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.nio.handler;
+
+import bg.sofia.uni.fmi.mjt.password.vault.client.HashedPassword;
+import bg.sofia.uni.fmi.mjt.password.vault.request.NioRequest;
+import bg.sofia.uni.fmi.mjt.password.vault.request.RequestType;
+import bg.sofia.uni.fmi.mjt.password.vault.response.NioResponse;
+import bg.sofia.uni.fmi.mjt.password.vault.response.ResponseType;
+import bg.sofia.uni.fmi.mjt.password.vault.server.BatchingPasswordVault;
+import bg.sofia.uni.fmi.mjt.password.vault.server.PasswordVault;
+import bg.sofia.uni.fmi.mjt.password.vault.server.ServerPassword;
+import bg.sofia.uni.fmi.mjt.password.vault.server.compromised.CompromisedPasswordsClient;
+import bg.sofia.uni.fmi.mjt.password.vault.server.compromised.exceptions.CompromisedPasswordsClientException;
+import bg.sofia.uni.fmi.mjt.password.vault.server.logger.Logger;
+import bg.sofia.uni.fmi.mjt.password.vault.server.nio.exceptions.RequestNotSupportedException;
+import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.CredentialAlreadyExistsException;
+import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.CredentialNotFoundException;
+import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.ElementNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BatchRequestHandlerTest {
+
+    private static final String USERNAME = "TEST_USERNAME";
+    private static final String APP_NAME = "TEST_APP_NAME";
+    private static final String OTHER_APP_NAME = "TEST_OTHER_APP_NAME";
+    private static final String ENCRYPTED_PASSWORD = "encryptedPassword";
+    private static final String EXCEPTION_MESSAGE = "This is an exception thrown in a test.";
+
+    private static final NioRequest REMOVE_REQUEST = removeRequest(APP_NAME);
+    private static final NioRequest OTHER_REMOVE_REQUEST = removeRequest(OTHER_APP_NAME);
+
+    @Mock
+    private final Logger logger = mock(Logger.class);
+    @Mock
+    private final PasswordVault passwordVaultMock = mock(PasswordVault.class);
+    @Mock
+    private final CompromisedPasswordsClient compromisedPasswordsClientMock = mock(CompromisedPasswordsClient.class);
+    private final AtomicBoolean insideVaultLock = new AtomicBoolean();
+    private final NioRequestHandlerRegistry handlerRegistry =
+            NioRequestHandlerRegistry.withDefaultHandlers(passwordVaultMock, compromisedPasswordsClientMock, logger);
+
+    @BeforeEach
+    public void setUp() {
+        Mockito.reset(passwordVaultMock);
+        Mockito.reset(compromisedPasswordsClientMock);
+        doAnswer(invocation -> {
+            insideVaultLock.set(true);
+            try {
+                invocation.<Runnable>getArgument(0).run();
+            } finally {
+                insideVaultLock.set(false);
+            }
+            return null;
+        }).when(passwordVaultMock).runExclusively(Mockito.any(Runnable.class));
+    }
+
+    @Test
+    public void testHandleThrowsIllegalArgumentExceptionWhenRequestIsNull() {
+        NioRequestHandler nioRequestHandler = new BatchRequestHandler(
+                new BatchingPasswordVault(passwordVaultMock), new NioRequestHandlerRegistry(), logger);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> nioRequestHandler.handle(null),
+                "Method should throw an IllegalArgumentException when arguments are null.");
+    }
+
+    @Test
+    public void testHandleThrowsIllegalStateExceptionWhenRequestsAreNull() throws ElementNotFoundException {
+        assertThrows(IllegalStateException.class,
+                () -> handlerRegistry.dispatch(
+                        NioRequest.builder()
+                                .setType(RequestType.BATCH)
+                                .setUsername(USERNAME)
+                                .build()),
+                "Method should throw an IllegalStateException when requests are null.");
+        verify(passwordVaultMock, never()).flushCredentials(anyString());
+    }
+
+    @Test
+    public void testHandleFlushesCredentialsOfUserOnceForAllWritesInBatch() throws ElementNotFoundException {
+        NioResponse response = handle(batchRequest(REMOVE_REQUEST, OTHER_REMOVE_REQUEST));
+
+        assertEquals(List.of(new NioResponse(ResponseType.PASSWORD_REMOVED_SUCCESSFULLY, null),
+                        new NioResponse(ResponseType.PASSWORD_REMOVED_SUCCESSFULLY, null)),
+                response.getBatchResponses(),
+                "Every request of the batch should have a response.");
+        verify(passwordVaultMock, never()).removeCredentials(anyString(), anyString(), anyString());
+        verify(passwordVaultMock, times(2))
+                .removeCredentials(eq(USERNAME), anyString(), eq(USERNAME), Mockito.any(Writer.class));
+        verify(passwordVaultMock, times(1)).flushCredentials(USERNAME);
+    }
+
+    @Test
+    public void testHandleReturnsResponseOfEveryRequestWhenSomeOfThemFail() throws ElementNotFoundException {
+        doThrow(new CredentialNotFoundException(EXCEPTION_MESSAGE))
+                .when(passwordVaultMock)
+                .removeCredentials(eq(USERNAME), eq(APP_NAME), eq(USERNAME), Mockito.any(Writer.class));
+
+        NioResponse response = handle(
+                batchRequest(REMOVE_REQUEST, batchRequest(OTHER_REMOVE_REQUEST), OTHER_REMOVE_REQUEST));
+
+        assertEquals(ResponseType.BATCH_COMPLETED, response.getType(),
+                "The type of generated response should be ResponseType.BATCH_COMPLETED.");
+        assertEquals(List.of(new NioResponse(ResponseType.CREDENTIALS_NOT_FOUND, null),
+                        new NioResponse(ResponseType.REQUEST_NOT_SUPPORTED, null),
+                        new NioResponse(ResponseType.PASSWORD_REMOVED_SUCCESSFULLY, null)),
+                response.getBatchResponses(),
+                "Nested batches should not be supported and failures should not stop the batch.");
+        verify(passwordVaultMock, times(1)).flushCredentials(USERNAME);
+    }
+
+    @Test
+    public void testHandleDoesNotFlushCredentialsWhenBatchDoesNotChangeThem() throws ElementNotFoundException {
+        doThrow(new CredentialNotFoundException(EXCEPTION_MESSAGE))
+                .when(passwordVaultMock)
+                .removeCredentials(anyString(), anyString(), anyString(), Mockito.any(Writer.class));
+
+        handle(batchRequest(REMOVE_REQUEST));
+
+        verify(passwordVaultMock, never()).flushCredentials(anyString());
+    }
+
+    @Test
+    public void testHandleChecksPasswordsBeforeTakingVaultLock()
+            throws ElementNotFoundException, CredentialAlreadyExistsException, CompromisedPasswordsClientException {
+        AtomicBoolean checkedInsideVaultLock = new AtomicBoolean();
+        when(compromisedPasswordsClientMock.isCompromised(Mockito.any(HashedPassword.class))).thenAnswer(invocation -> {
+            checkedInsideVaultLock.set(insideVaultLock.get());
+            return false;
+        });
+
+        NioResponse response = handle(batchRequest(storeRequest()));
+
+        assertEquals(List.of(new NioResponse(ResponseType.PASSWORD_STORED_SUCCESSFULLY, null)),
+                response.getBatchResponses(),
+                "The stored password should be reported as stored.");
+        assertFalse(checkedInsideVaultLock.get(), "Passwords should be checked before the vault lock is taken.");
+        verify(passwordVaultMock, times(1)).addCredentials(eq(USERNAME), eq(APP_NAME), eq(USERNAME),
+                eq(ENCRYPTED_PASSWORD), Mockito.any(Writer.class));
+        verify(passwordVaultMock, times(1)).flushCredentials(USERNAME);
+    }
+
+    @Test
+    public void testHandleReportsChangesThatCannotBeSavedAsFailed() throws ElementNotFoundException {
+        doThrow(new CredentialNotFoundException(EXCEPTION_MESSAGE))
+                .when(passwordVaultMock)
+                .removeCredentials(eq(USERNAME), eq(APP_NAME), eq(USERNAME), Mockito.any(Writer.class));
+        doThrow(new UncheckedIOException(new IOException(EXCEPTION_MESSAGE)))
+                .when(passwordVaultMock).flushCredentials(USERNAME);
+
+        NioResponse response = handle(batchRequest(REMOVE_REQUEST, OTHER_REMOVE_REQUEST));
+
+        assertEquals(List.of(new NioResponse(ResponseType.CREDENTIALS_NOT_FOUND, null),
+                        new NioResponse(ResponseType.INTERNAL_SERVER_ERROR, null)),
+                response.getBatchResponses(),
+                "Only the requests whose changes could not be saved should be reported as failed.");
+        verify(passwordVaultMock, times(1)).reloadCredentials(USERNAME);
+    }
+
+    @Test
+    public void testHandleDispatchesRequestsToRegisteredHandlersAndCountsThem() {
+        NioResponse logoutResponse = new NioResponse(ResponseType.LOGOUT_SUCCESSFUL, null);
+        handlerRegistry.register(RequestType.LOGOUT, request -> logoutResponse);
+
+        NioResponse response = handle(batchRequest(NioRequest.builder(USERNAME).setType(RequestType.LOGOUT).build()));
+
+        assertEquals(List.of(logoutResponse), response.getBatchResponses(),
+                "The requests of the batch should be handled by the registered handlers.");
+        assertEquals(1, (long) handlerRegistry.getDispatchCounts().get(RequestType.LOGOUT),
+                "The requests of the batch should be counted as dispatched.");
+        assertEquals(1, (long) handlerRegistry.getDispatchCounts().get(RequestType.BATCH),
+                "The batch itself should be counted as dispatched.");
+    }
+
+    private NioResponse handle(NioRequest request) {
+        try {
+            return handlerRegistry.dispatch(request);
+        } catch (RequestNotSupportedException e) {
+            fail("Batch requests should be supported.", e);
+            return null;
+        }
+    }
+
+    private static NioRequest storeRequest() {
+        return NioRequest.builder()
+                .setType(RequestType.STORE_PASSWORD)
+                .setUsername(USERNAME)
+                .setCredentialsUsername(USERNAME)
+                .setApplicationName(APP_NAME)
+                .setPassword(new ServerPassword(new HashedPassword("somePassword".toCharArray()), ENCRYPTED_PASSWORD))
+                .build();
+    }
+
+    private static NioRequest removeRequest(String applicationName) {
+        return NioRequest.builder()
+                .setType(RequestType.REMOVE_PASSWORD)
+                .setUsername(USERNAME)
+                .setCredentialsUsername(USERNAME)
+                .setApplicationName(applicationName)
+                .build();
+    }
+
+    private static NioRequest batchRequest(NioRequest... requests) {
+        return NioRequest.builder()
+                .setType(RequestType.BATCH)
+                .setUsername(USERNAME)
+                .setRequests(List.of(requests))
+                .build();
+    }
+
+}
\ No newline at end of file
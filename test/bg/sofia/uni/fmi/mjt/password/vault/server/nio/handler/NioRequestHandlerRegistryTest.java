@@ -0,0 +1,49 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.nio.handler;
+
+import bg.sofia.uni.fmi.mjt.password.vault.request.NioRequest;
+import bg.sofia.uni.fmi.mjt.password.vault.request.RequestType;
+import bg.sofia.uni.fmi.mjt.password.vault.response.NioResponse;
+import bg.sofia.uni.fmi.mjt.password.vault.response.ResponseType;
+import bg.sofia.uni.fmi.mjt.password.vault.server.nio.exceptions.RequestNotSupportedException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class NioRequestHandlerRegistryTest {
+
+    private static final String USERNAME = "TEST_USERNAME";
+    private static final NioResponse RESPONSE = new NioResponse(ResponseType.LOGOUT_SUCCESSFUL, null);
+
+    @Test
+    public void testWithDefaultHandlersThrowsIllegalArgumentExceptionWhenArgumentsAreNull() {
+        assertThrows(IllegalArgumentException.class,
+                () -> NioRequestHandlerRegistry.withDefaultHandlers(null, null, null),
+                "Method should throw an IllegalArgumentException when arguments are null.");
+    }
+
+    @Test
+    public void testDispatchThrowsRequestNotSupportedExceptionWhenTypeIsNotRegistered() {
+        NioRequestHandlerRegistry registry = new NioRequestHandlerRegistry();
+
+        assertThrows(RequestNotSupportedException.class,
+                () -> registry.dispatch(NioRequest.builder(USERNAME).setType(RequestType.LOGOUT).build()),
+                "Method should throw a RequestNotSupportedException when no handler is registered for the type.");
+    }
+
+    @Test
+    public void testDispatchCallsRegisteredHandlerAndCountsDispatches() throws RequestNotSupportedException {
+        NioRequestHandlerRegistry registry = new NioRequestHandlerRegistry();
+        registry.register(RequestType.LOGOUT, request -> RESPONSE);
+
+        NioRequest request = NioRequest.builder(USERNAME).setType(RequestType.LOGOUT).build();
+        assertEquals(RESPONSE, registry.dispatch(request), "Registered handler should handle the request.");
+        registry.dispatch(request);
+
+        assertEquals(2, (long) registry.getDispatchCounts().get(RequestType.LOGOUT),
+                "Every dispatched request should be counted.");
+        assertEquals(0, (long) registry.getDispatchCounts().get(RequestType.LOGIN),
+                "Types without dispatched requests should have a zero count.");
+    }
+
+}
\ No newline at end of file
@@ -5,6 +5,7 @@ import bg.sofia.uni.fmi.mjt.password.vault.server.credentials.AccountCredentials
 import bg.sofia.uni.fmi.mjt.password.vault.server.repository.AccountCredentialsRepository;
 import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.CredentialAlreadyExistsException;
 import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.CredentialNotFoundException;
+import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.DataFileException;
 import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.ElementAlreadyExistsException;
 import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.ElementNotFoundException;
 import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.UserDeletionException;
@@ -12,9 +13,14 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.FileWriter;
 import java.io.IOException;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -39,6 +45,12 @@ public class AccountCredentialsRepositoryTest {
                     ACCOUNT_CREDENTIALS.values().stream()
                             .map(credentials -> credentials.toString())
                             .toList());
+    private static final Path TEST_FOLDER_PATH = Path.of("testCredentialsData");
+    private static final String TEST_USERNAME = "TestUser";
+    private static final String TEST_CREDENTIALS_EXTENSION = "dat";
+    private static final AccountCredentialsKey NEW_CREDENTIALS_KEY = new AccountCredentialsKey("app4", "user4");
+    private static final AccountCredentials NEW_CREDENTIALS = new AccountCredentials("app4", "user4", "encPass4");
+
     private StringReader stringReader;
     private StringWriter stringWriter;
     private Repository<AccountCredentialsKey, AccountCredentials> accountCredentialsRepository;
@@ -256,6 +268,112 @@ public class AccountCredentialsRepositoryTest {
                 "remove has not written correct data on writer.");
     }
 
+    @Test
+    public void testUpdateInAppendOnlyModeAppendsOnlyTheUpdateRecord() throws ElementNotFoundException {
+        AccountCredentialsRepository repository =
+                new AccountCredentialsRepository(new StringReader(ACCOUNT_CREDENTIALS_MERGED_STRING));
+        repository.setAppendOnly(true);
+        AccountCredentials accountCredentials = new AccountCredentials("app2", "user2", "newPassword");
+
+        repository.update(accountCredentials, stringWriter);
+
+        String[] writtenLines = stringWriter.toString().split(System.lineSeparator());
+        assertEquals(1, writtenLines.length, "update in append-only mode should write a single record.");
+        assertTrue(writtenLines[0].contains("UPDATE") && writtenLines[0].contains("newPassword"),
+                "update in append-only mode has not written the update record.");
+        assertEquals(1, repository.getDeadRecordsCount(), "The updated record should be counted as dead.");
+    }
+
+    @Test
+    public void testRemoveInAppendOnlyModeAppendsOnlyTheRemoveRecord() throws ElementNotFoundException {
+        AccountCredentialsRepository repository =
+                new AccountCredentialsRepository(new StringReader(ACCOUNT_CREDENTIALS_MERGED_STRING));
+        repository.setAppendOnly(true);
+
+        repository.remove(new AccountCredentialsKey("app2", "user2"), stringWriter);
+
+        String[] writtenLines = stringWriter.toString().split(System.lineSeparator());
+        assertEquals(1, writtenLines.length, "remove in append-only mode should write a single record.");
+        assertTrue(writtenLines[0].contains("REMOVE") && !writtenLines[0].contains("encPass2"),
+                "remove in append-only mode has not written the remove record.");
+        assertEquals(2, repository.getDeadRecordsCount(),
+                "Both the removed record and the remove record should be counted as dead.");
+    }
+
+    @Test
+    public void testUpdateThrowsAndKeepsPreviousCredentialsWhenWriterFails() throws ElementNotFoundException {
+        AccountCredentialsKey key = new AccountCredentialsKey("app3", "user3");
+        accountCredentialsRepository.setAppendOnly(true);
+
+        assertThrows(UncheckedIOException.class, () -> accountCredentialsRepository.update(
+                        new AccountCredentials("app3", "user3", "somePassword"), failingWriter()),
+                "update should throw an UncheckedIOException when the writer fails.");
+        assertEquals(ACCOUNT_CREDENTIALS.get(key), accountCredentialsRepository.get(key),
+                "The credentials that are not written to the file should not be kept in memory.");
+    }
+
+    @Test
+    public void testRemoveThrowsAndKeepsCredentialsWhenWriterFails() {
+        AccountCredentialsKey key = new AccountCredentialsKey("app3", "user3");
+
+        assertThrows(UncheckedIOException.class, () -> accountCredentialsRepository.remove(key, failingWriter()),
+                "remove should throw an UncheckedIOException when the writer fails.");
+        assertTrue(accountCredentialsRepository.contains(key),
+                "The credentials whose removal is not written to the file should be kept in memory.");
+    }
+
+    @Test
+    public void testReadingReplaysTheAppendedRecords() throws ElementNotFoundException {
+        AccountCredentialsRepository repository =
+                new AccountCredentialsRepository(new StringReader(ACCOUNT_CREDENTIALS_MERGED_STRING));
+        repository.setAppendOnly(true);
+        AccountCredentials updatedCredentials = new AccountCredentials("app1", "user1", "newPassword");
+        repository.update(updatedCredentials, stringWriter);
+        repository.remove(new AccountCredentialsKey("app2", "user2"), stringWriter);
+
+        AccountCredentialsRepository replayedRepository = new AccountCredentialsRepository(new StringReader(
+                ACCOUNT_CREDENTIALS_MERGED_STRING + System.lineSeparator() + stringWriter));
+
+        assertTrue(mapsAreEqual(repository.getAll(), replayedRepository.getAll()),
+                "Replaying the records should give the credentials in memory.");
+        assertEquals(updatedCredentials, replayedRepository.get(new AccountCredentialsKey("app1", "user1")),
+                "Replaying the records should give the updated credentials.");
+        assertEquals(3, replayedRepository.getDeadRecordsCount(),
+                "Replaying the records should count the dead records.");
+    }
+
+    @Test
+    public void testNeedsCompactionOnlyWhenDeadRecordsPassTheThresholdAndTheLiveRecords()
+            throws ElementNotFoundException {
+        AccountCredentialsRepository repository =
+                new AccountCredentialsRepository(new StringReader(ACCOUNT_CREDENTIALS_MERGED_STRING));
+        repository.setAppendOnly(true);
+        AccountCredentials accountCredentials = new AccountCredentials("app1", "user1", "newPassword");
+
+        repository.update(accountCredentials, stringWriter);
+        repository.update(accountCredentials, stringWriter);
+        assertFalse(repository.needsCompaction(1),
+                "Compaction is not needed while the live records outnumber the dead ones.");
+
+        repository.update(accountCredentials, stringWriter);
+        assertTrue(repository.needsCompaction(1), "Compaction is needed when the dead records pass the threshold.");
+        assertFalse(repository.needsCompaction(4), "Compaction is not needed below the threshold.");
+    }
+
+    @Test
+    public void testFlushClearsTheDeadRecords() throws ElementNotFoundException {
+        AccountCredentialsRepository repository =
+                new AccountCredentialsRepository(new StringReader(ACCOUNT_CREDENTIALS_MERGED_STRING));
+        repository.setAppendOnly(true);
+        repository.remove(new AccountCredentialsKey("app2", "user2"), Writer.nullWriter());
+
+        repository.flush(stringWriter);
+
+        assertEquals(0, repository.getDeadRecordsCount(), "Flush should write the live records only.");
+        assertEquals(2, stringWriter.toString().split(System.lineSeparator()).length,
+                "Flush should write all live credentials.");
+    }
+
     @Test
     public void testUserRepositoryConstructorWithReaderThrowsIllegalArgumentExceptionIfAtLeastOneArgumentIsNull() {
         assertThrows(IllegalArgumentException.class, () -> new AccountCredentialsRepository(null),
@@ -268,6 +386,49 @@ public class AccountCredentialsRepositoryTest {
                 "Constructor should throw an IllegalArgumentException when directory and extension is null");
     }
 
+    @Test
+    public void testLoadRemovesHalfWrittenLastRecord()
+            throws IOException, ElementNotFoundException, ElementAlreadyExistsException {
+        Files.createDirectories(TEST_FOLDER_PATH);
+        AccountCredentialsRepository repositoryWithFile = new AccountCredentialsRepository(
+                TEST_USERNAME, TEST_FOLDER_PATH.toString(), TEST_CREDENTIALS_EXTENSION);
+        String completeRecords = ACCOUNT_CREDENTIALS_MERGED_STRING + System.lineSeparator();
+        String record = NEW_CREDENTIALS.toString();
+        Files.writeString(credentialsFilePath(), completeRecords + record.substring(0, record.length() / 2));
+
+        try {
+            assertTrue(mapsAreEqual(ACCOUNT_CREDENTIALS, repositoryWithFile.getAll()),
+                    "The complete records before the half-written one should be read.");
+            assertEquals(completeRecords, Files.readString(credentialsFilePath()),
+                    "The half-written record should be removed from the file.");
+
+            try (Writer writer = new FileWriter(credentialsFilePath().toString(), true)) {
+                repositoryWithFile.put(NEW_CREDENTIALS, writer);
+            }
+            repositoryWithFile.reload();
+            assertEquals(NEW_CREDENTIALS, repositoryWithFile.get(NEW_CREDENTIALS_KEY),
+                    "A record appended after the removal should be read.");
+        } finally {
+            repositoryWithFile.deletePathIfExists();
+            Files.deleteIfExists(TEST_FOLDER_PATH);
+        }
+    }
+
+    @Test
+    public void testReadingThrowsDataFileExceptionWhenMalformedRecordIsNotLast() {
+        String credentialsWithMalformedRecord =
+                "{\"applicationName\":" + System.lineSeparator() + ACCOUNT_CREDENTIALS_MERGED_STRING;
+
+        assertThrows(DataFileException.class,
+                () -> new AccountCredentialsRepository(new StringReader(credentialsWithMalformedRecord)),
+                "A malformed record before the end of the file should not be skipped.");
+    }
+
+    private static Path credentialsFilePath() {
+        return AccountCredentialsRepository.generateCredentialsFilePath(
+                TEST_USERNAME, TEST_FOLDER_PATH.toString(), TEST_CREDENTIALS_EXTENSION);
+    }
+
     private <K, V> boolean mapsAreEqual(Map<K, V> map1, Map<K, V> map2) {
         for (Map.Entry<K, V> map1Entry : map1.entrySet()) {
             if (!map2.containsKey(map1Entry.getKey())) {
@@ -280,4 +441,22 @@ public class AccountCredentialsRepositoryTest {
         return map1.size() == map2.size();
     }
 
+    // a writer whose target cannot take any more data, e.g. because the disk is full
+    private static Writer failingWriter() {
+        return new Writer() {
+            @Override
+            public void write(char[] buffer, int offset, int length) throws IOException {
+                throw new IOException("No space left on device.");
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package bg.sofia.uni.fmi.mjt.password.vault.server.repository;
 
 import bg.sofia.uni.fmi.mjt.password.vault.client.HashedPassword;
 import bg.sofia.uni.fmi.mjt.password.vault.client.encryptor.EncryptionData;
+import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.DataFileException;
 import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.ElementAlreadyExistsException;
 import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.ElementNotFoundException;
 import bg.sofia.uni.fmi.mjt.password.vault.server.user.DefaultUser;
@@ -16,9 +17,12 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
+import java.io.FileWriter;
 import java.io.IOException;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -291,6 +295,139 @@ public class UserRepositoryTest {
         assertFalse(Files.exists(TEST_USERS_FILE_PATH));
     }
 
+    @Test
+    public void testReloadReadsUsersWrittenByOtherRepository() throws IOException {
+        createFileIfDoesNotExist(TEST_USERS_FILE_PATH);
+        Files.writeString(TEST_USERS_FILE_PATH, "");
+        userRepositoryWithFile = new UserRepository<>(TEST_USERS_FILE_PATH, DefaultUser.class);
+
+        Files.writeString(TEST_USERS_FILE_PATH, USERS_MERGED_STRING);
+        userRepositoryWithFile.reload();
+
+        assertTrue(mapsAreEqual(USERS, userRepositoryWithFile.getAll()),
+                "Reload should read the users of the file again.");
+    }
+
+    @Test
+    public void testUpdateAppendsOnlyUpdatedUserInAppendOnlyMode() throws ElementNotFoundException {
+        userRepository.setAppendOnly(true);
+        userRepository.update(TEST_USER_CONTAINED, stringWriter);
+
+        assertEquals(TEST_USER_CONTAINED + System.lineSeparator(), stringWriter.toString(),
+                "update should append only the updated user in append-only mode.");
+    }
+
+    @Test
+    public void testUpdateThrowsAndKeepsPreviousUserWhenWriterFails() throws ElementNotFoundException {
+        userRepository.setAppendOnly(true);
+
+        assertThrows(UncheckedIOException.class, () -> userRepository.update(TEST_USER_CONTAINED, failingWriter()),
+                "update should throw an UncheckedIOException when the writer fails.");
+        String username = TEST_USER_CONTAINED.getUsername();
+        assertEquals(USERS.get(username), userRepository.get(username),
+                "The user that is not written to the file should not be kept in memory.");
+    }
+
+    @Test
+    public void testRemoveThrowsAndKeepsUserWhenWriterFails() {
+        assertThrows(UncheckedIOException.class, () -> userRepository.remove("user1", failingWriter()),
+                "remove should throw an UncheckedIOException when the writer fails.");
+        assertTrue(userRepository.contains("user1"),
+                "The user whose removal is not written to the file should be kept in memory.");
+    }
+
+    @Test
+    public void testReadingJournalReplaysUpdatesAndTombstones() throws ElementNotFoundException, UserDeletionException {
+        userRepository.setAppendOnly(true);
+        userRepository.update(TEST_USER_CONTAINED, stringWriter);
+        userRepository.remove("user1", stringWriter);
+
+        UserRepository<DefaultUser> replayedRepository = new UserRepository<>(
+                new StringReader(USERS_MERGED_STRING + System.lineSeparator() + stringWriter), DefaultUser.class);
+
+        assertTrue(mapsAreEqual(userRepository.getAll(), replayedRepository.getAll()),
+                "Reading the journal should give the users after the update and the removal.");
+        assertEquals(3, replayedRepository.getDeadRecordsCount(),
+                "The overwritten user, the removed user and its tombstone should be dead records.");
+    }
+
+    @Test
+    public void testFlushWritesLiveUsersAndResetsDeadRecords() throws ElementNotFoundException, UserDeletionException {
+        UserRepository<DefaultUser> appendOnlyRepository =
+                new UserRepository<>(new StringReader(USERS_MERGED_STRING), DefaultUser.class);
+        appendOnlyRepository.setAppendOnly(true);
+        appendOnlyRepository.update(TEST_USER_CONTAINED, Writer.nullWriter());
+        appendOnlyRepository.remove("user1", Writer.nullWriter());
+
+        assertTrue(appendOnlyRepository.needsCompaction(2),
+                "Repository should need compaction when dead records reach the threshold and the live users.");
+        assertFalse(appendOnlyRepository.needsCompaction(4),
+                "Repository should not need compaction below the threshold.");
+
+        appendOnlyRepository.flush(stringWriter);
+
+        UserRepository<DefaultUser> flushedRepository =
+                new UserRepository<>(new StringReader(stringWriter.toString()), DefaultUser.class);
+        assertTrue(mapsAreEqual(appendOnlyRepository.getAll(), flushedRepository.getAll()),
+                "flush should write all live users.");
+        assertEquals(0, appendOnlyRepository.getDeadRecordsCount(),
+                "flush should reset the dead records.");
+        assertEquals(0, flushedRepository.getDeadRecordsCount(),
+                "The flushed file should not have dead records.");
+    }
+
+    @Test
+    public void testFlushOfCopyKeepsDeadRecordsOfLaterChanges() throws ElementNotFoundException, UserDeletionException {
+        UserRepository<DefaultUser> appendOnlyRepository =
+                new UserRepository<>(new StringReader(USERS_MERGED_STRING), DefaultUser.class);
+        appendOnlyRepository.setAppendOnly(true);
+        appendOnlyRepository.remove("user1", Writer.nullWriter());
+        Map<String, DefaultUser> copy = appendOnlyRepository.getAll();
+        int copiedDeadRecordsCount = appendOnlyRepository.getDeadRecordsCount();
+        appendOnlyRepository.update(TEST_USER_CONTAINED, Writer.nullWriter());
+
+        appendOnlyRepository.flush(copy, stringWriter);
+        appendOnlyRepository.forgetDeadRecords(copiedDeadRecordsCount);
+
+        UserRepository<DefaultUser> flushedRepository =
+                new UserRepository<>(new StringReader(stringWriter.toString()), DefaultUser.class);
+        assertTrue(mapsAreEqual(copy, flushedRepository.getAll()), "flush should write the given users.");
+        assertEquals(1, appendOnlyRepository.getDeadRecordsCount(),
+                "The dead record of the change after the copy should still be counted.");
+    }
+
+    @Test
+    public void testReadingFileRemovesHalfWrittenLastRecord()
+            throws IOException, ElementNotFoundException, ElementAlreadyExistsException {
+        String completeRecords = USERS_MERGED_STRING + System.lineSeparator();
+        String userRecord = TEST_USER_NOT_CONTAINED.toString();
+        Files.writeString(TEST_USERS_FILE_PATH, completeRecords + userRecord.substring(0, userRecord.length() / 2));
+
+        userRepositoryWithFile = new UserRepository<>(TEST_USERS_FILE_PATH, DefaultUser.class);
+
+        assertTrue(mapsAreEqual(USERS, userRepositoryWithFile.getAll()),
+                "The complete records before the half-written one should be read.");
+        assertEquals(completeRecords, Files.readString(TEST_USERS_FILE_PATH),
+                "The half-written record should be removed from the file.");
+
+        try (Writer writer = new FileWriter(TEST_USERS_FILE_PATH.toString(), true)) {
+            userRepositoryWithFile.put(TEST_USER_NOT_CONTAINED, writer);
+        }
+        userRepositoryWithFile.reload();
+        assertEquals(TEST_USER_NOT_CONTAINED.getUsername(),
+                userRepositoryWithFile.get(TEST_USER_NOT_CONTAINED.getUsername()).getUsername(),
+                "A record appended after the removal should be read.");
+    }
+
+    @Test
+    public void testReadingThrowsDataFileExceptionWhenMalformedRecordIsNotLast() {
+        String usersWithMalformedRecord = "{\"username\":" + System.lineSeparator() + USERS_MERGED_STRING;
+
+        assertThrows(DataFileException.class,
+                () -> new UserRepository<>(new StringReader(usersWithMalformedRecord), DefaultUser.class),
+                "A malformed record before the end of the file should not be skipped.");
+    }
+
     private <K, V> boolean mapsAreEqual(Map<K, V> map1, Map<K, V> map2) {
         for (Map.Entry<K, V> map1Entry : map1.entrySet()) {
             if (!map2.containsKey(map1Entry.getKey())) {
@@ -324,4 +461,22 @@ public class UserRepositoryTest {
         }
     }
 
-}
+    // a writer whose target cannot take any more data, e.g. because the disk is full
+    private static Writer failingWriter() {
+        return new Writer() {
+            @Override
+            public void write(char[] buffer, int offset, int length) throws IOException {
+                throw new IOException("No space left on device.");
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+}
\ No newline at end of file
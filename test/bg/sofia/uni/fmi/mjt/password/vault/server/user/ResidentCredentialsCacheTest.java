@@ -0,0 +1,138 @@
+package bg.sofia.uni.fmi.mjt.password.vault.server.user;
+
+import bg.sofia.uni.fmi.mjt.password.vault.client.HashedPassword;
+import bg.sofia.uni.fmi.mjt.password.vault.client.encryptor.EncryptionData;
+import bg.sofia.uni.fmi.mjt.password.vault.server.repository.AccountCredentialsRepository;
+import bg.sofia.uni.fmi.mjt.password.vault.server.repository.exceptions.RepositoryException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class ResidentCredentialsCacheTest {
+
+    private static final Path CREDENTIALS_DIRECTORY = Path.of("testResidentCredentials");
+    private static final String CREDENTIALS_EXTENSION = ".dat";
+    private static final String APP_NAME = "AppName";
+    private static final String CREDENTIALS_USERNAME = "CredentialsUsername";
+    private static final String CREDENTIALS_PASSWORD = "CredentialsPassword";
+    private static final EncryptionData ENCRYPTION_DATA =
+            new EncryptionData(1024, "123".getBytes(StandardCharsets.UTF_8));
+
+    private DefaultUser firstUser;
+    private DefaultUser secondUser;
+
+    @BeforeEach
+    public void setUp() throws IOException, RepositoryException {
+        Files.createDirectories(CREDENTIALS_DIRECTORY);
+        firstUser = createUserWithCredentials("first");
+        secondUser = createUserWithCredentials("second");
+    }
+
+    @Test
+    public void testConstructorThrowsIllegalArgumentExceptionWhenMaxResidentBytesIsNotPositive() {
+        assertThrows(IllegalArgumentException.class, () -> new ResidentCredentialsCache(0),
+                "Constructor should throw an IllegalArgumentException when max resident bytes is not positive.");
+    }
+
+    @Test
+    public void testAccessLoadsCredentialsOnlyOnFirstAccess() {
+        ResidentCredentialsCache cache = new ResidentCredentialsCache();
+        assertFalse(firstUser.isCredentialsLoaded(), "Credentials should not be loaded before the first access.");
+
+        cache.access(firstUser);
+        cache.access(firstUser);
+
+        ResidentCredentialsStats stats = cache.getStats();
+        assertTrue(firstUser.isCredentialsLoaded(), "Credentials should be loaded after the first access.");
+        assertEquals(1, stats.misses(), "Only the first access should be a miss.");
+        assertEquals(1, stats.hits(), "The second access should be a hit.");
+        assertEquals(1, stats.loadTimes().count(), "The load time of the first access should be recorded.");
+        assertEquals(firstUser.estimateCredentialsBytes(), stats.residentBytes(),
+                "Resident bytes should be the estimated size of the loaded credentials.");
+    }
+
+    @Test
+    public void testAccessUnloadsLeastRecentlyAccessedUserWhenOverLimit() {
+        ResidentCredentialsCache cache = new ResidentCredentialsCache(1);
+
+        cache.access(firstUser);
+        assertTrue(firstUser.isCredentialsLoaded(), "The accessed user should not be unloaded.");
+        cache.access(secondUser);
+
+        assertFalse(firstUser.isCredentialsLoaded(), "The least recently accessed user should be unloaded.");
+        assertTrue(secondUser.isCredentialsLoaded(), "The accessed user should not be unloaded.");
+        assertEquals(1, cache.getStats().evictions(), "One user should be evicted.");
+        assertEquals(1, cache.getStats().residentUsers(), "Only the accessed user should be resident.");
+    }
+
+    @Test
+    public void testAccessReadsCredentialsOfUnloadedUserAgain() throws RepositoryException {
+        ResidentCredentialsCache cache = new ResidentCredentialsCache(1);
+        cache.access(firstUser);
+        cache.access(secondUser);
+
+        cache.access(firstUser);
+
+        assertEquals(CREDENTIALS_PASSWORD, firstUser.getCredentials(APP_NAME, CREDENTIALS_USERNAME),
+                "Unloaded credentials should be read from the file on the next access.");
+        assertEquals(3, cache.getStats().misses(), "An access to an unloaded user should be a miss.");
+    }
+
+    @Test
+    public void testResumeEvictionsUnloadsUsersAccessedWhileSuspended() {
+        ResidentCredentialsCache cache = new ResidentCredentialsCache(1);
+
+        cache.suspendEvictions();
+        cache.access(firstUser);
+        cache.access(secondUser);
+        assertTrue(firstUser.isCredentialsLoaded() && secondUser.isCredentialsLoaded(),
+                "No user should be unloaded while evictions are suspended.");
+        cache.resumeEvictions();
+
+        assertFalse(firstUser.isCredentialsLoaded(), "Users over the limit should be unloaded on resume.");
+        assertThrows(IllegalStateException.class, cache::resumeEvictions,
+                "Method should throw an IllegalStateException when evictions are not suspended.");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        try (Stream<Path> paths = Files.walk(CREDENTIALS_DIRECTORY)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        } catch (IOException e) {
+            fail("Credentials directory deletion has thrown an IOException.", e);
+        }
+    }
+
+    private DefaultUser createUserWithCredentials(String username) throws IOException, RepositoryException {
+        AccountCredentialsRepository repository = new AccountCredentialsRepository(username,
+                CREDENTIALS_DIRECTORY.toString(), CREDENTIALS_EXTENSION);
+        DefaultUser user = new DefaultUser(username, new HashedPassword(username.toCharArray()), ENCRYPTION_DATA,
+                repository);
+        try (Writer writer = new FileWriter(AccountCredentialsRepository.generateCredentialsFilePath(username,
+                CREDENTIALS_DIRECTORY.toString(), CREDENTIALS_EXTENSION).toString(), true)) {
+            user.addCredentials(APP_NAME, CREDENTIALS_USERNAME, CREDENTIALS_PASSWORD, writer);
+        }
+        // the credentials are read from the file on the first access through the cache
+        user.unloadCredentials();
+
+        return user;
+    }
+
+}
\ No newline at end of file